@@ -0,0 +1,136 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.actions.downloadtasks;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.geom.Area;
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.Future;
+
+import javax.swing.Timer;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.pbf.OsmPbfIndex;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.NavigatableComponent.ZoomChangeListener;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.io.OsmPbfIndexReader;
+
+/**
+ * Load areas of a large OSM PBF file, as if they were downloaded from the OSM server.
+ * <p>
+ * The task can follow the map view: when the view is panned or zoomed out of the loaded area, the data of the new view is loaded
+ * into the layer of the file.
+ * @since xxx
+ */
+public class DownloadOsmPbfTask extends DownloadOsmTask implements ZoomChangeListener {
+
+    /** The maximal area (in square degrees) loaded when following the map view */
+    public static final DoubleProperty MAX_FOLLOW_AREA = new DoubleProperty("pbf.partial.max-follow-area", 1.0);
+
+    private final File file;
+    private final OsmPbfIndex index;
+    private final Timer followTimer = new Timer(500, e -> loadView());
+    private OsmDataLayer followedLayer;
+    private Future<?> followDownload;
+
+    /**
+     * Constructs a new {@code DownloadOsmPbfTask}.
+     * @param file the PBF file
+     * @param index the index of the file, see {@link org.openstreetmap.josm.io.OsmPbfReader#getIndex}
+     */
+    public DownloadOsmPbfTask(File file, OsmPbfIndex index) {
+        this.file = Objects.requireNonNull(file);
+        this.index = Objects.requireNonNull(index);
+        this.warnAboutEmptyArea = false;
+        this.followTimer.setRepeats(false);
+    }
+
+    @Override
+    public String getTitle() {
+        return tr("Load OSM PBF area");
+    }
+
+    @Override
+    public Future<?> download(DownloadParams settings, Bounds downloadArea, ProgressMonitor progressMonitor) {
+        return download(new PbfDownloadTask(settings, new OsmPbfIndexReader(file, index, downloadArea), progressMonitor), downloadArea);
+    }
+
+    @Override
+    public boolean isSafeForRemotecontrolRequests() {
+        return false;
+    }
+
+    /**
+     * Load the data of the map view into a layer each time the view moves out of the loaded area
+     * @param layer the layer with the data of the file
+     */
+    public void followView(OsmDataLayer layer) {
+        this.followedLayer = Objects.requireNonNull(layer);
+        NavigatableComponent.addZoomChangeListener(this);
+    }
+
+    /**
+     * Stop loading the data of the map view, see {@link #followView(OsmDataLayer)}
+     */
+    public void stopFollowingView() {
+        NavigatableComponent.removeZoomChangeListener(this);
+        this.followTimer.stop();
+        this.followedLayer = null;
+    }
+
+    @Override
+    public void zoomChanged() {
+        // Wait for the view to settle, so that we don't read the file for each step of a drag
+        this.followTimer.restart();
+    }
+
+    private void loadView() {
+        final OsmDataLayer layer = this.followedLayer;
+        if (layer == null || !MainApplication.isDisplayingMapView()) {
+            return;
+        }
+        if (!MainApplication.getLayerManager().containsLayer(layer)) {
+            stopFollowingView();
+            return;
+        }
+        // The downloaded data is merged into the edit layer
+        if (MainApplication.getLayerManager().getEditLayer() != layer || (followDownload != null && !followDownload.isDone())) {
+            return;
+        }
+        final Bounds view = MainApplication.getMap().mapView.getRealBounds();
+        final Area loaded = layer.getDataSet().getDataSourceArea();
+        if (view.getArea() > MAX_FOLLOW_AREA.get() || (loaded != null && loaded.contains(view.asRect()))) {
+            return;
+        }
+        setZoomAfterDownload(false);
+        followDownload = download(new DownloadParams(), view, null);
+    }
+
+    /**
+     * The download task. Primitives missing from the area are not updated from the server, since they come from a local file.
+     */
+    class PbfDownloadTask extends DownloadTask {
+        PbfDownloadTask(DownloadParams settings, OsmPbfIndexReader reader, ProgressMonitor progressMonitor) {
+            super(settings, reader, progressMonitor, DownloadOsmPbfTask.this.zoomAfterDownload);
+        }
+
+        @Override
+        protected String generateLayerName() {
+            return file.getName();
+        }
+
+        @Override
+        protected Collection<OsmPrimitive> searchPrimitivesToUpdate(Bounds bounds, DataSet ds) {
+            return Collections.emptySet();
+        }
+    }
+}
@@ -23,8 +23,10 @@ import org.openstreetmap.josm.actions.ActionParameter;
 import org.openstreetmap.josm.actions.ExpertToggleAction;
 import org.openstreetmap.josm.actions.JosmAction;
 import org.openstreetmap.josm.actions.ParameterizedAction;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.OsmData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.search.PushbackTokenizer;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
@@ -393,11 +395,17 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
                     foundMatches = selection.size();
                 }
 
-                Collection<? extends IPrimitive> all;
-                if (setting.allElements) {
-                    all = ds.allPrimitives();
-                } else {
-                    all = ds.getPrimitives(IPrimitive::isSelectable);
+                Collection<? extends IPrimitive> all = null;
+                if (ds instanceof DataSet && setting.mode != SearchMode.in_selection) {
+                    // Only test the primitives which may match according to the tag index
+                    Collection<OsmPrimitive> candidates = SearchCompiler.getCandidates(matcher, (DataSet) ds);
+                    if (candidates != null && !setting.allElements) {
+                        candidates.removeIf(p -> !p.isSelectable());
+                    }
+                    all = candidates;
+                }
+                if (all == null) {
+                    all = setting.allElements ? ds.allPrimitives() : ds.getPrimitives(IPrimitive::isSelectable);
                 }
                 final ProgressMonitor subMonitor = getProgressMonitor().createSubTaskMonitor(all.size(), false);
                 subMonitor.beginTask(trn("Searching in {0} object", "Searching in {0} objects", all.size(), all.size()));
@@ -2,12 +2,13 @@
 package org.openstreetmap.josm.data.cache;
 
 import java.io.IOException;
-import java.net.URL;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.openstreetmap.josm.tools.Logging;
 
@@ -22,6 +23,11 @@ import org.openstreetmap.josm.tools.Logging;
  * [2] If we have a queue, and for all hosts in queue we will fail to acquire semaphore, the thread
  *     take the first available job and wait for semaphore. It might be the case, that semaphore was released
  *     for some task further in queue, but this implementation doesn't try to detect such situation
+ * <p>
+ * Jobs are served by {@link JCSCachedTileLoaderJob#getPriority() priority}, lowest value first, and in insertion
+ * order for the same priority. The priority is evaluated each time a worker looks for a job, so that it can follow
+ * the viewport while jobs are waiting. A worker waiting for a host slot swaps its job for a more urgent one of the
+ * same host when it gets the slot.
  *
  * @author Wiktor Niesiobędzki
  */
@@ -31,6 +37,10 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
     private final Map<String, Semaphore> hostSemaphores = new ConcurrentHashMap<>();
     private final int hostLimit;
 
+    private final LongAdder servedJobs = new LongAdder();
+    private final LongAdder totalWaitTime = new LongAdder();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
     /**
      * Creates an unbounded queue
      * @param hostLimit how many parallel calls to host to allow
@@ -50,30 +60,122 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
         this.hostLimit = hostLimit;
     }
 
+    private static long getPriority(Runnable r) {
+        return r instanceof JCSCachedTileLoaderJob ? ((JCSCachedTileLoaderJob<?, ?>) r).getPriority() : 0;
+    }
+
     private JCSCachedTileLoaderJob<?, ?> findJob() {
-        for (Runnable r : this) {
-            if (r instanceof JCSCachedTileLoaderJob) {
-                JCSCachedTileLoaderJob<?, ?> job = (JCSCachedTileLoaderJob<?, ?>) r;
-                if (tryAcquireSemaphore(job)) {
-                    if (remove(job)) {
-                        return job;
-                    } else {
-                        // we have acquired the semaphore, but we didn't manage to remove job, as someone else did
-                        // release the semaphore and look for another candidate
-                        releaseSemaphore(job);
+        while (true) {
+            JCSCachedTileLoaderJob<?, ?> best = null;
+            long bestPriority = Long.MAX_VALUE;
+            for (Runnable r : this) {
+                if (r instanceof JCSCachedTileLoaderJob) {
+                    JCSCachedTileLoaderJob<?, ?> job = (JCSCachedTileLoaderJob<?, ?>) r;
+                    long priority = job.getPriority();
+                    if (priority < bestPriority && getSemaphore(job).availablePermits() > 0) {
+                        best = job;
+                        bestPriority = priority;
                     }
+                }
+            }
+            if (best == null) {
+                Logging.trace("TMS - No job found with a free host slot");
+                return null;
+            }
+            if (tryAcquireSemaphore(best)) {
+                if (remove(best)) {
+                    return served(best);
                 } else {
-                    URL url = null;
-                    try {
-                        url = job.getUrl();
-                    } catch (IOException e) {
-                        Logging.debug(e);
-                    }
-                    Logging.debug("TMS - Skipping job {0} because host limit reached", url);
+                    // we have acquired the semaphore, but we didn't manage to remove job, as someone else did
+                    // release the semaphore and look for another candidate
+                    releaseSemaphore(best);
                 }
             }
         }
-        return null;
+    }
+
+    /**
+     * Swaps a job for which the host semaphore has been acquired for a more urgent job of the same host, if any.
+     * The priorities may have changed while waiting for the semaphore.
+     * @param job the job for which the semaphore has been acquired
+     * @return the job to run
+     */
+    private Runnable swapForMoreUrgent(Runnable job) {
+        if (!(job instanceof JCSCachedTileLoaderJob)) {
+            return job;
+        }
+        final JCSCachedTileLoaderJob<?, ?> held = (JCSCachedTileLoaderJob<?, ?>) job;
+        final Semaphore limit = getSemaphore(held);
+        JCSCachedTileLoaderJob<?, ?> best = null;
+        long bestPriority = held.getPriority();
+        for (Runnable r : this) {
+            if (r instanceof JCSCachedTileLoaderJob && getPriority(r) < bestPriority
+                    && getSemaphore((JCSCachedTileLoaderJob<?, ?>) r) == limit) {
+                best = (JCSCachedTileLoaderJob<?, ?>) r;
+                bestPriority = best.getPriority();
+            }
+        }
+        if (best != null && remove(best)) {
+            // the held job goes back to the queue, it will get its own semaphore when it is taken again
+            held.setFinishedTask(null);
+            if (offer(held)) {
+                final JCSCachedTileLoaderJob<?, ?> swapped = best;
+                swapped.setFinishedTask(() -> releaseSemaphore(swapped));
+                return swapped;
+            }
+            held.setFinishedTask(() -> releaseSemaphore(held));
+            if (!offerFirst(best)) {
+                Logging.warn("Unable to offer back " + best);
+            }
+        }
+        return held;
+    }
+
+    private <T extends Runnable> T served(T job) {
+        if (job instanceof JCSCachedTileLoaderJob) {
+            long wait = System.nanoTime() - ((JCSCachedTileLoaderJob<?, ?>) job).queuedTime;
+            servedJobs.increment();
+            totalWaitTime.add(wait);
+            maxWaitTime.accumulateAndGet(wait, Math::max);
+        }
+        return job;
+    }
+
+    @Override
+    public boolean offerLast(Runnable e) {
+        if (e instanceof JCSCachedTileLoaderJob) {
+            ((JCSCachedTileLoaderJob<?, ?>) e).queuedTime = System.nanoTime();
+        }
+        return super.offerLast(e);
+    }
+
+    /**
+     * Returns the number of jobs taken from this queue by the workers.
+     * The number of waiting jobs is the {@link #size() size} of the queue.
+     * @return the number of jobs taken from this queue
+     * @since xxx
+     */
+    public long getServedCount() {
+        return servedJobs.sum();
+    }
+
+    /**
+     * Returns the average time the jobs taken from this queue have waited in it.
+     * @return the average wait time, in milliseconds
+     * @since xxx
+     */
+    public long getAverageWaitTime() {
+        long served = servedJobs.sum();
+        return served == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitTime.sum() / served);
+    }
+
+    /**
+     * Returns the longest time a job taken from this queue has waited in it.
+     * @return the maximum wait time, in milliseconds
+     * @since xxx
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get());
     }
 
     @Override
@@ -86,7 +188,7 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
         if (job != null) {
             try {
                 boolean gotLock = tryAcquireSemaphore(job, timeout, unit);
-                return gotLock ? job : null;
+                return gotLock ? served(swapForMoreUrgent(job)) : null;
             } catch (InterruptedException e) {
                 // acquire my got interrupted, first offer back what was taken
                 if (!offer(job)) {
@@ -114,7 +216,7 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
             }
             throw e;
         }
-        return job;
+        return served(swapForMoreUrgent(job));
     }
 
     private Semaphore getSemaphore(JCSCachedTileLoaderJob<?, ?> job) {
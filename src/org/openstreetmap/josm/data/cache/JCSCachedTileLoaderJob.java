@@ -98,6 +98,8 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
     private Runnable finishTask;
     private boolean force;
     private final long minimumExpiryTime;
+    /** when the job was put in the {@link HostLimitQueue}, in nanoseconds */
+    long queuedTime;
 
     /**
      * @param cache cache instance that we will work on
@@ -574,6 +576,16 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
         }
     }
 
+    /**
+     * Returns the priority of this job in the {@link HostLimitQueue}. Jobs with lower values are run first.
+     * The priority may change while the job is waiting, it is evaluated each time a worker looks for a job.
+     * @return the priority of this job, 0 by default
+     * @since xxx
+     */
+    public long getPriority() {
+        return 0;
+    }
+
     /**
      * Sets a job, that will be run, when job will finish execution
      * @param runnable that will be executed
@@ -1,8 +1,12 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.imagery;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 import org.apache.commons.jcs3.access.behavior.ICacheAccess;
 import org.apache.commons.jcs3.engine.behavior.ICache;
@@ -47,6 +51,8 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
 
     private ThreadPoolExecutor downloadExecutor = DEFAULT_DOWNLOAD_JOB_DISPATCHER;
     protected final TileJobOptions options;
+    private volatile ToLongFunction<Tile> tilePriority;
+    private final LongAdder cancelledJobs = new LongAdder();
 
     /**
      * Constructor
@@ -101,12 +107,37 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
 
     @Override
     public TileJob createTileLoaderJob(Tile tile) {
-        return new TMSCachedTileLoaderJob(
+        TMSCachedTileLoaderJob job = new TMSCachedTileLoaderJob(
                 listener,
                 tile,
                 cache,
                 options,
                 getDownloadExecutor());
+        job.setPriority(this::getTilePriority);
+        return job;
+    }
+
+    /**
+     * Sets the download priority of the tiles, for instance according to their zoom level and their distance to the
+     * center of the view. It is evaluated when the download queue is served, so it may change while the tiles wait.
+     * @param tilePriority the download priority of a tile, lower values are downloaded first. {@code null} to download
+     * the tiles in request order
+     * @since xxx
+     */
+    public void setTilePriority(ToLongFunction<Tile> tilePriority) {
+        this.tilePriority = tilePriority;
+    }
+
+    /**
+     * Returns the download priority of a tile
+     * @param tile the tile
+     * @return the download priority of the tile, lower values are downloaded first
+     * @see #setTilePriority(ToLongFunction)
+     * @since xxx
+     */
+    public long getTilePriority(Tile tile) {
+        ToLongFunction<Tile> priority = tilePriority;
+        return priority != null ? priority.applyAsLong(tile) : 0;
     }
 
     @Override
@@ -119,7 +150,18 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
      * @return cache statistics as string
      */
     public String getStats() {
-        return cache.getStats();
+        StringBuilder sb = new StringBuilder(cache.getStats());
+        BlockingQueue<Runnable> queue = downloadExecutor.getQueue();
+        sb.append("\n--- Download queue ---")
+          .append("\nQueued jobs: ").append(queue.size())
+          .append("\nCancelled jobs: ").append(getCancelledCount());
+        if (queue instanceof HostLimitQueue) {
+            HostLimitQueue hostLimitQueue = (HostLimitQueue) queue;
+            sb.append("\nServed jobs: ").append(hostLimitQueue.getServedCount())
+              .append("\nAverage wait time (ms): ").append(hostLimitQueue.getAverageWaitTime())
+              .append("\nMaximum wait time (ms): ").append(hostLimitQueue.getMaxWaitTime());
+        }
+        return sb.toString();
     }
 
     /**
@@ -135,6 +177,37 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
         }
     }
 
+    /**
+     * Cancels the queued tasks of the tiles matching the given predicate, for instance the tiles which left the view.
+     * This rollbacks the state of these tiles to loading = false / loaded = false. Running tasks are not affected.
+     * @param stale the predicate matching the tiles which do not need to be loaded anymore
+     * @return the number of cancelled tasks
+     * @since xxx
+     */
+    public int cancelOutstandingTasks(Predicate<Tile> stale) {
+        int cancelled = 0;
+        for (Runnable r: downloadExecutor.getQueue()) {
+            if (r instanceof TMSCachedTileLoaderJob) {
+                TMSCachedTileLoaderJob job = (TMSCachedTileLoaderJob) r;
+                if (job.tile != null && stale.test(job.tile) && downloadExecutor.remove(job)) {
+                    job.handleJobCancellation();
+                    cancelled++;
+                }
+            }
+        }
+        cancelledJobs.add(cancelled);
+        return cancelled;
+    }
+
+    /**
+     * Returns the number of tasks cancelled by {@link #cancelOutstandingTasks(Predicate)}.
+     * @return the number of cancelled tasks
+     * @since xxx
+     */
+    public long getCancelledCount() {
+        return cancelledJobs.sum();
+    }
+
     @Override
     public boolean hasOutstandingTasks() {
         return downloadExecutor.getTaskCount() > downloadExecutor.getCompletedTaskCount();
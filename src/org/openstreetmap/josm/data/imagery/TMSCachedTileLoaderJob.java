@@ -19,6 +19,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -58,6 +59,7 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
     protected final Tile tile;
     private volatile URL url;
     private final TileJobOptions options;
+    private volatile ToLongFunction<Tile> priority;
 
     // we need another deduplication of Tile Loader listeners, as for each submit, new TMSCachedTileLoaderJob was created
     // that way, we reduce calls to tileLoadingFinished, and general CPU load due to surplus Map repaints
@@ -118,6 +120,21 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         return url;
     }
 
+    /**
+     * Sets the function giving the download priority of the tile, see {@link #getPriority()}
+     * @param priority the download priority of a tile, lower values are downloaded first
+     * @since xxx
+     */
+    public void setPriority(ToLongFunction<Tile> priority) {
+        this.priority = priority;
+    }
+
+    @Override
+    public long getPriority() {
+        ToLongFunction<Tile> p = priority;
+        return p != null && tile != null ? p.applyAsLong(tile) : 0;
+    }
+
     @Override
     public boolean isObjectLoadable() {
         if (cacheData != null) {
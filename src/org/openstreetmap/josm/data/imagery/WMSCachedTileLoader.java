@@ -40,6 +40,8 @@ public class WMSCachedTileLoader extends TMSCachedTileLoader {
 
     @Override
     public TileJob createTileLoaderJob(Tile tile) {
-        return new WMSCachedTileLoaderJob(listener, tile, cache, options, getDownloadExecutor());
+        WMSCachedTileLoaderJob job = new WMSCachedTileLoaderJob(listener, tile, cache, options, getDownloadExecutor());
+        job.setPriority(this::getTilePriority);
+        return job;
     }
 }
@@ -3,7 +3,6 @@ package org.openstreetmap.josm.data.imagery.vectortile.mapbox;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,10 +12,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.protobuf.ProtobufParser;
+import org.openstreetmap.josm.data.protobuf.ProtobufReader;
 import org.openstreetmap.josm.data.protobuf.ProtobufRecord;
 import org.openstreetmap.josm.tools.Destroyable;
 
@@ -26,15 +25,24 @@ import org.openstreetmap.josm.tools.Destroyable;
  * @since 17862
  */
 public final class Layer implements Destroyable {
+    /**
+     * A function to read a value from a protobuf message
+     * @param <T> The value type
+     */
+    @FunctionalInterface
+    private interface ValueReader<T> {
+        T read(ProtobufReader reader) throws IOException;
+    }
+
     private static final class ValueFields<T> {
-        static final ValueFields<String> STRING = new ValueFields<>(1, ProtobufRecord::asString);
-        static final ValueFields<Float> FLOAT = new ValueFields<>(2, ProtobufRecord::asFloat);
-        static final ValueFields<Double> DOUBLE = new ValueFields<>(3, ProtobufRecord::asDouble);
-        static final ValueFields<Number> INT64 = new ValueFields<>(4, ProtobufRecord::asUnsignedVarInt);
+        static final ValueFields<String> STRING = new ValueFields<>(1, ProtobufReader::readString);
+        static final ValueFields<Float> FLOAT = new ValueFields<>(2, ProtobufReader::readFloat);
+        static final ValueFields<Double> DOUBLE = new ValueFields<>(3, ProtobufReader::readDouble);
+        static final ValueFields<Number> INT64 = new ValueFields<>(4, r -> ProtobufParser.convertLong(r.readVarInt()));
         // This may have issues if there are actual uint_values (i.e., more than {@link Long#MAX_VALUE})
-        static final ValueFields<Number> UINT64 = new ValueFields<>(5, ProtobufRecord::asUnsignedVarInt);
-        static final ValueFields<Number> SINT64 = new ValueFields<>(6, ProtobufRecord::asSignedVarInt);
-        static final ValueFields<Boolean> BOOL = new ValueFields<>(7, r -> r.asUnsignedVarInt().longValue() != 0);
+        static final ValueFields<Number> UINT64 = new ValueFields<>(5, r -> ProtobufParser.convertLong(r.readVarInt()));
+        static final ValueFields<Number> SINT64 = new ValueFields<>(6, r -> ProtobufParser.convertLong(r.readSignedVarInt()));
+        static final ValueFields<Boolean> BOOL = new ValueFields<>(7, ProtobufReader::readBoolean);
 
         /**
          * A collection of methods to map a record to a type
@@ -43,8 +51,8 @@ public final class Layer implements Destroyable {
           Collections.unmodifiableList(Arrays.asList(STRING, FLOAT, DOUBLE, INT64, UINT64, SINT64, BOOL));
 
         private final byte field;
-        private final Function<ProtobufRecord, T> conversion;
-        private ValueFields(int field, Function<ProtobufRecord, T> conversion) {
+        private final ValueReader<T> conversion;
+        private ValueFields(int field, ValueReader<T> conversion) {
             this.field = (byte) field;
             this.conversion = conversion;
         }
@@ -58,12 +66,13 @@ public final class Layer implements Destroyable {
         }
 
         /**
-         * Convert a protobuf record to a value
-         * @param protobufRecord The record to convert
+         * Read a value
+         * @param reader The reader, positioned on the value of the field
          * @return the converted value
+         * @throws IOException if the value could not be read
          */
-        public T convertValue(ProtobufRecord protobufRecord) {
-            return this.conversion.apply(protobufRecord);
+        public T convertValue(ProtobufReader reader) throws IOException {
+            return this.conversion.read(reader);
         }
     }
 
@@ -105,14 +114,9 @@ public final class Layer implements Destroyable {
         byte tVersion = DEFAULT_VERSION;
         String tName = null;
         int tExtent = DEFAULT_EXTENT;
-        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(4);
         for (ProtobufRecord protobufRecord : records) {
             if (protobufRecord.getField() == VERSION_FIELD) {
-                tVersion = protobufRecord.asUnsignedVarInt().byteValue();
-                // Per spec, we cannot continue past this until we have checked the version number
-                if (tVersion != 1 && tVersion != 2) {
-                    throw new IllegalArgumentException(tr("We do not understand version {0} of the vector tile specification", tVersion));
-                }
+                tVersion = checkVersion(protobufRecord.asUnsignedVarInt().byteValue());
             } else if (protobufRecord.getField() == NAME_FIELD) {
                 tName = protobufRecord.asString();
             } else if (protobufRecord.getField() == EXTENT_FIELD) {
@@ -120,7 +124,7 @@ public final class Layer implements Destroyable {
             } else if (protobufRecord.getField() == KEY_FIELD) {
                 this.keyList.add(protobufRecord.asString());
             } else if (protobufRecord.getField() == VALUE_FIELD) {
-                parseValueRecord(byteArrayOutputStream, protobufRecord);
+                parseValue(new ProtobufReader(protobufRecord.getBytes()));
             } else {
                 sorted.computeIfAbsent(protobufRecord.getField(), i -> new ArrayList<>(records.size())).add(protobufRecord);
             }
@@ -142,33 +146,46 @@ public final class Layer implements Destroyable {
         }
     }
 
-    private void parseValueRecord(ByteArrayOutputStream byteArrayOutputStream, ProtobufRecord protobufRecord)
-            throws IOException {
-        try (ProtobufParser parser = new ProtobufParser(protobufRecord.getBytes())) {
-            ProtobufRecord protobufRecord2 = new ProtobufRecord(byteArrayOutputStream, parser);
-            int field = protobufRecord2.getField();
-            int valueListSize = this.valueList.size();
-            for (Layer.ValueFields<?> mapper : ValueFields.MAPPERS) {
-                if (mapper.getField() == field) {
-                    this.valueList.add(mapper.convertValue(protobufRecord2));
-                    break;
-                }
-            }
-            if (valueListSize == this.valueList.size()) {
-                throw new IllegalArgumentException(tr("Unknown field in vector tile layer value ({0})", field));
+    /**
+     * Create a layer from a layer message
+     * @param reader The reader for the layer message
+     * @throws IOException - if an IO error occurs
+     * @since xxx
+     */
+    public Layer(ProtobufReader reader) throws IOException {
+        // Do the unique required fields first. The features are only sliced, not copied.
+        final List<ProtobufReader> features = new ArrayList<>();
+        byte tVersion = DEFAULT_VERSION;
+        String tName = null;
+        int tExtent = DEFAULT_EXTENT;
+        while (reader.hasNext()) {
+            final int field = reader.nextField();
+            if (field == VERSION_FIELD) {
+                tVersion = checkVersion((byte) reader.readVarInt());
+            } else if (field == NAME_FIELD) {
+                tName = reader.readString();
+            } else if (field == EXTENT_FIELD) {
+                tExtent = (int) reader.readVarInt();
+            } else if (field == KEY_FIELD) {
+                this.keyList.add(reader.readString());
+            } else if (field == VALUE_FIELD) {
+                parseValue(reader.readMessage());
+            } else if (field == FEATURE_FIELD) {
+                features.add(reader.readMessage());
+            } else {
+                reader.skip();
             }
         }
-    }
+        this.version = tVersion;
+        if (tName == null) {
+            throw new IllegalArgumentException(tr("Vector tile layers must have a layer name"));
+        }
+        this.name = tName;
+        this.extent = tExtent;
 
-    /**
-     * Get all the records from a array of bytes
-     * @param bytes The byte information
-     * @return All the protobuf records
-     * @throws IOException If there was an error reading the bytes (unlikely)
-     */
-    private static Collection<ProtobufRecord> getAllRecords(byte[] bytes) throws IOException {
-        try (ProtobufParser parser = new ProtobufParser(bytes)) {
-            return parser.allRecords();
+        this.featureCollection = new ArrayList<>(features.size());
+        for (ProtobufReader feature : features) {
+            this.featureCollection.add(new Feature(this, feature));
         }
     }
 
@@ -178,7 +195,29 @@ public final class Layer implements Destroyable {
      * @throws IOException - if an IO error occurs
      */
     public Layer(byte[] bytes) throws IOException {
-        this(getAllRecords(bytes));
+        this(new ProtobufReader(bytes));
+    }
+
+    private static byte checkVersion(byte version) {
+        // Per spec, we cannot continue past this until we have checked the version number
+        if (version != 1 && version != 2) {
+            throw new IllegalArgumentException(tr("We do not understand version {0} of the vector tile specification", version));
+        }
+        return version;
+    }
+
+    private void parseValue(ProtobufReader reader) throws IOException {
+        int field = reader.nextField();
+        int valueListSize = this.valueList.size();
+        for (Layer.ValueFields<?> mapper : ValueFields.MAPPERS) {
+            if (mapper.getField() == field) {
+                this.valueList.add(mapper.convertValue(reader));
+                break;
+            }
+        }
+        if (valueListSize == this.valueList.size()) {
+            throw new IllegalArgumentException(tr("Unknown field in vector tile layer value ({0})", field));
+        }
     }
 
     /**
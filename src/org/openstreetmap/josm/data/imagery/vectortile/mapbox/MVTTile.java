@@ -15,8 +15,7 @@ import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.josm.data.IQuadBucketType;
 import org.openstreetmap.josm.data.imagery.vectortile.VectorTile;
 import org.openstreetmap.josm.data.osm.BBox;
-import org.openstreetmap.josm.data.protobuf.ProtobufParser;
-import org.openstreetmap.josm.data.protobuf.ProtobufRecord;
+import org.openstreetmap.josm.data.protobuf.ProtobufReader;
 import org.openstreetmap.josm.data.vector.VectorDataStore;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.Logging;
@@ -33,7 +32,7 @@ public class MVTTile extends Tile implements VectorTile, IQuadBucketType {
     private int extent = Layer.DEFAULT_EXTENT;
     static final BufferedImage CLEAR_LOADED = new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR);
     private BBox bbox;
-    private VectorDataStore vectorDataStore;
+    private volatile VectorDataStore vectorDataStore;
 
     /**
      * Create a new Tile
@@ -50,23 +49,27 @@ public class MVTTile extends Tile implements VectorTile, IQuadBucketType {
     public void loadImage(final InputStream inputStream) throws IOException {
         if (this.image == null || this.image == Tile.LOADING_IMAGE || this.image == Tile.ERROR_IMAGE) {
             this.initLoading();
-            ProtobufParser parser = new ProtobufParser(inputStream);
-            Collection<ProtobufRecord> protobufRecords = parser.allRecords();
-            this.layers = new ArrayList<>(protobufRecords.size());
-            for (ProtobufRecord protoBufRecord : protobufRecords) {
-                if (protoBufRecord.getField() == Layer.LAYER_FIELD) {
-                    try (protoBufRecord; // Cleanup bytes
-                         ProtobufParser tParser = new ProtobufParser(protoBufRecord.getBytes())) {
-                        this.layers.add(new Layer(tParser.allRecords()));
+            // Layers and features are read as slices of the tile bytes, so the tile is not copied again
+            ProtobufReader reader = new ProtobufReader(inputStream.readAllBytes());
+            this.layers = new ArrayList<>();
+            while (reader.hasNext()) {
+                if (reader.nextField() == Layer.LAYER_FIELD) {
+                    final ProtobufReader layerReader = reader.readMessage();
+                    try {
+                        this.layers.add(new Layer(layerReader));
                     } catch (IOException e) {
                         Logging.error(e);
                     }
+                } else {
+                    reader.skip();
                 }
             }
             this.layers = new ArrayList<>(this.layers);
 
             this.extent = layers.stream().filter(Objects::nonNull).mapToInt(Layer::getExtent).max().orElse(Layer.DEFAULT_EXTENT);
-            if (this.getData() != null) {
+            // The data is built on the loading thread and only published once complete, see VectorDataSet#addTileData
+            this.vectorDataStore = createData();
+            if (this.vectorDataStore != null) {
                 this.finishLoading();
                 this.listenerList.fireEvent(event -> event.finishedLoading(this));
                 // Ensure that we don't keep the loading image around
@@ -116,13 +119,17 @@ public class MVTTile extends Tile implements VectorTile, IQuadBucketType {
      */
     public VectorDataStore getData() {
         if (this.vectorDataStore == null) {
-            VectorDataStore newDataStore = new VectorDataStore();
-            newDataStore.addDataTile(this);
-            this.vectorDataStore = newDataStore;
+            this.vectorDataStore = createData();
         }
         return this.vectorDataStore;
     }
 
+    private VectorDataStore createData() {
+        VectorDataStore newDataStore = new VectorDataStore();
+        newDataStore.addDataTile(this);
+        return newDataStore;
+    }
+
     /**
      * A class that can be notified that a tile has finished loading
      *
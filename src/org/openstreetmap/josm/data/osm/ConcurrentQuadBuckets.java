@@ -0,0 +1,385 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.coor.QuadTiling;
+
+/**
+ * A variant of {@link QuadBuckets} which can be searched and iterated while it is modified.
+ * <p>
+ * Each bucket of the tree publishes its content and children as an immutable state, which is replaced on each modification
+ * (copy-on-write). Readers do not lock: they see each bucket either before or after a concurrent modification. Writers are
+ * serialized. Additions are amortized O(1), since the content arrays are appended in place beyond the size known to readers.
+ * <p>
+ * A search running concurrently with the move of an object (removal and addition) may miss it, or return it twice.
+ * Callers needing an exact result during modifications have to use the lock of the dataset, as before.
+ * <p>
+ * Note: bbox of objects added to the buckets has to stay the same. In case of coordinate change, the object must
+ * be removed and re-added.
+ * @param <T> type of object extending {@link IQuadBucketType}.
+ * @since xxx
+ */
+public class ConcurrentQuadBuckets<T extends IQuadBucketType> extends AbstractCollection<T> {
+    private static final int MAX_OBJECTS_PER_NODE = 48;
+    private static final Object[] NO_CONTENT = new Object[0];
+
+    /**
+     * The immutable state of a bucket. The entries of {@code content} below {@code size} are never modified.
+     */
+    private static final class State {
+        static final State EMPTY = new State(NO_CONTENT, 0, null);
+
+        final Object[] content;
+        final int size;
+        /** The children by quad tiling index, {@code null} for a leaf. May contain {@code null} entries. */
+        final Bucket[] children;
+
+        State(Object[] content, int size, Bucket[] children) {
+            this.content = content;
+            this.size = size;
+            this.children = children;
+        }
+
+        boolean isEmpty() {
+            return size == 0 && (children == null || Arrays.stream(children).allMatch(c -> c == null));
+        }
+    }
+
+    private static final class Bucket extends BBox {
+        final int level;
+        final long quad;
+        final Bucket parent;
+        final int index;
+        volatile State state = State.EMPTY;
+
+        /**
+         * Constructor for root node
+         */
+        Bucket() {
+            super(-180, 90, 180, -90);
+            this.level = 0;
+            this.quad = 0;
+            this.parent = null;
+            this.index = 0;
+        }
+
+        Bucket(Bucket parent, int index) {
+            this.parent = parent;
+            this.index = index;
+            this.level = parent.level + 1;
+            int shift = (QuadTiling.NR_LEVELS - level) * 2;
+            this.quad = parent.quad | (long) index << shift;
+            LatLon bottomLeft = QuadTiling.tile2LatLon(this.quad);
+            xmin = bottomLeft.lon();
+            ymin = bottomLeft.lat();
+            xmax = xmin + parent.width() / 2;
+            ymax = ymin + parent.height() / 2;
+        }
+    }
+
+    private volatile Bucket root;
+    private volatile int size;
+    private final Set<T> invalidBBoxPrimitives = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a new {@code ConcurrentQuadBuckets}.
+     */
+    public ConcurrentQuadBuckets() {
+        clear();
+    }
+
+    @Override
+    public final synchronized void clear() {
+        root = new Bucket();
+        invalidBBoxPrimitives.clear();
+        size = 0;
+    }
+
+    private static boolean isValid(IQuadBucketType o) {
+        // Avoid allocations for point (AKA Node) objects
+        if (o instanceof ILatLon) {
+            return ((ILatLon) o).isLatLonKnown();
+        }
+        return o.getBBox().isValid();
+    }
+
+    private static int getIndex(IQuadBucketType o, int level) {
+        // Avoid allocations for point (AKA Node) objects
+        if (o instanceof ILatLon) {
+            return QuadTiling.index(((ILatLon) o).lat(), ((ILatLon) o).lon(), level);
+        }
+        return o.getBBox().getIndex(level);
+    }
+
+    private static boolean matches(IQuadBucketType o, BBox searchBbox) {
+        // Avoid allocations for point (AKA Node) objects
+        if (o instanceof ILatLon) {
+            return searchBbox.contains((ILatLon) o);
+        }
+        return o.getBBox().intersects(searchBbox);
+    }
+
+    /**
+     * Find the bucket of an object
+     * @param o the object
+     * @param create if {@code true}, the missing buckets are created
+     * @return the bucket where the object is or has to be added
+     */
+    private Bucket findBucket(T o, boolean create) {
+        Bucket bucket = root;
+        while (true) {
+            final State state = bucket.state;
+            if (state.children == null) {
+                return bucket;
+            }
+            final int idx = getIndex(o, bucket.level);
+            if (idx == -1) {
+                return bucket;
+            }
+            Bucket child = state.children[idx];
+            if (child == null) {
+                if (!create) {
+                    return bucket;
+                }
+                child = new Bucket(bucket, idx);
+                final Bucket[] children = state.children.clone();
+                children[idx] = child;
+                bucket.state = new State(state.content, state.size, children);
+            }
+            bucket = child;
+        }
+    }
+
+    @Override
+    public synchronized boolean add(T o) {
+        if (isValid(o)) {
+            final Bucket bucket = findBucket(o, true);
+            final State state = bucket.state;
+            Object[] content = state.content;
+            if (state.size == content.length) {
+                content = Arrays.copyOf(content, Math.max(4, content.length * 2));
+            }
+            // The slot is beyond the size known to readers, it can be written in place
+            content[state.size] = o;
+            if (state.children == null && state.size + 1 > MAX_OBJECTS_PER_NODE && bucket.level < QuadTiling.NR_LEVELS) {
+                split(bucket, content, state.size + 1);
+            } else {
+                bucket.state = new State(content, state.size + 1, state.children);
+            }
+        } else {
+            invalidBBoxPrimitives.add(o);
+        }
+        size++;
+        return true;
+    }
+
+    private static void split(Bucket bucket, Object[] content, int contentSize) {
+        final Bucket[] children = new Bucket[QuadTiling.TILES_PER_LEVEL];
+        final List<Object> remaining = new ArrayList<>();
+        for (int i = 0; i < contentSize; i++) {
+            final int idx = getIndex((IQuadBucketType) content[i], bucket.level);
+            if (idx == -1) {
+                remaining.add(content[i]);
+            } else {
+                if (children[idx] == null) {
+                    children[idx] = new Bucket(bucket, idx);
+                }
+                // The children are not published yet, so their state can be built in place
+                final State childState = children[idx].state;
+                final Object[] childContent = childState.size == childState.content.length
+                        ? Arrays.copyOf(childState.content, Math.max(4, childState.content.length * 2)) : childState.content;
+                childContent[childState.size] = content[i];
+                children[idx].state = new State(childContent, childState.size + 1, null);
+            }
+        }
+        // Publish the children and the remaining content at once, so that readers never see an object twice
+        bucket.state = new State(remaining.toArray(), remaining.size(), children);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized boolean remove(Object o) {
+        final T t = (T) o;
+        boolean removed = false;
+        if (isValid(t)) {
+            final Bucket bucket = findBucket(t, false);
+            final State state = bucket.state;
+            final int idx = indexOf(state, o);
+            if (idx >= 0) {
+                final Object[] content = new Object[state.size - 1];
+                System.arraycopy(state.content, 0, content, 0, idx);
+                System.arraycopy(state.content, idx + 1, content, idx, state.size - idx - 1);
+                final State newState = new State(content.length == 0 ? NO_CONTENT : content, content.length, state.children);
+                bucket.state = newState;
+                if (newState.isEmpty()) {
+                    removeEmptyBucket(bucket);
+                }
+                removed = true;
+            }
+        }
+        if (!removed) {
+            removed = invalidBBoxPrimitives.remove(o);
+        }
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    private static void removeEmptyBucket(Bucket bucket) {
+        Bucket current = bucket;
+        while (current.parent != null && current.state.isEmpty()) {
+            final Bucket parent = current.parent;
+            final State parentState = parent.state;
+            final Bucket[] children = parentState.children.clone();
+            children[current.index] = null;
+            parent.state = new State(parentState.content, parentState.size,
+                    Arrays.stream(children).allMatch(c -> c == null) && parentState.size == 0 ? null : children);
+            current = parent;
+        }
+    }
+
+    private static int indexOf(State state, Object o) {
+        for (int i = 0; i < state.size; i++) {
+            if (o.equals(state.content[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        final T t = (T) o;
+        if (!isValid(t)) {
+            return invalidBBoxPrimitives.contains(o);
+        }
+        return indexOf(findBucket(t, false).state, o) >= 0;
+    }
+
+    /**
+     * Converts to list.
+     * @return elements as list
+     */
+    public List<T> toList() {
+        return new ArrayList<>(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Search the tree for objects in the bbox (or crossing the bbox if they are ways). This method does not lock.
+     * @param searchBbox the bbox
+     * @return List of primitives within the bbox (or crossing the bbox if they are ways). Can be empty, but not null.
+     */
+    public List<T> search(BBox searchBbox) {
+        final List<T> result = new ArrayList<>();
+        if (searchBbox == null || !searchBbox.isValid()) {
+            return result;
+        }
+        search(root, searchBbox, result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends IQuadBucketType> void search(Bucket bucket, BBox searchBbox, List<T> result) {
+        if (!bucket.intersects(searchBbox)) {
+            return;
+        }
+        final State state = bucket.state;
+        final Object[] content = state.content;
+        for (int i = 0; i < state.size; i++) {
+            final T o = (T) content[i];
+            if (matches(o, searchBbox)) {
+                result.add(o);
+            }
+        }
+        if (state.children != null) {
+            for (Bucket child : state.children) {
+                if (child != null) {
+                    search(child, searchBbox, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the objects. The iterator does not lock and does not fail on concurrent modifications:
+     * it sees each bucket as it was when the iterator reached it.
+     * {@link Iterator#remove()} is supported.
+     * @return an iterator over the objects
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new ConcurrentQuadBucketIterator();
+    }
+
+    private final class ConcurrentQuadBucketIterator implements Iterator<T> {
+        private final Deque<Bucket> pending = new ArrayDeque<>();
+        private final Iterator<T> invalidBBoxIterator = invalidBBoxPrimitives.iterator();
+        private State current = State.EMPTY;
+        private int contentIndex;
+        private T last;
+
+        ConcurrentQuadBucketIterator() {
+            pending.push(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (contentIndex >= current.size && !pending.isEmpty()) {
+                current = pending.pop().state;
+                contentIndex = 0;
+                if (current.children != null) {
+                    for (int i = current.children.length - 1; i >= 0; i--) {
+                        if (current.children[i] != null) {
+                            pending.push(current.children[i]);
+                        }
+                    }
+                }
+            }
+            return contentIndex < current.size || invalidBBoxIterator.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = contentIndex < current.size ? (T) current.content[contentIndex++] : invalidBBoxIterator.next();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentQuadBuckets.this.remove(last);
+            last = null;
+        }
+    }
+}
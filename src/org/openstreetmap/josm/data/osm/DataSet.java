@@ -163,6 +163,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
 
     private Area cachedDataSourceArea;
     private List<Bounds> cachedDataSourceBounds;
+    private volatile TagIndex tagIndex;
 
     /**
      * All data sources of this DataSet.
@@ -214,6 +215,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
             uploadPolicy = copyFrom.uploadPolicy;
             downloadPolicy = copyFrom.downloadPolicy;
             isReadOnly.set(copyFrom.isReadOnly.get());
+            store.setPackable(isReadOnly.get());
         } finally {
             copyFrom.getReadLock().unlock();
         }
@@ -417,6 +419,19 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         }
     }
 
+    /**
+     * Searches for nodes in the given bounding box without taking the read lock.
+     * <p>
+     * Only meant for painting: if the data set is modified during the search, a node which is moved may be missed
+     * or returned twice. Use {@link #searchNodes(BBox)} for exact results.
+     * @param bbox the bounding box
+     * @return the nodes in the bounding box. Can be empty but not null
+     * @since xxx
+     */
+    public List<Node> searchNodesLockFree(BBox bbox) {
+        return store.searchNodes(bbox);
+    }
+
     @Override
     public Collection<Way> getWays() {
         return getPrimitives(Way.class::isInstance);
@@ -432,6 +447,19 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         }
     }
 
+    /**
+     * Searches for ways in the given bounding box without taking the read lock.
+     * <p>
+     * Only meant for painting: if the data set is modified during the search, a way which is moved may be missed
+     * or returned twice. Use {@link #searchWays(BBox)} for exact results.
+     * @param bbox the bounding box
+     * @return the ways in the bounding box. Can be empty but not null
+     * @since xxx
+     */
+    public List<Way> searchWaysLockFree(BBox bbox) {
+        return store.searchWays(bbox);
+    }
+
     @Override
     public List<Relation> searchRelations(BBox bbox) {
         lock.readLock().lock();
@@ -442,6 +470,19 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         }
     }
 
+    /**
+     * Searches for relations in the given bounding box without taking the read lock.
+     * <p>
+     * Only meant for painting: if the data set is modified during the search, a relation which is moved may be missed
+     * or returned twice. Use {@link #searchRelations(BBox)} for exact results.
+     * @param bbox the bounding box
+     * @return the relations in the bounding box. Can be empty but not null
+     * @since xxx
+     */
+    public List<Relation> searchRelationsLockFree(BBox bbox) {
+        return store.searchRelations(bbox);
+    }
+
     /**
      * Searches for all primitives in the given bounding box
      *
@@ -835,6 +876,34 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         }
     }
 
+    /**
+     * Replies the inverted index of the tags of this dataset. The index is built on first call,
+     * then it is kept up to date as long as the dataset exists.
+     * @return the tag index of this dataset
+     * @since xxx
+     */
+    public TagIndex getTagIndex() {
+        TagIndex index = tagIndex;
+        if (index == null) {
+            // Take the lock before the monitor, as the monitor is also taken by methods called with the write lock
+            lock.readLock().lock();
+            try {
+                synchronized (this) {
+                    index = tagIndex;
+                    if (index == null) {
+                        index = new TagIndex(this);
+                        // The index is registered before the lock is released, so that no change can be missed
+                        addDataSetListener(index);
+                        tagIndex = index;
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return index;
+    }
+
     @Override
     public synchronized Area getDataSourceArea() {
         if (cachedDataSourceArea == null) {
@@ -1135,15 +1204,18 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     }
 
     void fireNodeMoved(Node node, LatLon newCoor, EastNorth eastNorth) {
+        final LatLon oldCoor = node.getCoor();
         store.reindexNode(node, n -> n.setCoorInternal(newCoor, eastNorth), Way::updatePosition, Relation::updatePosition);
-        fireEvent(new NodeMovedEvent(this, node));
+        fireEvent(new NodeMovedEvent(this, node, oldCoor));
     }
 
     void fireWayNodesChanged(Way way) {
+        // The bbox is only updated when the way is reindexed
+        final BBox oldBBox = way.isEmpty() ? null : way.getBBox();
         if (!way.isEmpty()) {
             store.reindexWay(way, Way::updatePosition, Relation::updatePosition);
         }
-        fireEvent(new WayNodesChangedEvent(this, way));
+        fireEvent(new WayNodesChangedEvent(this, way, oldBBox));
     }
 
     void fireChangesetIdChanged(OsmPrimitive primitive, int oldChangesetId, int newChangesetId) {
@@ -1330,6 +1402,8 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (!isReadOnly.compareAndSet(false, true)) {
             Logging.warn("Trying to set readOnly flag on a readOnly dataset ", getName());
         }
+        // Searches use a packed index once the data is stable
+        store.setPackable(true);
     }
 
     @Override
@@ -1337,6 +1411,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (!isReadOnly.compareAndSet(true, false)) {
             Logging.warn("Trying to unset readOnly flag on a non-readOnly dataset ", getName());
         }
+        store.setPackable(false);
     }
 
     @Override
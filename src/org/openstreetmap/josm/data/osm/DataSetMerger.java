@@ -13,6 +13,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.conflict.Conflict;
@@ -24,10 +27,92 @@ import org.openstreetmap.josm.tools.JosmRuntimeException;
 /**
  * A dataset merger which takes a target and a source dataset and merges the source data set
  * onto the target dataset.
+ * <p>
+ * Merging runs in two phases: the merge targets of the source primitives are first looked up in parallel,
+ * under the read lock of the target dataset only. The primitives are then merged under the write lock.
  *
  */
 public class DataSetMerger {
 
+    /** the number of source primitives of one type above which the merge is prepared in parallel */
+    private static final int PARALLEL_THRESHOLD = 1000;
+
+    /**
+     * The merge targets of the source primitives of one type, looked up against the target dataset before merging.
+     */
+    private final class MergePlan {
+        private final List<OsmPrimitive> sources;
+        private final boolean hasNewSources;
+        private final boolean matchNewPrimitives;
+        /** the target with the same id, or the new target with equal semantic attributes, of each source primitive */
+        private final OsmPrimitive[] targets;
+        /** the clone to add to the target dataset, for source primitives with an id missing in the target dataset */
+        private final OsmPrimitive[] clones;
+
+        MergePlan(Collection<? extends OsmPrimitive> sources, Collection<? extends OsmPrimitive> targetPrimitives) {
+            this.sources = new ArrayList<>(sources);
+            this.hasNewSources = this.sources.stream().anyMatch(OsmPrimitive::isNew);
+            this.matchNewPrimitives = targetPrimitives != null;
+            this.targets = new OsmPrimitive[this.sources.size()];
+            this.clones = new OsmPrimitive[this.sources.size()];
+            List<OsmPrimitive> candidates = matchNewPrimitives && hasNewSources
+                    ? targetPrimitives.stream().filter(t -> t.isNew() && !t.isDeleted()).collect(Collectors.toList())
+                    : null;
+            IntStream range = IntStream.range(0, targets.length);
+            if (targets.length >= PARALLEL_THRESHOLD) {
+                range = range.parallel();
+            }
+            range.forEach(i -> prepare(i, candidates));
+        }
+
+        private void prepare(int i, List<OsmPrimitive> candidates) {
+            OsmPrimitive source = sources.get(i);
+            if (!source.isNew()) {
+                targets[i] = targetDataSet.getPrimitiveById(source.getId(), source.getType());
+                if (targets[i] == null) {
+                    clones[i] = createMergeTarget(source);
+                }
+            } else if (candidates != null && !source.isDeleted()) {
+                for (OsmPrimitive target : candidates) {
+                    if (target.hasEqualSemanticAttributes(source)) {
+                        targets[i] = target;
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Merges the source primitive at the given index.
+         * @param i the index of the source primitive
+         * @param candidates a set of possible candidates for a new primitive, as in {@link #mergePrimitive}
+         */
+        void merge(int i, Collection<? extends OsmPrimitive> candidates) {
+            OsmPrimitive source = sources.get(i);
+            OsmPrimitive target = targets[i];
+            if (!source.isNew()) {
+                if (target == null || target.getDataSet() != targetDataSet) {
+                    // the target dataset may have changed since the merge was prepared
+                    target = targetDataSet.getPrimitiveById(source.getId(), source.getType());
+                }
+                if (target != null) {
+                    mergeById(source, target);
+                } else {
+                    addMergeTarget(source, clones[i] != null ? clones[i] : createMergeTarget(source));
+                }
+            } else if (source.isDeleted()) {
+                return;
+            } else if (target != null && target.getDataSet() == targetDataSet && target.isNew() && !target.isDeleted()
+                    && target.hasEqualSemanticAttributes(source)) {
+                mergeOntoNewPrimitive(source, target);
+            } else if (matchNewPrimitives && target == null) {
+                addMergeTarget(source, createMergeTarget(source));
+            } else {
+                mergePrimitive(source, candidates);
+            }
+        }
+    }
+
     /** the collection of conflicts created during merging */
     private final ConflictCollection conflicts;
 
@@ -98,13 +183,7 @@ public class DataSetMerger {
                     continue;
                 }
                 if (target.hasEqualSemanticAttributes(source)) {
-                    mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
-                    // copy the technical attributes from other version
-                    target.setVisible(source.isVisible());
-                    target.setUser(source.getUser());
-                    target.setRawTimestamp(source.getRawTimestamp());
-                    target.setModified(source.isModified());
-                    objectsWithChildrenToMerge.add(source.getPrimitiveId());
+                    mergeOntoNewPrimitive(source, target);
                     return;
                 }
             }
@@ -113,6 +192,25 @@ public class DataSetMerger {
         // If we get here we didn't find a suitable primitive in
         // the target dataset. Create a clone and add it to the target dataset.
         //
+        addMergeTarget(source, createMergeTarget(source));
+    }
+
+    private void mergeOntoNewPrimitive(OsmPrimitive source, OsmPrimitive target) {
+        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+        // copy the technical attributes from other version
+        target.setVisible(source.isVisible());
+        target.setUser(source.getUser());
+        target.setRawTimestamp(source.getRawTimestamp());
+        target.setModified(source.isModified());
+        objectsWithChildrenToMerge.add(source.getPrimitiveId());
+    }
+
+    /**
+     * Creates a clone of the source primitive, not added to any dataset. Its children are set by {@link #fixReferences()}.
+     * @param source the source primitive
+     * @return the clone
+     */
+    private static OsmPrimitive createMergeTarget(OsmPrimitive source) {
         OsmPrimitive target;
         switch (source.getType()) {
         case NODE: target = source.isNew() ? new Node() : new Node(source.getId()); break;
@@ -121,6 +219,10 @@ public class DataSetMerger {
         default: throw new AssertionError();
         }
         target.mergeFrom(source);
+        return target;
+    }
+
+    private void addMergeTarget(OsmPrimitive source, OsmPrimitive target) {
         targetDataSet.addPrimitive(target);
         mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
         objectsWithChildrenToMerge.add(source.getPrimitiveId());
@@ -291,12 +393,23 @@ public class DataSetMerger {
         //
         if (target == null)
             return false;
+        mergeById(source, target);
+        return true;
+    }
+
+    /**
+     * Merges a primitive <code>source</code> into the existing primitive <code>target</code> with the same id.
+     *
+     * @param source the source primitive which is to be merged into a target primitive
+     * @param target the target primitive with the same id
+     */
+    private void mergeById(OsmPrimitive source, OsmPrimitive target) {
         // found a corresponding target, remember it
         mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
 
         if (target.getVersion() > source.getVersion())
             // target.version > source.version => keep target version
-            return true;
+            return;
 
         boolean mergeFromSource = false;
         boolean haveSameVersion = target.getVersion() == source.getVersion();
@@ -390,7 +503,6 @@ public class DataSetMerger {
             }
             objectsWithChildrenToMerge.add(source.getPrimitiveId());
         }
-        return true;
     }
 
     /**
@@ -430,41 +542,23 @@ public class DataSetMerger {
         if (progressMonitor != null) {
             progressMonitor.beginTask(tr("Merging data..."), sourceDataSet.allPrimitives().size());
         }
+        // Look up the merge targets without blocking the readers of the target dataset
+        MergePlan nodes;
+        MergePlan ways;
+        MergePlan relations;
+        targetDataSet.getReadLock().lock();
+        try {
+            nodes = new MergePlan(sourceDataSet.getNodes(), targetDataSet.getNodes());
+            // new ways are matched against target ways once their nodes are merged, see Way#hasEqualSemanticAttributes
+            ways = new MergePlan(sourceDataSet.getWays(), null);
+            relations = new MergePlan(sourceDataSet.getRelations(), targetDataSet.getRelations());
+        } finally {
+            targetDataSet.getReadLock().unlock();
+        }
         targetDataSet.update(() -> {
-            List<? extends OsmPrimitive> candidates = null;
-            for (Node node: sourceDataSet.getNodes()) {
-                // lazy initialisation to improve performance, see #19898
-                if (candidates == null) {
-                    candidates = new ArrayList<>(targetDataSet.getNodes());
-                }
-                mergePrimitive(node, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates = null;
-            for (Way way: sourceDataSet.getWays()) {
-                // lazy initialisation to improve performance
-                if (candidates == null) {
-                    candidates = new ArrayList<>(targetDataSet.getWays());
-                }
-                mergePrimitive(way, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates = null;
-            for (Relation relation: sourceDataSet.getRelations()) {
-                // lazy initialisation to improve performance
-                if (candidates == null) {
-                    candidates = new ArrayList<>(targetDataSet.getRelations());
-                }
-                mergePrimitive(relation, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates = null;
+            merge(nodes, targetDataSet::getNodes, progressMonitor);
+            merge(ways, targetDataSet::getWays, progressMonitor);
+            merge(relations, targetDataSet::getRelations, progressMonitor);
             fixReferences();
 
             Area a = targetDataSet.getDataSourceArea();
@@ -502,6 +596,18 @@ public class DataSetMerger {
         }
     }
 
+    private static void merge(MergePlan plan, Supplier<Collection<? extends OsmPrimitive>> targetPrimitives,
+            ProgressMonitor progressMonitor) {
+        // the candidates are only needed for new primitives, see #19898
+        List<? extends OsmPrimitive> candidates = plan.hasNewSources ? new ArrayList<>(targetPrimitives.get()) : null;
+        for (int i = 0; i < plan.sources.size(); i++) {
+            plan.merge(i, candidates);
+            if (progressMonitor != null) {
+                progressMonitor.worked(1);
+            }
+        }
+    }
+
     /**
      * replies my dataset
      *
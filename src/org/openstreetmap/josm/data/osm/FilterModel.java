@@ -10,8 +10,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.stream.Collectors;
@@ -21,6 +23,8 @@ import javax.swing.JOptionPane;
 import org.openstreetmap.josm.data.SortableModel;
 import org.openstreetmap.josm.data.StructUtils;
 import org.openstreetmap.josm.data.osm.Filter.FilterPreferenceEntry;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.widgets.OSDLabel;
@@ -46,6 +50,10 @@ public class FilterModel implements SortableModel<Filter> {
      * true, if the filter state (normal / disabled / hidden) of any primitive has changed in the process
      */
     private boolean changed;
+    /**
+     * the counted disabled primitives, mapped to whether they are hidden, to update the counts after filtering only some primitives
+     */
+    private final Map<OsmPrimitive, Boolean> countedPrimitives = new IdentityHashMap<>();
 
     private final List<Filter> filters = new LinkedList<>();
     private final FilterMatcher filterMatcher = new FilterMatcher();
@@ -101,6 +109,7 @@ public class FilterModel implements SortableModel<Filter> {
     public void executeFilters() {
         DataSet ds = OsmDataManager.getInstance().getActiveDataSet();
         changed = false;
+        countedPrimitives.clear();
         if (ds == null) {
             disabledAndHiddenCount = 0;
             disabledCount = 0;
@@ -118,17 +127,11 @@ public class FilterModel implements SortableModel<Filter> {
                 disabledAndHiddenCount = 0;
                 // collect disabled and selected the primitives
                 for (OsmPrimitive osm : all) {
-                    if (osm.isDisabled()) {
-                        disabledCount++;
-                        if (osm.isSelected()) {
-                            deselect.add(osm);
-                        }
-                        if (osm.isDisabledAndHidden()) {
-                            disabledAndHiddenCount++;
-                        }
+                    count(osm);
+                    if (osm.isDisabled() && osm.isSelected()) {
+                        deselect.add(osm);
                     }
                 }
-                disabledCount -= disabledAndHiddenCount;
             } finally {
                 if (changed) {
                     ds.fireFilterChanged();
@@ -147,6 +150,7 @@ public class FilterModel implements SortableModel<Filter> {
 
     /**
      * Runs the filter on a list of primitives that are part of the edit data set.
+     * Primitives which are not in the edit data set are ignored.
      * @param primitives The primitives
      */
     public void executeFilters(Collection<? extends OsmPrimitive> primitives) {
@@ -158,34 +162,19 @@ public class FilterModel implements SortableModel<Filter> {
         List<OsmPrimitive> deselect = new ArrayList<>();
 
         ds.update(() -> {
-            for (int i = 0; i < 2; i++) {
-                for (OsmPrimitive primitive: primitives) {
-
-                    if (i == 0 && primitive instanceof Node) {
-                        continue;
-                    }
-
-                    if (i == 1 && !(primitive instanceof Node)) {
-                        continue;
-                    }
-
-                    if (primitive.isDisabled()) {
-                        disabledCount--;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount--;
-                    }
-                    changed |= FilterWorker.executeFilters(primitive, filterMatcher);
-                    if (primitive.isDisabled()) {
-                        disabledCount++;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount++;
-                    }
-
-                    if (primitive.isSelected() && primitive.isDisabled()) {
-                        deselect.add(primitive);
-                    }
+            final List<OsmPrimitive> inDataSet = primitives.stream()
+                    .filter(p -> p.getDataSet() == ds)
+                    .collect(Collectors.toList());
+            // removed or deleted primitives may have been counted
+            primitives.forEach(this::uncount);
+            // relations, ways and nodes are filtered in this order by the worker, as required by their dependencies
+            changed = FilterWorker.executeFilters(inDataSet, filterMatcher);
+            for (OsmPrimitive primitive : inDataSet) {
+                if (!primitive.isDeleted() && !primitive.isIncomplete()) {
+                    count(primitive);
+                }
+                if (primitive.isSelected() && primitive.isDisabled()) {
+                    deselect.add(primitive);
                 }
             }
         });
@@ -198,6 +187,52 @@ public class FilterModel implements SortableModel<Filter> {
         }
     }
 
+    /**
+     * Runs the filter on the primitives of the edit data set which can be affected by the given change.
+     * @param event the data set event
+     * @see #getAffectedPrimitives(AbstractDatasetChangedEvent)
+     * @since xxx
+     */
+    public void executeFilters(AbstractDatasetChangedEvent event) {
+        Collection<OsmPrimitive> affected = getAffectedPrimitives(event);
+        if (affected == null) {
+            executeFilters();
+        } else if (!affected.isEmpty()) {
+            executeFilters(affected);
+        } else {
+            changed = false;
+        }
+    }
+
+    /**
+     * Adds a primitive of the data set to the counts, if it is disabled.
+     * @param osm the primitive, neither deleted nor incomplete
+     */
+    private void count(OsmPrimitive osm) {
+        if (osm.isDisabled()) {
+            final boolean hidden = osm.isDisabledAndHidden();
+            countedPrimitives.put(osm, hidden);
+            if (hidden) {
+                disabledAndHiddenCount++;
+            } else {
+                disabledCount++;
+            }
+        }
+    }
+
+    /**
+     * Removes a primitive from the counts, if it has been counted.
+     * @param osm the primitive
+     */
+    private void uncount(OsmPrimitive osm) {
+        final Boolean hidden = countedPrimitives.remove(osm);
+        if (Boolean.TRUE.equals(hidden)) {
+            disabledAndHiddenCount--;
+        } else if (hidden != null) {
+            disabledCount--;
+        }
+    }
+
     private static void updateMap() {
         MainApplication.getLayerManager().invalidateEditLayer();
     }
@@ -212,6 +247,7 @@ public class FilterModel implements SortableModel<Filter> {
         }
         disabledCount = 0;
         disabledAndHiddenCount = 0;
+        countedPrimitives.clear();
     }
 
     /**
@@ -447,6 +483,42 @@ public class FilterModel implements SortableModel<Filter> {
         return result;
     }
 
+    /**
+     * Returns the primitives whose filtering can be affected by a change of the edit data set.
+     * This allows to filter again only these primitives instead of the whole data set.
+     * @param event the data set event
+     * @return the primitives whose filtering can be affected by the change, or {@code null} if all primitives have to be filtered
+     * @since xxx
+     */
+    public static Collection<OsmPrimitive> getAffectedPrimitives(AbstractDatasetChangedEvent event) {
+        List<AbstractDatasetChangedEvent> events = event instanceof DataChangedEvent
+                ? ((DataChangedEvent) event).getEvents() : Collections.singletonList(event);
+        if (events == null) {
+            return null;
+        }
+        Set<OsmPrimitive> changedPrimitives = new HashSet<>();
+        for (AbstractDatasetChangedEvent e : events) {
+            switch (e.getType()) {
+            case FILTERS_CHANGED:
+                // Fired by the filters themselves
+                break;
+            case NODE_MOVED:
+            case PRIMITIVES_ADDED:
+            case PRIMITIVES_REMOVED:
+            case RELATION_MEMBERS_CHANGED:
+            case TAGS_CHANGED:
+            case WAY_NODES_CHANGED:
+            case CHANGESET_ID_CHANGED:
+            case PRIMITIVE_FLAGS_CHANGED:
+                changedPrimitives.addAll(e.getPrimitives());
+                break;
+            default:
+                return null;
+            }
+        }
+        return changedPrimitives.isEmpty() ? Collections.emptyList() : getAffectedPrimitives(changedPrimitives);
+    }
+
     @Override
     public void sort() {
         Collections.sort(filters);
@@ -1,12 +1,20 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.openstreetmap.josm.data.osm.FilterMatcher.FilterType;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Class for applying {@link Filter}s to {@link IPrimitive}s.
@@ -17,6 +25,63 @@ import org.openstreetmap.josm.tools.SubclassFilteredCollection;
  */
 public final class FilterWorker {
 
+    /**
+     * Defines if the filters are evaluated in parallel for large collections of primitives
+     * @since xxx
+     */
+    public static final BooleanProperty PROP_PARALLEL = new BooleanProperty("filter.parallel", true);
+
+    /**
+     * The number of primitives evaluated by each parallel task
+     * @since xxx
+     */
+    public static final IntegerProperty PROP_PARALLEL_CHUNK_SIZE = new IntegerProperty("filter.parallel.chunk-size", 4096);
+
+    private static ForkJoinPool threadPool;
+
+    /**
+     * Evaluates the filters for a range of primitives, without modifying them.
+     * Modifying the filter state requires the write lock of the dataset, which is held by the calling thread.
+     */
+    private static final class FilterTask<T extends IPrimitive & IFilterablePrimitive> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient List<T> primitives;
+        private final transient FilterMatcher filterMatcher;
+        private final FilterType[] hiddenTypes;
+        private final FilterType[] disabledTypes;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        FilterTask(List<T> primitives, FilterMatcher filterMatcher, FilterType[] hiddenTypes, FilterType[] disabledTypes,
+                int from, int to, int chunkSize) {
+            this.primitives = primitives;
+            this.filterMatcher = filterMatcher;
+            this.hiddenTypes = hiddenTypes;
+            this.disabledTypes = disabledTypes;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    T primitive = primitives.get(i);
+                    hiddenTypes[i] = filterMatcher.isHidden(primitive);
+                    if (hiddenTypes[i] == FilterType.NOT_FILTERED) {
+                        disabledTypes[i] = filterMatcher.isDisabled(primitive);
+                    }
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FilterTask<>(primitives, filterMatcher, hiddenTypes, disabledTypes, from, middle, chunkSize),
+                          new FilterTask<>(primitives, filterMatcher, hiddenTypes, disabledTypes, middle, to, chunkSize));
+            }
+        }
+    }
+
     private FilterWorker() {
         // Hide default constructor for utils classes
     }
@@ -55,27 +120,70 @@ public final class FilterWorker {
     }
 
     private static <T extends IPrimitive & IFilterablePrimitive> boolean doExecuteFilters(Collection<T> all, FilterMatcher filterMatcher) {
+        final int chunkSize = Math.max(1, PROP_PARALLEL_CHUNK_SIZE.get());
+        final ForkJoinPool pool = all.size() > chunkSize ? getThreadPool() : null;
+        if (pool != null) {
+            return doExecuteFiltersParallel(new ArrayList<>(all), filterMatcher, pool, chunkSize);
+        }
 
         boolean changed = false;
 
         for (T primitive : all) {
             FilterType hiddenType = filterMatcher.isHidden(primitive);
-            if (hiddenType != FilterType.NOT_FILTERED) {
-                changed |= primitive.setDisabledState(true);
-                primitive.setHiddenType(hiddenType == FilterType.EXPLICIT);
-            } else {
-                FilterType disabledType = filterMatcher.isDisabled(primitive);
-                if (disabledType != FilterType.NOT_FILTERED) {
-                    changed |= primitive.setDisabledState(false);
-                    primitive.setDisabledType(disabledType == FilterType.EXPLICIT);
-                } else {
-                    changed |= primitive.unsetDisabledState();
-                }
-            }
+            changed |= applyFilterState(primitive, hiddenType,
+                    hiddenType == FilterType.NOT_FILTERED ? filterMatcher.isDisabled(primitive) : null);
+        }
+        return changed;
+    }
+
+    private static <T extends IPrimitive & IFilterablePrimitive> boolean doExecuteFiltersParallel(List<T> all, FilterMatcher filterMatcher,
+            ForkJoinPool pool, int chunkSize) {
+        // The primitives of a kind do not depend on each other, only on their parents: they are evaluated in parallel,
+        // then their state is set by the calling thread
+        final FilterType[] hiddenTypes = new FilterType[all.size()];
+        final FilterType[] disabledTypes = new FilterType[all.size()];
+        pool.invoke(new FilterTask<>(all, filterMatcher, hiddenTypes, disabledTypes, 0, all.size(), chunkSize));
+        boolean changed = false;
+        for (int i = 0; i < hiddenTypes.length; i++) {
+            changed |= applyFilterState(all.get(i), hiddenTypes[i], disabledTypes[i]);
         }
         return changed;
     }
 
+    private static <T extends IPrimitive & IFilterablePrimitive> boolean applyFilterState(T primitive, FilterType hiddenType,
+            FilterType disabledType) {
+        boolean changed;
+        if (hiddenType != FilterType.NOT_FILTERED) {
+            changed = primitive.setDisabledState(true);
+            primitive.setHiddenType(hiddenType == FilterType.EXPLICIT);
+        } else if (disabledType != FilterType.NOT_FILTERED) {
+            changed = primitive.setDisabledState(false);
+            primitive.setDisabledType(disabledType == FilterType.EXPLICIT);
+        } else {
+            changed = primitive.unsetDisabledState();
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the pool used to evaluate the filters in parallel.
+     * @return the pool, or {@code null} if the filters shall be evaluated sequentially
+     */
+    private static synchronized ForkJoinPool getThreadPool() {
+        if (!Boolean.TRUE.equals(PROP_PARALLEL.get())) {
+            return null;
+        }
+        if (threadPool == null) {
+            try {
+                threadPool = Utils.newForkJoinPool("filter.numberOfThreads", "filter-%d", Thread.NORM_PRIORITY);
+            } catch (SecurityException e) {
+                Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+                return null;
+            }
+        }
+        return threadPool.getParallelism() > 1 ? threadPool : null;
+    }
+
     /**
      * Apply the filters to a single primitive.
      *
@@ -0,0 +1,295 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+import org.openstreetmap.josm.data.coor.ILatLon;
+
+/**
+ * A static spatial index, built at once from a collection of objects.
+ * <p>
+ * The objects are sorted along a Hilbert curve on the center of their bbox, and grouped by {@link #NODE_SIZE} into the leaves of
+ * an R-tree, whose upper levels are built the same way. The bboxes of all tree nodes are stored in a single {@code double[]},
+ * level after level, so that building is a sort and a linear pass, and searching reads memory mostly sequentially.
+ * <p>
+ * Compared to {@link QuadBuckets}, this is faster to build and to search, and uses less memory, but it cannot be modified.
+ * It is meant for data which is loaded once and rarely edited: a new tree has to be built after a modification.
+ * The tree can be searched concurrently.
+ * @param <T> type of object extending {@link IQuadBucketType}.
+ * @since xxx
+ */
+public class PackedRTree<T extends IQuadBucketType> extends AbstractCollection<T> {
+    /** The maximal number of children of a tree node */
+    public static final int NODE_SIZE = 16;
+
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    /** The objects with a valid bbox, in Hilbert order. Object {@code i} is the leaf {@code i} of the tree. */
+    private final Object[] items;
+    /** The objects with an invalid bbox, which are never found by searches */
+    private final Object[] invalidBBoxItems;
+    /** The bboxes of the tree nodes as {@code minLon, minLat, maxLon, maxLat}. The leaves come first, the root is last. */
+    private final double[] boxes;
+    /** The position of the first child of each inner tree node, by tree node position minus the number of leaves */
+    private final int[] firstChild;
+    /** The end position (exclusive) of each level of the tree. Level 0 holds the leaves. */
+    private final int[] levelEnds;
+
+    /**
+     * Constructs a new {@code PackedRTree}.
+     * @param objects the objects to index. The bbox of an object must not change while it is in the tree.
+     */
+    public PackedRTree(Collection<? extends T> objects) {
+        final List<T> valid = new ArrayList<>(objects.size());
+        final List<T> invalid = new ArrayList<>();
+        final BBox extent = new BBox();
+        for (T o : objects) {
+            if (QuadBuckets.isValid(o)) {
+                valid.add(o);
+                if (o instanceof ILatLon) {
+                    extent.add((ILatLon) o);
+                } else {
+                    extent.add(o.getBBox());
+                }
+            } else {
+                invalid.add(o);
+            }
+        }
+        invalidBBoxItems = invalid.toArray();
+
+        final int count = valid.size();
+        int levels = 1;
+        int nodeCount = count;
+        for (int n = count; n > 1; levels++) {
+            n = (n + NODE_SIZE - 1) / NODE_SIZE;
+            nodeCount += n;
+        }
+        levelEnds = new int[levels];
+        boxes = new double[4 * nodeCount];
+        firstChild = new int[nodeCount - count];
+        items = sortByHilbertValue(valid, extent);
+
+        // Leaves
+        for (int i = 0; i < count; i++) {
+            setLeafBox(i, (IQuadBucketType) items[i]);
+        }
+        levelEnds[0] = count;
+        // Inner nodes, each level from the previous one
+        int pos = count;
+        for (int level = 1; level < levels; level++) {
+            final int start = level == 1 ? 0 : levelEnds[level - 2];
+            final int end = levelEnds[level - 1];
+            for (int child = start; child < end; child += NODE_SIZE) {
+                double minLon = Double.POSITIVE_INFINITY;
+                double minLat = Double.POSITIVE_INFINITY;
+                double maxLon = Double.NEGATIVE_INFINITY;
+                double maxLat = Double.NEGATIVE_INFINITY;
+                for (int c = child; c < Math.min(child + NODE_SIZE, end); c++) {
+                    minLon = Math.min(minLon, boxes[4 * c]);
+                    minLat = Math.min(minLat, boxes[4 * c + 1]);
+                    maxLon = Math.max(maxLon, boxes[4 * c + 2]);
+                    maxLat = Math.max(maxLat, boxes[4 * c + 3]);
+                }
+                setBox(pos, minLon, minLat, maxLon, maxLat);
+                firstChild[pos - count] = child;
+                pos++;
+            }
+            levelEnds[level] = pos;
+        }
+    }
+
+    private static Object[] sortByHilbertValue(List<? extends IQuadBucketType> objects, BBox extent) {
+        final int count = objects.size();
+        final double width = extent.width();
+        final double height = extent.height();
+        // The Hilbert value is in the upper 32 bits (shifted to keep the unsigned order), the index of the object in the lower ones
+        final long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            final IQuadBucketType o = objects.get(i);
+            final double lon;
+            final double lat;
+            if (o instanceof ILatLon) {
+                lon = ((ILatLon) o).lon();
+                lat = ((ILatLon) o).lat();
+            } else {
+                final BBox bbox = o.getBBox();
+                lon = (bbox.getMinLon() + bbox.getMaxLon()) / 2;
+                lat = (bbox.getMinLat() + bbox.getMaxLat()) / 2;
+            }
+            final int x = width > 0 ? (int) (HILBERT_MAX * (lon - extent.getMinLon()) / width) : 0;
+            final int y = height > 0 ? (int) (HILBERT_MAX * (lat - extent.getMinLat()) / height) : 0;
+            keys[i] = (long) (hilbert(x, y) ^ Integer.MIN_VALUE) << 32 | i;
+        }
+        Arrays.sort(keys);
+        final Object[] sorted = new Object[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = objects.get((int) keys[i]);
+        }
+        return sorted;
+    }
+
+    /**
+     * Computes the position of a point on a Hilbert curve covering a 2<sup>16</sup> x 2<sup>16</sup> grid.
+     * @param x the x coordinate, between 0 and 2<sup>16</sup>-1
+     * @param y the y coordinate, between 0 and 2<sup>16</sup>-1
+     * @return the position on the curve, as an unsigned 32 bits integer
+     */
+    static int hilbert(int x, int y) {
+        int d = 0;
+        int rx;
+        int ry;
+        for (int s = 1 << 15; s > 0; s >>= 1) {
+            rx = (x & s) != 0 ? 1 : 0;
+            ry = (y & s) != 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_MAX - x;
+                    y = HILBERT_MAX - y;
+                }
+                final int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    private void setLeafBox(int pos, IQuadBucketType o) {
+        // Avoid allocations for point (AKA Node) objects
+        if (o instanceof ILatLon) {
+            final ILatLon ll = (ILatLon) o;
+            setBox(pos, ll.lon(), ll.lat(), ll.lon(), ll.lat());
+        } else {
+            final BBox bbox = o.getBBox();
+            setBox(pos, bbox.getMinLon(), bbox.getMinLat(), bbox.getMaxLon(), bbox.getMaxLat());
+        }
+    }
+
+    private void setBox(int pos, double minLon, double minLat, double maxLon, double maxLat) {
+        boxes[4 * pos] = minLon;
+        boxes[4 * pos + 1] = minLat;
+        boxes[4 * pos + 2] = maxLon;
+        boxes[4 * pos + 3] = maxLat;
+    }
+
+    /**
+     * Search the tree for objects in the bbox (or crossing the bbox if they are ways).
+     * @param searchBbox the bbox
+     * @return List of objects within the bbox (or crossing the bbox if they are ways). Can be empty, but not null.
+     */
+    public List<T> search(BBox searchBbox) {
+        final List<T> result = new ArrayList<>();
+        if (searchBbox != null && searchBbox.isValid()) {
+            search(searchBbox.getMinLon(), searchBbox.getMinLat(), searchBbox.getMaxLon(), searchBbox.getMaxLat(), result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Search the tree for objects whose bbox intersects the given bounds, without creating intermediate objects.
+     * @param minLon the minimal longitude of the bounds
+     * @param minLat the minimal latitude of the bounds
+     * @param maxLon the maximal longitude of the bounds
+     * @param maxLat the maximal latitude of the bounds
+     * @param consumer the consumer of the objects found
+     */
+    @SuppressWarnings("unchecked")
+    public void search(double minLon, double minLat, double maxLon, double maxLat, Consumer<? super T> consumer) {
+        if (items.length == 0) {
+            return;
+        }
+        // Pending groups of tree nodes, as pairs of start and end positions
+        int[] stack = new int[4 * levelEnds.length * NODE_SIZE];
+        int stackSize = 0;
+        int start = boxes.length / 4 - 1;
+        int end = start + 1;
+        while (true) {
+            for (int pos = start; pos < end; pos++) {
+                if (boxes[4 * pos] > maxLon || boxes[4 * pos + 1] > maxLat
+                        || boxes[4 * pos + 2] < minLon || boxes[4 * pos + 3] < minLat) {
+                    continue;
+                }
+                if (pos < items.length) {
+                    consumer.accept((T) items[pos]);
+                } else {
+                    final int child = firstChild[pos - items.length];
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[stackSize++] = child;
+                    stack[stackSize++] = Math.min(child + NODE_SIZE, levelEnd(child));
+                }
+            }
+            if (stackSize == 0) {
+                return;
+            }
+            end = stack[--stackSize];
+            start = stack[--stackSize];
+        }
+    }
+
+    private int levelEnd(int pos) {
+        for (int end : levelEnds) {
+            if (pos < end) {
+                return end;
+            }
+        }
+        throw new IllegalArgumentException(Integer.toString(pos));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof IQuadBucketType)) {
+            return false;
+        }
+        final IQuadBucketType t = (IQuadBucketType) o;
+        if (!QuadBuckets.isValid(t)) {
+            return Arrays.asList(invalidBBoxItems).contains(o);
+        }
+        final BBox bbox = t.getBBox();
+        final boolean[] found = {false};
+        search(bbox.getMinLon(), bbox.getMinLat(), bbox.getMaxLon(), bbox.getMaxLat(), x -> found[0] |= o.equals(x));
+        return found[0];
+    }
+
+    @Override
+    public int size() {
+        return items.length + invalidBBoxItems.length;
+    }
+
+    /**
+     * Returns an iterator over the objects, in Hilbert order. The iterator does not support {@link Iterator#remove()}.
+     * @return an iterator over the objects
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final int i = index++;
+                return (T) (i < items.length ? items[i] : invalidBBoxItems[i - items.length]);
+            }
+        };
+    }
+}
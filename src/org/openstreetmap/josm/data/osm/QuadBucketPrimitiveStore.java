@@ -4,15 +4,22 @@ package org.openstreetmap.josm.data.osm;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.openstreetmap.josm.data.IQuadBucketType;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 
 /**
  * Stores primitives in quad buckets. This can be used to hold a collection of primitives, e.g. in a {@link DataSet}
  *
- * This class does not do any synchronization.
+ * The search methods do not need any synchronization, they may run concurrently with modifications
+ * (see {@link ConcurrentQuadBuckets}). Modifications have to be synchronized by the caller.
+ * <p>
+ * A store which is not expected to be modified, e.g. the one of a locked dataset, can be {@linkplain #setPackable packable}: it is
+ * then searched with {@link PackedRTree}s, built on a search once the store has been stable for two searches. The trees are built
+ * from a snapshot without blocking modifications. Any modification drops the trees, the quad buckets are kept so that this is free.
  * @author Michael Zangl
  * @param <N> type representing OSM nodes
  * @param <W> type representing OSM ways
@@ -24,19 +31,101 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      * All nodes goes here, even when included in other data (ways etc). This enables the instant
      * conversion of the whole DataSet by iterating over this data structure.
      */
-    private final QuadBuckets<N> nodes = new QuadBuckets<>();
+    private final ConcurrentQuadBuckets<N> nodes = new ConcurrentQuadBuckets<>();
 
     /**
      * All ways (Streets etc.) in the DataSet.
      *
      * The way nodes are stored only in the way list.
      */
-    private final QuadBuckets<W> ways = new QuadBuckets<>();
+    private final ConcurrentQuadBuckets<W> ways = new ConcurrentQuadBuckets<>();
 
     /**
      * All relations/relationships
      */
-    private final Collection<R> relations = new ArrayList<>();
+    private final Collection<R> relations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The packed trees of a store.
+     */
+    private static final class PackedIndex<N extends IQuadBucketType, W extends IQuadBucketType, R extends IQuadBucketType> {
+        final PackedRTree<N> nodes;
+        final PackedRTree<W> ways;
+        final PackedRTree<R> relations;
+
+        PackedIndex(Collection<N> nodes, Collection<W> ways, Collection<R> relations) {
+            this.nodes = new PackedRTree<>(nodes);
+            this.ways = new PackedRTree<>(ways);
+            this.relations = new PackedRTree<>(relations);
+        }
+    }
+
+    /** The packed trees, {@code null} if the store is not packed */
+    private volatile PackedIndex<N, W, R> packed;
+    private volatile boolean packable;
+    /** The number of modifications, to detect a stable store */
+    private int modCount;
+    private int lastSearchModCount = -1;
+    /** {@code true} while a search builds the packed trees */
+    private boolean building;
+
+    /**
+     * Sets whether this store may be searched with packed trees. This should be the case if the store is not expected to be
+     * modified, e.g. if the dataset is locked. The store can still be modified, at the price of building the trees again.
+     * @param packable {@code true} to allow packed trees, {@code false} to drop them
+     * @since xxx
+     */
+    public synchronized void setPackable(boolean packable) {
+        this.packable = packable;
+        if (!packable) {
+            packed = null;
+        }
+    }
+
+    /**
+     * Get the packed trees, and build them if the store is packable and has not been modified since the previous search.
+     * <p>
+     * The trees are built from a snapshot of the store without holding its monitor, so that modifications are not blocked.
+     * They are dropped if the store has been modified in the meantime.
+     * @return the packed trees, or {@code null} if the quad buckets have to be searched
+     */
+    private PackedIndex<N, W, R> getPackedIndex() {
+        final PackedIndex<N, W, R> current = packed;
+        if (current != null || !packable) {
+            return current;
+        }
+        final int snapshotModCount;
+        synchronized (this) {
+            if (packed != null || !packable || building) {
+                return packed;
+            } else if (lastSearchModCount != modCount) {
+                lastSearchModCount = modCount;
+                return null;
+            }
+            building = true;
+            snapshotModCount = modCount;
+        }
+        PackedIndex<N, W, R> index = null;
+        try {
+            index = new PackedIndex<>(new ArrayList<>(nodes), new ArrayList<>(ways), new ArrayList<>(relations));
+        } finally {
+            synchronized (this) {
+                building = false;
+                if (index != null && packable && modCount == snapshotModCount) {
+                    packed = index;
+                }
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Drops the packed trees before a modification. Has to be called when synchronized on this store.
+     */
+    private void modified() {
+        modCount++;
+        packed = null;
+    }
 
     /**
      * Searches for nodes in the given bounding box.
@@ -44,7 +133,8 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      * @return List of nodes in the given bbox. Can be empty but not null
      */
     public List<N> searchNodes(BBox bbox) {
-        return nodes.search(bbox);
+        final PackedIndex<N, W, R> index = getPackedIndex();
+        return index != null ? index.nodes.search(bbox) : nodes.search(bbox);
     }
 
     /**
@@ -62,7 +152,8 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      * @return List of ways in the given bbox. Can be empty but not null
      */
     public List<W> searchWays(BBox bbox) {
-        return ways.search(bbox);
+        final PackedIndex<N, W, R> index = getPackedIndex();
+        return index != null ? index.ways.search(bbox) : ways.search(bbox);
     }
 
     /**
@@ -80,6 +171,10 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      * @return List of relations in the given bbox. Can be empty but not null
      */
     public List<R> searchRelations(BBox bbox) {
+        final PackedIndex<N, W, R> index = getPackedIndex();
+        if (index != null) {
+            return index.relations.search(bbox);
+        }
         // QuadBuckets might be useful here (don't forget to do reindexing after some of rm is changed)
         return relations.stream()
                 .filter(r -> r.getBBox().intersects(bbox))
@@ -101,7 +196,8 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      * @param primitive the primitive.
      */
     @SuppressWarnings("unchecked")
-    public void addPrimitive(IPrimitive primitive) {
+    public synchronized void addPrimitive(IPrimitive primitive) {
+        modified();
         boolean success = false;
         if (primitive instanceof INode) {
             success = nodes.add((N) primitive);
@@ -115,7 +211,8 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
         }
     }
 
-    protected void removePrimitive(IPrimitive primitive) {
+    protected synchronized void removePrimitive(IPrimitive primitive) {
+        modified();
         boolean success = false;
         if (primitive instanceof INode) {
             success = nodes.remove(primitive);
@@ -137,7 +234,8 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      * @param rUpdater update relation position
      */
     @SuppressWarnings("unchecked")
-    protected void reindexNode(N node, Consumer<N> nUpdater, Consumer<W> wUpdater, Consumer<R> rUpdater) {
+    protected synchronized void reindexNode(N node, Consumer<N> nUpdater, Consumer<W> wUpdater, Consumer<R> rUpdater) {
+        modified();
         if (!nodes.remove(node))
             throw new JosmRuntimeException("Reindexing node failed to remove");
         nUpdater.accept(node);
@@ -159,7 +257,8 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      * @param rUpdater update relation position
      */
     @SuppressWarnings("unchecked")
-    protected void reindexWay(W way, Consumer<W> wUpdater, Consumer<R> rUpdater) {
+    protected synchronized void reindexWay(W way, Consumer<W> wUpdater, Consumer<R> rUpdater) {
+        modified();
         BBox before = way.getBBox();
         if (!ways.remove(way))
             throw new JosmRuntimeException("Reindexing way failed to remove");
@@ -179,7 +278,8 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
      * @param rUpdater update relation position
      */
     @SuppressWarnings("unchecked")
-    protected void reindexRelation(R relation, Consumer<R> rUpdater) {
+    protected synchronized void reindexRelation(R relation, Consumer<R> rUpdater) {
+        modified();
         BBox before = relation.getBBox();
         rUpdater.accept(relation);
         if (!before.equals(relation.getBBox())) {
@@ -192,7 +292,8 @@ public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R exte
     /**
      * Removes all primitives from the this store.
      */
-    public void clear() {
+    public synchronized void clear() {
+        modified();
         nodes.clear();
         ways.clear();
         relations.clear();
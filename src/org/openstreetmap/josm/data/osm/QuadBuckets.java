@@ -112,6 +112,23 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
             ymax = ymin + parent.height() / 2;
         }
 
+        QBLevel<T> findBucket(T o) {
+            // Avoid allocations for point (AKA Node) objects
+            if (o instanceof ILatLon) {
+                final double lat = ((ILatLon) o).lat();
+                final double lon = ((ILatLon) o).lon();
+                QBLevel<T> bucket = this;
+                while (bucket.hasChildren()) {
+                    final QBLevel<T> child = bucket.getChild(QuadTiling.index(lat, lon, bucket.level));
+                    if (child == null)
+                        return bucket;
+                    bucket = child;
+                }
+                return bucket;
+            }
+            return findBucket(o.getBBox());
+        }
+
         QBLevel<T> findBucket(BBox bbox) {
             if (!hasChildren())
                 return this;
@@ -153,7 +170,7 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
             content = null;
 
             for (T o : tmpcontent) {
-                byte idx = o.getBBox().getIndex(level);
+                byte idx = getIndex(o, level);
                 if (idx == -1) {
                     doAddContent(o);
                 } else {
@@ -173,6 +190,14 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
             return content.add(o);
         }
 
+        private static byte getIndex(final IQuadBucketType o, final int level) {
+            // Avoid allocations for point (AKA Node) objects
+            if (o instanceof ILatLon) {
+                return QuadTiling.index(((ILatLon) o).lat(), ((ILatLon) o).lon(), level);
+            }
+            return o.getBBox().getIndex(level);
+        }
+
         boolean matches(final T o, final BBox searchBbox) {
             // Avoid allocations for point (AKA Node) objects
             if (o instanceof ILatLon) {
@@ -292,7 +317,7 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
         }
 
         void add(T o) {
-            findBucket(o.getBBox()).doAdd(o);
+            findBucket(o).doAdd(o);
         }
 
         private void search(QuadBuckets<T> buckets, BBox searchBbox, List<T> result) {
@@ -381,9 +406,17 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
         size = 0;
     }
 
+    static boolean isValid(IQuadBucketType o) {
+        // Avoid allocations for point (AKA Node) objects
+        if (o instanceof ILatLon) {
+            return ((ILatLon) o).isLatLonKnown();
+        }
+        return o.getBBox().isValid();
+    }
+
     @Override
     public boolean add(T n) {
-        if (n.getBBox().isValid()) {
+        if (isValid(n)) {
             root.add(n);
         } else {
             invalidBBoxPrimitives.add(n);
@@ -428,7 +461,7 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
         @SuppressWarnings("unchecked")
         T t = (T) o;
         searchCache = null; // Search cache might point to one of removed buckets
-        QBLevel<T> bucket = root.findBucket(t.getBBox());
+        QBLevel<T> bucket = root.findBucket(t);
         boolean removed = bucket.removeContent(t);
         if (!removed) {
             removed = invalidBBoxPrimitives.remove(o);
@@ -443,10 +476,10 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
     public boolean contains(Object o) {
         @SuppressWarnings("unchecked")
         T t = (T) o;
-        if (!t.getBBox().isValid()) {
+        if (!isValid(t)) {
             return invalidBBoxPrimitives.contains(o);
         }
-        QBLevel<T> bucket = root.findBucket(t.getBBox());
+        QBLevel<T> bucket = root.findBucket(t);
         return bucket != null && bucket.content != null && bucket.content.contains(t);
     }
 
@@ -0,0 +1,191 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+
+/**
+ * An inverted index of the tags of the primitives of a {@link DataSet}: it maps each key and value to the primitives having
+ * this tag, so that a selective search does not need to test all primitives.
+ * <p>
+ * The index is kept up to date from the dataset events, so it reflects the dataset once the listeners have been notified
+ * of a change. It may contain primitives which do not have a tag anymore, or which are not in the dataset anymore:
+ * the primitives it returns are candidates which still have to be tested.
+ * <p>
+ * The index can be queried concurrently with its updates.
+ * @see DataSet#getTagIndex()
+ * @since xxx
+ */
+public class TagIndex implements DataSetListener {
+
+    private final DataSet ds;
+    /** The primitives by value, by key */
+    private final Map<String, Map<String, Set<OsmPrimitive>>> index = new HashMap<>();
+
+    /**
+     * Constructs a new {@code TagIndex} with the primitives of the given dataset. The caller has to hold the read lock
+     * of the dataset, and to register the index as listener of the dataset.
+     * @param ds the dataset
+     */
+    TagIndex(DataSet ds) {
+        this.ds = ds;
+        addAll(ds.allPrimitives());
+    }
+
+    private synchronized void addAll(Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive p : primitives) {
+            add(p, p.keys);
+        }
+    }
+
+    private void add(OsmPrimitive p, String[] keys) {
+        if (keys == null) {
+            return;
+        }
+        for (int i = 0; i < keys.length; i += 2) {
+            index.computeIfAbsent(keys[i], k -> new HashMap<>())
+                 .computeIfAbsent(keys[i + 1], v -> new HashSet<>())
+                 .add(p);
+        }
+    }
+
+    private void remove(OsmPrimitive p, String key, String value) {
+        Map<String, Set<OsmPrimitive>> values = index.get(key);
+        Set<OsmPrimitive> primitives = values != null ? values.get(value) : null;
+        if (primitives != null && primitives.remove(p) && primitives.isEmpty()) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private void remove(OsmPrimitive p, String[] keys) {
+        if (keys == null) {
+            return;
+        }
+        for (int i = 0; i < keys.length; i += 2) {
+            remove(p, keys[i], keys[i + 1]);
+        }
+    }
+
+    /**
+     * Replies the primitives which may have the given tag.
+     * @param key the key
+     * @param value the value
+     * @return a new set of the primitives which may have the given tag
+     */
+    public synchronized Set<OsmPrimitive> getPrimitives(String key, String value) {
+        Map<String, Set<OsmPrimitive>> values = index.get(key);
+        Set<OsmPrimitive> primitives = values != null ? values.get(value) : null;
+        return primitives != null ? new HashSet<>(primitives) : new HashSet<>();
+    }
+
+    /**
+     * Replies the primitives which may have the given key.
+     * @param key the key
+     * @return a new set of the primitives which may have the given key
+     */
+    public synchronized Set<OsmPrimitive> getPrimitives(String key) {
+        return collect(index.getOrDefault(key, Collections.emptyMap()), v -> true);
+    }
+
+    /**
+     * Replies the primitives which may have a tag matching the given predicates.
+     * The predicates are tested once per distinct key or value, not once per primitive.
+     * @param keyPredicate the predicate on keys
+     * @param valuePredicate the predicate on values, tested for the keys matching {@code keyPredicate}
+     * @return a new set of the primitives which may have a tag matching the given predicates
+     */
+    public synchronized Set<OsmPrimitive> getPrimitives(Predicate<String> keyPredicate, Predicate<String> valuePredicate) {
+        Set<OsmPrimitive> result = new HashSet<>();
+        index.forEach((key, values) -> {
+            if (keyPredicate.test(key)) {
+                result.addAll(collect(values, valuePredicate));
+            }
+        });
+        return result;
+    }
+
+    private static Set<OsmPrimitive> collect(Map<String, Set<OsmPrimitive>> values, Predicate<String> valuePredicate) {
+        Set<OsmPrimitive> result = new HashSet<>();
+        values.forEach((value, primitives) -> {
+            if (valuePredicate.test(value)) {
+                result.addAll(primitives);
+            }
+        });
+        return result;
+    }
+
+    private synchronized void rebuild() {
+        index.clear();
+        addAll(ds.allPrimitives());
+    }
+
+    @Override
+    public synchronized void primitivesAdded(PrimitivesAddedEvent event) {
+        addAll(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        for (OsmPrimitive p : event.getPrimitives()) {
+            remove(p, p.keys);
+        }
+    }
+
+    @Override
+    public synchronized void tagsChanged(TagsChangedEvent event) {
+        OsmPrimitive p = event.getPrimitive();
+        for (Map.Entry<String, String> e : event.getOriginalKeys().entrySet()) {
+            remove(p, e.getKey(), e.getValue());
+        }
+        if (p.getDataSet() == ds) {
+            add(p, p.keys);
+        }
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        // Tags are not affected
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        // Tags are not affected
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Tags are not affected
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Tags are not affected
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() == null) {
+            rebuild();
+        } else {
+            dataChangedIndividualEvents(event);
+        }
+    }
+}
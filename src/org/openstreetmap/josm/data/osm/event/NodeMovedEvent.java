@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm.event;
 import java.util.Collections;
 import java.util.List;
 
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
@@ -14,6 +15,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 public class NodeMovedEvent extends AbstractDatasetChangedEvent {
 
     private final Node node;
+    private final LatLon oldCoor;
 
     /**
      * Constructs a new {@code NodeMovedEvent}.
@@ -21,8 +23,20 @@ public class NodeMovedEvent extends AbstractDatasetChangedEvent {
      * @param node the node affected by the move
      */
     public NodeMovedEvent(DataSet dataSet, Node node) {
+        this(dataSet, node, null);
+    }
+
+    /**
+     * Constructs a new {@code NodeMovedEvent}.
+     * @param dataSet the dataset from which the event comes from
+     * @param node the node affected by the move
+     * @param oldCoor the coordinates of the node before the move, if known
+     * @since xxx
+     */
+    public NodeMovedEvent(DataSet dataSet, Node node, LatLon oldCoor) {
         super(dataSet);
         this.node = node;
+        this.oldCoor = oldCoor;
     }
 
     @Override
@@ -38,6 +52,15 @@ public class NodeMovedEvent extends AbstractDatasetChangedEvent {
         return node;
     }
 
+    /**
+     * Returns the coordinates of the node before the move.
+     * @return the coordinates of the node before the move, or {@code null} if they are not known
+     * @since xxx
+     */
+    public LatLon getOldCoor() {
+        return oldCoor;
+    }
+
     @Override
     public List<? extends OsmPrimitive> getPrimitives() {
         return Collections.singletonList(node);
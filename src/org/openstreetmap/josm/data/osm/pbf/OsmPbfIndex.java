@@ -0,0 +1,273 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.pbf;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * An index of the data blocks of an OSM PBF file. For each block, this records where the blob is in the file, the bbox of its
+ * primitives and the id range of each primitive type. This allows loading only the blocks needed for an area or for some ids.
+ * <p>
+ * The bbox of way and relation blocks is the union of the exact bboxes of their ways (from the node coordinates) and relations
+ * (from the node and way members). It is unknown if the file is not sorted by id.
+ * @since xxx
+ */
+public final class OsmPbfIndex {
+    private static final int MAGIC = 0x4a504249; // "JPBI"
+    private static final int VERSION = 2;
+    private static final byte BBOX_UNKNOWN = 0;
+    private static final byte BBOX_EMPTY = 1;
+    private static final byte BBOX_VALID = 2;
+
+    /**
+     * A data block of the PBF file
+     */
+    public static final class Block {
+        private final long offset;
+        private final int size;
+        private final BBox bbox;
+        private final long[] minIds;
+        private final long[] maxIds;
+
+        /**
+         * Create a new block
+         * @param offset The offset of the Blob message in the file
+         * @param size The size of the Blob message
+         * @param bbox The bbox of the primitives in the block, {@code null} if unknown (the block is then never skipped)
+         * @param minIds The minimal id for nodes, ways and relations ({@link Long#MAX_VALUE} if there are none)
+         * @param maxIds The maximal id for nodes, ways and relations ({@link Long#MIN_VALUE} if there are none)
+         */
+        public Block(long offset, int size, @Nullable BBox bbox, @Nonnull long[] minIds, @Nonnull long[] maxIds) {
+            this.offset = offset;
+            this.size = size;
+            this.bbox = bbox != null ? bbox.toImmutable() : null;
+            this.minIds = minIds.clone();
+            this.maxIds = maxIds.clone();
+        }
+
+        /**
+         * The offset of the Blob message in the file
+         * @return The offset
+         */
+        public long offset() {
+            return this.offset;
+        }
+
+        /**
+         * The size of the Blob message
+         * @return The size in bytes
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * The bbox of the primitives in the block
+         * @return The <i>immutable</i> bbox, or {@code null} if unknown
+         */
+        @Nullable
+        public BBox bbox() {
+            return this.bbox;
+        }
+
+        /**
+         * Check if the block may contain primitives in an area
+         * @param area The area
+         * @return {@code true} if the block has to be read for the area
+         */
+        public boolean intersects(BBox area) {
+            return this.bbox == null || (this.bbox.isValid() && this.bbox.intersects(area));
+        }
+
+        /**
+         * Check if the block contains primitives of a type
+         * @param type The primitive type ({@link OsmPrimitiveType#NODE}, {@link OsmPrimitiveType#WAY} or {@link OsmPrimitiveType#RELATION})
+         * @return {@code true} if there is at least one primitive of this type
+         */
+        public boolean contains(OsmPrimitiveType type) {
+            return this.minIds[type.ordinal()] <= this.maxIds[type.ordinal()];
+        }
+
+        /**
+         * Check if the block may contain primitives with an id in a range
+         * @param type The primitive type ({@link OsmPrimitiveType#NODE}, {@link OsmPrimitiveType#WAY} or {@link OsmPrimitiveType#RELATION})
+         * @param minId The minimal id
+         * @param maxId The maximal id
+         * @return {@code true} if the block has to be read for the ids
+         */
+        public boolean contains(OsmPrimitiveType type, long minId, long maxId) {
+            return this.minIds[type.ordinal()] <= maxId && minId <= this.maxIds[type.ordinal()];
+        }
+
+        /**
+         * The minimal id of a primitive type
+         * @param type The primitive type
+         * @return The minimal id, {@link Long#MAX_VALUE} if there are no primitives of this type
+         */
+        public long minId(OsmPrimitiveType type) {
+            return this.minIds[type.ordinal()];
+        }
+
+        /**
+         * The maximal id of a primitive type
+         * @param type The primitive type
+         * @return The maximal id, {@link Long#MIN_VALUE} if there are no primitives of this type
+         */
+        public long maxId(OsmPrimitiveType type) {
+            return this.maxIds[type.ordinal()];
+        }
+    }
+
+    private final long fileSize;
+    private final long lastModified;
+    private final List<Block> blocks;
+
+    /**
+     * Create a new index
+     * @param fileSize The size of the indexed file, used to check if the index is up to date
+     * @param lastModified The modification time of the indexed file, used to check if the index is up to date
+     * @param blocks The data blocks, in file order
+     */
+    public OsmPbfIndex(long fileSize, long lastModified, @Nonnull List<Block> blocks) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.blocks = Collections.unmodifiableList(new ArrayList<>(blocks));
+    }
+
+    /**
+     * Check if this index was built for a file
+     * @param size The current size of the file
+     * @param modified The current modification time of the file
+     * @return {@code true} if the index matches the file
+     */
+    public boolean isUpToDate(long size, long modified) {
+        return this.fileSize == size && this.lastModified == modified;
+    }
+
+    /**
+     * The data blocks of the file
+     * @return The blocks, in file order
+     */
+    @Nonnull
+    public List<Block> getBlocks() {
+        return this.blocks;
+    }
+
+    /**
+     * Get the blocks which may have primitives of a type in an area
+     * @param type The primitive type
+     * @param area The area
+     * @return The blocks to read, in file order
+     */
+    @Nonnull
+    public List<Block> getBlocks(OsmPrimitiveType type, BBox area) {
+        final List<Block> result = new ArrayList<>();
+        for (Block block : this.blocks) {
+            if (block.contains(type) && block.intersects(area)) {
+                result.add(block);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the blocks which may have primitives of a type with an id in a range
+     * @param type The primitive type
+     * @param minId The minimal id
+     * @param maxId The maximal id
+     * @return The blocks to read, in file order
+     */
+    @Nonnull
+    public List<Block> getBlocks(OsmPrimitiveType type, long minId, long maxId) {
+        final List<Block> result = new ArrayList<>();
+        for (Block block : this.blocks) {
+            if (block.contains(type, minId, maxId)) {
+                result.add(block);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write the index
+     * @param outputStream The stream to write to (not closed)
+     * @throws IOException if the stream could not be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        final DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(this.fileSize);
+        output.writeLong(this.lastModified);
+        output.writeInt(this.blocks.size());
+        for (Block block : this.blocks) {
+            output.writeLong(block.offset);
+            output.writeInt(block.size);
+            if (block.bbox == null) {
+                output.writeByte(BBOX_UNKNOWN);
+            } else if (!block.bbox.isValid()) {
+                output.writeByte(BBOX_EMPTY);
+            } else {
+                output.writeByte(BBOX_VALID);
+                output.writeDouble(block.bbox.getMinLon());
+                output.writeDouble(block.bbox.getMinLat());
+                output.writeDouble(block.bbox.getMaxLon());
+                output.writeDouble(block.bbox.getMaxLat());
+            }
+            for (int i = 0; i < block.minIds.length; i++) {
+                output.writeLong(block.minIds[i]);
+                output.writeLong(block.maxIds[i]);
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Read an index written by {@link #write(OutputStream)}
+     * @param inputStream The stream to read from (not closed)
+     * @return The index
+     * @throws IOException if the stream could not be read, or does not contain an index in a supported version
+     */
+    @Nonnull
+    public static OsmPbfIndex read(InputStream inputStream) throws IOException {
+        final DataInputStream input = new DataInputStream(inputStream);
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("Not an OSM PBF index, or unsupported version");
+        }
+        final long fileSize = input.readLong();
+        final long lastModified = input.readLong();
+        final int count = input.readInt();
+        final List<Block> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final long offset = input.readLong();
+            final int size = input.readInt();
+            final byte bboxType = input.readByte();
+            BBox bbox = null;
+            if (bboxType == BBOX_VALID) {
+                bbox = new BBox(input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble());
+            } else if (bboxType == BBOX_EMPTY) {
+                bbox = new BBox();
+            }
+            final long[] minIds = new long[3];
+            final long[] maxIds = new long[3];
+            for (int j = 0; j < minIds.length; j++) {
+                minIds[j] = input.readLong();
+                maxIds[j] = input.readLong();
+            }
+            blocks.add(new Block(offset, size, bbox, minIds, maxIds));
+        }
+        return new OsmPbfIndex(fileSize, lastModified, blocks);
+    }
+}
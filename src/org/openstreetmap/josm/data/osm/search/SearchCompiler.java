@@ -13,11 +13,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -28,16 +30,19 @@ import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.TagIndex;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.search.PushbackTokenizer.Range;
 import org.openstreetmap.josm.data.osm.search.PushbackTokenizer.Token;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.gui.mappaint.Environment;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector;
@@ -82,6 +87,13 @@ import jakarta.annotation.Nullable;
  */
 public class SearchCompiler {
 
+    /**
+     * Defines if the tag index of datasets is used to find the primitives which may match a search.
+     * The index of a dataset is built on its first search, and takes memory for each tag of the dataset, hence it is disabled by default.
+     * @since xxx
+     */
+    public static final BooleanProperty PROP_TAG_INDEX = new BooleanProperty("search.tag-index", false);
+
     private final boolean caseSensitive;
     private final boolean regexSearch;
     private static final String REGEX_ERROR_MESSAGE = marktr("The regex \"{0}\" had a parse error at offset {1}, full error:\n\n{2}");
@@ -369,6 +381,17 @@ public class SearchCompiler {
             // Default to no-op
             return this;
         }
+
+        /**
+         * Replies the primitives which may match this criterion, according to the tag index of their dataset.
+         * This allows to test only these primitives instead of the whole dataset.
+         * @param index the tag index
+         * @return a superset of the primitives matching this criterion, or {@code null} if every primitive has to be tested
+         * @since xxx
+         */
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            return null;
+        }
     }
 
     /**
@@ -522,6 +545,11 @@ public class SearchCompiler {
         public boolean match(Tagged osm) {
             return false;
         }
+
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            return new HashSet<>();
+        }
     }
 
     /**
@@ -573,6 +601,11 @@ public class SearchCompiler {
             return Optional.ofNullable(OsmUtils.getOsmBoolean(osm.get(key))).orElse(defaultValue);
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            return defaultValue ? null : index.getPrimitives(key::equals, v -> Boolean.TRUE.equals(OsmUtils.getOsmBoolean(v)));
+        }
+
         @Override
         public String toString() {
             return key + '?';
@@ -619,6 +652,22 @@ public class SearchCompiler {
             return lhs.match(osm) && rhs.match(osm);
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            Set<OsmPrimitive> left = lhs.getCandidates(index);
+            if (left != null && left.isEmpty()) {
+                return left;
+            }
+            Set<OsmPrimitive> right = rhs.getCandidates(index);
+            if (left == null || right == null) {
+                return left != null ? left : right;
+            }
+            // Both are supersets of the result, so is their intersection
+            Set<OsmPrimitive> smaller = left.size() <= right.size() ? left : right;
+            smaller.retainAll(smaller == left ? right : left);
+            return smaller;
+        }
+
         @Override
         public String toString() {
             return map(m -> m instanceof AbstractBinaryMatch && !(m instanceof And) ? parenthesis(m) : m, (s1, s2) -> s1 + " && " + s2);
@@ -648,6 +697,17 @@ public class SearchCompiler {
             return lhs.match(osm) || rhs.match(osm);
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            Set<OsmPrimitive> left = lhs.getCandidates(index);
+            Set<OsmPrimitive> right = left != null ? rhs.getCandidates(index) : null;
+            if (left == null || right == null) {
+                return null;
+            }
+            left.addAll(right);
+            return left;
+        }
+
         @Override
         public String toString() {
             return map(m -> m instanceof AbstractBinaryMatch && !(m instanceof Or) ? parenthesis(m) : m, (s1, s2) -> s1 + " || " + s2);
@@ -677,6 +737,17 @@ public class SearchCompiler {
             return lhs.match(osm) ^ rhs.match(osm);
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            Set<OsmPrimitive> left = lhs.getCandidates(index);
+            Set<OsmPrimitive> right = left != null ? rhs.getCandidates(index) : null;
+            if (left == null || right == null) {
+                return null;
+            }
+            left.addAll(right);
+            return left;
+        }
+
         @Override
         public String toString() {
             return map(m -> m instanceof AbstractBinaryMatch && !(m instanceof Xor) ? parenthesis(m) : m, (s1, s2) -> s1 + " ^ " + s2);
@@ -799,6 +870,18 @@ public class SearchCompiler {
             return false;
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            if (keyPattern != null) {
+                return index.getPrimitives(k -> keyPattern.matcher(k).find(), v -> valuePattern.matcher(v).find());
+            } else if (TIMESTAMP.equals(key)) {
+                return null;
+            }
+            String v2 = Normalizer.normalize(caseSensitive ? value : value.toLowerCase(Locale.ENGLISH), Normalizer.Form.NFC);
+            return index.getPrimitives(caseSensitive ? key::equals : key::equalsIgnoreCase, mv -> Normalizer.normalize(
+                    caseSensitive ? mv : mv.toLowerCase(Locale.ENGLISH), Normalizer.Form.NFC).contains(v2));
+        }
+
         private String getMv(Tagged osm) {
             String mv;
             if (TIMESTAMP.equals(key) && osm instanceof OsmPrimitive) {
@@ -1066,6 +1149,27 @@ public class SearchCompiler {
             throw new AssertionError("Missed state");
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            switch (mode) {
+            case ANY_VALUE:
+                return index.getPrimitives(key);
+            case ANY_KEY:
+                return index.getPrimitives(k -> true, value::equals);
+            case EXACT:
+                return index.getPrimitives(key, value);
+            case ANY_KEY_REGEXP:
+                return index.getPrimitives(k -> true, v -> valuePattern.matcher(v).matches());
+            case ANY_VALUE_REGEXP:
+                return index.getPrimitives(k -> keyPattern.matcher(k).matches(), v -> true);
+            case EXACT_REGEXP:
+                return index.getPrimitives(k -> keyPattern.matcher(k).matches(), v -> valuePattern.matcher(v).matches());
+            default:
+                // Matches primitives without tags, or almost all primitives
+                return null;
+            }
+        }
+
         public String getKey() {
             return key;
         }
@@ -2030,6 +2134,26 @@ public class SearchCompiler {
                 .parse();
     }
 
+    /**
+     * Replies the primitives of a dataset which may match the given criterion, using the tag index of the dataset.
+     * Only these primitives need to be tested with {@link Match#match(OsmPrimitive)}.
+     * @param match the criterion
+     * @param ds the dataset
+     * @return the primitives of {@code ds} which may match, or {@code null} if every primitive of the dataset has to be tested
+     * @see DataSet#getTagIndex()
+     * @since xxx
+     */
+    public static Collection<OsmPrimitive> getCandidates(Match match, DataSet ds) {
+        if (!PROP_TAG_INDEX.get()) {
+            return null;
+        }
+        Set<OsmPrimitive> candidates = match.getCandidates(ds.getTagIndex());
+        if (candidates != null) {
+            candidates.removeIf(p -> p.getDataSet() != ds);
+        }
+        return candidates;
+    }
+
     static Match compileMapCSS(String mapCSS) throws SearchParseError {
         try {
             final List<Selector> selectors = new MapCSSParser(new StringReader(mapCSS)).selectors_for_search();
@@ -7,9 +7,12 @@ import java.awt.geom.GeneralPath;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Iterator;
+import java.util.List;
 
 import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.OsmData;
 import org.openstreetmap.josm.data.osm.Way;
@@ -124,6 +127,42 @@ public abstract class AbstractMapRenderer implements Rendering {
         }
     }
 
+    /**
+     * Searches for the nodes to paint, without locking the data set if it is a {@link DataSet}.
+     * @param data the data being rendered
+     * @param bbox the bounding box being displayed
+     * @return the nodes in the bounding box
+     * @see DataSet#searchNodesLockFree(BBox)
+     * @since xxx
+     */
+    protected static List<? extends INode> searchNodes(OsmData<?, ?, ?, ?> data, BBox bbox) {
+        return data instanceof DataSet ? ((DataSet) data).searchNodesLockFree(bbox) : data.searchNodes(bbox);
+    }
+
+    /**
+     * Searches for the ways to paint, without locking the data set if it is a {@link DataSet}.
+     * @param data the data being rendered
+     * @param bbox the bounding box being displayed
+     * @return the ways in the bounding box
+     * @see DataSet#searchWaysLockFree(BBox)
+     * @since xxx
+     */
+    protected static List<? extends IWay<?>> searchWays(OsmData<?, ?, ?, ?> data, BBox bbox) {
+        return data instanceof DataSet ? ((DataSet) data).searchWaysLockFree(bbox) : data.searchWays(bbox);
+    }
+
+    /**
+     * Searches for the relations to paint, without locking the data set if it is a {@link DataSet}.
+     * @param data the data being rendered
+     * @param bbox the bounding box being displayed
+     * @return the relations in the bounding box
+     * @see DataSet#searchRelationsLockFree(BBox)
+     * @since xxx
+     */
+    protected static List<? extends IRelation<?>> searchRelations(OsmData<?, ?, ?, ?> data, BBox bbox) {
+        return data instanceof DataSet ? ((DataSet) data).searchRelationsLockFree(bbox) : data.searchRelations(bbox);
+    }
+
     /**
      * Draws virtual nodes.
      *
@@ -136,7 +175,7 @@ public abstract class AbstractMapRenderer implements Rendering {
             return;
         // print normal virtual nodes
         GeneralPath path = new GeneralPath();
-        for (IWay<?> osm : data.searchWays(bbox)) {
+        for (IWay<?> osm : searchWays(data, bbox)) {
             if (osm.isUsable() && !osm.isDisabledAndHidden() && !osm.isDisabled()) {
                 visitVirtual(path, osm);
             }
@@ -48,6 +48,20 @@ public final class ImageCache {
         return new ImageCache(this.image, this.imageFuture, true);
     }
 
+    /**
+     * Mark this tile as dirty, and cancel its pending rendering, which may not include the latest changes
+     * @return The tile to put in the cache, or {@code null} if the tile has no image left and should be removed from the cache
+     * @since xxx
+     */
+    @Nullable
+    public ImageCache invalidate() {
+        if (this.imageFuture != null) {
+            this.imageFuture.cancel();
+            return this.image == null ? null : new ImageCache(this.image, null, true);
+        }
+        return becomeDirty();
+    }
+
     /**
      * Get the image to paint
      * @return The image (may be {@code null})
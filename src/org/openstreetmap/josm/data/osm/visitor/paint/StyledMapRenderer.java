@@ -28,25 +28,31 @@ import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import javax.swing.AbstractButton;
 import javax.swing.FocusManager;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.IRelation;
@@ -70,10 +76,12 @@ import org.openstreetmap.josm.gui.draw.MapViewPath;
 import org.openstreetmap.josm.gui.draw.MapViewPositionAndRotation;
 import org.openstreetmap.josm.gui.mappaint.ElemStyles;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.styleelement.AreaElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.HorizontalTextAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.VerticalTextAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.DefaultStyles;
+import org.openstreetmap.josm.gui.mappaint.styleelement.LineElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.MapImage;
 import org.openstreetmap.josm.gui.mappaint.styleelement.RepeatImageElement.LineImageAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
@@ -240,7 +248,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
-    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new HashMap<>();
+    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new ConcurrentHashMap<>();
 
     /**
      * Check, if this System has the GlyphVector double translation bug.
@@ -350,6 +358,21 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private static final AbstractProperty<Integer> WIDER_HIGHLIGHT = new IntegerProperty("mappaint.highlight.bigger-increment", 5).cached();
     private static final AbstractProperty<Integer> HIGHLIGHT_STEP = new IntegerProperty("mappaint.highlight.step", 4).cached();
 
+    /**
+     * The number of horizontal strips of the view which are drawn in parallel, each into its own image.
+     * A value of 1 draws all primitives on the calling thread, directly into the graphics context.
+     * @since xxx
+     */
+    public static final AbstractProperty<Integer> PREFERENCE_DRAW_PARTITIONS
+            = new IntegerProperty("mappaint.draw.partitions", 1).cached();
+    /** The minimal number of style records to draw in partitions, smaller frames are not worth the image allocations */
+    private static final int PARTITIONED_DRAW_MIN_RECORDS = 2000;
+    /**
+     * The margin, in view pixels, added to the extent of a line when selecting the partitions it is drawn in.
+     * It covers the direction arrows, the highlighting and the segment order numbers drawn along the line.
+     */
+    private static final int LINE_DECORATION_MARGIN = 24;
+
     private Collection<WaySegment> highlightWaySegments;
 
     //flag that activate wider highlight mode
@@ -509,7 +532,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
      * @since 12285
      */
     public void drawArea(Relation r, Color color, MapImage fillImage, Float extent, Float extentThreshold, boolean disabled) {
-        Multipolygon multipolygon = MultipolygonCache.getInstance().get(r);
+        Multipolygon multipolygon = MultipolygonCache.getInstance().getForRendering(r);
         if (!r.isDisabled() && !multipolygon.getOuterWays().isEmpty()) {
             for (PolyData pd : multipolygon.getCombinedPolygons()) {
                 if (!isAreaVisible(pd.get())) {
@@ -1242,7 +1265,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         if (osm instanceof IWay) {
             consumer.accept(getPath((IWay<?>) osm));
         } else if (osm instanceof Relation) {
-            Multipolygon multipolygon = MultipolygonCache.getInstance().get((Relation) osm);
+            Multipolygon multipolygon = MultipolygonCache.getInstance().getForRendering((Relation) osm);
             if (!multipolygon.getOuterWays().isEmpty()) {
                 for (PolyData pd : multipolygon.getCombinedPolygons()) {
                     MapViewPath path = new MapViewPath(mapState);
@@ -1640,11 +1663,18 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         getSettings(renderVirtualNodes);
         try {
             Lock readLock = data.getReadLock();
-            if (readLock.tryLock(1, TimeUnit.SECONDS)) {
+            // A data set may be painted while a writer holds its lock, e.g. while a download is merged: its store is searched
+            // without the lock, see DataSet#searchNodesLockFree. The primitives modified meanwhile are painted in their former
+            // or new state, and painted again once the modification is done.
+            final boolean lockFree = data instanceof DataSet;
+            final boolean locked = readLock.tryLock() || (!lockFree && readLock.tryLock(1, TimeUnit.SECONDS));
+            if (locked || lockFree) {
                 try {
-                    paintWithLock(data, renderVirtualNodes, benchmark, bbox);
+                    paintData(data, renderVirtualNodes, benchmark, bbox);
                 } finally {
-                    readLock.unlock();
+                    if (locked) {
+                        readLock.unlock();
+                    }
                 }
             } else {
                 Logging.warn("Cannot paint layer {0}: It is locked.");
@@ -1654,16 +1684,16 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
-    private void paintWithLock(final OsmData<?, ?, ?, ?> data, boolean renderVirtualNodes, RenderBenchmarkCollector benchmark,
+    private void paintData(final OsmData<?, ?, ?, ?> data, boolean renderVirtualNodes, RenderBenchmarkCollector benchmark,
             BBox bbox) {
         try {
             highlightWaySegments = data.getHighlightedWaySegments();
 
             benchmark.renderStart(circum);
 
-            List<? extends INode> nodes = data.searchNodes(bbox);
-            List<? extends IWay<?>> ways = data.searchWays(bbox);
-            List<? extends IRelation<?>> relations = data.searchRelations(bbox);
+            List<? extends INode> nodes = searchNodes(data, bbox);
+            List<? extends IWay<?>> ways = searchWays(data, bbox);
+            List<? extends IRelation<?>> relations = searchRelations(data, bbox);
 
             final List<StyleRecord> allStyleElems = new ArrayList<>(nodes.size()+ways.size()+relations.size());
 
@@ -1692,8 +1722,13 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 return;
             }
 
-            for (StyleRecord styleRecord : sorted) {
-                paintRecord(styleRecord);
+            final int partitions = PREFERENCE_DRAW_PARTITIONS.get();
+            if (THREAD_POOL != null && partitions > 1 && sorted.length >= PARTITIONED_DRAW_MIN_RECORDS && isPartitionable()) {
+                paintPartitioned(sorted, partitions, renderVirtualNodes);
+            } else {
+                for (StyleRecord styleRecord : sorted) {
+                    paintRecord(styleRecord);
+                }
             }
 
             drawVirtualNodes(data, bbox);
@@ -1709,6 +1744,188 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
+    /**
+     * Determines if the graphics context can be split in images aligned on device pixels
+     * @return {@code false} if the output is rotated or sheared
+     */
+    private boolean isPartitionable() {
+        final int supportedTypes = AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE | AffineTransform.TYPE_GENERAL_SCALE;
+        return (g.getTransform().getType() & ~supportedTypes) == 0;
+    }
+
+    /**
+     * Draws the sorted style records, the lines and areas in horizontal strips of the view, in parallel.
+     * <p>
+     * The extent of the labels and icons is not known before drawing them, so they are drawn directly in the graphics context,
+     * in their order, between the runs of lines and areas drawn in strips. Each strip is drawn into its own image by its own
+     * renderer, with the records which touch it, in the same order. The images are then drawn in the graphics context.
+     * @param sorted the sorted style records
+     * @param partitions the number of strips
+     * @param renderVirtualNodes whether virtual nodes are rendered, for the settings of the strip renderers
+     */
+    private void paintPartitioned(StyleRecord[] sorted, int partitions, boolean renderVirtualNodes) {
+        // The vertical extent of each record in the view, min and max, or NaN if it is not known before drawing
+        final double[] extents = new double[2 * sorted.length];
+        THREAD_POOL.submit(() -> IntStream.range(0, sorted.length).parallel()
+                .forEach(i -> computeVerticalExtent(sorted[i], extents, i))).join();
+
+        int start = 0;
+        while (start < sorted.length) {
+            final boolean bounded = !Double.isNaN(extents[2 * start]);
+            int end = start + 1;
+            while (end < sorted.length && !Double.isNaN(extents[2 * end]) == bounded) {
+                end++;
+            }
+            if (bounded && end - start >= PARTITIONED_DRAW_MIN_RECORDS) {
+                if (!paintStrips(sorted, start, end, extents, partitions, renderVirtualNodes)) {
+                    return;
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    paintRecord(sorted[i]);
+                }
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Draws a run of the sorted style records in horizontal strips of the view, in parallel.
+     * @param sorted the sorted style records
+     * @param start the index of the first record to draw
+     * @param end the index after the last record to draw
+     * @param extents the vertical extents of the records in the view
+     * @param partitions the number of strips
+     * @param renderVirtualNodes whether virtual nodes are rendered, for the settings of the strip renderers
+     * @return {@code false} if the drawing was interrupted
+     */
+    private boolean paintStrips(StyleRecord[] sorted, int start, int end, double[] extents, int partitions,
+            boolean renderVirtualNodes) {
+        final Rectangle clip = Optional.ofNullable(g.getClipBounds())
+                .orElseGet(() -> new Rectangle(0, 0, nc.getWidth(), nc.getHeight()));
+        final AffineTransform transform = g.getTransform();
+        final int stripHeight = (clip.height + partitions - 1) / partitions;
+        final List<Callable<Void>> tasks = new ArrayList<>(partitions);
+        final List<BufferedImage> images = new ArrayList<>(partitions);
+        final List<Rectangle> imageBounds = new ArrayList<>(partitions);
+        for (int y0 = clip.y; y0 < clip.y + clip.height; y0 += stripHeight) {
+            final Rectangle strip = new Rectangle(clip.x, y0, clip.width, Math.min(stripHeight, clip.y + clip.height - y0));
+            final Rectangle device = transform.createTransformedShape(strip).getBounds();
+            if (device.isEmpty()) {
+                continue;
+            }
+            final BufferedImage image = new BufferedImage(device.width, device.height, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D stripGraphics = image.createGraphics();
+            stripGraphics.setRenderingHints(g.getRenderingHints());
+            stripGraphics.translate(-device.x, -device.y);
+            stripGraphics.transform(transform);
+            stripGraphics.clip(strip);
+            // The renderers are set up on this thread, they only draw on the worker threads
+            final StyledMapRenderer renderer = new StyledMapRenderer(stripGraphics, nc, isInactiveMode);
+            renderer.setStyles(styles);
+            renderer.highlightWaySegments = highlightWaySegments;
+            renderer.getSettings(renderVirtualNodes);
+            final double minY = strip.getMinY();
+            final double maxY = strip.getMaxY();
+            tasks.add(() -> {
+                try {
+                    for (int i = start; i < end; i++) {
+                        if (extents[2 * i] <= maxY && extents[2 * i + 1] >= minY) {
+                            renderer.paintRecord(sorted[i]);
+                        }
+                    }
+                } finally {
+                    stripGraphics.dispose();
+                }
+                return null;
+            });
+            images.add(image);
+            imageBounds.add(device);
+        }
+
+        for (Future<Void> future : THREAD_POOL.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Logging.warn("Interrupted while drawing map partitions");
+                return false;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new JosmRuntimeException(e.getCause());
+            }
+        }
+
+        // Draw the images in device space
+        g.setTransform(new AffineTransform());
+        try {
+            for (int i = 0; i < images.size(); i++) {
+                g.drawImage(images.get(i), imageBounds.get(i).x, imageBounds.get(i).y, null);
+            }
+        } finally {
+            g.setTransform(transform);
+        }
+        return true;
+    }
+
+    /**
+     * Computes the vertical extent of a style record in the view, including the width of its style.
+     * @param styleRecord the style record
+     * @param extents the extents, min and max, set to NaN if the extent is not known before drawing (labels, icons)
+     * @param index the index of the record
+     */
+    private void computeVerticalExtent(StyleRecord styleRecord, double[] extents, int index) {
+        final IPrimitive osm = styleRecord.osm;
+        final double margin = getPaintMargin(styleRecord.style);
+        double minY = Double.NaN;
+        double maxY = Double.NaN;
+        if (margin >= 0 && osm instanceof INode) {
+            minY = mapState.getPointFor((INode) osm).getInViewY();
+            maxY = minY;
+        } else if (margin >= 0) {
+            final BBox bbox = osm.getBBox();
+            if (bbox.isValid()) {
+                // All corners, since north is not always up in the view
+                final double y1 = mapState.getPointFor(new LatLon(bbox.getMinLat(), bbox.getMinLon())).getInViewY();
+                final double y2 = mapState.getPointFor(new LatLon(bbox.getMinLat(), bbox.getMaxLon())).getInViewY();
+                final double y3 = mapState.getPointFor(new LatLon(bbox.getMaxLat(), bbox.getMinLon())).getInViewY();
+                final double y4 = mapState.getPointFor(new LatLon(bbox.getMaxLat(), bbox.getMaxLon())).getInViewY();
+                minY = Math.min(Math.min(y1, y2), Math.min(y3, y4));
+                maxY = Math.max(Math.max(y1, y2), Math.max(y3, y4));
+            }
+        }
+        if (Double.isNaN(minY) || Double.isNaN(maxY)) {
+            extents[2 * index] = Double.NaN;
+            extents[2 * index + 1] = Double.NaN;
+        } else {
+            extents[2 * index] = minY - margin;
+            extents[2 * index + 1] = maxY + margin;
+        }
+    }
+
+    /**
+     * Returns how far from its geometry a style element is drawn.
+     * @param style the style element
+     * @return the distance in view pixels, or a negative value if it is not known before drawing, e.g. for labels and icons
+     */
+    private double getPaintMargin(StyleElement style) {
+        if (style instanceof AreaElement) {
+            // antialiasing
+            return 1;
+        } else if (style instanceof LineElement) {
+            final LineElement line = (LineElement) style;
+            float width = line.getLineWidth();
+            if (line.realWidth > 0 && paintSettings.isUseRealWidth()) {
+                width = Math.max(width, (float) (100 / (getCircum() / line.realWidth)));
+            }
+            // the arrows are as long as the line is wide, plus some pixels
+            return line.getExtent(width) + width + LINE_DECORATION_MARGIN;
+        }
+        return -1;
+    }
+
     private void paintRecord(StyleRecord styleRecord) {
         try {
             styleRecord.paintPrimitive(paintSettings, this);
@@ -10,9 +10,9 @@ import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.Image;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Transparency;
-import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -22,24 +22,38 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.jcs3.access.CacheAccess;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.OsmData;
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.gui.MainApplication;
-import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.styleelement.AreaElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.LineElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.NodeElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.RepeatImageElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
- * A styled render that does the rendering on a tile basis. Note: this is currently experimental!
+ * A styled render that does the rendering on a tile basis.
+ * <p>
+ * The tiles are rendered in the background, the closest to the center of the view first, and kept in a cache until the data
+ * they show is modified (see {@link ImageCache#invalidate()}). Once the visible tiles are up to date, the tiles of the next and
+ * previous zoom levels are prefetched. The rendering of tiles which leave the view is cancelled.
  * It may be extracted to an interface at a later date.
  * @since 19176
  */
@@ -48,6 +62,19 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
     private static final int BUFFER_TILES = 2;
     // The number of extra pixels to render per tile (avoids black lines in render result)
     private static final int BUFFER_PIXELS = 16;
+    // The maximal number of tiles waiting to be rendered
+    private static final int MAX_QUEUED_TILES = 5;
+    /**
+     * Whether the tiles of the next and previous zoom levels are rendered once the visible tiles are up to date
+     * @since xxx
+     */
+    public static final AbstractProperty<Boolean> PREFERENCE_PREFETCH = new BooleanProperty("mappaint.fast_render.prefetch", true).cached();
+    /**
+     * The extent of labels in pixels when invalidating tiles, since their size is only known when they are painted
+     * @since xxx
+     */
+    public static final AbstractProperty<Integer> PREFERENCE_LABEL_EXTENT =
+            new IntegerProperty("mappaint.fast_render.label_extent", 128).cached();
     private CacheAccess<TileZXY, ImageCache> cache;
     private int zoom;
     private Consumer<TileZXY> notifier;
@@ -75,7 +102,6 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
             super.render(data, renderVirtualNodes, bounds);
             return;
         }
-        final Executor worker = this.worker;
         final BufferedImage tempImage;
         final Graphics2D tempG2d;
         // I'd like to avoid two image copies, but there are some issues using the original g2d object
@@ -83,10 +109,9 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
         tempG2d = tempImage.createGraphics();
         tempG2d.setComposite(AlphaComposite.DstAtop); // Avoid tile lines in large areas
 
-        final List<TileZXY> toRender = TileZXY.boundsToTiles(bounds.getMinLat(), bounds.getMinLon(),
-                bounds.getMaxLat(), bounds.getMaxLon(), zoom).collect(Collectors.toList());
-        final Bounds box = new Bounds(bounds);
-        toRender.stream().map(TileZXY::tileToBounds).forEach(box::extend);
+        // Render the tiles closest to the center of the view first
+        final LatLon center = this.nc.getLatLon(this.nc.getWidth() / 2.0, this.nc.getHeight() / 2.0);
+        final List<TileZXY> toRender = getTilesByDistance(bounds, center, zoom);
         final int tileSize;
         if (toRender.isEmpty()) {
             tileSize = Config.getPref().getInt("mappaint.fast_render.tile_size", 256); // Mostly to keep the compiler happy
@@ -98,52 +123,19 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
             tileSize = max.x - min.x;
         }
 
-        // Sort the tiles based off of proximity to the mouse pointer
-        if (nc instanceof MapView) { // Ideally this would either be an interface or a method in NavigableComponent
-            final MapView mv = (MapView) nc;
-            final MouseEvent mouseEvent = mv.lastMEvent;
-            final LatLon mousePosition = nc.getLatLon(mouseEvent.getX(), mouseEvent.getY());
-            final TileZXY mouseTile = TileZXY.latLonToTile(mousePosition.lat(), mousePosition.lon(), zoom);
-            toRender.sort(Comparator.comparingInt(tile -> {
-                final int x = tile.x() - mouseTile.x();
-                final int y = tile.y() - mouseTile.y();
-                return x * x + y * y;
-            }));
-        }
-
-        // We want to prioritize where the mouse is, but having some in the queue will reduce overall paint time
-        int submittedTile = 5;
+        int pending = 0;
         int painted = 0;
+        final List<TileZXY> toSubmit = new ArrayList<>();
         for (TileZXY tile : toRender) {
-            final Image tileImage;
             // Needed to avoid having tiles that aren't rendered properly
             final ImageCache tImg = this.cache.get(tile);
             final boolean wasDirty = tImg != null && tImg.isDirty();
-            if (tImg != null && !tImg.isDirty() && tImg.imageFuture() != null) {
-                submittedTile = 0; // Don't submit new tiles if there are futures already in the queue. Not perfect.
-            }
-            if (submittedTile > 0 && (tImg == null || tImg.isDirty())) {
-                // Ensure that we don't add a large number of render calls
-                if (tImg != null && tImg.imageFuture() != null) {
-                    tImg.imageFuture().cancel();
-                }
-                submittedTile--;
-                // Note that the paint code is *not* thread safe, so all tiles must be painted on the same thread.
-                // FIXME figure out how to make this thread safe? Probably not necessary, since UI isn't blocked, but it would be a nice to have
-                TileLoader loader = new TileLoader(data, tile, tileSize, new ArrayList<>());
-                worker.execute(loader);
-                if (tImg == null) {
-                    this.cache.put(tile, new ImageCache(null, loader, false));
-                } else {
-                    // This might cause some extra renders, but *probably* ok
-                    this.cache.put(tile, new ImageCache(tImg.image(), loader, true));
-                }
-                tileImage = tImg != null ? tImg.image() : null;
-            } else if (tImg != null) {
-                tileImage = tImg.image();
-            } else {
-                tileImage = null;
+            if (tImg != null && tImg.imageFuture() != null) {
+                pending++;
+            } else if (tImg == null || tImg.isDirty()) {
+                toSubmit.add(tile);
             }
+            final Image tileImage = tImg != null ? tImg.image() : null;
             final Point point = this.nc.getPoint(tile);
             if (tileImage != null) {
                 if ((wasDirty && Logging.isTraceEnabled()) || this.isInactiveMode) {
@@ -154,13 +146,30 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
                 }
                 // There seems to be an off-by-one error somewhere. Seems to be tied to sign of lat/lon
                 final int offset = (tile.lat() > 0 ? 1 : 0) + (tile.lon() >= 0 ? 1 : 0);
-                tempG2d.drawImage(tileImage, point.x + 1, point.y + offset, null, null);
+                // The tile may have been rendered at another scale of the same zoom level (or prefetched from another zoom level)
+                final int imageTileSize = tileImage.getWidth(null) - BUFFER_PIXELS;
+                if (imageTileSize == tileSize || imageTileSize <= 0) {
+                    tempG2d.drawImage(tileImage, point.x + 1, point.y + offset, null, null);
+                } else {
+                    tempG2d.drawImage(tileImage, point.x + 1, point.y + offset,
+                            tileImage.getWidth(null) * tileSize / imageTileSize, tileImage.getHeight(null) * tileSize / imageTileSize, null);
+                }
             } else {
                 Logging.trace("StyledMapRenderer did not paint tile {1}", tile);
             }
         }
+
+        // We want to prioritize the center of the view, but having some tiles in the queue will reduce overall paint time
+        final int free = Math.max(0, MAX_QUEUED_TILES - pending);
+        for (TileZXY tile : toSubmit.subList(0, Math.min(free, toSubmit.size()))) {
+            submit(data, tile, tileSize, mapState.getScale());
+        }
+        boolean remaining = toSubmit.size() > free;
+        if (toSubmit.isEmpty() && pending == 0 && PREFERENCE_PREFETCH.get()) {
+            remaining = prefetch(data, bounds, center, tileSize);
+        }
         // Force another render pass if there may be more tiles to render
-        if (submittedTile <= 0) {
+        if (remaining) {
             worker.execute(nc::invalidate);
         }
         final double percentDrawn = 100 * painted / (double) toRender.size();
@@ -179,9 +188,76 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
         g.drawImage(tempImage, 0, 0, null);
     }
 
+    /**
+     * Get the tiles covering the bounds, sorted by distance to a position
+     * @param bounds The bounds to cover
+     * @param position The position to sort by
+     * @param tileZoom The zoom level of the tiles
+     * @return The tiles, the closest first
+     */
+    private static List<TileZXY> getTilesByDistance(Bounds bounds, LatLon position, int tileZoom) {
+        final List<TileZXY> tiles = TileZXY.boundsToTiles(bounds.getMinLat(), bounds.getMinLon(),
+                bounds.getMaxLat(), bounds.getMaxLon(), tileZoom).collect(Collectors.toList());
+        final TileZXY positionTile = TileZXY.latLonToTile(position.lat(), position.lon(), tileZoom);
+        tiles.sort(Comparator.comparingInt(tile -> {
+            final int x = tile.x() - positionTile.x();
+            final int y = tile.y() - positionTile.y();
+            return x * x + y * y;
+        }));
+        return tiles;
+    }
+
+    /**
+     * Queue the rendering of a tile
+     * @param data The data to render
+     * @param tile The tile to render
+     * @param tileSize The size of the tile image
+     * @param scale The scale to render the tile at
+     */
+    private void submit(OsmData<?, ?, ?, ?> data, TileZXY tile, int tileSize, double scale) {
+        final ImageCache tImg = this.cache.get(tile);
+        // Note that the paint code is *not* thread safe, so all tiles must be painted on the same thread.
+        final TileLoader loader = new TileLoader(data, tile, tileSize, scale, new ArrayList<>());
+        // Keep the previous image, if any, until the new one is ready
+        this.cache.put(tile, new ImageCache(tImg != null ? tImg.image() : null, loader, tImg != null));
+        worker.execute(loader);
+    }
+
+    /**
+     * Queue the rendering of the tiles of the next and previous zoom levels, so that they are ready when the user zooms.
+     * This should only be called when all visible tiles are up to date.
+     * @param data The data to render
+     * @param bounds The bounds of the view
+     * @param center The center of the view
+     * @param tileSize The size of the tiles at the current zoom level
+     * @return {@code true} if there are more tiles to prefetch
+     */
+    private boolean prefetch(OsmData<?, ?, ?, ?> data, Bounds bounds, LatLon center, int tileSize) {
+        int free = MAX_QUEUED_TILES;
+        for (int prefetchZoom : new int[] {zoom + 1, zoom - 1}) {
+            if (prefetchZoom < 0) {
+                continue;
+            }
+            // The tiles are rendered as they will be painted at their zoom level: with the same size, at twice or half the scale
+            final double scale = mapState.getScale() * Math.pow(2, (double) zoom - prefetchZoom);
+            for (TileZXY tile : getTilesByDistance(bounds, center, prefetchZoom)) {
+                final ImageCache tImg = this.cache.get(tile);
+                if (tImg == null || (tImg.isDirty() && tImg.imageFuture() == null)) {
+                    if (free == 0) {
+                        return true;
+                    }
+                    submit(data, tile, tileSize, scale);
+                    free--;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Set the cache for this painter. If not set, this acts like {@link StyledMapRenderer}.
-     * @param box The box we will be rendering -- any jobs for tiles outside of this box will be cancelled
+     * @param box The box we will be rendering -- any jobs for tiles outside of this box will be cancelled,
+     *            except for the tiles of the next and previous zoom levels which are prefetched
      * @param cache The cache to use
      * @param zoom The zoom level to use for creating the tiles
      * @param notifier The method to call when a tile has been updated. This may or may not be called in the EDT.
@@ -191,7 +267,9 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
         this.zoom = zoom;
         this.notifier = notifier != null ? notifier : tile -> { /* Do nothing */ };
 
-        Set<TileZXY> tiles = TileZXY.boundsToTiles(box.getMinLat(), box.getMinLon(), box.getMaxLat(), box.getMaxLon(), zoom)
+        Set<TileZXY> tiles = IntStream.rangeClosed(Math.max(0, zoom - 1), zoom + 1)
+                .boxed()
+                .flatMap(z -> TileZXY.boundsToTiles(box.getMinLat(), box.getMinLon(), box.getMaxLat(), box.getMaxLon(), z))
                 .collect(Collectors.toSet());
         cache.getMatching(".*").forEach((key, value) -> {
             if (!tiles.contains(key)) {
@@ -200,6 +278,46 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
         });
     }
 
+    /**
+     * Get how far the styles of a primitive may be painted outside of its bbox, so that the tiles showing it can be invalidated.
+     * @param primitive The primitive
+     * @param nc The view the primitive is painted in
+     * @return The extent in pixels
+     * @since xxx
+     */
+    public static int getStyleExtent(IPrimitive primitive, NavigatableComponent nc) {
+        final double circum = nc.getDist100Pixel();
+        // Tiles are painted with some overlap, which also covers the small decorations (e.g. arrows, way node symbols)
+        double extent = BUFFER_PIXELS;
+        for (StyleElement style : MapPaintStyles.getStyles().get(primitive, circum, nc)) {
+            if (style instanceof LineElement) {
+                final LineElement line = (LineElement) style;
+                double width = line.getLineWidth();
+                if (line.realWidth > 0 && MapPaintSettings.INSTANCE.isUseRealWidth()) {
+                    width = Math.max(width, 100 / (circum / line.realWidth));
+                }
+                extent = Math.max(extent, width / 2 + Math.abs(line.offset));
+            } else if (style instanceof NodeElement) {
+                extent = Math.max(extent, getExtent(((NodeElement) style).getBoxProvider().get().getBox()));
+            } else if (style instanceof BoxTextElement) {
+                final BoxTextElement text = (BoxTextElement) style;
+                extent = Math.max(extent, getExtent(text.getBox()) + Math.max(Math.abs(text.xOffset), Math.abs(text.yOffset))
+                        + PREFERENCE_LABEL_EXTENT.get());
+            } else if (style instanceof RepeatImageElement) {
+                final RepeatImageElement repeat = (RepeatImageElement) style;
+                extent = Math.max(extent, Math.max(repeat.pattern.getWidth(), repeat.pattern.getHeight()) + Math.abs(repeat.offset));
+            } else if (!(style instanceof AreaElement)) {
+                // Labels and icons of lines and areas
+                extent = Math.max(extent, PREFERENCE_LABEL_EXTENT.get());
+            }
+        }
+        return (int) Math.ceil(extent);
+    }
+
+    private static int getExtent(Rectangle box) {
+        return Math.max(Math.max(-box.x, -box.y), Math.max(box.x + box.width, box.y + box.height));
+    }
+
     /**
      * Cancel a job for a tile
      * @param cache The cache with the job
@@ -207,12 +325,19 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
      * @param value The {@link ImageCache} to remove and cancel
      */
     private static void cancelImageFuture(CacheAccess<TileZXY, ImageCache> cache, TileZXY key, ImageCache value) {
-        if (value.imageFuture() != null) {
-            value.imageFuture().cancel();
-            if (value.image() == null) {
-                cache.remove(key);
-            } else {
-                cache.put(key, new ImageCache(value.image(), null, value.isDirty()));
+        final TileLoader loader = value.imageFuture();
+        if (loader != null) {
+            synchronized (loader) {
+                loader.cancel();
+                // The job may have cached its image before being cancelled
+                if (cache.get(key) != value) {
+                    return;
+                }
+                if (value.image() == null) {
+                    cache.remove(key);
+                } else {
+                    cache.put(key, new ImageCache(value.image(), null, value.isDirty()));
+                }
             }
         }
     }
@@ -222,9 +347,10 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
      * @param data The data to generate tiles from
      * @param tiles The collection of tiles to generate (note: there is currently a bug with multiple tiles)
      * @param tileSize The size of the tile image
+     * @param scale The scale to render the tiles at
      * @return The image for the tiles passed in
      */
-    private BufferedImage generateTiles(OsmData<?, ?, ?, ?> data, Collection<TileZXY> tiles, int tileSize) {
+    private BufferedImage generateTiles(OsmData<?, ?, ?, ?> data, Collection<TileZXY> tiles, int tileSize, double scale) {
         if (tiles.isEmpty()) {
             throw new IllegalArgumentException("tiles cannot be empty");
         }
@@ -251,7 +377,7 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
         // These bounds are used to set the render area; it includes the buffer area.
         final Bounds bounds = generateRenderArea(tiles);
 
-        temporaryView.zoomTo(bounds.getCenter().getEastNorth(ProjectionRegistry.getProjection()), mapState.getScale());
+        temporaryView.zoomTo(bounds.getCenter().getEastNorth(ProjectionRegistry.getProjection()), scale);
         BufferedImage bufferedImage = createCompatibleImage(nc, width, height);
         Graphics2D g2d = bufferedImage.createGraphics();
         try {
@@ -297,8 +423,9 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
     class TileLoader implements Runnable {
         private final TileZXY tile;
         private final int tileSize;
+        private final double scale;
         private final OsmData<?, ?, ?, ?> data;
-        private boolean cancel;
+        private volatile boolean cancel;
         private final Collection<TileLoader> tileCollection;
         private boolean done;
 
@@ -307,12 +434,14 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
          * @param data The data to use for painting
          * @param tile The tile this tile loader is for
          * @param tileSize The expected size of this tile
+         * @param scale The scale to render the tile at
          * @param tileCollection The collection of tiles that this tile is being rendered with (for batching)
          */
-        TileLoader(OsmData<?, ?, ?, ?> data, TileZXY tile, int tileSize, Collection<TileLoader> tileCollection) {
+        TileLoader(OsmData<?, ?, ?, ?> data, TileZXY tile, int tileSize, double scale, Collection<TileLoader> tileCollection) {
             this.data = data;
             this.tile = tile;
             this.tileSize = tileSize;
+            this.scale = scale;
             this.tileCollection = tileCollection;
             this.tileCollection.add(this);
         }
@@ -323,7 +452,7 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
                 synchronized (tileCollection) {
                     if (!done) {
                         final BufferedImage tImage = generateTiles(data,
-                                tileCollection.stream().map(t -> t.tile).collect(Collectors.toList()), tileSize);
+                                tileCollection.stream().map(t -> t.tile).collect(Collectors.toList()), tileSize, scale);
                         final int minX = tileCollection.stream().map(t -> t.tile).mapToInt(TileZXY::x).min().orElse(this.tile.x());
                         final int minY = tileCollection.stream().map(t -> t.tile).mapToInt(TileZXY::y).min().orElse(this.tile.y());
                         for (TileLoader loader : tileCollection) {
@@ -345,15 +474,23 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
          * @param tImage The tile image for this job
          */
         private void cacheTile(BufferedImage tImage) {
-            cache.put(tile, new ImageCache(tImage, null, false));
-            done = true;
+            // The data or the view may have changed while the tile was rendered. The check and the update of the cache are done
+            // under the lock of cancel(), so that a tile invalidated during the update is not overwritten by this image.
+            synchronized (this) {
+                done = true;
+                if (cancel) {
+                    return;
+                }
+                cache.put(tile, new ImageCache(tImage, null, false));
+            }
             notifier.accept(tile);
         }
 
         /**
-         * Cancel this job without causing a {@link java.util.concurrent.CancellationException}
+         * Cancel this job without causing a {@link java.util.concurrent.CancellationException}.
+         * If the job is caching its image, this waits until it is done, so the caller can replace the cached image.
          */
-        void cancel() {
+        synchronized void cancel() {
             this.cancel = true;
         }
     }
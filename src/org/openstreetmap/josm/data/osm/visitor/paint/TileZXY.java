@@ -5,7 +5,9 @@ import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.IBounds;
 import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.tools.Pair;
 
 /**
  * A record used for storing tile information for painting.
@@ -105,6 +107,28 @@ public final class TileZXY implements ILatLon {
                 .flatMap(stream -> stream);
     }
 
+    /**
+     * Get the range of tiles covering a bounds, with a margin around the bounds
+     * @param bounds The bounds
+     * @param zoom The zoom level to generate the tiles for
+     * @param margin The margin to add on all sides of the bounds, as a fraction of the tile size
+     * @return The upper-left and lower-right tiles of the range, limited to the tiles which exist at the zoom level
+     * @since xxx
+     */
+    public static Pair<TileZXY, TileZXY> boundsToTileRange(IBounds bounds, int zoom, double margin) {
+        final double zoom2 = Math.pow(2, zoom);
+        final int max = (int) zoom2 - 1;
+        final int minX = clamp((int) Math.floor(lonToTileX(bounds.getMinLon(), zoom2) - margin), max);
+        final int maxX = clamp((int) Math.floor(lonToTileX(bounds.getMaxLon(), zoom2) + margin), max);
+        final int minY = clamp((int) Math.floor(latToTileY(bounds.getMaxLat(), zoom2) - margin), max);
+        final int maxY = clamp((int) Math.floor(latToTileY(bounds.getMinLat(), zoom2) + margin), max);
+        return new Pair<>(new TileZXY(zoom, minX, minY), new TileZXY(zoom, maxX, maxY));
+    }
+
+    private static int clamp(int coordinate, int max) {
+        return Math.max(0, Math.min(max, coordinate));
+    }
+
     /**
      * Convert a tile to the bounds for that tile
      * @param tile The tile to get the bounds for
@@ -145,12 +169,20 @@ public final class TileZXY implements ILatLon {
      */
     public static TileZXY latLonToTile(double lat, double lon, int zoom) {
         final double zoom2 = Math.pow(2, zoom);
-        final double latLog = Math.log(Math.tan(Math.toRadians(lat)) + 1 / Math.cos(Math.toRadians(lat)));
-        final int xCoord = (int) Math.floor(zoom2 * (180 + lon) / 360);
-        final int yCoord = (int) Math.floor(zoom2 * (1 - latLog / Math.PI) / 2);
+        final int xCoord = (int) Math.floor(lonToTileX(lon, zoom2));
+        final int yCoord = (int) Math.floor(latToTileY(lat, zoom2));
         return new TileZXY(zoom, xCoord, yCoord);
     }
 
+    private static double lonToTileX(double lon, double zoom2) {
+        return zoom2 * (180 + lon) / 360;
+    }
+
+    private static double latToTileY(double lat, double zoom2) {
+        final double latLog = Math.log(Math.tan(Math.toRadians(lat)) + 1 / Math.cos(Math.toRadians(lat)));
+        return zoom2 * (1 - latLog / Math.PI) / 2;
+    }
+
     @Override
     public String toString() {
         return "TileZXY{" + zoom + "/" + x + "/" + y + "}";
@@ -157,7 +157,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         viewClip = mapState.getViewArea(clip);
         getSettings(virtual);
 
-        for (final IRelation<?> rel : data.searchRelations(bbox)) {
+        for (final IRelation<?> rel : searchRelations(data, bbox)) {
             if (rel.isDrawable() && !rel.isSelected() && !rel.isDisabledAndHidden()) {
                 rel.accept(this);
             }
@@ -167,7 +167,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         List<IWay<?>> highlightedWays = new ArrayList<>();
         List<IWay<?>> untaggedWays = new ArrayList<>();
 
-        for (final IWay<?> way : data.searchWays(bbox)) {
+        for (final IWay<?> way : searchWays(data, bbox)) {
             if (way.isDrawable() && !way.isSelected() && !way.isDisabledAndHidden()) {
                 if (way.isHighlighted()) {
                     highlightedWays.add(way);
@@ -197,7 +197,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         }
         displaySegments();
 
-        for (final INode osm: data.searchNodes(bbox)) {
+        for (final INode osm: searchNodes(data, bbox)) {
             if (osm.isDrawable() && !osm.isSelected() && !osm.isDisabledAndHidden()) {
                 osm.accept(this);
             }
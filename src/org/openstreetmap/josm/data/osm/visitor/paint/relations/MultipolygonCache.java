@@ -3,10 +3,14 @@ package org.openstreetmap.josm.data.osm.visitor.paint.relations;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.openstreetmap.josm.data.osm.DataSelectionListener;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -25,6 +29,7 @@ import org.openstreetmap.josm.data.osm.event.SelectionEventManager;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
@@ -34,17 +39,40 @@ import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * A memory cache for {@link Multipolygon} objects.
+ * <p>
+ * The multipolygons of data layers are computed in background: all of them when a layer is added or data is merged,
+ * and those affected by a change afterwards. Until the new geometry of a multipolygon is ready, the renderer
+ * keeps drawing its last valid geometry (see {@link #getForRendering(Relation)}).
  * @since 4623
  */
 public final class MultipolygonCache implements DataSetListener, LayerChangeListener, ProjectionChangeListener, DataSelectionListener {
 
+    /**
+     * Defines if the multipolygons of data layers are computed in background
+     * @since xxx
+     */
+    public static final BooleanProperty PROP_PRECOMPUTE = new BooleanProperty("mappaint.multipolygon.precompute", true);
+
     private static final MultipolygonCache INSTANCE = new MultipolygonCache();
 
     private final Map<DataSet, Map<Relation, Multipolygon>> cache = new ConcurrentHashMap<>(); // see ticket 11833
 
+    /** The last valid geometry of the multipolygons being computed again in background */
+    private final Map<DataSet, Map<Relation, Multipolygon>> outdated = new ConcurrentHashMap<>();
+    /** The multipolygons to compute in background */
+    private final Map<DataSet, Set<Relation>> pending = new ConcurrentHashMap<>();
+    /** The datasets for which a background computation is scheduled */
+    private final Set<DataSet> scheduled = ConcurrentHashMap.newKeySet();
+    private ForkJoinPool threadPool;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
     private final Collection<PolyData> selectedPolyData = new ArrayList<>();
 
     private MultipolygonCache() {
@@ -81,32 +109,161 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     public Multipolygon get(Relation r, boolean forceRefresh) {
         Multipolygon multipolygon = null;
         if (r != null && r.getDataSet() != null) {
-            Map<Relation, Multipolygon> map2 = cache.get(r.getDataSet());
-            if (map2 == null) {
-                map2 = new ConcurrentHashMap<>();
-                cache.put(r.getDataSet(), map2);
-            }
+            Map<Relation, Multipolygon> map2 = cache.computeIfAbsent(r.getDataSet(), ds -> new ConcurrentHashMap<>());
             multipolygon = map2.get(r);
             if (multipolygon == null || forceRefresh) {
+                misses.incrementAndGet();
                 multipolygon = new Multipolygon(r);
-                map2.put(r, multipolygon);
-                synchronized (this) {
-                    for (PolyData pd : multipolygon.getCombinedPolygons()) {
-                        if (pd.isSelected()) {
-                            selectedPolyData.add(pd);
-                        }
-                    }
-                }
+                put(r.getDataSet(), map2, r, multipolygon);
+            } else {
+                hits.incrementAndGet();
             }
         }
         return multipolygon;
     }
 
+    /**
+     * Gets a multipolygon from cache, to be drawn. If the geometry of the multipolygon is being computed again in background,
+     * its last valid geometry is returned, and the data layer will be repainted once the new geometry is ready.
+     * @param r The multipolygon relation
+     * @return A multipolygon object for the given relation, or {@code null}
+     * @since xxx
+     */
+    public Multipolygon getForRendering(Relation r) {
+        if (r != null && r.getDataSet() != null) {
+            Map<Relation, Multipolygon> map2 = cache.get(r.getDataSet());
+            Multipolygon multipolygon = map2 != null ? map2.get(r) : null;
+            if (multipolygon == null) {
+                Map<Relation, Multipolygon> outdated2 = outdated.get(r.getDataSet());
+                multipolygon = outdated2 != null ? outdated2.get(r) : null;
+            }
+            if (multipolygon != null) {
+                hits.incrementAndGet();
+                return multipolygon;
+            }
+        }
+        return get(r);
+    }
+
+    private void put(DataSet ds, Map<Relation, Multipolygon> map, Relation r, Multipolygon multipolygon) {
+        synchronized (this) {
+            for (PolyData pd : multipolygon.getCombinedPolygons()) {
+                if (pd.isSelected()) {
+                    selectedPolyData.add(pd);
+                }
+            }
+        }
+        map.put(r, multipolygon);
+        Map<Relation, Multipolygon> outdated2 = outdated.get(ds);
+        if (outdated2 != null) {
+            outdated2.remove(r);
+        }
+    }
+
+    /**
+     * Replies the number of multipolygons found in cache since startup.
+     * @return the number of multipolygons found in cache
+     * @since xxx
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Replies the number of multipolygons which were not found in cache and had to be computed by the caller since startup.
+     * Multipolygons computed in background are not counted.
+     * @return the number of multipolygons not found in cache
+     * @since xxx
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Computes the given multipolygons in background.
+     * @param ds the data set of the multipolygons
+     * @param relations the relations. Those which are not multipolygons are ignored
+     * @since xxx
+     */
+    public void precompute(DataSet ds, Collection<? extends OsmPrimitive> relations) {
+        if (!Boolean.TRUE.equals(PROP_PRECOMPUTE.get())) {
+            return;
+        }
+        Set<Relation> set = pending.computeIfAbsent(ds, k -> ConcurrentHashMap.newKeySet());
+        for (OsmPrimitive r : relations) {
+            if (r.isMultipolygon()) {
+                set.add((Relation) r);
+            }
+        }
+        if (!set.isEmpty() && scheduled.add(ds)) {
+            ForkJoinPool pool = getThreadPool();
+            if (pool != null) {
+                pool.execute(() -> precompute(ds));
+            } else {
+                scheduled.remove(ds);
+            }
+        }
+    }
+
+    private void precompute(DataSet ds) {
+        scheduled.remove(ds);
+        Set<Relation> set = pending.get(ds);
+        if (set == null || set.isEmpty()) {
+            return;
+        }
+        List<Relation> relations = new ArrayList<>(set);
+        set.removeAll(relations);
+        long start = System.currentTimeMillis();
+        Map<Relation, Multipolygon> map2;
+        ds.getReadLock().lock();
+        try {
+            // Do not compute anything for a data set which has been removed from cache in the meantime
+            map2 = pending.containsKey(ds) ? cache.computeIfAbsent(ds, k -> new ConcurrentHashMap<>()) : null;
+            if (map2 != null) {
+                // The tasks of the parallel stream are run by the pool of this task
+                relations.parallelStream()
+                        .filter(r -> r.getDataSet() == ds && r.isMultipolygon() && !map2.containsKey(r))
+                        .forEach(r -> {
+                            try {
+                                put(ds, map2, r, new Multipolygon(r));
+                                clearCachedStyles(r);
+                            } catch (RuntimeException e) {
+                                Logging.log(Logging.LEVEL_ERROR, "Unable to compute multipolygon " + r, e);
+                            }
+                        });
+            }
+        } finally {
+            ds.getReadLock().unlock();
+        }
+        if (map2 != null) {
+            Logging.debug("Computed {0} multipolygons in {1} ms (cache hits: {2}, misses: {3})",
+                    relations.size(), System.currentTimeMillis() - start, hits.get(), misses.get());
+            for (OsmDataLayer layer : MainApplication.getLayerManager().getLayersOfType(OsmDataLayer.class)) {
+                if (layer.getDataSet() == ds) {
+                    layer.invalidate();
+                }
+            }
+        }
+    }
+
+    synchronized ForkJoinPool getThreadPool() {
+        if (threadPool == null) {
+            try {
+                threadPool = Utils.newForkJoinPool("mappaint.multipolygon.numberOfThreads", "multipolygon-%d", Thread.NORM_PRIORITY);
+            } catch (SecurityException e) {
+                Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            }
+        }
+        return threadPool;
+    }
+
     /**
      * Clears the cache for the given dataset.
      * @param ds the data set
      */
     public void clear(DataSet ds) {
+        pending.remove(ds);
+        outdated.remove(ds);
         Map<Relation, Multipolygon> map2 = cache.remove(ds);
         if (map2 != null) {
             map2.clear();
@@ -117,6 +274,8 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
      * Clears the whole cache.
      */
     public void clear() {
+        pending.clear();
+        outdated.clear();
         cache.clear();
     }
 
@@ -148,7 +307,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
                     if (maps == null) {
                         maps = getMapsFor(ds);
                     }
-                    processEvent(event, (Relation) p, maps);
+                    processEvent(event, (Relation) p, ds, maps);
 
                 } else if (p instanceof Way && p.getDataSet() != null) {
                     for (OsmPrimitive ref : p.getReferrers()) {
@@ -156,7 +315,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
                             if (maps == null) {
                                 maps = getMapsFor(ds);
                             }
-                            processEvent(event, (Relation) ref, maps);
+                            processEvent(event, (Relation) ref, ds, maps);
                         }
                     }
                 } else if (p instanceof Node && p.getDataSet() != null) {
@@ -167,20 +326,27 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         return maps;
     }
 
-    private static void processEvent(AbstractDatasetChangedEvent event, Relation r, Collection<Map<Relation, Multipolygon>> maps) {
+    private void processEvent(AbstractDatasetChangedEvent event, Relation r, DataSet ds, Collection<Map<Relation, Multipolygon>> maps) {
         if (event instanceof NodeMovedEvent || event instanceof WayNodesChangedEvent) {
-            dispatchEvent(event, r, maps);
+            dispatchEvent(event, r, ds, maps);
         } else if (event instanceof PrimitivesRemovedEvent) {
             if (event.getPrimitives().contains(r)) {
                 removeMultipolygonFrom(r, maps);
+                Map<Relation, Multipolygon> outdated2 = outdated.get(ds);
+                if (outdated2 != null) {
+                    outdated2.remove(r);
+                }
+            } else {
+                // A member has been removed
+                recomputeMultipolygon(r, ds, maps);
             }
         } else {
-            // Default (non-optimal) action: remove multipolygon from cache
-            removeMultipolygonFrom(r, maps);
+            // Default (non-optimal) action: compute the multipolygon again
+            recomputeMultipolygon(r, ds, maps);
         }
     }
 
-    private static void dispatchEvent(AbstractDatasetChangedEvent event, Relation r, Collection<Map<Relation, Multipolygon>> maps) {
+    private void dispatchEvent(AbstractDatasetChangedEvent event, Relation r, DataSet ds, Collection<Map<Relation, Multipolygon>> maps) {
         for (Map<Relation, Multipolygon> map : maps) {
             Multipolygon m = map.get(r);
             if (m != null) {
@@ -191,7 +357,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
                         final boolean oldClosedStatus = pd.isClosed();
                         pd.wayNodesChanged((WayNodesChangedEvent) event);
                         if (pd.isClosed() != oldClosedStatus) {
-                            removeMultipolygonFrom(r, maps); // see ticket #13591
+                            recomputeMultipolygon(r, ds, maps); // see ticket #13591
                             return;
                         }
                     }
@@ -200,10 +366,39 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         }
     }
 
+    /**
+     * Removes a multipolygon from cache and computes it again in background if enabled.
+     * Meanwhile, its last valid geometry is still drawn.
+     */
+    private void recomputeMultipolygon(Relation r, DataSet ds, Collection<Map<Relation, Multipolygon>> maps) {
+        if (!Boolean.TRUE.equals(PROP_PRECOMPUTE.get())) {
+            removeMultipolygonFrom(r, maps);
+            return;
+        }
+        for (Map<Relation, Multipolygon> map : maps) {
+            Multipolygon m = map.remove(r);
+            if (m != null && r.isMultipolygon()) {
+                outdated.computeIfAbsent(ds, k -> new ConcurrentHashMap<>()).put(r, m);
+            }
+        }
+        if (!r.isMultipolygon()) {
+            Map<Relation, Multipolygon> outdated2 = outdated.get(ds);
+            if (outdated2 != null) {
+                outdated2.remove(r);
+            }
+        }
+        clearCachedStyles(r);
+        precompute(ds, Collections.singleton(r));
+    }
+
     private static void removeMultipolygonFrom(Relation r, Collection<Map<Relation, Multipolygon>> maps) {
         for (Map<Relation, Multipolygon> map : maps) {
             map.remove(r);
         }
+        clearCachedStyles(r);
+    }
+
+    private static void clearCachedStyles(Relation r) {
         // Erase style cache for polygon members
         for (OsmPrimitive member : r.getMemberPrimitivesList()) {
             member.clearCachedStyle();
@@ -212,7 +407,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
 
     @Override
     public void primitivesAdded(PrimitivesAddedEvent event) {
-        // Do nothing
+        precompute(event.getDataset(), event.getPrimitives());
     }
 
     @Override
@@ -255,21 +450,23 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
                 if (maps == null) {
                     maps = getMapsFor(event.getDataset());
                 }
-                for (Map<Relation, Multipolygon> map : maps) {
-                    // DataChangedEvent is sent after downloading incomplete members (see #7131),
-                    // without having received RelationMembersChangedEvent or PrimitivesAddedEvent
-                    // OR when undoing a move of a large number of nodes (see #7195),
-                    // without having received NodeMovedEvent
-                    // This ensures concerned multipolygons will be correctly redrawn
-                    map.remove(p);
-                }
+                // DataChangedEvent is sent after downloading incomplete members (see #7131),
+                // without having received RelationMembersChangedEvent or PrimitivesAddedEvent
+                // OR when undoing a move of a large number of nodes (see #7195),
+                // without having received NodeMovedEvent
+                // OR after merging data.
+                // This ensures concerned multipolygons will be correctly redrawn
+                recomputeMultipolygon((Relation) p, event.getDataset(), maps);
             }
         }
     }
 
     @Override
     public void layerAdded(LayerAddEvent e) {
-        // Do nothing
+        if (e.getAddedLayer() instanceof OsmDataLayer) {
+            DataSet ds = ((OsmDataLayer) e.getAddedLayer()).getDataSet();
+            precompute(ds, ds.getRelations());
+        }
     }
 
     @Override
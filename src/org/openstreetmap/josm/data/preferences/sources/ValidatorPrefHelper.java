@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker;
 import org.openstreetmap.josm.tools.ImageProvider;
 
@@ -77,6 +78,30 @@ public class ValidatorPrefHelper extends SourcePrefHelper {
      */
     public static final BooleanProperty PREF_UNFURL = new BooleanProperty(PREFIX + ".force.unfurl.window", true);
 
+    /**
+     * The preferences key for running thread-safe tests in parallel, see {@link org.openstreetmap.josm.data.validation.Test#isThreadSafe()}
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_PARALLEL = new BooleanProperty(PREFIX + ".parallel", true);
+
+    /**
+     * The preferences key for the number of primitives visited by one parallel validation task
+     * @since xxx
+     */
+    public static final IntegerProperty PREF_PARALLEL_CHUNK_SIZE = new IntegerProperty(PREFIX + ".parallel.chunkSize", 1000);
+
+    /**
+     * The preferences key for validating the modified primitives while editing
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_LIVE = new BooleanProperty(PREFIX + ".live", false);
+
+    /**
+     * The preferences key for the delay in milliseconds between the last modification and the live validation
+     * @since xxx
+     */
+    public static final IntegerProperty PREF_LIVE_DELAY = new IntegerProperty(PREFIX + ".live.delay", 500);
+
     /**
      * Constructs a new {@code PresetPrefHelper}.
      */
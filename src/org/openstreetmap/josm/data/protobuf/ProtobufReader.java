@@ -0,0 +1,362 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A cursor over protobuf encoded bytes.
+ * <p>
+ * Unlike {@link ProtobufParser} and {@link ProtobufRecord}, this reads directly from a {@code byte[]} slice and returns primitives,
+ * so no intermediate byte arrays or boxed {@link Number}s are created. Embedded messages are read as new cursors over the same
+ * bytes, without copying.
+ * <p>
+ * Typical use:
+ * <pre>
+ * while (reader.hasNext()) {
+ *     switch (reader.nextField()) {
+ *         case 1:
+ *             id = reader.readVarInt();
+ *             break;
+ *         case 2:
+ *             refs = reader.readPackedSignedVarInt();
+ *             break;
+ *         default:
+ *             reader.skip();
+ *     }
+ * }
+ * </pre>
+ * Every field returned by {@link #nextField()} must be consumed by exactly one {@code read*} call or by {@link #skip()}.
+ *
+ * @since xxx
+ */
+public final class ProtobufReader {
+    private static final WireType[] WIRE_TYPES = new WireType[8];
+    static {
+        Arrays.fill(WIRE_TYPES, WireType.UNKNOWN);
+        for (WireType wireType : WireType.getAllValues()) {
+            if (wireType != WireType.UNKNOWN) {
+                WIRE_TYPES[wireType.getTypeRepresentation()] = wireType;
+            }
+        }
+    }
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+    private int field;
+    private WireType wireType = WireType.UNKNOWN;
+
+    /**
+     * Create a new reader
+     *
+     * @param bytes The bytes to read (not copied)
+     */
+    public ProtobufReader(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Create a new reader over a slice of an array
+     *
+     * @param bytes  The bytes to read (not copied)
+     * @param offset The start of the slice
+     * @param length The length of the slice
+     */
+    public ProtobufReader(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+        }
+        this.buffer = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Create a new reader over the remaining bytes of a buffer. The position of the buffer is not modified.
+     * Heap buffers are read in place, other buffers are copied.
+     *
+     * @param buffer The buffer to read
+     */
+    public ProtobufReader(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            this.buffer = buffer.array();
+            this.position = buffer.arrayOffset() + buffer.position();
+        } else {
+            this.buffer = new byte[buffer.remaining()];
+            buffer.duplicate().get(this.buffer);
+            this.position = 0;
+        }
+        this.limit = this.position + buffer.remaining();
+    }
+
+    /**
+     * Check if there is more data to read
+     *
+     * @return {@code true} if there is more data to read
+     */
+    public boolean hasNext() {
+        return this.position < this.limit;
+    }
+
+    /**
+     * Get the number of bytes left to read
+     *
+     * @return The remaining number of bytes
+     */
+    public int remaining() {
+        return this.limit - this.position;
+    }
+
+    /**
+     * Read the key of the next field
+     *
+     * @return The field number, see also {@link #getField()} and {@link #getWireType()}
+     * @throws IOException if the data is truncated or malformed
+     */
+    public int nextField() throws IOException {
+        final long key = readVarInt();
+        // I don't foresee having field numbers > {@code Integer#MAX_VALUE >> 3}
+        this.field = (int) (key >>> 3);
+        this.wireType = WIRE_TYPES[(int) (key & 7)];
+        return this.field;
+    }
+
+    /**
+     * Get the field number read by the last {@link #nextField()} call
+     *
+     * @return The field number
+     */
+    public int getField() {
+        return this.field;
+    }
+
+    /**
+     * Get the wire type read by the last {@link #nextField()} call
+     *
+     * @return The wire type of the current field
+     */
+    public WireType getWireType() {
+        return this.wireType;
+    }
+
+    /**
+     * Read a var int ({@link WireType#VARINT})
+     *
+     * @return The var int ({@code int32}, {@code int64}, {@code uint32}, {@code uint64}, {@code bool}, {@code enum})
+     * @throws IOException if the data is truncated or malformed
+     */
+    public long readVarInt() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += ProtobufParser.VAR_INT_BYTE_SIZE) {
+            if (this.position >= this.limit) {
+                throw new EOFException("Truncated protobuf var int");
+            }
+            final byte current = this.buffer[this.position++];
+            result |= (long) (current & 0x7F) << shift;
+            if (current >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed protobuf var int");
+    }
+
+    /**
+     * Read a zig-zag encoded var int ({@link WireType#VARINT})
+     *
+     * @return The signed var int ({@code sint32} or {@code sint64})
+     * @throws IOException if the data is truncated or malformed
+     */
+    public long readSignedVarInt() throws IOException {
+        return ProtobufParser.decodeZigZag(readVarInt());
+    }
+
+    /**
+     * Read a boolean ({@link WireType#VARINT})
+     *
+     * @return The boolean
+     * @throws IOException if the data is truncated or malformed
+     */
+    public boolean readBoolean() throws IOException {
+        return readVarInt() != 0;
+    }
+
+    /**
+     * Read 32 bits ({@link WireType#THIRTY_TWO_BIT})
+     *
+     * @return The {@code fixed32} or {@code sfixed32} value
+     * @throws IOException if the data is truncated
+     */
+    public int readFixed32() throws IOException {
+        require(Integer.BYTES);
+        final byte[] bytes = this.buffer;
+        final int start = this.position;
+        this.position += Integer.BYTES;
+        return (bytes[start] & 0xFF)
+                | (bytes[start + 1] & 0xFF) << 8
+                | (bytes[start + 2] & 0xFF) << 16
+                | (bytes[start + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * Read 64 bits ({@link WireType#SIXTY_FOUR_BIT})
+     *
+     * @return The {@code fixed64} or {@code sfixed64} value
+     * @throws IOException if the data is truncated
+     */
+    public long readFixed64() throws IOException {
+        final long low = Integer.toUnsignedLong(readFixed32());
+        return low | (long) readFixed32() << 32;
+    }
+
+    /**
+     * Read a float ({@link WireType#THIRTY_TWO_BIT})
+     *
+     * @return The float
+     * @throws IOException if the data is truncated
+     */
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readFixed32());
+    }
+
+    /**
+     * Read a double ({@link WireType#SIXTY_FOUR_BIT})
+     *
+     * @return The double
+     * @throws IOException if the data is truncated
+     */
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readFixed64());
+    }
+
+    /**
+     * Read a string ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @return The string (encoded as {@link StandardCharsets#UTF_8}, interned with {@link Utils#intern})
+     * @throws IOException if the data is truncated or malformed
+     */
+    public String readString() throws IOException {
+        final int length = readLength();
+        final String string = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+        this.position += length;
+        return Utils.intern(string);
+    }
+
+    /**
+     * Read bytes ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @return A copy of the bytes
+     * @throws IOException if the data is truncated or malformed
+     */
+    public byte[] readBytes() throws IOException {
+        final int length = readLength();
+        final byte[] bytes = Arrays.copyOfRange(this.buffer, this.position, this.position + length);
+        this.position += length;
+        return bytes;
+    }
+
+    /**
+     * Read an embedded message or a packed field ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @return A new reader for the message. The bytes are shared with this reader.
+     * @throws IOException if the data is truncated or malformed
+     */
+    public ProtobufReader readMessage() throws IOException {
+        final int length = readLength();
+        final ProtobufReader message = new ProtobufReader(this.buffer, this.position, length);
+        this.position += length;
+        return message;
+    }
+
+    /**
+     * Read packed var ints. A non-packed value ({@link WireType#VARINT}) is read as an array with one element.
+     *
+     * @return The var ints
+     * @throws IOException if the data is truncated or malformed
+     */
+    public long[] readPackedVarInt() throws IOException {
+        if (this.wireType == WireType.VARINT) {
+            return new long[] {readVarInt()};
+        }
+        final int end = readLength() + this.position;
+        final long[] numbers = new long[countVarInts(this.position, end)];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = readVarInt();
+        }
+        if (this.position != end) {
+            throw new IOException("Malformed protobuf packed field");
+        }
+        return numbers;
+    }
+
+    /**
+     * Read packed zig-zag encoded var ints. A non-packed value ({@link WireType#VARINT}) is read as an array with one element.
+     *
+     * @return The signed var ints
+     * @throws IOException if the data is truncated or malformed
+     */
+    public long[] readPackedSignedVarInt() throws IOException {
+        final long[] numbers = readPackedVarInt();
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = ProtobufParser.decodeZigZag(numbers[i]);
+        }
+        return numbers;
+    }
+
+    /**
+     * Skip the value of the current field
+     *
+     * @throws IOException if the data is truncated, or the wire type is not supported
+     */
+    public void skip() throws IOException {
+        switch (this.wireType) {
+            case VARINT:
+                readVarInt();
+                break;
+            case SIXTY_FOUR_BIT:
+                require(Long.BYTES);
+                this.position += Long.BYTES;
+                break;
+            case LENGTH_DELIMITED:
+                final int length = readLength();
+                this.position += length;
+                break;
+            case THIRTY_TWO_BIT:
+                require(Integer.BYTES);
+                this.position += Integer.BYTES;
+                break;
+            default:
+                throw new IOException("Cannot skip protobuf field " + this.field + " with wire type " + this.wireType);
+        }
+    }
+
+    private int readLength() throws IOException {
+        final long length = readVarInt();
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("Malformed protobuf length: " + length);
+        }
+        require((int) length);
+        return (int) length;
+    }
+
+    private void require(int length) throws EOFException {
+        if (length > this.limit - this.position) {
+            throw new EOFException("Truncated protobuf data: " + length + " bytes expected, " + (this.limit - this.position) + " left");
+        }
+    }
+
+    private int countVarInts(int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (this.buffer[i] >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
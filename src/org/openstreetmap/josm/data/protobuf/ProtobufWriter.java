@@ -0,0 +1,227 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A growable buffer of protobuf encoded bytes, the counterpart of {@link ProtobufReader}.
+ * <p>
+ * Fields are appended in the order of the calls. Embedded messages are encoded in their own writer first,
+ * then appended with {@link #writeMessage(int, ProtobufWriter)}, as their length has to be known beforehand.
+ * A writer can be {@link #reset() reset} to encode several messages with the same buffer.
+ *
+ * @since xxx
+ */
+public final class ProtobufWriter {
+    private byte[] buffer;
+    private int size;
+
+    /**
+     * Create a new writer
+     */
+    public ProtobufWriter() {
+        this(256);
+    }
+
+    /**
+     * Create a new writer
+     *
+     * @param capacity The initial capacity of the buffer, in bytes
+     */
+    public ProtobufWriter(int capacity) {
+        this.buffer = new byte[Math.max(16, capacity)];
+    }
+
+    private void ensureCapacity(int additional) {
+        final int required = this.size + additional;
+        if (required > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length * 2));
+        }
+    }
+
+    private void writeKey(int field, WireType wireType) {
+        writeRawVarInt((long) field << 3 | wireType.getTypeRepresentation());
+    }
+
+    /**
+     * Write a var int without field key
+     *
+     * @param value The value
+     */
+    public void writeRawVarInt(long value) {
+        ensureCapacity(10);
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            this.buffer[this.size++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= ProtobufParser.VAR_INT_BYTE_SIZE;
+        }
+        this.buffer[this.size++] = (byte) remaining;
+    }
+
+    /**
+     * Write a var int field ({@link WireType#VARINT})
+     *
+     * @param field The field number
+     * @param value The value ({@code int32}, {@code int64}, {@code uint32}, {@code uint64}, {@code enum})
+     */
+    public void writeVarInt(int field, long value) {
+        writeKey(field, WireType.VARINT);
+        writeRawVarInt(value);
+    }
+
+    /**
+     * Write a zig-zag encoded var int field ({@link WireType#VARINT})
+     *
+     * @param field The field number
+     * @param value The signed value ({@code sint32} or {@code sint64})
+     */
+    public void writeSignedVarInt(int field, long value) {
+        writeVarInt(field, encodeZigZag(value));
+    }
+
+    /**
+     * Write a boolean field ({@link WireType#VARINT})
+     *
+     * @param field The field number
+     * @param value The value
+     */
+    public void writeBoolean(int field, boolean value) {
+        writeVarInt(field, value ? 1 : 0);
+    }
+
+    /**
+     * Write a bytes field ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @param field  The field number
+     * @param bytes  The bytes
+     * @param offset The start of the bytes to write
+     * @param length The number of bytes to write
+     */
+    public void writeBytes(int field, byte[] bytes, int offset, int length) {
+        writeKey(field, WireType.LENGTH_DELIMITED);
+        writeRawVarInt(length);
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, this.buffer, this.size, length);
+        this.size += length;
+    }
+
+    /**
+     * Write a bytes field ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @param field The field number
+     * @param bytes The bytes
+     */
+    public void writeBytes(int field, byte[] bytes) {
+        writeBytes(field, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Write a string field ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @param field The field number
+     * @param value The string, encoded in UTF-8
+     */
+    public void writeString(int field, String value) {
+        writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write an embedded message field ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @param field   The field number
+     * @param message The encoded message
+     */
+    public void writeMessage(int field, ProtobufWriter message) {
+        writeBytes(field, message.buffer, 0, message.size);
+    }
+
+    /**
+     * Write a packed repeated var int field
+     *
+     * @param field  The field number
+     * @param values The values
+     * @param length The number of values to write
+     */
+    public void writePackedVarInt(int field, long[] values, int length) {
+        if (length == 0) {
+            return;
+        }
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            bytes += varIntSize(values[i]);
+        }
+        writeKey(field, WireType.LENGTH_DELIMITED);
+        writeRawVarInt(bytes);
+        ensureCapacity(bytes);
+        for (int i = 0; i < length; i++) {
+            writeRawVarInt(values[i]);
+        }
+    }
+
+    /**
+     * Write a packed repeated zig-zag encoded var int field
+     *
+     * @param field  The field number
+     * @param values The signed values
+     * @param length The number of values to write
+     */
+    public void writePackedSignedVarInt(int field, long[] values, int length) {
+        final long[] encoded = new long[length];
+        for (int i = 0; i < length; i++) {
+            encoded[i] = encodeZigZag(values[i]);
+        }
+        writePackedVarInt(field, encoded, length);
+    }
+
+    /**
+     * Get the number of bytes written so far
+     *
+     * @return The size of the encoded data
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Discard the written bytes, keeping the buffer for the next message
+     */
+    public void reset() {
+        this.size = 0;
+    }
+
+    /**
+     * Get a copy of the written bytes
+     *
+     * @return The encoded data
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.size);
+    }
+
+    /**
+     * Write the encoded data to a stream
+     *
+     * @param out The stream to write to
+     * @throws IOException if the stream could not be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(this.buffer, 0, this.size);
+    }
+
+    /**
+     * Zig-zag encode a signed value, so that small negative values are encoded in few bytes
+     *
+     * @param signed The signed value
+     * @return The encoded value
+     */
+    public static long encodeZigZag(long signed) {
+        return (signed << 1) ^ (signed >> 63);
+    }
+
+    private static int varIntSize(long value) {
+        return value == 0 ? 1 : (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7;
+    }
+}
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.validation;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.GridBagConstraints;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -26,6 +27,7 @@ import org.openstreetmap.josm.data.osm.search.SearchCompiler.InDataSourceArea;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.NotOutsideDataSourceArea;
 import org.openstreetmap.josm.data.osm.visitor.OsmPrimitiveVisitor;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.validation.util.SegmentIndex;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.GBC;
@@ -46,6 +48,9 @@ public class Test implements OsmPrimitiveVisitor {
     protected static final Predicate<OsmPrimitive> IN_DOWNLOADED_AREA = new NotOutsideDataSourceArea();
     protected static final Predicate<OsmPrimitive> IN_DOWNLOADED_AREA_STRICT = new InDataSourceArea(true);
 
+    /** The errors of the chunk currently visited by this thread, see {@link #visitChunk} */
+    private static final ThreadLocal<List<TestError>> CHUNK_ERRORS = new ThreadLocal<>();
+
     /** Name of the test */
     protected final String name;
 
@@ -79,6 +84,12 @@ public class Test implements OsmPrimitiveVisitor {
     /** the start time to compute elapsed time when test finishes */
     protected Stopwatch stopwatch;
 
+    /**
+     * The segment index shared by the geometry tests, see {@link #usesSegmentIndex()}
+     * @since xxx
+     */
+    protected SegmentIndex segmentIndex;
+
     private boolean showElementCount;
 
     /**
@@ -229,6 +240,109 @@ public class Test implements OsmPrimitiveVisitor {
         }
     }
 
+    /**
+     * Determines if this test can visit primitives concurrently.
+     * <p>
+     * A thread-safe test does not keep mutable state between the visits of two primitives, does not share
+     * mutable state with other tests and only reports problems by adding them to {@link #errors}.
+     * It must not override {@link #visit(Collection)}.
+     * {@link ValidationTask} splits the primitives visited by such tests into chunks and visits them in parallel.
+     * @return {@code true} if this test is thread-safe, {@code false} otherwise (default)
+     * @since xxx
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Determines if this test looks up way segments by location.
+     * <p>
+     * {@link ValidationTask} builds a single {@link SegmentIndex} of the validated ways for all such tests and gives it
+     * to them with {@link #setSegmentIndex(SegmentIndex)} before {@link #endTest()}.
+     * @return {@code true} if this test uses a segment index, {@code false} otherwise (default)
+     * @since xxx
+     */
+    public boolean usesSegmentIndex() {
+        return false;
+    }
+
+    /**
+     * Sets the segment index of the validated ways.
+     * @param segmentIndex the segment index, or {@code null} once the test is done
+     * @since xxx
+     */
+    public void setSegmentIndex(SegmentIndex segmentIndex) {
+        this.segmentIndex = segmentIndex;
+    }
+
+    /**
+     * Determines if the spatial queries of a test shall run in parallel.
+     * @param size the number of queries
+     * @return {@code true} if the queries shall run in parallel
+     * @since xxx
+     */
+    protected static boolean useParallelQueries(int size) {
+        return Boolean.TRUE.equals(ValidatorPrefHelper.PREF_PARALLEL.get()) && size > ValidatorPrefHelper.PREF_PARALLEL_CHUNK_SIZE.get();
+    }
+
+    /**
+     * Prepares a parallel visit of the given number of primitives.
+     * Until {@link #endParallelVisit(List)} is called, {@link #errors} collects the errors of the chunk visited by the current thread.
+     * @param size the number of primitives to visit
+     * @return the errors found before the parallel visit
+     */
+    List<TestError> beginParallelVisit(int size) {
+        if (progressMonitor != null) {
+            progressMonitor.setTicksCount(size);
+        }
+        List<TestError> previous = errors;
+        errors = new ChunkErrorList();
+        return previous;
+    }
+
+    /**
+     * Visits a chunk of primitives during a parallel visit.
+     * @param chunk the primitives to visit
+     * @return the errors found in the given chunk, in visiting order
+     */
+    List<TestError> visitChunk(List<OsmPrimitive> chunk) {
+        final List<TestError> outerChunkErrors = CHUNK_ERRORS.get();
+        final List<TestError> chunkErrors = new ArrayList<>();
+        CHUNK_ERRORS.set(chunkErrors);
+        try {
+            for (OsmPrimitive p : chunk) {
+                if (isCanceled()) {
+                    break;
+                }
+                if (isPrimitiveUsable(p)) {
+                    p.accept(this);
+                }
+            }
+        } finally {
+            if (outerChunkErrors != null) {
+                CHUNK_ERRORS.set(outerChunkErrors);
+            } else {
+                CHUNK_ERRORS.remove();
+            }
+        }
+        synchronized (this) {
+            if (progressMonitor != null) {
+                progressMonitor.worked(chunk.size());
+            }
+        }
+        return chunkErrors;
+    }
+
+    /**
+     * Finishes a parallel visit.
+     * @param previous the errors found before the parallel visit, as returned by {@link #beginParallelVisit(int)}
+     * @param visitErrors the errors found during the parallel visit, in visiting order
+     */
+    void endParallelVisit(List<TestError> previous, List<TestError> visitErrors) {
+        previous.addAll(visitErrors);
+        errors = previous;
+    }
+
     /**
      * Determines if the primitive is usable for tests.
      * @param p The primitive
@@ -403,4 +517,42 @@ public class Test implements OsmPrimitiveVisitor {
         }
         errors.removeIf(e -> !e.isConcerned(relevant));
     }
+
+    /**
+     * The error list used during a parallel visit. It forwards to the errors of the chunk visited by the current thread.
+     */
+    private static final class ChunkErrorList extends AbstractList<TestError> {
+        private static List<TestError> current() {
+            List<TestError> chunkErrors = CHUNK_ERRORS.get();
+            if (chunkErrors == null) {
+                throw new IllegalStateException("Errors may only be accessed while visiting a chunk");
+            }
+            return chunkErrors;
+        }
+
+        @Override
+        public TestError get(int index) {
+            return current().get(index);
+        }
+
+        @Override
+        public int size() {
+            return current().size();
+        }
+
+        @Override
+        public void add(int index, TestError element) {
+            current().add(index, element);
+        }
+
+        @Override
+        public TestError set(int index, TestError element) {
+            return current().set(index, element);
+        }
+
+        @Override
+        public TestError remove(int index) {
+            return current().remove(index);
+        }
+    }
 }
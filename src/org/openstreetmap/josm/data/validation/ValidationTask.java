@@ -8,8 +8,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -19,6 +23,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.util.AggregatePrimitivesVisitor;
+import org.openstreetmap.josm.data.validation.util.SegmentIndex;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.gui.Notification;
@@ -27,12 +32,15 @@ import org.openstreetmap.josm.gui.dialogs.ValidatorDialog;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.progress.swing.PleaseWaitProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Asynchronous task for running a collection of tests against a collection of primitives
  */
 public class ValidationTask extends PleaseWaitRunnable {
+    private static ForkJoinPool threadPool;
+
     private final Consumer<List<TestError>> onFinish;
     private Collection<Test> tests;
     private final Collection<OsmPrimitive> initialPrimitives;
@@ -41,6 +49,9 @@ public class ValidationTask extends PleaseWaitRunnable {
     private boolean canceled;
     private final List<TestError> errors = new ArrayList<>();
     private BiConsumer<ValidationTask, Test> testConsumer;
+    private boolean incremental;
+    /** the primitives whose errors are replaced in incremental mode */
+    private Set<OsmPrimitive> relevantPrimitives;
 
     /**
      * Constructs a new {@code ValidationTask}
@@ -142,9 +153,13 @@ public class ValidationTask extends PleaseWaitRunnable {
                 // see #23440 why this is inside the EDT
                 if (!map.validatorDialog.isShowing() && errors.isEmpty() && beforeUpload)
                     return;
-                if (!map.validatorDialog.isShowing() || Boolean.TRUE.equals(ValidatorPrefHelper.PREF_UNFURL.get()))
-                    map.validatorDialog.unfurlDialog();
-                map.validatorDialog.tree.setErrors(errors);
+                if (incremental) {
+                    map.validatorDialog.tree.updateErrors(relevantPrimitives, errors);
+                } else {
+                    if (!map.validatorDialog.isShowing() || Boolean.TRUE.equals(ValidatorPrefHelper.PREF_UNFURL.get()))
+                        map.validatorDialog.unfurlDialog();
+                    map.validatorDialog.tree.setErrors(errors);
+                }
                 //FIXME: nicer way to find / invalidate the corresponding error layer
                 ValidatorDialog.invalidateValidatorLayers();
                 if (!errors.isEmpty()) {
@@ -178,19 +193,46 @@ public class ValidationTask extends PleaseWaitRunnable {
             filter = new HashSet<>(initialPrimitives);
             filter.addAll(other);
         }
+        relevantPrimitives = filter != null ? filter : new HashSet<>(validatedPrimitives);
         getProgressMonitor().setTicksCount(tests.size() * validatedPrimitives.size());
 
+        final ForkJoinPool pool = getThreadPool(validatedPrimitives.size());
+        final Map<Test, ParallelVisit> parallelVisits = new IdentityHashMap<>();
+        if (pool != null) {
+            // start the thread-safe tests first, they are visited in the background while the other tests run
+            final List<OsmPrimitive> primitiveList = new ArrayList<>(validatedPrimitives);
+            final int chunkSize = ValidatorPrefHelper.PREF_PARALLEL_CHUNK_SIZE.get();
+            for (Test test : tests) {
+                if (test.isThreadSafe()) {
+                    startTest(test, ++testCounter, isPartial, validatedPrimitives.size());
+                    List<TestError> previous = test.beginParallelVisit(primitiveList.size());
+                    ForkJoinTask<List<TestError>> task = pool.submit(new ValidationWorker(test, primitiveList, chunkSize));
+                    parallelVisits.put(test, new ParallelVisit(test, previous, task));
+                }
+            }
+        }
+
+        SegmentIndex segmentIndex = null;
         for (Test test : tests) {
-            if (canceled)
+            if (canceled) {
+                parallelVisits.values().forEach(ParallelVisit::cancel);
                 return;
-            testCounter++;
-            getProgressMonitor().setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
-            test.setBeforeUpload(this.beforeUpload);
-            // Pre-upload checks only run on a partial selection.
-            test.setPartialSelection(isPartial);
-            test.startTest(getProgressMonitor().createSubTaskMonitor(validatedPrimitives.size(), false));
-            test.visit(validatedPrimitives);
+            }
+            ParallelVisit parallelVisit = parallelVisits.get(test);
+            if (parallelVisit != null) {
+                parallelVisit.join();
+            } else {
+                startTest(test, ++testCounter, isPartial, validatedPrimitives.size());
+                test.visit(validatedPrimitives);
+            }
+            if (test.usesSegmentIndex()) {
+                if (segmentIndex == null) {
+                    segmentIndex = new SegmentIndex(getSegmentIndexWays(validatedPrimitives));
+                }
+                test.setSegmentIndex(segmentIndex);
+            }
             test.endTest();
+            test.setSegmentIndex(null);
             if (isPartial && Boolean.TRUE.equals(ValidatorPrefHelper.PREF_REMOVE_IRRELEVANT.get())) {
                 // #23397: remove errors for objects which were not in the initial list of primitives
                 test.removeIrrelevantErrors(filter);
@@ -224,6 +266,49 @@ public class ValidationTask extends PleaseWaitRunnable {
         }
     }
 
+    /**
+     * Returns the validated ways which have segments.
+     * @param validatedPrimitives the validated primitives
+     * @return the usable ways with at least two nodes
+     */
+    private static List<Way> getSegmentIndexWays(Collection<OsmPrimitive> validatedPrimitives) {
+        List<Way> ways = new ArrayList<>();
+        for (OsmPrimitive p : validatedPrimitives) {
+            if (p instanceof Way && p.isUsable() && ((Way) p).getNodesCount() > 1) {
+                ways.add((Way) p);
+            }
+        }
+        return ways;
+    }
+
+    private void startTest(Test test, int testCounter, boolean isPartial, int size) {
+        getProgressMonitor().setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
+        test.setBeforeUpload(this.beforeUpload);
+        // Pre-upload checks only run on a partial selection.
+        test.setPartialSelection(isPartial);
+        test.startTest(getProgressMonitor().createSubTaskMonitor(size, false));
+    }
+
+    /**
+     * Returns the pool used to visit the primitives with thread-safe tests.
+     * @param size the number of primitives to validate
+     * @return the pool, or {@code null} if the tests shall run sequentially
+     */
+    private static synchronized ForkJoinPool getThreadPool(int size) {
+        if (!Boolean.TRUE.equals(ValidatorPrefHelper.PREF_PARALLEL.get()) || size <= ValidatorPrefHelper.PREF_PARALLEL_CHUNK_SIZE.get()) {
+            return null;
+        }
+        if (threadPool == null) {
+            try {
+                threadPool = Utils.newForkJoinPool("validator.numberOfThreads", "validator-%d", Thread.NORM_PRIORITY);
+            } catch (SecurityException e) {
+                Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+                return null;
+            }
+        }
+        return threadPool;
+    }
+
     /**
      * Gets the validation errors accumulated until this moment.
      * @return The list of errors
@@ -240,4 +325,44 @@ public class ValidationTask extends PleaseWaitRunnable {
     public void setTestConsumer(BiConsumer<ValidationTask, Test> testConsumer) {
         this.testConsumer = testConsumer;
     }
+
+    /**
+     * Sets the incremental mode. In this mode, the errors of the validated primitives and of their relevant parents
+     * replace their former errors in the validator dialog, the other errors are kept. The dialog is not unfurled.
+     * @param incremental {@code true} to update the errors of the validated primitives only
+     * @since xxx
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * The background visit of a thread-safe test.
+     */
+    private static final class ParallelVisit {
+        private final Test test;
+        private final List<TestError> previousErrors;
+        private final ForkJoinTask<List<TestError>> task;
+
+        ParallelVisit(Test test, List<TestError> previousErrors, ForkJoinTask<List<TestError>> task) {
+            this.test = test;
+            this.previousErrors = previousErrors;
+            this.task = task;
+        }
+
+        void join() {
+            List<TestError> visitErrors = Collections.emptyList();
+            try {
+                visitErrors = task.join();
+            } finally {
+                test.endParallelVisit(previousErrors, visitErrors);
+            }
+        }
+
+        void cancel() {
+            task.cancel(false);
+            task.quietlyJoin();
+            test.endParallelVisit(previousErrors, Collections.emptyList());
+        }
+    }
 }
@@ -0,0 +1,56 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Helper to visit primitives with a thread-safe {@link Test} in parallel.
+ * <p>
+ * The primitives are split into chunks which are visited on a fork/join pool.
+ * The errors of all chunks are joined in the order of the primitives, so the result
+ * is the same as the one of a sequential {@link Test#visit(Collection)}.
+ * @since xxx
+ */
+class ValidationWorker extends RecursiveTask<List<TestError>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Test test;
+    private final transient List<OsmPrimitive> input;
+    private final int directExecutionTaskSize;
+
+    /**
+     * Constructs a new {@code ValidationWorker}.
+     * @param test the thread-safe test to run
+     * @param input the primitives to visit
+     * @param directExecutionTaskSize the threshold deciding whether to subdivide the tasks
+     */
+    ValidationWorker(Test test, List<OsmPrimitive> input, int directExecutionTaskSize) {
+        this.test = test;
+        this.input = input;
+        this.directExecutionTaskSize = Math.max(1, directExecutionTaskSize);
+    }
+
+    @Override
+    protected List<TestError> compute() {
+        if (input.size() <= directExecutionTaskSize) {
+            return test.visitChunk(input);
+        }
+        final Collection<ForkJoinTask<List<TestError>>> tasks = new ArrayList<>();
+        for (int fromIndex = 0; fromIndex < input.size(); fromIndex += directExecutionTaskSize) {
+            final int toIndex = Math.min(fromIndex + directExecutionTaskSize, input.size());
+            tasks.add(new ValidationWorker(test, input.subList(fromIndex, toIndex), directExecutionTaskSize).fork());
+        }
+        final List<TestError> output = new ArrayList<>();
+        for (ForkJoinTask<List<TestError>> task : tasks) {
+            output.addAll(task.join());
+        }
+        return output;
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -16,6 +17,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
@@ -56,6 +58,12 @@ public class ConditionalKeys extends Test.TagTest {
         openingHourTest.initialize();
     }
 
+    @Override
+    public void startTest(ProgressMonitor progressMonitor) {
+        super.startTest(progressMonitor);
+        OpeningHourTest.setParserLocale(Locale.getDefault());
+    }
+
     /**
      * Check if the key is a key for an access restriction
      * @param part The key (or the restriction part of it, e.g. for lanes)
@@ -251,4 +259,9 @@ public class ConditionalKeys extends Test.TagTest {
             errors.addAll(validatePrimitive(p));
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -14,6 +14,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.ILatLon;
@@ -28,6 +29,7 @@ import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.util.SegmentIndex;
 import org.openstreetmap.josm.data.validation.util.ValUtil;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
@@ -80,8 +82,6 @@ public abstract class CrossingWays extends Test {
         }
     }
 
-    /** All way segments, grouped by cells */
-    private final Map<Point2D, List<WaySegment>> cellSegments = new HashMap<>(1000);
     /** The already detected ways in error */
     private final Map<List<Way>, List<WaySegment>> seenWays = new HashMap<>(50);
     private final Set<Way> waysToTest = new HashSet<>();
@@ -303,7 +303,6 @@ public abstract class CrossingWays extends Test {
     @Override
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
-        cellSegments.clear();
         seenWays.clear();
     }
 
@@ -311,7 +310,6 @@ public abstract class CrossingWays extends Test {
     public void endTest() {
         runTest();
         // free storage
-        cellSegments.clear();
         seenWays.clear();
         if (partialSelection)
             removeIrrelevantErrors(waysToTest);
@@ -319,17 +317,31 @@ public abstract class CrossingWays extends Test {
         super.endTest();
     }
 
+    @Override
+    public boolean usesSegmentIndex() {
+        return true;
+    }
+
     protected void runTest() {
-        final Collection<Way> selection;
-        if (this instanceof SelfCrossing || !partialSelection) {
-            selection = waysToTest;
-        } else {
-            selection = addNearbyObjects();
+        final List<Way> selection = new ArrayList<>(this instanceof SelfCrossing || !partialSelection ? waysToTest : addNearbyObjects());
+        final SegmentIndex index = segmentIndex != null && segmentIndex.containsAll(selection) ? segmentIndex : new SegmentIndex(selection);
+        // the ways are tested in the order of the selection, each segment is compared with the segments tested before
+        final int[] ranks = new int[index.getWayCount()];
+        Arrays.fill(ranks, -1);
+        for (int rank = 0; rank < selection.size(); rank++) {
+            ranks[index.indexOf(selection.get(rank))] = rank;
         }
-        for (Way w : selection) {
-            testWay(w);
+        IntStream ways = IntStream.range(0, selection.size());
+        if (useParallelQueries(selection.size())) {
+            ways = ways.parallel();
+        }
+        final List<int[]> crossings = ways.mapToObj(rank -> findCrossings(index, ranks, index.indexOf(selection.get(rank))))
+                .collect(Collectors.toList());
+        for (int[] wayCrossings : crossings) {
+            for (int i = 0; i < wayCrossings.length; i += 2) {
+                addError(index.getWaySegment(wayCrossings[i]), index.getWaySegment(wayCrossings[i + 1]));
+            }
         }
-
     }
 
     private Collection<Way> addNearbyObjects() {
@@ -391,55 +403,81 @@ public abstract class CrossingWays extends Test {
         waysToTest.add(w);
     }
 
-    private void testWay(Way w) {
-        boolean findSelfCrossingOnly = this instanceof SelfCrossing;
-        if (findSelfCrossingOnly) {
-            // free memory, we are not interested in previous ways
-            cellSegments.clear();
-            seenWays.clear();
-        }
-
-        int nodesSize = w.getNodesCount();
-        for (int i = 0; i < nodesSize - 1; i++) {
-            final WaySegment es1 = new WaySegment(w, i);
+    /**
+     * Finds the segments crossing the segments of a way which were tested before.
+     * @param index the segment index
+     * @param ranks the test order of the indexed ways, -1 for the ways which are not tested
+     * @param way the way to test
+     * @return the pairs of crossing segments, in the order in which they are reported
+     */
+    private int[] findCrossings(SegmentIndex index, int[] ranks, int way) {
+        final boolean findSelfCrossingOnly = this instanceof SelfCrossing;
+        final long rank = ranks[way];
+        final int end = index.getFirstSegment(way + 1);
+        int[] crossings = new int[0];
+        int crossingCount = 0;
+        long[] candidates = new long[16];
+        for (int s1 = index.getFirstSegment(way); s1 < end; s1++) {
+            final WaySegment es1 = index.getWaySegment(s1);
             if (!es1.getFirstNode().isLatLonKnown() || !es1.getSecondNode().isLatLonKnown()) {
                 Logging.warn("Crossing ways test skipped " + es1);
                 continue;
             }
-            for (List<WaySegment> segments : getSegments(cellSegments, es1.getFirstNode(), es1.getSecondNode())) {
-                for (WaySegment es2 : segments) {
-                    List<Way> prims;
-                    List<WaySegment> highlight;
-
-                    if (!es1.intersects(es2)
-                            || (!findSelfCrossingOnly && ignoreWaySegmentCombination(es1.getWay(), es2.getWay()))) {
-                        continue;
+            for (int n = 0; n < index.getCellCount(s1); n++) {
+                final int cell = index.getCell(s1, n);
+                int candidateCount = 0;
+                for (int i = 0; i < index.getCellSize(cell); i++) {
+                    final int s2 = index.getCellSegment(cell, i);
+                    final int otherWay = index.getSegmentWay(s2);
+                    final long otherRank = otherWay == way ? rank : ranks[otherWay];
+                    if (otherWay == way ? s2 < s1 : !findSelfCrossingOnly && otherRank >= 0 && otherRank < rank) {
+                        if (candidateCount == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                        }
+                        candidates[candidateCount++] = otherRank << Integer.SIZE | s2;
                     }
-
-                    prims = new ArrayList<>();
-                    prims.add(es1.getWay());
-                    if (es1.getWay() != es2.getWay())
-                        prims.add(es2.getWay());
-                    if ((highlight = seenWays.get(prims)) == null) {
-                        highlight = new ArrayList<>();
-                        highlight.add(es1);
-                        highlight.add(es2);
-
-                        final MessageHelper message = createMessage(es1.getWay(), es2.getWay());
-                        errors.add(TestError.builder(this, Severity.WARNING, message.code)
-                                .message(message.message)
-                                .primitives(prims)
-                                .highlightWaySegments(highlight)
-                                .build());
-                        seenWays.put(prims, highlight);
-                    } else {
-                        highlight.add(es1);
-                        highlight.add(es2);
+                }
+                // compare in test order, so that the errors do not depend on the order of the index
+                Arrays.sort(candidates, 0, candidateCount);
+                for (int i = 0; i < candidateCount; i++) {
+                    final int s2 = (int) candidates[i];
+                    final WaySegment es2 = index.getWaySegment(s2);
+                    if (es1.intersects(es2)
+                            && (findSelfCrossingOnly || !ignoreWaySegmentCombination(es1.getWay(), es2.getWay()))) {
+                        if (crossingCount == crossings.length) {
+                            crossings = Arrays.copyOf(crossings, Math.max(8, crossingCount * 2));
+                        }
+                        crossings[crossingCount++] = s1;
+                        crossings[crossingCount++] = s2;
                     }
                 }
-                segments.add(es1);
             }
         }
+        return Arrays.copyOf(crossings, crossingCount);
+    }
+
+    private void addError(WaySegment es1, WaySegment es2) {
+        List<Way> prims = new ArrayList<>();
+        prims.add(es1.getWay());
+        if (es1.getWay() != es2.getWay())
+            prims.add(es2.getWay());
+        List<WaySegment> highlight = seenWays.get(prims);
+        if (highlight == null) {
+            highlight = new ArrayList<>();
+            highlight.add(es1);
+            highlight.add(es2);
+
+            final MessageHelper message = createMessage(es1.getWay(), es2.getWay());
+            errors.add(TestError.builder(this, Severity.WARNING, message.code)
+                    .message(message.message)
+                    .primitives(prims)
+                    .highlightWaySegments(highlight)
+                    .build());
+            seenWays.put(prims, highlight);
+        } else {
+            highlight.add(es1);
+            highlight.add(es2);
+        }
     }
 
     private static boolean areLayerOrLevelDifferent(Way w1, Way w2) {
@@ -98,4 +98,9 @@ public class Lanes extends Test.TagTest {
     public boolean isPrimitiveUsable(OsmPrimitive p) {
         return p.isTagged() && p instanceof Way && p.hasTag("highway") && super.isPrimitiveUsable(p);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
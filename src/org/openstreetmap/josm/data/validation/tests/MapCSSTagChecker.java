@@ -19,8 +19,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.openstreetmap.josm.data.osm.IPrimitive;
@@ -49,6 +54,7 @@ import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.MultiMap;
+import org.openstreetmap.josm.tools.Pair;
 import org.openstreetmap.josm.tools.Stopwatch;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -263,9 +269,13 @@ public class MapCSSTagChecker extends Test.TagTest {
      * @since 7275
      */
     public synchronized ParseResult addMapCSS(String url) throws ParseException, IOException {
+        return addMapCSS(url, getAssertionConsumer(url));
+    }
+
+    private static Consumer<String> getAssertionConsumer(String url) {
         // Check assertions, useful for development of local files
         final boolean checkAssertions = Config.getPref().getBoolean("validator.check_assert_local_rules", false) && Utils.isLocalUrl(url);
-        return addMapCSS(url, checkAssertions ? Logging::warn : null);
+        return checkAssertions ? Logging::warn : null;
     }
 
     /**
@@ -281,20 +291,34 @@ public class MapCSSTagChecker extends Test.TagTest {
      */
     public synchronized ParseResult addMapCSS(String url, Consumer<String> assertionConsumer) throws ParseException, IOException {
         CheckParameterUtil.ensureParameterNotNull(url, "url");
-        ParseResult result;
+        return addChecks(url, readMapCSS(url, assertionConsumer));
+    }
+
+    /**
+     * Reads and parses a MapCSS config file. Can be called concurrently, the checks are added by {@link #addChecks}.
+     * @param url The unique URL of the MapCSS config file
+     * @param assertionConsumer A string consumer for error messages, or null
+     * @return the tag checks and parsing errors, and the zip file containing the config file if any
+     * @throws ParseException if the config file does not match MapCSS syntax
+     * @throws IOException if any I/O error occurs
+     */
+    private static Pair<ParseResult, File> readMapCSS(String url, Consumer<String> assertionConsumer) throws ParseException, IOException {
         try (CachedFile cache = new CachedFile(url);
              InputStream zip = cache.findZipEntryInputStream("validator.mapcss", "");
              InputStream s = zip != null ? zip : cache.getInputStream();
              Reader reader = new BufferedReader(UTFInputStreamReader.create(s))) {
-            if (zip != null)
-                I18n.addTexts(cache.getFile());
-            result = MapCSSTagCheckerRule.readMapCSS(reader, assertionConsumer);
-            checks.remove(url);
-            checks.putAll(url, result.parseChecks);
-            urlTitles.put(url, findURLTitle(url));
-            indexData = null;
+            return Pair.create(MapCSSTagCheckerRule.readMapCSS(reader, assertionConsumer), zip != null ? cache.getFile() : null);
         }
-        return result;
+    }
+
+    private ParseResult addChecks(String url, Pair<ParseResult, File> parsed) {
+        if (parsed.b != null)
+            I18n.addTexts(parsed.b);
+        checks.remove(url);
+        checks.putAll(url, parsed.a.parseChecks);
+        urlTitles.put(url, findURLTitle(url));
+        indexData = null;
+        return parsed.a;
     }
 
     /** Find a user friendly string for the url.
@@ -321,10 +345,24 @@ public class MapCSSTagChecker extends Test.TagTest {
         checks.clear();
         urlTitles.clear();
         indexData = null;
-        for (SourceEntry source : new ValidatorPrefHelper().get()) {
-            if (!source.active) {
-                continue;
-            }
+        final List<SourceEntry> sources = new ValidatorPrefHelper().get().stream()
+                .filter(source -> source.active)
+                .collect(Collectors.toList());
+        // the sources are independent: they are downloaded and parsed in parallel, and added in their order
+        CachedFile.prefetch(sources.stream().map(source -> source.url).collect(Collectors.toList()), null);
+        // the reading may block on I/O, so it does not run in the common pool
+        final ForkJoinPool pool = Utils.newForkJoinPool("validator.mapcss.numberOfThreads", "mapcss-tagchecker-reader-%d",
+                Thread.NORM_PRIORITY);
+        final List<Future<Pair<ParseResult, File>>> parsed;
+        try {
+            parsed = pool.invokeAll(sources.stream()
+                    .map(source -> (Callable<Pair<ParseResult, File>>) () -> readMapCSS(source.url, getAssertionConsumer(source.url)))
+                    .collect(Collectors.toList()));
+        } finally {
+            pool.shutdown();
+        }
+        for (int n = 0; n < sources.size(); n++) {
+            final SourceEntry source = sources.get(n);
             String i = source.url;
             try {
                 if (!i.startsWith("resource:")) {
@@ -332,7 +370,7 @@ public class MapCSSTagChecker extends Test.TagTest {
                 } else if (Logging.isDebugEnabled()) {
                     Logging.debug(tr("Adding {0} to tag checker", i));
                 }
-                addMapCSS(i);
+                addChecks(i, getParsed(parsed.get(n)));
                 if (Config.getPref().getBoolean("validator.auto_reload_local_rules", true) && source.isLocal()) {
                     FileWatcher.getDefaultInstance().registerSource(source);
                 }
@@ -347,6 +385,33 @@ public class MapCSSTagChecker extends Test.TagTest {
         MapCSSTagCheckerAsserts.clear();
     }
 
+    /**
+     * Returns the result of a completed {@link #readMapCSS} task, or throws its exception.
+     * @param future the completed task
+     * @return the tag checks and parsing errors, and the zip file containing the config file if any
+     * @throws ParseException if the config file does not match MapCSS syntax
+     * @throws IOException if any I/O error occurs
+     * @throws InterruptedException if the current thread was interrupted
+     */
+    private static Pair<ParseResult, File> getParsed(Future<Pair<ParseResult, File>> future)
+            throws ParseException, IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ParseException) {
+                throw (ParseException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
     /**
      * Reload tagchecker rule.
      * @param rule tagchecker rule to reload
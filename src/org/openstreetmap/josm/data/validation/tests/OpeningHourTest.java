@@ -22,6 +22,7 @@ import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test.TagTest;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -42,6 +43,8 @@ public class OpeningHourTest extends TagTest {
     private static final Collection<String> KEYS_TO_CHECK = Arrays.asList("opening_hours", "collection_times", "service_times");
     private static final BooleanProperty PREF_STRICT_MODE =
             new BooleanProperty(ValidatorPrefHelper.PREFIX + "." + OpeningHourTest.class.getSimpleName() + "." + "strict", false);
+    /** the locale of the messages of the parser, which is global */
+    private static volatile Locale parserLocale;
     private final JCheckBox checkboxStrictMode = new JCheckBox(tr("Enable strict mode."));
 
     /**
@@ -98,7 +101,7 @@ public class OpeningHourTest extends TagTest {
             return Collections.emptyList();
         }
 
-        ch.poole.openinghoursparser.I18n.setLocale(locale);
+        setParserLocale(locale);
         String prettifiedValue = null;
         try {
             final boolean strict = PREF_STRICT_MODE.get();
@@ -124,6 +127,30 @@ public class OpeningHourTest extends TagTest {
         }
     }
 
+    /**
+     * Sets the locale of the messages of the parser, if it changed.
+     * <p>
+     * The locale of the parser is global. Since it is set by {@link #startTest} before the primitives are visited
+     * in parallel, the visits do not change it anymore.
+     * @param locale the locale
+     */
+    static void setParserLocale(Locale locale) {
+        if (!locale.equals(parserLocale)) {
+            synchronized (OpeningHourTest.class) {
+                if (!locale.equals(parserLocale)) {
+                    ch.poole.openinghoursparser.I18n.setLocale(locale);
+                    parserLocale = locale;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void startTest(ProgressMonitor progressMonitor) {
+        super.startTest(progressMonitor);
+        setParserLocale(Locale.getDefault());
+    }
+
     @Override
     public void check(final OsmPrimitive p) {
         addErrorsForPrimitive(p, this.errors);
@@ -161,4 +188,9 @@ public class OpeningHourTest extends TagTest {
         PREF_STRICT_MODE.put(checkboxStrictMode.isSelected());
         return false;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
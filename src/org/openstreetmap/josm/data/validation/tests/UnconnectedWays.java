@@ -19,7 +19,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -29,7 +31,7 @@ import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmDataManager;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmUtils;
-import org.openstreetmap.josm.data.osm.QuadBuckets;
+import org.openstreetmap.josm.data.osm.PackedRTree;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.projection.Ellipsoid;
@@ -217,7 +219,7 @@ public abstract class UnconnectedWays extends Test {
     private Set<Node> endnodes; // nodes at end of way
     private Set<Node> middlenodes; // nodes in middle of way
     private Set<Node> othernodes; // nodes appearing at least twice
-    private QuadBuckets<Node> searchNodes;
+    private PackedRTree<Node> searchNodes;
     private Set<Way> waysToTest;
     private Set<Node> nodesToTest;
     private Area dsArea;
@@ -253,7 +255,6 @@ public abstract class UnconnectedWays extends Test {
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
         waySegments = new ArrayList<>();
-        searchNodes = new QuadBuckets<>();
         waysToTest = new HashSet<>();
         nodesToTest = new HashSet<>();
         endnodes = new HashSet<>();
@@ -268,72 +269,67 @@ public abstract class UnconnectedWays extends Test {
     }
 
     protected Map<Node, MyWaySegment> getHighwayEndNodesNearOtherHighway() {
-        Map<Node, MyWaySegment> map = new HashMap<>();
-        for (MyWaySegment s : waySegments) {
-            if (isCanceled()) {
-                map.clear();
-                return map;
-            }
+        return findNearbyNodes(s -> {
             if (s.w.hasTag(HIGHWAY, PLATFORM))
-                continue;
-            for (Node endnode : s.nearbyNodes(mindist)) {
+                return Collections.emptyList();
+            return s.nearbyNodes(mindist).stream().filter(endnode -> {
                 Way parentWay = getWantedParentWay(endnode);
-                if (parentWay != null && !parentWay.hasTag(HIGHWAY, PLATFORM)
+                return parentWay != null && !parentWay.hasTag(HIGHWAY, PLATFORM)
                         && Objects.equals(OsmUtils.getLayer(s.w), OsmUtils.getLayer(parentWay))
                         // to handle intersections of 't' shapes and similar
-                        && !s.isConnectedTo(endnode) && !s.obstacleBetween(endnode)) {
-                    addIfNewOrCloser(map, endnode, s);
-                }
-            }
-        }
-        return map;
+                        && !s.isConnectedTo(endnode) && !s.obstacleBetween(endnode);
+            }).collect(Collectors.toList());
+        });
     }
 
     protected Map<Node, MyWaySegment> getWayEndNodesNearOtherWay() {
-        Map<Node, MyWaySegment> map = new HashMap<>();
-
-        for (MyWaySegment s : waySegments) {
-            if (isCanceled()) {
-                map.clear();
-                return map;
-            }
-            if (!s.concernsArea) {
-                for (Node endnode : s.nearbyNodes(mindist)) {
-                    if (!s.isConnectedTo(endnode)) {
-                        if (s.w.hasTag(POWER)) {
-                            boolean badConnection = false;
-                            Way otherWay = getWantedParentWay(endnode);
-                            if (otherWay != null) {
-                                for (String key : Arrays.asList("voltage", "frequency")) {
-                                    String v1 = s.w.get(key);
-                                    String v2 = otherWay.get(key);
-                                    if (v1 != null && v2 != null && !v1.equals(v2)) {
-                                        badConnection = true;
-                                    }
-                                }
+        return findNearbyNodes(s -> {
+            if (s.concernsArea)
+                return Collections.emptyList();
+            return s.nearbyNodes(mindist).stream().filter(endnode -> {
+                if (s.isConnectedTo(endnode))
+                    return false;
+                if (s.w.hasTag(POWER)) {
+                    Way otherWay = getWantedParentWay(endnode);
+                    if (otherWay != null) {
+                        for (String key : Arrays.asList("voltage", "frequency")) {
+                            String v1 = s.w.get(key);
+                            String v2 = otherWay.get(key);
+                            if (v1 != null && v2 != null && !v1.equals(v2)) {
+                                return false;
                             }
-                            if (badConnection)
-                                continue;
                         }
-                        addIfNewOrCloser(map, endnode, s);
                     }
                 }
-            }
-        }
-        return map;
+                return true;
+            }).collect(Collectors.toList());
+        });
     }
 
     protected Map<Node, MyWaySegment> getWayNodesNearOtherWay() {
+        return findNearbyNodes(s -> s.nearbyNodes(minmiddledist).stream()
+                .filter(en -> !s.isConnectedTo(en))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Finds the nodes near each way segment, in parallel for large data sets, and keeps the closest segment of each node.
+     * @param finder the function returning the nodes to report for a way segment, it must be thread-safe
+     * @return the map of the nodes to their closest way segment, empty if the test has been canceled
+     */
+    private Map<Node, MyWaySegment> findNearbyNodes(Function<MyWaySegment, List<Node>> finder) {
         Map<Node, MyWaySegment> map = new HashMap<>();
-        for (MyWaySegment s : waySegments) {
-            if (isCanceled()) {
-                map.clear();
-                return map;
-            }
-            for (Node en : s.nearbyNodes(minmiddledist)) {
-                if (!s.isConnectedTo(en)) {
-                    addIfNewOrCloser(map, en, s);
-                }
+        Stream<MyWaySegment> segments = useParallelQueries(waySegments.size()) ? waySegments.parallelStream() : waySegments.stream();
+        List<List<Node>> nearbyNodes = segments
+                .map(s -> isCanceled() ? Collections.<Node>emptyList() : finder.apply(s))
+                .collect(Collectors.toList());
+        if (isCanceled()) {
+            return map;
+        }
+        // merge in the order of the segments, so that the result does not depend on the threads
+        for (int i = 0; i < nearbyNodes.size(); i++) {
+            for (Node node : nearbyNodes.get(i)) {
+                addIfNewOrCloser(map, node, waySegments.get(i));
             }
         }
         return map;
@@ -426,12 +422,14 @@ public abstract class UnconnectedWays extends Test {
     }
 
     private void fillSearchNodes(Collection<Node> nodes) {
-        searchNodes.clear();
+        List<Node> list = new ArrayList<>();
         for (Node n : nodes) {
             if (!ignoreUnconnectedEndNode(n) && n.getCoor().isIn(dsArea)) {
-                searchNodes.add(n);
+                list.add(n);
             }
         }
+        // the packed tree can be searched concurrently
+        searchNodes = new PackedRTree<>(list);
     }
 
     private class MyWaySegment {
@@ -121,4 +121,9 @@ public class UntaggedNode extends Test implements KeyValueVisitor {
         }
         return false;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -0,0 +1,241 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.validation.OsmValidator;
+
+/**
+ * A grid of way segments, built at once and stored in primitive arrays.
+ * <p>
+ * The segments are hashed into the same cells as {@link ValUtil#getSegmentCells(EastNorth, EastNorth, double)}. Segments are
+ * numbered way after way, in the order of the ways given to the constructor, and in node order within a way.
+ * Each cell lists its segments by increasing number, and each segment lists the cells it crosses, in crossing order.
+ * <p>
+ * The index is built once per validation run by {@link org.openstreetmap.josm.data.validation.ValidationTask} and shared by
+ * the geometry tests, see {@link org.openstreetmap.josm.data.validation.Test#usesSegmentIndex()}.
+ * It cannot be modified and can be queried concurrently.
+ * @since xxx
+ */
+public final class SegmentIndex {
+    private final Way[] ways;
+    private final Map<Way, Integer> wayIndexes;
+    /** first segment of each way, and the total number of segments */
+    private final int[] wayFirstSegment;
+    /** way of each segment */
+    private final int[] segmentWay;
+    /** first entry of {@link #segmentCells} of each segment */
+    private final int[] segmentFirstCell;
+    /** cells crossed by the segments */
+    private final int[] segmentCells;
+    /** sorted keys of the cells */
+    private final long[] cellKeys;
+    /** first entry of {@link #cellSegments} of each cell */
+    private final int[] cellFirstSegment;
+    /** segments of the cells */
+    private final int[] cellSegments;
+
+    /**
+     * Constructs a new {@code SegmentIndex} with the grid detail of the validator.
+     * @param ways the ways to index, without duplicates
+     */
+    public SegmentIndex(Collection<Way> ways) {
+        this(ways, OsmValidator.getGridDetail());
+    }
+
+    /**
+     * Constructs a new {@code SegmentIndex}.
+     * @param ways the ways to index, without duplicates
+     * @param gridDetail the detail of the grid, see {@link ValUtil#getSegmentCells(EastNorth, EastNorth, double)}
+     */
+    public SegmentIndex(Collection<Way> ways, double gridDetail) {
+        this.ways = ways.toArray(new Way[0]);
+        this.wayIndexes = new HashMap<>(this.ways.length * 4 / 3 + 1);
+        this.wayFirstSegment = new int[this.ways.length + 1];
+        for (int i = 0; i < this.ways.length; i++) {
+            wayIndexes.put(this.ways[i], i);
+            wayFirstSegment[i + 1] = wayFirstSegment[i] + Math.max(0, this.ways[i].getNodesCount() - 1);
+        }
+        final int segmentCount = wayFirstSegment[this.ways.length];
+        this.segmentWay = new int[segmentCount];
+        this.segmentFirstCell = new int[segmentCount + 1];
+
+        // the cell keys of all segments, in segment order
+        final CellKeys keys = new CellKeys(segmentCount * 2);
+        final Projection projection = ProjectionRegistry.getProjection();
+        for (int way = 0; way < this.ways.length; way++) {
+            final Way w = this.ways[way];
+            for (int segment = wayFirstSegment[way]; segment < wayFirstSegment[way + 1]; segment++) {
+                segmentWay[segment] = way;
+                segmentFirstCell[segment] = keys.size;
+                final int node = segment - wayFirstSegment[way];
+                final Node n1 = w.getNode(node);
+                final Node n2 = w.getNode(node + 1);
+                if (n1.isLatLonKnown() && n2.isLatLonKnown()) {
+                    ValUtil.forEachSegmentCell(n1.getEastNorth(projection), n2.getEastNorth(projection), gridDetail, keys);
+                }
+            }
+        }
+        segmentFirstCell[segmentCount] = keys.size;
+
+        final long[] sortedKeys = Arrays.copyOf(keys.keys, keys.size);
+        Arrays.sort(sortedKeys);
+        int cellCount = 0;
+        for (int i = 0; i < sortedKeys.length; i++) {
+            if (i == 0 || sortedKeys[i] != sortedKeys[i - 1]) {
+                sortedKeys[cellCount++] = sortedKeys[i];
+            }
+        }
+        this.cellKeys = Arrays.copyOf(sortedKeys, cellCount);
+        this.segmentCells = new int[keys.size];
+        this.cellFirstSegment = new int[cellCount + 1];
+        for (int i = 0; i < keys.size; i++) {
+            segmentCells[i] = Arrays.binarySearch(cellKeys, keys.keys[i]);
+            cellFirstSegment[segmentCells[i] + 1]++;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellFirstSegment[cell + 1] += cellFirstSegment[cell];
+        }
+        // counting sort, the segments are added by increasing number
+        this.cellSegments = new int[keys.size];
+        final int[] next = Arrays.copyOf(cellFirstSegment, cellCount);
+        for (int segment = 0; segment < segmentCount; segment++) {
+            for (int i = segmentFirstCell[segment]; i < segmentFirstCell[segment + 1]; i++) {
+                cellSegments[next[segmentCells[i]]++] = segment;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of indexed ways.
+     * @return the number of indexed ways
+     */
+    public int getWayCount() {
+        return ways.length;
+    }
+
+    /**
+     * Returns an indexed way.
+     * @param way the number of the way
+     * @return the way
+     */
+    public Way getWay(int way) {
+        return ways[way];
+    }
+
+    /**
+     * Returns the number of a way in this index.
+     * @param w the way
+     * @return the number of the way, or -1 if it is not indexed
+     */
+    public int indexOf(Way w) {
+        final Integer way = wayIndexes.get(w);
+        return way != null ? way : -1;
+    }
+
+    /**
+     * Determines if all the given ways are indexed.
+     * @param ways the ways
+     * @return {@code true} if all the given ways are indexed
+     */
+    public boolean containsAll(Collection<Way> ways) {
+        return wayIndexes.keySet().containsAll(ways);
+    }
+
+    /**
+     * Returns the number of the first segment of a way. The segments of the way {@code n} are the segments from
+     * {@code getFirstSegment(n)} (included) to {@code getFirstSegment(n + 1)} (excluded).
+     * @param way the number of the way, or {@link #getWayCount()} for the total number of segments
+     * @return the number of the first segment of the way
+     */
+    public int getFirstSegment(int way) {
+        return wayFirstSegment[way];
+    }
+
+    /**
+     * Returns the way of a segment.
+     * @param segment the number of the segment
+     * @return the number of the way of the segment
+     */
+    public int getSegmentWay(int segment) {
+        return segmentWay[segment];
+    }
+
+    /**
+     * Returns a segment.
+     * @param segment the number of the segment
+     * @return the way segment
+     */
+    public WaySegment getWaySegment(int segment) {
+        final int way = segmentWay[segment];
+        return new WaySegment(ways[way], segment - wayFirstSegment[way]);
+    }
+
+    /**
+     * Returns the number of cells crossed by a segment. It is 0 if the coordinates of a node of the segment are unknown.
+     * @param segment the number of the segment
+     * @return the number of cells crossed by the segment
+     */
+    public int getCellCount(int segment) {
+        return segmentFirstCell[segment + 1] - segmentFirstCell[segment];
+    }
+
+    /**
+     * Returns a cell crossed by a segment.
+     * @param segment the number of the segment
+     * @param n the index of the cell, from 0 to {@link #getCellCount(int)} (excluded), in crossing order
+     * @return the number of the cell
+     */
+    public int getCell(int segment, int n) {
+        return segmentCells[segmentFirstCell[segment] + n];
+    }
+
+    /**
+     * Returns the number of segments crossing a cell.
+     * @param cell the number of the cell
+     * @return the number of segments crossing the cell
+     */
+    public int getCellSize(int cell) {
+        return cellFirstSegment[cell + 1] - cellFirstSegment[cell];
+    }
+
+    /**
+     * Returns a segment crossing a cell.
+     * @param cell the number of the cell
+     * @param n the index of the segment, from 0 to {@link #getCellSize(int)} (excluded), by increasing segment number
+     * @return the number of the segment
+     */
+    public int getCellSegment(int cell, int n) {
+        return cellSegments[cellFirstSegment[cell] + n];
+    }
+
+    /**
+     * The cell keys of the segments, while building the index
+     */
+    private static final class CellKeys implements ValUtil.CellVisitor {
+        long[] keys;
+        int size;
+
+        CellKeys(int capacity) {
+            keys = new long[Math.max(16, capacity)];
+        }
+
+        @Override
+        public void visit(long x, long y) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            // the cell coordinates fit in an int for all supported projections and grid details
+            keys[size++] = x << Integer.SIZE | (y & 0xFFFF_FFFFL);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +22,7 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.imagery.vectortile.mapbox.MVTTile;
 import org.openstreetmap.josm.data.osm.BBox;
@@ -40,6 +42,7 @@ import org.openstreetmap.josm.data.osm.event.IDataSelectionListener.SelectionCha
 import org.openstreetmap.josm.data.osm.event.IDataSelectionListener.SelectionRemoveEvent;
 import org.openstreetmap.josm.data.osm.event.IDataSelectionListener.SelectionReplaceEvent;
 import org.openstreetmap.josm.data.osm.event.IDataSelectionListener.SelectionToggleEvent;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.mappaint.ElemStyles;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.Logging;
@@ -56,6 +59,10 @@ public class VectorDataSet implements OsmData<VectorPrimitive, VectorNode, Vecto
     // Note: In Java 8, computeIfAbsent is blocking for both pre-existing and new values. In Java 9, it is only blocking
     // for new values (perf increase). See JDK-8161372 for more info.
     private final Map<Integer, Storage<MVTTile>> dataStoreMap = new ConcurrentHashMap<>();
+    /** The tiles of {@link #dataStoreMap}, least recently used first. Guarded by itself. */
+    private final Set<MVTTile> tileUsage = new LinkedHashSet<>();
+    /** The tiles of the last painted area, which are not evicted. Guarded by {@link #tileUsage}. */
+    private Set<MVTTile> tilesInView = Collections.emptySet();
     // This is for "custom" data
     private final VectorDataStore customDataStore = new VectorDataStore();
     // Both of these listener lists are useless, since they expect OsmPrimitives at this time
@@ -87,6 +94,14 @@ public class VectorDataSet implements OsmData<VectorPrimitive, VectorNode, Vecto
      */
     protected static final float DUPE_NODE_DISTANCE = 0.000_000_1f;
 
+    /**
+     * The maximum number of tiles kept in memory. The least recently used tiles are evicted first,
+     * they are loaded again (usually from the disk cache) when they are displayed again. The tiles of the painted area
+     * are not evicted, even if there are more.
+     * @since xxx
+     */
+    public static final IntegerProperty MAX_TILES = new IntegerProperty("imagery.vector.mvt.maxtiles", 256);
+
     /**
      * The current zoom we are getting/adding to
      */
@@ -164,7 +179,13 @@ public class VectorDataSet implements OsmData<VectorPrimitive, VectorNode, Vecto
 
     @Override
     public void clear() {
-        this.dataStoreMap.clear();
+        tryWrite(this.readWriteLock, () -> {
+            this.dataStoreMap.clear();
+            synchronized (this.tileUsage) {
+                this.tileUsage.clear();
+                this.tilesInView = Collections.emptySet();
+            }
+        });
     }
 
     @Override
@@ -554,17 +575,77 @@ public class VectorDataSet implements OsmData<VectorPrimitive, VectorNode, Vecto
     }
 
     /**
-     * Add tile data to this dataset
+     * Add tile data to this dataset.
+     * <p>
+     * The data of the tile must be fully built, the write lock is only held to insert the tile and to evict
+     * the least recently used tiles if there are more than {@link #MAX_TILES}.
      * @param tile The tile to add
      */
     public void addTileData(MVTTile tile) {
+        // The tile is not visible to readers yet
+        tile.getData().getAllPrimitives().forEach(primitive -> primitive.setDataSet(this));
+        final List<MVTTile> evicted = new ArrayList<>();
+        final List<VectorDataStore> evictedData = new ArrayList<>();
         tryWrite(this.readWriteLock, () -> {
             final int currentZoom = tile.getZoom();
             // computeIfAbsent should be thread safe (ConcurrentHashMap indicates it is, anyway)
             final Storage<MVTTile> dataStore = this.dataStoreMap.computeIfAbsent(currentZoom, tZoom -> new Storage<>());
-            tile.getData().getAllPrimitives().forEach(primitive -> primitive.setDataSet(this));
-            dataStore.add(tile);
+            dataStore.put(tile);
+            synchronized (this.tileUsage) {
+                this.tileUsage.remove(tile);
+                this.tileUsage.add(tile);
+                final int maxTiles = Math.max(1, MAX_TILES.get());
+                final Iterator<MVTTile> iterator = this.tileUsage.iterator();
+                int size = this.tileUsage.size();
+                while (size > maxTiles && iterator.hasNext()) {
+                    final MVTTile old = iterator.next();
+                    if (old == tile || this.tilesInView.contains(old)) {
+                        continue;
+                    }
+                    iterator.remove();
+                    size--;
+                    this.dataStoreMap.computeIfPresent(old.getZoom(), (tZoom, storage) -> {
+                        storage.remove(old);
+                        return storage.isEmpty() ? null : storage;
+                    });
+                    evicted.add(old);
+                    evictedData.add(old.getData());
+                }
+            }
         });
+        if (!evicted.isEmpty()) {
+            Logging.debug("Evicted {0} vector tiles from {1}", evicted.size(), this.name);
+        }
+        for (MVTTile old : evicted) {
+            // Mark the tile as not loaded, so that it is loaded again if it is needed
+            old.setLoaded(false);
+            old.setImage(null);
+        }
+        for (VectorDataStore data : evictedData) {
+            // The primitives of a tile only refer to primitives of the same tile, so only their styles are outdated
+            data.getAllPrimitives().forEach(VectorPrimitive::clearCachedStyle);
+            data.destroy();
+        }
+    }
+
+    /**
+     * Mark the tiles of the painted area as used, so that they are the last tiles to be evicted,
+     * and that they are not evicted while they are painted.
+     * @param bounds The painted area
+     * @since xxx
+     */
+    public void markTilesInView(Bounds bounds) {
+        final BBox bbox = bounds.toBBox();
+        final Set<MVTTile> inView = tryRead(this.readWriteLock, () -> this.getBestZoomDataStore()
+                .map(dataStore -> dataStore.stream().filter(tile -> tile.getBBox().intersects(bbox))
+                        .collect(Collectors.toCollection(HashSet::new))).orElse(null))
+                .orElseGet(HashSet::new);
+        synchronized (this.tileUsage) {
+            // Move the tiles to the end of the iteration order
+            inView.removeIf(tile -> !this.tileUsage.remove(tile));
+            this.tileUsage.addAll(inView);
+            this.tilesInView = inView;
+        }
     }
 
     /**
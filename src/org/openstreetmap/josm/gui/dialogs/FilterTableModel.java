@@ -15,6 +15,7 @@ import javax.swing.table.AbstractTableModel;
 import org.openstreetmap.josm.data.osm.Filter;
 import org.openstreetmap.josm.data.osm.FilterModel;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.gui.autofilter.AutoFilterManager;
@@ -117,6 +118,19 @@ public class FilterTableModel extends AbstractTableModel implements SortableTabl
         }
     }
 
+    /**
+     * Runs the filter on the primitives of the edit data set which can be affected by the given change, if any.
+     * Does nothing if no filter is enabled.
+     * @param event the data set event
+     * @since xxx
+     */
+    public void executeFilters(AbstractDatasetChangedEvent event) {
+        if (AutoFilterManager.getInstance().getCurrentAutoFilter() == null && model.hasFilters()) {
+            model.executeFilters(event);
+            updateMap();
+        }
+    }
+
     private void updateMap() {
         MapFrame map = MainApplication.getMap();
         if (map != null && model.isChanged()) {
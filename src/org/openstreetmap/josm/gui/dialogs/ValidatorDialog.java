@@ -57,6 +57,7 @@ import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.PopupMenuHandler;
 import org.openstreetmap.josm.gui.SideButton;
+import org.openstreetmap.josm.gui.dialogs.validator.LiveValidation;
 import org.openstreetmap.josm.gui.dialogs.validator.ValidatorTreePanel;
 import org.openstreetmap.josm.gui.layer.MainLayerManager.ActiveLayerChangeEvent;
 import org.openstreetmap.josm.gui.layer.MainLayerManager.ActiveLayerChangeListener;
@@ -107,6 +108,7 @@ public class ValidatorDialog extends ToggleDialog
     private final JPopupMenu popupMenu = new JPopupMenu();
     private final transient PopupMenuHandler popupMenuHandler = new PopupMenuHandler(popupMenu);
     private final transient DataSetListenerAdapter dataChangedAdapter = new DataSetListenerAdapter(this);
+    private final transient LiveValidation liveValidation = new LiveValidation();
 
     /** Last selected element */
     private DefaultMutableTreeNode lastSelectedNode;
@@ -263,6 +265,7 @@ public class ValidatorDialog extends ToggleDialog
     @Override
     public void hideNotify() {
         DatasetEventManager.getInstance().removeDatasetListener(dataChangedAdapter);
+        liveValidation.cancel();
         MainApplication.getLayerManager().removeActiveLayerChangeListener(this);
         SelectionEventManager.getInstance().removeSelectionListener(this);
     }
@@ -712,6 +715,7 @@ public class ValidatorDialog extends ToggleDialog
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
         validateAction.updateEnabledState();
         lookupAction.updateEnabledState();
+        liveValidation.processDatasetEvent(event);
     }
 
     private static class AutofixCommand extends SequenceCommand {
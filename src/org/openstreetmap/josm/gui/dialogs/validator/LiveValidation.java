@@ -0,0 +1,179 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.dialogs.validator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.swing.Timer;
+
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.validation.OsmValidator;
+import org.openstreetmap.josm.data.validation.Test;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.ValidationTask;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.MapFrame;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+/**
+ * Validates the modified primitives while editing, see {@link ValidatorPrefHelper#PREF_LIVE}.
+ * <p>
+ * The primitives of the data set events are collected until no modification happened for
+ * {@link ValidatorPrefHelper#PREF_LIVE_DELAY} milliseconds. They are then validated in the background, with their relevant parents,
+ * and their errors replace their former errors in the validator dialog, see {@link ValidationTask#setIncremental(boolean)}.
+ * <p>
+ * A test run on some primitives only does not find all errors involving other primitives: e.g. the duplicated node test
+ * only compares the validated nodes. So the referrers and the spatial neighbours of the modified primitives are validated as
+ * well, to find the new errors with untouched primitives, and so are the other primitives of their known errors, to find
+ * these errors again. The errors involving primitives which were not validated are kept as they are.
+ * @since xxx
+ */
+public class LiveValidation {
+    /** The distance in degrees around the modified primitives in which the other primitives are validated as well */
+    static final double NEIGHBOUR_DISTANCE = 1e-4;
+
+    private final Set<OsmPrimitive> modified = new HashSet<>();
+    private final Timer timer;
+    private DataSet dataSet;
+
+    /**
+     * Constructs a new {@code LiveValidation}.
+     */
+    public LiveValidation() {
+        timer = new Timer(ValidatorPrefHelper.PREF_LIVE_DELAY.get(), e -> validate());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Collects the modified primitives of a data set event. Must be called in the EDT.
+     * @param event the data set event
+     */
+    public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        if (!Boolean.TRUE.equals(ValidatorPrefHelper.PREF_LIVE.get()))
+            return;
+        if (event.getDataset() != dataSet) {
+            modified.clear();
+            dataSet = event.getDataset();
+        }
+        if (event instanceof DataChangedEvent && ((DataChangedEvent) event).getEvents() == null) {
+            // the whole data set changed, e.g. after a merge of layers: the user validates it on demand
+            return;
+        }
+        if (event instanceof DataChangedEvent) {
+            ((DataChangedEvent) event).getEvents().forEach(e -> modified.addAll(e.getPrimitives()));
+        } else {
+            modified.addAll(event.getPrimitives());
+        }
+        timer.setInitialDelay(ValidatorPrefHelper.PREF_LIVE_DELAY.get());
+        timer.restart();
+    }
+
+    /**
+     * Validates the modified primitives, if they belong to the active data set.
+     */
+    void validate() {
+        final MapFrame map = MainApplication.getMap();
+        final Collection<OsmPrimitive> primitives = getPrimitivesToValidate(
+                map != null ? map.validatorDialog.tree.getErrors() : Collections.emptyList());
+        if (primitives.isEmpty())
+            return;
+        OsmValidator.initializeTests();
+        Collection<Test> tests = OsmValidator.getEnabledTests(false);
+        if (tests.isEmpty())
+            return;
+        ValidationTask task = new ValidationTask(null, NullProgressMonitor.INSTANCE, tests, primitives, primitives, false);
+        task.setIncremental(true);
+        MainApplication.worker.submit(task);
+    }
+
+    /**
+     * Returns the modified primitives which still belong to the active data set, and forgets all modified primitives.
+     * @param knownErrors the errors shown in the validator dialog
+     * @return the primitives to validate
+     */
+    Set<OsmPrimitive> getPrimitivesToValidate(Collection<TestError> knownErrors) {
+        final DataSet ds = MainApplication.getLayerManager().getActiveDataSet();
+        final List<OsmPrimitive> primitives = modified.stream()
+                .filter(p -> ds != null && p.getDataSet() == ds && !p.isDeleted() && !p.isIncomplete())
+                .collect(Collectors.toList());
+        modified.clear();
+        return addErrorPrimitives(addNeighbours(ds, primitives), knownErrors);
+    }
+
+    /**
+     * Adds the referrers of the given primitives, and the nodes and ways close to them or to their referrers.
+     * @param ds the data set of the primitives
+     * @param primitives the modified primitives
+     * @return the primitives with their neighbours
+     */
+    static Set<OsmPrimitive> addNeighbours(DataSet ds, Collection<OsmPrimitive> primitives) {
+        final Set<OsmPrimitive> result = new HashSet<>(primitives);
+        if (result.isEmpty())
+            return result;
+        // the geometry of the parent ways changes with their nodes
+        final Set<OsmPrimitive> located = new HashSet<>(primitives);
+        for (OsmPrimitive p : primitives) {
+            for (OsmPrimitive referrer : p.getReferrers()) {
+                result.add(referrer);
+                if (referrer instanceof Way) {
+                    located.add(referrer);
+                }
+            }
+        }
+        for (OsmPrimitive p : located) {
+            // the area of a relation may be large, its members are searched instead
+            if (p instanceof Relation || !p.isUsable())
+                continue;
+            BBox bbox = new BBox();
+            bbox.addPrimitive(p, NEIGHBOUR_DISTANCE);
+            if (p instanceof Node) {
+                result.addAll(ds.searchNodes(bbox));
+            }
+            result.addAll(ds.searchWays(bbox));
+        }
+        result.removeIf(p -> p.isDeleted() || p.isIncomplete());
+        return result;
+    }
+
+    /**
+     * Adds the other primitives of the known errors of the given primitives, so that these errors can be found again.
+     * @param primitives the modified primitives
+     * @param knownErrors the errors shown in the validator dialog
+     * @return the primitives to validate
+     */
+    static Set<OsmPrimitive> addErrorPrimitives(Collection<OsmPrimitive> primitives, Collection<TestError> knownErrors) {
+        final Set<OsmPrimitive> result = new HashSet<>(primitives);
+        if (result.isEmpty())
+            return result;
+        final Set<OsmPrimitive> validated = new HashSet<>(result);
+        for (TestError error : knownErrors) {
+            if (error.getPrimitives().stream().anyMatch(validated::contains)) {
+                error.getPrimitives().stream()
+                        .filter(p -> p.getDataSet() != null && !p.isDeleted() && !p.isIncomplete())
+                        .forEach(result::add);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops the pending validation, for instance when the validator dialog is hidden.
+     */
+    public void cancel() {
+        timer.stop();
+        modified.clear();
+        dataSet = null;
+    }
+}
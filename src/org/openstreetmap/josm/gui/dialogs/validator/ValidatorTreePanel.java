@@ -7,14 +7,18 @@ import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import javax.swing.JTree;
 import javax.swing.ToolTipManager;
@@ -40,6 +44,7 @@ import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.AlphanumComparator;
 import org.openstreetmap.josm.tools.Destroyable;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.Utils;
@@ -183,35 +188,12 @@ public class ValidatorTreePanel extends JTree implements Destroyable, DataSetLis
         int selRow = selPath == null ? -1 : getRowForPath(selPath);
 
         // Remember the currently expanded rows
-        Set<Object> oldExpandedRows = new HashSet<>();
-        if (expandAgain) {
-            Enumeration<TreePath> expanded = getExpandedDescendants(new TreePath(getRoot()));
-            if (expanded != null) {
-                while (expanded.hasMoreElements()) {
-                    TreePath path = expanded.nextElement();
-                    DefaultMutableTreeNode node = (DefaultMutableTreeNode) path.getLastPathComponent();
-                    Object userObject = node.getUserObject();
-                    if (userObject instanceof Severity) {
-                        oldExpandedRows.add(userObject);
-                    } else if (userObject instanceof String) {
-                        String msg = removeSize((String) userObject);
-                        oldExpandedRows.add(msg);
-                    }
-                }
-            }
-        }
+        Set<Object> oldExpandedRows = expandAgain ? getExpandedRows() : Collections.emptySet();
 
-        Predicate<TestError> filterToUse = e -> !e.isIgnored();
-        if (!Boolean.TRUE.equals(ValidatorPrefHelper.PREF_OTHER.get())) {
-            filterToUse = filterToUse.and(e -> e.getSeverity() != Severity.OTHER);
-        }
-        if (filter != null) {
-            filterToUse = filterToUse.and(e -> e.getPrimitives().stream().anyMatch(filter::contains));
-        }
         Map<Severity, Map<String, Map<String, List<TestError>>>> errorsBySeverityMessageDescription
-            = OsmValidator.getErrorsBySeverityMessageDescription(errors, filterToUse);
+            = OsmValidator.getErrorsBySeverityMessageDescription(errors, getErrorFilter());
 
-        final List<TreePath> expandedPaths = new ArrayList<>();
+        final List<DefaultMutableTreeNode> expandedNodes = new ArrayList<>();
         for (Entry<Severity, Map<String, Map<String, List<TestError>>>> entry: errorsBySeverityMessageDescription.entrySet()) {
             Severity severity = entry.getKey();
             Map<String, Map<String, List<TestError>>> errorsByMessageDescription = entry.getValue();
@@ -221,68 +203,24 @@ public class ValidatorTreePanel extends JTree implements Destroyable, DataSetLis
             rootNode.add(severityNode);
 
             if (oldExpandedRows.contains(severity)) {
-                expandedPaths.add(new TreePath(severityNode.getPath()));
+                expandedNodes.add(severityNode);
             }
 
             final Map<String, List<TestError>> errorsWithEmptyMessageByDescription = errorsByMessageDescription.get("");
             if (errorsWithEmptyMessageByDescription != null) {
-                errorsWithEmptyMessageByDescription.forEach((description, noDescriptionErrors) -> {
-                    final String msg = addSize(description, noDescriptionErrors);
-                    final DefaultMutableTreeNode messageNode = new DefaultMutableTreeNode(msg);
-                    severityNode.add(messageNode);
-
-                    if (oldExpandedRows.contains(description)) {
-                        expandedPaths.add(new TreePath(messageNode.getPath()));
-                    }
-                    // add the matching errors to the current node
-                    noDescriptionErrors.stream().map(DefaultMutableTreeNode::new).forEach(messageNode::add);
-                });
+                createMessageNodes("", errorsWithEmptyMessageByDescription, oldExpandedRows, expandedNodes).forEach(severityNode::add);
             }
 
             errorsByMessageDescription.forEach((message, errorsByDescription) -> {
-                if (message.isEmpty()) {
-                    return;
-                }
-                // Group node
-                final DefaultMutableTreeNode groupNode;
-                if (errorsByDescription.size() > 1) {
-                    groupNode = new GroupTreeNode(message);
-                    severityNode.add(groupNode);
-                    if (oldExpandedRows.contains(message)) {
-                        expandedPaths.add(new TreePath(groupNode.getPath()));
-                    }
-                } else {
-                    groupNode = null;
+                if (!message.isEmpty()) {
+                    createMessageNodes(message, errorsByDescription, oldExpandedRows, expandedNodes).forEach(severityNode::add);
                 }
-
-                errorsByDescription.forEach((description, errorsWithDescription) -> {
-                    // Message node
-                    final String searchMsg;
-                    if (groupNode != null) {
-                        searchMsg = description;
-                    } else if (Utils.isEmpty(description)) {
-                        searchMsg = message;
-                    } else {
-                        searchMsg = message + " - " + description;
-                    }
-                    final String msg = addSize(searchMsg, errorsWithDescription);
-
-                    final DefaultMutableTreeNode messageNode = new DefaultMutableTreeNode(msg);
-                    DefaultMutableTreeNode currNode = groupNode != null ? groupNode : severityNode;
-                    currNode.add(messageNode);
-                    if (oldExpandedRows.contains(searchMsg)) {
-                        expandedPaths.add(new TreePath(messageNode.getPath()));
-                    }
-
-                    // add the matching errors to the current node
-                    errorsWithDescription.stream().map(DefaultMutableTreeNode::new).forEach(messageNode::add);
-                });
             });
         }
 
         valTreeModel.setRoot(rootNode);
-        for (TreePath path : expandedPaths) {
-            this.expandPath(path);
+        for (DefaultMutableTreeNode node : expandedNodes) {
+            this.expandPath(new TreePath(node.getPath()));
         }
 
         if (selPath != null) {
@@ -331,6 +269,207 @@ public class ValidatorTreePanel extends JTree implements Destroyable, DataSetLis
         }
     }
 
+    /**
+     * Returns the rows of the tree which are expanded
+     * @return the severities and the messages (without size) of the expanded rows
+     */
+    private Set<Object> getExpandedRows() {
+        Set<Object> expandedRows = new HashSet<>();
+        Enumeration<TreePath> expanded = getExpandedDescendants(new TreePath(getRoot()));
+        if (expanded != null) {
+            while (expanded.hasMoreElements()) {
+                TreePath path = expanded.nextElement();
+                DefaultMutableTreeNode node = (DefaultMutableTreeNode) path.getLastPathComponent();
+                Object userObject = node.getUserObject();
+                if (userObject instanceof Severity) {
+                    expandedRows.add(userObject);
+                } else if (userObject instanceof String) {
+                    String msg = removeSize((String) userObject);
+                    expandedRows.add(msg);
+                }
+            }
+        }
+        return expandedRows;
+    }
+
+    /**
+     * Returns the filter of the errors shown in the tree
+     * @return the filter of the errors shown in the tree
+     */
+    private Predicate<TestError> getErrorFilter() {
+        Predicate<TestError> filterToUse = e -> !e.isIgnored();
+        if (!Boolean.TRUE.equals(ValidatorPrefHelper.PREF_OTHER.get())) {
+            filterToUse = filterToUse.and(e -> e.getSeverity() != Severity.OTHER);
+        }
+        if (filter != null) {
+            filterToUse = filterToUse.and(e -> e.getPrimitives().stream().anyMatch(filter::contains));
+        }
+        return filterToUse;
+    }
+
+    /**
+     * Creates the nodes of the errors of a message, to be added to the node of their severity
+     * @param message the message of the errors
+     * @param errorsByDescription the errors, by description
+     * @param oldExpandedRows the rows which were expanded, see {@link #getExpandedRows()}
+     * @param expandedNodes the created nodes which have to be expanded
+     * @return a group node if the errors have several descriptions, a node per description otherwise
+     */
+    private static List<DefaultMutableTreeNode> createMessageNodes(String message, Map<String, List<TestError>> errorsByDescription,
+            Set<Object> oldExpandedRows, List<DefaultMutableTreeNode> expandedNodes) {
+        final List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        if (message.isEmpty()) {
+            errorsByDescription.forEach((description, noDescriptionErrors) -> {
+                final String msg = addSize(description, noDescriptionErrors);
+                final DefaultMutableTreeNode messageNode = new DefaultMutableTreeNode(msg);
+                nodes.add(messageNode);
+
+                if (oldExpandedRows.contains(description)) {
+                    expandedNodes.add(messageNode);
+                }
+                // add the matching errors to the current node
+                noDescriptionErrors.stream().map(DefaultMutableTreeNode::new).forEach(messageNode::add);
+            });
+            return nodes;
+        }
+
+        // Group node
+        final DefaultMutableTreeNode groupNode;
+        if (errorsByDescription.size() > 1) {
+            groupNode = new GroupTreeNode(message);
+            nodes.add(groupNode);
+            if (oldExpandedRows.contains(message)) {
+                expandedNodes.add(groupNode);
+            }
+        } else {
+            groupNode = null;
+        }
+
+        errorsByDescription.forEach((description, errorsWithDescription) -> {
+            // Message node
+            final String searchMsg;
+            if (groupNode != null) {
+                searchMsg = description;
+            } else if (Utils.isEmpty(description)) {
+                searchMsg = message;
+            } else {
+                searchMsg = message + " - " + description;
+            }
+            final String msg = addSize(searchMsg, errorsWithDescription);
+
+            final DefaultMutableTreeNode messageNode = new DefaultMutableTreeNode(msg);
+            if (groupNode != null) {
+                groupNode.add(messageNode);
+            } else {
+                nodes.add(messageNode);
+            }
+            if (oldExpandedRows.contains(searchMsg)) {
+                expandedNodes.add(messageNode);
+            }
+
+            // add the matching errors to the current node
+            errorsWithDescription.stream().map(DefaultMutableTreeNode::new).forEach(messageNode::add);
+        });
+        return nodes;
+    }
+
+    /**
+     * Replaces the nodes of the messages of the given errors, instead of building the whole tree again.
+     * @param removed the errors removed from the tree
+     * @param added the errors added to the tree
+     */
+    private void updateTree(Collection<TestError> removed, Collection<TestError> added) {
+        if (resetScheduled)
+            return;
+        final Map<Severity, Set<String>> messages = new EnumMap<>(Severity.class);
+        Stream.concat(removed.stream(), added.stream())
+                .forEach(e -> messages.computeIfAbsent(e.getSeverity(), k -> new HashSet<>()).add(e.getMessage()));
+        if (messages.isEmpty())
+            return;
+        final Set<Object> oldExpandedRows = getExpandedRows();
+        final Map<Severity, Map<String, Map<String, List<TestError>>>> errorsBySeverityMessageDescription
+            = OsmValidator.getErrorsBySeverityMessageDescription(errors, getErrorFilter()
+                    .and(e -> messages.getOrDefault(e.getSeverity(), Collections.emptySet()).contains(e.getMessage())));
+
+        final DefaultMutableTreeNode rootNode = getRoot();
+        final List<DefaultMutableTreeNode> expandedNodes = new ArrayList<>();
+        for (Entry<Severity, Set<String>> entry : messages.entrySet()) {
+            final Severity severity = entry.getKey();
+            final Map<String, Map<String, List<TestError>>> errorsByMessageDescription =
+                    errorsBySeverityMessageDescription.getOrDefault(severity, Collections.emptyMap());
+            DefaultMutableTreeNode severityNode = null;
+            int severityIndex = 0;
+            while (severityIndex < rootNode.getChildCount()) {
+                final DefaultMutableTreeNode node = (DefaultMutableTreeNode) rootNode.getChildAt(severityIndex);
+                final int cmp = ((Severity) node.getUserObject()).compareTo(severity);
+                if (cmp == 0) {
+                    severityNode = node;
+                }
+                if (cmp >= 0) {
+                    break;
+                }
+                severityIndex++;
+            }
+            if (severityNode == null) {
+                if (errorsByMessageDescription.isEmpty()) {
+                    continue;
+                }
+                severityNode = new GroupTreeNode(severity);
+                valTreeModel.insertNodeInto(severityNode, rootNode, severityIndex);
+                if (oldExpandedRows.contains(severity)) {
+                    expandedNodes.add(severityNode);
+                }
+            }
+
+            for (int i = severityNode.getChildCount() - 1; i >= 0; i--) {
+                final DefaultMutableTreeNode node = (DefaultMutableTreeNode) severityNode.getChildAt(i);
+                if (entry.getValue().contains(getMessage(node))) {
+                    valTreeModel.removeNodeFromParent(node);
+                }
+            }
+            for (String message : entry.getValue()) {
+                final Map<String, List<TestError>> errorsByDescription = errorsByMessageDescription.get(message);
+                if (errorsByDescription != null) {
+                    int index = 0;
+                    while (index < severityNode.getChildCount()
+                            && compareMessages(getMessage((DefaultMutableTreeNode) severityNode.getChildAt(index)), message) < 0) {
+                        index++;
+                    }
+                    for (DefaultMutableTreeNode node : createMessageNodes(message, errorsByDescription, oldExpandedRows, expandedNodes)) {
+                        valTreeModel.insertNodeInto(node, severityNode, index++);
+                    }
+                }
+            }
+            if (severityNode.getChildCount() == 0) {
+                valTreeModel.removeNodeFromParent(severityNode);
+            } else {
+                // the size of the severity node
+                valTreeModel.nodeChanged(severityNode);
+            }
+        }
+        for (DefaultMutableTreeNode node : expandedNodes) {
+            this.expandPath(new TreePath(node.getPath()));
+        }
+        invalidationListeners.fireEvent(Runnable::run);
+    }
+
+    /**
+     * Returns the message of the errors of a child node of a severity node
+     * @param node the node, which contains at least one error
+     * @return the message of its errors
+     */
+    private static String getMessage(DefaultMutableTreeNode node) {
+        return ((TestError) node.getFirstLeaf().getUserObject()).getMessage();
+    }
+
+    private static int compareMessages(String message1, String message2) {
+        // the errors without message come first, see buildTreeInternal
+        if (message1.isEmpty() || message2.isEmpty()) {
+            return Boolean.compare(!message1.isEmpty(), !message2.isEmpty());
+        }
+        return AlphanumComparator.getInstance().compare(message1, message2);
+    }
+
     private static String addSize(String msg, Collection<?> coll) {
         return msg + " (" + coll.size() + ")";
     }
@@ -389,6 +528,56 @@ public class ValidatorTreePanel extends JTree implements Destroyable, DataSetLis
         }
     }
 
+    /**
+     * Replaces the errors of the given primitives by the given errors. The errors involving other primitives are kept, since
+     * a validation of the given primitives only may not find them again.
+     * @param primitives the primitives which were validated again
+     * @param newErrors the new validation errors of these primitives
+     * @since xxx
+     */
+    public void updateErrors(Set<? extends OsmPrimitive> primitives, List<TestError> newErrors) {
+        final List<TestError> removed = new ArrayList<>();
+        final List<TestError> added = new ArrayList<>();
+        errors.removeIf(error -> {
+            if (hasRemovedPrimitive(error) || primitives.containsAll(error.getPrimitives())) {
+                removed.add(error);
+                return true;
+            }
+            return false;
+        });
+        // the kept errors may be found again. Similar errors have the same primitives, so they are looked up by primitive
+        final Map<OsmPrimitive, List<TestError>> errorsByPrimitive = new IdentityHashMap<>();
+        for (TestError error : errors) {
+            indexError(errorsByPrimitive, error);
+        }
+        for (TestError error : newErrors) {
+            if (!error.isIgnored()) {
+                final List<TestError> candidates = errorsByPrimitive.getOrDefault(firstPrimitive(error), Collections.emptyList());
+                if (candidates.stream().noneMatch(error::isSimilar)) {
+                    errors.add(error);
+                    added.add(error);
+                    indexError(errorsByPrimitive, error);
+                }
+            }
+        }
+        if (isVisible()) {
+            updateTree(removed, added);
+        }
+    }
+
+    private static void indexError(Map<OsmPrimitive, List<TestError>> errorsByPrimitive, TestError error) {
+        if (error.getPrimitives().isEmpty()) {
+            errorsByPrimitive.computeIfAbsent(null, k -> new ArrayList<>()).add(error);
+        }
+        for (OsmPrimitive p : error.getPrimitives()) {
+            errorsByPrimitive.computeIfAbsent(p, k -> new ArrayList<>()).add(error);
+        }
+    }
+
+    private static OsmPrimitive firstPrimitive(TestError error) {
+        return error.getPrimitives().isEmpty() ? null : error.getPrimitives().iterator().next();
+    }
+
     /**
      * Returns the errors of the tree
      * @return the errors of the tree
@@ -580,8 +769,11 @@ public class ValidatorTreePanel extends JTree implements Destroyable, DataSetLis
      * @return true if error list was changed
      */
     private boolean filterRemovedPrimitives() {
-        return errors.removeIf(
-                error -> error.getPrimitives().stream().anyMatch(p -> p.isDeleted() || p.getDataSet() == null));
+        return errors.removeIf(ValidatorTreePanel::hasRemovedPrimitive);
+    }
+
+    private static boolean hasRemovedPrimitive(TestError error) {
+        return error.getPrimitives().stream().anyMatch(p -> p.isDeleted() || p.getDataSet() == null);
     }
 
 }
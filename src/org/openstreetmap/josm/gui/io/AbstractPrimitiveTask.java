@@ -92,7 +92,6 @@ public abstract class AbstractPrimitiveTask extends PleaseWaitRunnable {
 
     @Override
     protected void realRun() throws SAXException, IOException, OsmTransferException {
-        DataSet theirDataSet;
         try {
             synchronized (this) {
                 if (canceled)
@@ -100,12 +99,13 @@ public abstract class AbstractPrimitiveTask extends PleaseWaitRunnable {
                 multiObjectReader = MultiFetchServerObjectReader.create().setRecurseDownRelations(fullRelation);
             }
             initMultiFetchReader(multiObjectReader);
-            theirDataSet = multiObjectReader.parseOsm(progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+            // merge the downloaded packages into ds as they arrive
+            multiObjectReader.setStreamingTarget(ds);
+            multiObjectReader.parseOsm(progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
             missingPrimitives = multiObjectReader.getMissingPrimitives();
             synchronized (this) {
                 multiObjectReader = null;
             }
-            new DataSetMerger(ds, theirDataSet).merge();
 
             loadIncompleteNodes();
         } catch (OsmTransferException e) {
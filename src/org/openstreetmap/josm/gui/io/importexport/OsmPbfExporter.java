@@ -0,0 +1,94 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.swing.JOptionPane;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.gui.ConditionalOptionPaneUtil;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.OsmPbfWriter;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Exports data to an .osm.pbf file.
+ * <p>
+ * The OSM PBF format has no room for the modifications of a layer: the deleted primitives are not written, and the modified
+ * primitives are written as unmodified, so the changes cannot be uploaded from the written file. The user is warned about it.
+ * The autosave uses {@link #OsmPbfExporter(boolean)} to keep the modifications.
+ * @since xxx
+ */
+public class OsmPbfExporter extends OsmExporter {
+
+    /**
+     * Whether the blocks of the written files are compressed with zlib
+     */
+    public static final BooleanProperty COMPRESS = new BooleanProperty("pbf.writer.compress", true);
+
+    private final boolean josmState;
+
+    /**
+     * Constructs a new {@code OsmPbfExporter}.
+     */
+    public OsmPbfExporter() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new {@code OsmPbfExporter}.
+     * @param josmState {@code true} to keep the modified and deleted primitives in a JOSM extension, for files read by JOSM only
+     * @see OsmPbfWriter#OsmPbfWriter(java.io.OutputStream, boolean, boolean)
+     */
+    public OsmPbfExporter(boolean josmState) {
+        super(new ExtensionFileFilter(
+            "osm.pbf", "osm.pbf", tr("OSM PBF Files") + " (*.osm.pbf)"));
+        this.josmState = josmState;
+    }
+
+    @Override
+    public void exportData(File file, Layer layer) throws IOException {
+        if (!josmState && layer instanceof OsmDataLayer && ((OsmDataLayer) layer).data.isModified()
+                && !ConditionalOptionPaneUtil.showConfirmationDialog(
+                        "osm_pbf_export_modified",
+                        MainApplication.getMainFrame(),
+                        "<html>" + tr("The layer contains unsaved changes, which the OSM PBF format cannot keep.") + "<br>"
+                                + tr("Deleted objects are not written, and the changes cannot be uploaded from the written file.")
+                                + "<br>" + tr("Do you want to export the layer anyway?") + "</html>",
+                        tr("Unsaved changes"),
+                        JOptionPane.YES_NO_OPTION,
+                        JOptionPane.WARNING_MESSAGE,
+                        JOptionPane.YES_OPTION)) {
+            setCanceled(true);
+            return;
+        }
+        setCanceled(false);
+        super.exportData(file, layer);
+    }
+
+    @Override
+    public void exportDataQuiet(File file, Layer layer) throws IOException {
+        if (!josmState && layer instanceof OsmDataLayer && ((OsmDataLayer) layer).data.isModified()) {
+            Logging.warn("Unsaved changes of layer {0} are not written to {1}", layer.getName(), file);
+        }
+        super.exportData(file, layer);
+    }
+
+    @Override
+    protected void doSave(File file, OsmDataLayer layer) throws IOException {
+        try (OsmPbfWriter w = new OsmPbfWriter(getOutputStream(file), COMPRESS.get(), josmState)) {
+            layer.data.getReadLock().lock();
+            try {
+                w.write(layer.data);
+            } finally {
+                layer.data.getReadLock().unlock();
+            }
+        }
+    }
+}
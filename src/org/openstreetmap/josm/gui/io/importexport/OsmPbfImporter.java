@@ -3,12 +3,27 @@ package org.openstreetmap.josm.gui.io.importexport;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Locale;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.actions.downloadtasks.DownloadOsmPbfTask;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.pbf.OsmPbfIndex;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.LongProperty;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmPbfReader;
 
@@ -24,6 +39,18 @@ public class OsmPbfImporter extends OsmImporter {
             "osm.pbf", "osm.pbf", tr("OSM PBF Files") + " (*.osm.pbf, *.osm.pbf.gz, *.osm.pbf.bz2, *.osm.pbf.xz, *.osm.pbf.zip)",
             ExtensionFileFilter.AddArchiveExtension.NONE, Arrays.asList("gz", "bz", "bz2", "xz", "zip"));
 
+    /**
+     * Whether large files are indexed, and only the area of the map view is loaded
+     * @since xxx
+     */
+    public static final BooleanProperty PARTIAL_LOADING = new BooleanProperty("pbf.partial.enabled", false);
+
+    /**
+     * The minimal size (in bytes) of the files loaded partially, see {@link #PARTIAL_LOADING}
+     * @since xxx
+     */
+    public static final LongProperty PARTIAL_LOADING_MIN_SIZE = new LongProperty("pbf.partial.min-size", 256L * 1024 * 1024);
+
     /**
      * Constructs a new {@code OsmPbfImporter}.
      */
@@ -39,6 +66,37 @@ public class OsmPbfImporter extends OsmImporter {
         super(filter);
     }
 
+    @Override
+    public void importData(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        if (!PARTIAL_LOADING.get() || !MainApplication.isDisplayingMapView() || file.length() < PARTIAL_LOADING_MIN_SIZE.get()
+                || !file.getName().toLowerCase(Locale.ROOT).endsWith(".pbf")) {
+            super.importData(file, progressMonitor);
+            return;
+        }
+        final Bounds view = MainApplication.getMap().mapView.getRealBounds();
+        // Do not decode most of the file if the map is zoomed out, the area is loaded once the user zooms in
+        final boolean viewTooLarge = view.getArea() > DownloadOsmPbfTask.MAX_FOLLOW_AREA.get();
+        progressMonitor.beginTask(tr("Loading area of {0}...", file.getName()), 2);
+        try {
+            final OsmPbfIndex index = OsmPbfReader.getIndex(file, progressMonitor.createSubTaskMonitor(1, false));
+            final DataSet dataSet = viewTooLarge ? new DataSet()
+                    : OsmPbfReader.parseDataSet(file, index, view, progressMonitor.createSubTaskMonitor(1, false));
+            // No associated file: saving the partial data must not overwrite the original file
+            final OsmDataLayer layer = createLayer(dataSet, null, file.getName());
+            MainApplication.getLayerManager().addLayer(layer);
+            final DownloadOsmPbfTask task = new DownloadOsmPbfTask(file, index);
+            GuiHelper.runInEDT(() -> task.followView(layer));
+            if (viewTooLarge) {
+                SwingUtilities.invokeLater(() -> new Notification(
+                        tr("Zoom in to load the data of {0}.", file.getName()))
+                        .setIcon(JOptionPane.INFORMATION_MESSAGE)
+                        .show());
+            }
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
     @Override
     protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
         return OsmPbfReader.parseDataSet(in, progressMonitor);
@@ -117,6 +117,7 @@ import org.openstreetmap.josm.gui.layer.imagery.ReprojectionTile;
 import org.openstreetmap.josm.gui.layer.imagery.ShowErrorsAction;
 import org.openstreetmap.josm.gui.layer.imagery.TileAnchor;
 import org.openstreetmap.josm.gui.layer.imagery.TileCoordinateConverter;
+import org.openstreetmap.josm.gui.layer.imagery.TileDownloadPriority;
 import org.openstreetmap.josm.gui.layer.imagery.TilePosition;
 import org.openstreetmap.josm.gui.layer.imagery.TileSourceDisplaySettings;
 import org.openstreetmap.josm.gui.layer.imagery.TileSourceDisplaySettings.DisplaySettingsChangeEvent;
@@ -192,6 +193,8 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
     protected TileCache tileCache; // initialized together with tileSource
     protected T tileSource;
     protected TileLoader tileLoader;
+    /** The download priority of the tiles for the last painted view, read by the download threads */
+    private volatile TileDownloadPriority downloadPriority;
 
     /** A timer that is used to delay invalidation events if required. */
     private final Timer invalidateLaterTimer = new Timer(100, e -> this.invalidate());
@@ -302,9 +305,18 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
         if (tileLoader == null)
             tileLoader = new OsmTileLoader(this, headers);
 
+        if (tileLoader instanceof TMSCachedTileLoader) {
+            ((TMSCachedTileLoader) tileLoader).setTilePriority(this::getDownloadPriority);
+        }
+
         tileCache = new MemoryTileCache(estimateTileCacheSize());
     }
 
+    private long getDownloadPriority(Tile tile) {
+        TileDownloadPriority priority = downloadPriority;
+        return priority != null ? priority.getPriority(new TilePosition(tile)) : 0;
+    }
+
     @Override
     public synchronized void tileLoadingFinished(Tile tile, boolean success) {
         if (tile.hasError()) {
@@ -1351,7 +1363,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
              *
              *  @see #estimateTileCacheSize()
              */
-            int overload = 1;
+            int overload = TileDownloadPriority.RING;
 
             int minXo = Utils.clamp(minX-overload, tileSource.getTileXMin(zoom), tileSource.getTileXMax(zoom));
             int maxXo = Utils.clamp(maxX+overload, tileSource.getTileXMin(zoom), tileSource.getTileXMax(zoom));
@@ -1362,6 +1374,25 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
             ts.loadAllTiles(false);
         }
 
+        /**
+         * Makes this tile set the reference for the download priorities, and cancels the queued downloads of the tiles
+         * which are not needed anymore, if it has changed.
+         */
+        private void updateDownloadPriority() {
+            final TileDownloadPriority priority = new TileDownloadPriority(zoom, minX, minY, maxX, maxY);
+            if (priority.equals(downloadPriority)) {
+                return;
+            }
+            downloadPriority = priority;
+            if (tileLoader instanceof TMSCachedTileLoader) {
+                int cancelled = ((TMSCachedTileLoader) tileLoader).cancelOutstandingTasks(
+                        t -> t.getTileSource() == tileSource && priority.isStale(new TilePosition(t)));
+                if (cancelled > 0) {
+                    Logging.debug("Cancelled {0} tile downloads outside of the view", cancelled);
+                }
+            }
+        }
+
         private void loadAllErrorTiles(boolean force) {
             if (!getDisplaySettings().isAutoLoad() && !force)
                 return;
@@ -1613,6 +1644,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
             setZoomLevel(zoom, false);
         }
         TileSet ts = dts.getTileSet(zoom);
+        ts.updateDownloadPriority();
 
         // try to load tiles from desired zoom level, no matter what we will show (for example, tiles from previous zoom level
         // on zoom in)
@@ -9,10 +9,18 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -20,14 +28,17 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -35,22 +46,36 @@ import java.util.regex.Pattern;
 
 import org.openstreetmap.josm.actions.OpenFileAction.OpenFileTask;
 import org.openstreetmap.josm.data.Data;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.NoteData;
 import org.openstreetmap.josm.data.osm.NoteData.NoteDataUpdateListener;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
+import org.openstreetmap.josm.data.osm.event.FilterChangedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.Notification;
 import org.openstreetmap.josm.gui.io.importexport.NoteImporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmImporter;
+import org.openstreetmap.josm.gui.io.importexport.OsmPbfImporter;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmJournalReader;
+import org.openstreetmap.josm.io.OsmJournalWriter;
+import org.openstreetmap.josm.io.OsmPbfWriter;
+import org.openstreetmap.josm.io.OsmWriter;
+import org.openstreetmap.josm.io.OsmWriterFactory;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.Logging;
@@ -72,6 +97,14 @@ import org.openstreetmap.josm.tools.Utils;
  *
  *      The deleted layers dir keeps at most PROP_DELETED_LAYERS files.
  *
+ * If PROP_JOURNAL is enabled, data layers are not saved completely each time: a snapshot is saved once,
+ * then the changed primitives are appended to a journal file next to it (see {@link OsmJournalWriter}).
+ * When the journal gets larger than the snapshot, both are merged into a new snapshot, without locking the dataset.
+ * The journal is also merged into its snapshot before an unsaved layer is recovered or moved to the deleted layers dir.
+ *
+ * Data layers can be saved in the OSM PBF format (see {@link OsmPbfWriter}), which is much faster to write and read than OSM XML
+ * for large layers, by setting the {@code autosave.extension} preference to {@code osm.pbf}.
+ *
  * @since  3378 (creation)
  * @since 10386 (new LayerChangeListener interface)
  */
@@ -105,20 +138,57 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
      * Defines if a notification should be displayed after each autosave
      */
     public static final BooleanProperty PROP_NOTIFICATION = new BooleanProperty("autosave.notification", false);
+    /**
+     * Defines if the changes of data layers are appended to a journal instead of saving the whole layer each time
+     * @since xxx
+     */
+    public static final BooleanProperty PROP_JOURNAL = new BooleanProperty("autosave.journal", true);
+
+    private static final String JOURNAL_EXTENSION = ".journal";
 
     protected static final class AutosaveLayerInfo<T extends AbstractModifiableLayer> {
         private final T layer;
         private String layerName;
         private String layerFileName;
         private final Deque<File> backupFiles = new LinkedList<>();
+        /** The journal of the last backup file, or {@code null} if the next save must be a full snapshot */
+        private File journalFile;
+        private long snapshotSize;
+        private long journalSize;
+        private int dataSourceCount;
 
         AutosaveLayerInfo(T layer) {
             this.layer = layer;
         }
     }
 
+    /**
+     * The primitives changed since the last save of a dataset
+     */
+    private static final class PendingChanges {
+        /** The ids of the changed primitives */
+        private final Set<PrimitiveId> changed = new HashSet<>();
+        /** The ids of the removed primitives, with a weak reference to find them if they are added again with another id */
+        private final Map<PrimitiveId, Reference<OsmPrimitive>> removed = new HashMap<>();
+        private boolean snapshotRequired;
+
+        /**
+         * Determines if the changes cannot be written to the journal.
+         * This is the case if a removed primitive has been added again, as its id may have changed (e.g. on upload).
+         * @param ds the dataset
+         * @return {@code true} if a full snapshot must be saved
+         */
+        boolean isSnapshotRequired(DataSet ds) {
+            return snapshotRequired || removed.entrySet().stream().anyMatch(e -> {
+                OsmPrimitive p = e.getValue().get();
+                return (p != null && p.getDataSet() == ds) || ds.getPrimitiveById(e.getKey()) != null;
+            });
+        }
+    }
+
     private final DataSetListenerAdapter datasetAdapter = new DataSetListenerAdapter(this);
     private final Set<Data> changedData = new HashSet<>();
+    private final Map<DataSet, PendingChanges> pendingChanges = new ConcurrentHashMap<>();
     private final List<AutosaveLayerInfo<?>> layersInfo = new ArrayList<>();
     private final Object layersLock = new Object();
     private final Deque<File> deletedLayers = new LinkedList<>();
@@ -227,37 +297,174 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         }
     }
 
-    private void savelayer(AutosaveLayerInfo<?> info) {
+    private void savelayer(AutosaveLayerInfo<?> info, boolean closing) {
         if (!info.layer.getName().equals(info.layerName)) {
             setLayerFileName(info);
             info.layerName = info.layer.getName();
         }
+        Data data = info.layer.getData();
         try {
-            Data data = info.layer.getData();
-            if (data != null && changedData.remove(data)) {
-                File file = getNewLayerFile(info, Instant.now(), 0);
-                if (file != null) {
-                    info.backupFiles.add(file);
-                    info.layer.autosave(file);
+            PendingChanges pending = data instanceof DataSet ? pendingChanges.remove(data) : null;
+            boolean changed = data != null && changedData.remove(data);
+            if (closing && info.journalSize > 0) {
+                // Leave a self-contained file behind
+                saveSnapshot(info, false);
+            } else if (changed || pending != null) {
+                if (closing || !PROP_JOURNAL.get() || info.journalFile == null || pending == null
+                        || pending.isSnapshotRequired((DataSet) data) || info.dataSourceCount != ((DataSet) data).getDataSources().size()) {
+                    saveSnapshot(info, !closing && PROP_JOURNAL.get() && data instanceof DataSet);
+                } else {
+                    appendToJournal(info, (DataSet) data, pending);
+                    if (info.journalSize > info.snapshotSize) {
+                        compactJournal(info);
+                    }
                 }
             }
         } catch (IOException e) {
             Logging.error(e);
+            // Start again from a full snapshot
+            info.journalFile = null;
+            if (data != null) {
+                dataUpdated(data);
+            }
         }
         while (info.backupFiles.size() > PROP_FILES_PER_LAYER.get()) {
             File oldFile = info.backupFiles.remove();
             if (Utils.deleteFile(oldFile, marktr("Unable to delete old backup file {0}"))) {
                 Utils.deleteFile(getPidFile(oldFile), marktr("Unable to delete old backup file {0}"));
+                deleteJournalFile(oldFile);
+            }
+        }
+    }
+
+    private void saveSnapshot(AutosaveLayerInfo<?> info, boolean withJournal) throws IOException {
+        info.journalFile = null;
+        File file = getNewLayerFile(info, Instant.now(), 0);
+        if (file != null) {
+            info.backupFiles.add(file);
+            if (info.layer.getData() instanceof DataSet) {
+                info.dataSourceCount = ((DataSet) info.layer.getData()).getDataSources().size();
+            }
+            info.layer.autosave(file);
+            if (withJournal) {
+                info.journalFile = getJournalFile(file);
+                info.snapshotSize = file.length();
+                info.journalSize = 0;
             }
         }
     }
 
+    private static void appendToJournal(AutosaveLayerInfo<?> info, DataSet ds, PendingChanges pending) throws IOException {
+        List<OsmPrimitive> primitives = new ArrayList<>(pending.changed.size());
+        Set<PrimitiveId> removed = new HashSet<>(pending.removed.keySet());
+        byte[] block;
+        // Only the changed primitives are encoded while holding the lock
+        ds.getReadLock().lock();
+        try {
+            for (PrimitiveId id : pending.changed) {
+                OsmPrimitive p = ds.getPrimitiveById(id);
+                if (p != null) {
+                    primitives.add(p);
+                } else {
+                    removed.add(id);
+                }
+            }
+            block = OsmJournalWriter.encodeBlock(ds, primitives, removed);
+        } finally {
+            ds.getReadLock().unlock();
+        }
+        try (OsmJournalWriter writer = new OsmJournalWriter(Files.newOutputStream(info.journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (info.journalSize == 0) {
+                writer.writeHeader();
+            }
+            writer.writeBlock(block);
+        }
+        info.journalSize = info.journalFile.length();
+    }
+
+    /**
+     * Merges the journal of the last backup file into a new backup file. The dataset of the layer is not used.
+     * @param info the layer info
+     * @throws IOException in case of I/O error
+     */
+    private void compactJournal(AutosaveLayerInfo<?> info) throws IOException {
+        File snapshot = info.backupFiles.peekLast();
+        File file = getNewLayerFile(info, Instant.now(), 0);
+        if (snapshot == null || file == null) {
+            return;
+        }
+        info.backupFiles.add(file);
+        mergeJournal(snapshot, info.journalFile, file);
+        info.journalFile = getJournalFile(file);
+        info.snapshotSize = file.length();
+        info.journalSize = 0;
+    }
+
+    /**
+     * Writes a snapshot with its journal replayed on it.
+     * @param snapshot the snapshot file
+     * @param journal the journal file
+     * @param target the file to write. May be the snapshot file.
+     * @throws IOException in case of I/O error, or if the files are invalid
+     */
+    private static void mergeJournal(File snapshot, File journal, File target) throws IOException {
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(snapshot);
+             InputStream journalIn = Files.newInputStream(journal.toPath())) {
+            ds = isPbf(snapshot)
+                    ? OsmJournalReader.parsePbfDataSet(in, journalIn, null)
+                    : OsmJournalReader.parseDataSet(in, journalIn, null);
+        } catch (IllegalDataException e) {
+            throw new IOException(e);
+        }
+        File tmpFile = new File(target.getPath() + '~');
+        if (isPbf(target)) {
+            try (OsmPbfWriter w = new OsmPbfWriter(Compression.getCompressedFileOutputStream(tmpFile), true, true)) {
+                w.write(ds);
+            }
+        } else {
+            try (OutputStream out = Compression.getCompressedFileOutputStream(tmpFile);
+                 OsmWriter w = OsmWriterFactory.createOsmWriter(
+                         new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, ds.getVersion())) {
+                w.write(ds);
+            }
+        }
+        Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Merges the journal of the given backup file into it, if there is one, and deletes the journal.
+     * If the journal cannot be replayed, the backup file is left unchanged.
+     * @param file the backup file
+     */
+    private void mergeJournal(File file) {
+        File journal = getJournalFile(file);
+        if (journal.isFile()) {
+            try {
+                if (journal.length() > 0) {
+                    mergeJournal(file, journal, file);
+                }
+                Utils.deleteFile(journal, marktr("Unable to delete journal file {0}"));
+            } catch (IOException e) {
+                Logging.log(Logging.LEVEL_ERROR, "Unable to merge autosave journal " + journal, e);
+            }
+        }
+    }
+
+    private void deleteJournalFile(File file) {
+        File journal = getJournalFile(file);
+        if (journal.exists()) {
+            Utils.deleteFile(journal, marktr("Unable to delete journal file {0}"));
+        }
+    }
+
     @Override
     public void run() {
         synchronized (layersLock) {
             try {
                 for (AutosaveLayerInfo<?> info: layersInfo) {
-                    savelayer(info);
+                    savelayer(info, false);
                 }
                 changedData.clear();
                 if (PROP_NOTIFICATION.get() && !layersInfo.isEmpty()) {
@@ -342,7 +549,10 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
             AutosaveLayerInfo<?> info = it.next();
             if (info.layer == removedLayer) {
 
-                savelayer(info);
+                savelayer(info, true);
+                if (removedLayer.getData() instanceof DataSet) {
+                    pendingChanges.remove(removedLayer.getData());
+                }
                 File lastFile = info.backupFiles.pollLast();
                 if (lastFile != null) {
                     moveToDeletedLayersFolder(lastFile);
@@ -350,6 +560,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                 for (File file: info.backupFiles) {
                     if (Utils.deleteFile(file)) {
                         Utils.deleteFile(getPidFile(file));
+                        deleteJournalFile(file);
                     }
                 }
 
@@ -360,9 +571,35 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        if (PROP_JOURNAL.get()) {
+            pendingChanges.compute(event.getDataset(), (ds, pending) -> {
+                PendingChanges result = pending != null ? pending : new PendingChanges();
+                addPendingChanges(result, event);
+                return result;
+            });
+        }
         dataUpdated(event.getDataset());
     }
 
+    private static void addPendingChanges(PendingChanges pending, AbstractDatasetChangedEvent event) {
+        if (event instanceof DataChangedEvent) {
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                pending.snapshotRequired = true;
+            } else {
+                events.forEach(e -> addPendingChanges(pending, e));
+            }
+        } else if (event instanceof PrimitivesRemovedEvent) {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                pending.removed.put(p.getPrimitiveId(), new WeakReference<>(p));
+            }
+        } else if (!(event instanceof FilterChangedEvent)) {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                pending.changed.add(p.getPrimitiveId());
+            }
+        }
+    }
+
     @Override
     public void noteDataUpdated(NoteData data) {
         dataUpdated(data);
@@ -385,7 +622,26 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     }
 
     protected File getPidFile(File osmFile) {
-        return new File(autosaveDir, osmFile.getName().replaceFirst("[.][^.]+$", ".pid"));
+        return new File(autosaveDir, getBaseName(osmFile) + ".pid");
+    }
+
+    private static String getBaseName(File osmFile) {
+        // Remove double extensions like .osm.pbf as well, the pid file is created with the base name
+        return osmFile.getName().replaceFirst("([.]osm)?[.][^.]+$", "");
+    }
+
+    private static boolean isPbf(File osmFile) {
+        return OsmPbfImporter.FILE_FILTER.acceptName(osmFile.getName());
+    }
+
+    /**
+     * Replies the journal file of an autosave file.
+     * @param osmFile the autosave file
+     * @return the journal file, which may not exist
+     * @since xxx
+     */
+    protected File getJournalFile(File osmFile) {
+        return new File(autosaveDir, getBaseName(osmFile) + JOURNAL_EXTENSION);
     }
 
     /**
@@ -397,7 +653,8 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         List<File> result = new ArrayList<>();
         try {
             File[] files = autosaveDir.listFiles(
-                    pathname -> OsmImporter.FILE_FILTER.accept(pathname) || NoteImporter.FILE_FILTER.accept(pathname));
+                    pathname -> OsmImporter.FILE_FILTER.accept(pathname) || OsmPbfImporter.FILE_FILTER.accept(pathname)
+                            || NoteImporter.FILE_FILTER.accept(pathname));
             if (files == null)
                 return result;
             for (File file: files) {
@@ -441,6 +698,8 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
      */
     public Future<?> recoverUnsavedLayers() {
         List<File> files = getUnsavedLayersFiles();
+        // The worker runs one task at a time, so the journals are merged before the files are opened
+        MainApplication.worker.submit(() -> files.forEach(this::mergeJournal));
         final OpenFileTask openFileTsk = new OpenFileTask(files, null, tr("Restoring files"));
         final Future<?> openFilesFuture = MainApplication.worker.submit(openFileTsk);
         return MainApplication.worker.submit(() -> {
@@ -465,6 +724,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
      * @param f the file, usually from the autosave dir
      */
     private void moveToDeletedLayersFolder(File f) {
+        mergeJournal(f);
         File backupFile = new File(deletedLayersDir, f.getName());
         File pidFile = getPidFile(f);
 
@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -58,7 +59,6 @@ import org.openstreetmap.josm.actions.ToggleUploadDiscouragedLayerAction;
 import org.openstreetmap.josm.data.APIDataSet;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.Data;
-import org.openstreetmap.josm.data.IBounds;
 import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.cache.JCSCacheManager;
@@ -94,8 +94,12 @@ import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.osm.visitor.OsmPrimitiveVisitor;
 import org.openstreetmap.josm.data.osm.visitor.paint.AbstractMapRenderer;
@@ -127,6 +131,7 @@ import org.openstreetmap.josm.gui.io.UploadDialog;
 import org.openstreetmap.josm.gui.io.UploadLayerTask;
 import org.openstreetmap.josm.gui.io.importexport.NoteExporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmExporter;
+import org.openstreetmap.josm.gui.io.importexport.OsmPbfExporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmImporter;
 import org.openstreetmap.josm.gui.io.importexport.ValidatorErrorExporter;
 import org.openstreetmap.josm.gui.io.importexport.WMSLayerImporter;
@@ -146,6 +151,7 @@ import org.openstreetmap.josm.tools.ImageOverlay;
 import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Pair;
 import org.openstreetmap.josm.tools.UncheckedParseException;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.date.DateUtils;
@@ -177,8 +183,10 @@ public class OsmDataLayer extends AbstractOsmDataLayer
     private final CacheAccess<TileZXY, ImageCache> cache = JCSCacheManager.getCache("osmDataLayer:" + System.identityHashCode(this));
     /** The map paint index that was painted (used to invalidate {@link #cache}) */
     private int lastDataIdx;
-    /** The last zoom level (we invalidate all tiles when switching layers) */
-    private int lastZoom;
+    /** The zoom levels whose tiles in {@link #cache} are kept up to date, the tiles of other zoom levels are dirty */
+    private final Set<Integer> cachedZooms = ConcurrentHashMap.newKeySet();
+    /** The size in pixels of the tiles that were painted last */
+    private int lastTileSize;
     private boolean hoverListenerAdded;
 
     /**
@@ -572,21 +580,17 @@ public class OsmDataLayer extends AbstractOsmDataLayer
     }
 
     private void paintData(final Graphics2D g, final MapView mv, Bounds box, boolean inactive, boolean virtual) {
-        // Used to invalidate cache
         int zoom = getZoom(mv);
-        if (zoom != lastZoom) {
-            // We just mark the previous zoom as dirty before moving in.
-            // It means we don't have to traverse up/down z-levels marking tiles as dirty (this can get *very* expensive).
-            this.cache.getMatching("TileZXY\\{" + lastZoom + "/.*")
-                    .forEach((tile, imageCache) -> this.cache.put(tile, imageCache.becomeDirty()));
-        }
-        lastZoom = zoom;
         AbstractMapRenderer painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
         if (!(painter instanceof StyledTiledMapRenderer) || zoom - OVER_ZOOM > Config.getPref().getInt("mappaint.fast_render.zlevel", 16)) {
             painter.enableSlowOperations(mv.getMapMover() == null || !mv.getMapMover().movementInProgress()
                     || !PROPERTY_HIDE_LABELS_WHILE_DRAGGING.get());
         } else {
             StyledTiledMapRenderer renderer = (StyledTiledMapRenderer) painter;
+            // The tiles of these zoom levels are kept up to date when the data changes (the renderer prefetches zoom +/- 1)
+            updateCachedZooms(zoom);
+            final TileZXY centerTile = TileZXY.latLonToTile(box.getCenter().lat(), box.getCenter().lon(), zoom);
+            lastTileSize = mv.getPoint(new TileZXY(zoom, centerTile.x() + 1, centerTile.y())).x - mv.getPoint(centerTile).x;
             renderer.setCache(box, this.cache, zoom, (tile) -> {
                 /* This causes "bouncing". I'm not certain why.
                 if (oldState.equalsInWindow(mv.getState())) { (oldstate = mv.getState())
@@ -1234,7 +1238,7 @@ public class OsmDataLayer extends AbstractOsmDataLayer
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
-        resetTiles(event.getPrimitives());
+        invalidateTiles(event);
         invalidate();
         setRequiresSaveToFile(true);
         setRequiresUploadToServer(event.getDataset().requiresUploadToServer());
@@ -1248,7 +1252,66 @@ public class OsmDataLayer extends AbstractOsmDataLayer
         invalidate();
     }
 
+    /**
+     * Mark the tiles showing the changes of an event as dirty
+     * @param event The event
+     */
+    private void invalidateTiles(AbstractDatasetChangedEvent event) {
+        if (cachedZooms.isEmpty()) {
+            return;
+        }
+        if (event instanceof DataChangedEvent) {
+            final List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null || events.size() > 100) {
+                dirtyAll();
+            } else {
+                events.forEach(this::invalidateTiles);
+            }
+        } else if (event instanceof NodeMovedEvent) {
+            invalidateTiles((NodeMovedEvent) event);
+        } else if (event instanceof WayNodesChangedEvent) {
+            final WayNodesChangedEvent wayNodesChangedEvent = (WayNodesChangedEvent) event;
+            final Way way = wayNodesChangedEvent.getChangedWay();
+            final BBox bbox = new BBox(way);
+            bbox.add(wayNodesChangedEvent.getOldBBox());
+            resetBounds(bbox, getStyleExtent(way));
+        } else if (event instanceof TagsChangedEvent) {
+            final OsmPrimitive primitive = ((TagsChangedEvent) event).getPrimitive();
+            // The style used before the change is not known anymore, it may have had a label
+            resetBounds(primitive.getBBox(), Math.max(getStyleExtent(primitive), StyledTiledMapRenderer.PREFERENCE_LABEL_EXTENT.get()));
+        } else {
+            resetTiles(event.getPrimitives());
+        }
+    }
+
+    private void invalidateTiles(NodeMovedEvent event) {
+        final Node node = event.getNode();
+        final BBox bbox = new BBox(node);
+        bbox.add(event.getOldCoor());
+        int extent = getStyleExtent(node);
+        for (Way way : node.getParentWays()) {
+            final int wayExtent = getStyleExtent(way);
+            extent = Math.max(extent, wayExtent);
+            if (way.isClosed() && wayExtent >= StyledTiledMapRenderer.PREFERENCE_LABEL_EXTENT.get()) {
+                // The area has a label or an icon, which may move anywhere inside of it
+                bbox.add(way.getBBox());
+            } else {
+                // Only the segments connected to the node have changed
+                for (int i = 0; i < way.getNodesCount(); i++) {
+                    if (way.getNode(i) == node) {
+                        bbox.add(way.getNode(i > 0 ? i - 1 : i));
+                        bbox.add(way.getNode(i < way.getNodesCount() - 1 ? i + 1 : i));
+                    }
+                }
+            }
+        }
+        resetBounds(bbox, extent);
+    }
+
     private void resetTiles(Collection<? extends IPrimitive> primitives) {
+        if (cachedZooms.isEmpty()) {
+            return;
+        }
         if (primitives.size() >= this.data.allNonDeletedCompletePrimitives().size() || primitives.size() > 100) {
             dirtyAll();
             return;
@@ -1262,6 +1325,7 @@ public class OsmDataLayer extends AbstractOsmDataLayer
         // Most of the time, a selection is going to be a big box.
         // So we want to optimize for that case.
         BBox box = null;
+        int extent = 0;
         for (IPrimitive primitive : primitives) {
             if (primitive == null || primitive.getDataSet() != this.getDataSet()) continue;
             final Collection<? extends IPrimitive> referrers = primitive.getReferrers();
@@ -1270,22 +1334,25 @@ public class OsmDataLayer extends AbstractOsmDataLayer
             } else {
                 box.addPrimitive(primitive, 0);
             }
+            extent = Math.max(extent, getStyleExtent(primitive));
             for (IPrimitive referrer : referrers) {
                 box.addPrimitive(referrer, 0);
+                extent = Math.max(extent, getStyleExtent(referrer));
             }
         }
         if (box != null) {
-            resetBounds(box.getMinLat(), box.getMinLon(), box.getMaxLat(), box.getMaxLon());
+            resetBounds(box, extent);
         }
     }
 
     private void resetTiles(IPrimitive p) {
+        final int extent = getStyleExtent(p);
         if (p instanceof INode) {
-            resetBounds(getInvalidatedBBox((INode) p, null));
+            resetBounds(getInvalidatedBBox((INode) p, null), extent);
         } else if (p instanceof IWay) {
             IWay<?> way = (IWay<?>) p;
             for (int i = 0; i < way.getNodesCount() - 1; i++) {
-                resetBounds(getInvalidatedBBox(way.getNode(i), way.getNode(i + 1)));
+                resetBounds(getInvalidatedBBox(way.getNode(i), way.getNode(i + 1)), extent);
             }
         } else if (p instanceof IRelation<?>) {
             for (IPrimitive member : ((IRelation<?>) p).getMemberPrimitivesList()) {
@@ -1304,31 +1371,89 @@ public class OsmDataLayer extends AbstractOsmDataLayer
         return bbox;
     }
 
-    private void resetBounds(IBounds bbox) {
-        resetBounds(bbox.getMinLat(), bbox.getMinLon(), bbox.getMaxLat(), bbox.getMaxLon());
+    /**
+     * Get how far the styles of a primitive may be painted outside of its bbox
+     * @param primitive The primitive
+     * @return The extent in pixels
+     */
+    private static int getStyleExtent(IPrimitive primitive) {
+        if (!MainApplication.isDisplayingMapView()) {
+            return StyledTiledMapRenderer.PREFERENCE_LABEL_EXTENT.get();
+        }
+        return StyledTiledMapRenderer.getStyleExtent(primitive, MainApplication.getMap().mapView);
     }
 
-    private void resetBounds(double minLat, double minLon, double maxLat, double maxLon) {
-        // Get the current zoom. Hopefully we aren't painting with a different navigatable component
-        final int currentZoom = lastZoom;
-        final AtomicInteger counter = new AtomicInteger();
-        TileZXY.boundsToTiles(minLat, minLon, maxLat, maxLon, currentZoom, 1).limit(100).forEach(tile -> {
-            final ImageCache imageCache = this.cache.get(tile);
-            if (imageCache != null && !imageCache.isDirty()) {
-                this.cache.put(tile, imageCache.becomeDirty());
+    /**
+     * Mark the tiles covering a bbox as dirty, at all zoom levels
+     * @param bbox The bbox
+     * @param extent The distance in pixels around the bbox which must also be marked as dirty
+     */
+    private void resetBounds(BBox bbox, int extent) {
+        if (!bbox.isValid()) {
+            return;
+        }
+        final int tileSize = lastTileSize;
+        final double margin = tileSize > 0 ? extent / (double) tileSize : 1;
+        for (int zoom : cachedZooms) {
+            final Pair<TileZXY, TileZXY> range = TileZXY.boundsToTileRange(bbox, zoom, margin);
+            final int minX = range.a.x();
+            final int minY = range.a.y();
+            final int maxX = range.b.x();
+            final int maxY = range.b.y();
+            if ((long) (maxX - minX + 1) * (maxY - minY + 1) <= 100) {
+                for (int x = minX; x <= maxX; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        resetTile(new TileZXY(zoom, x, y));
+                    }
+                }
+            } else {
+                // Only look at the tiles in the cache
+                this.cache.getMatching("TileZXY\\{" + zoom + "/.*").keySet().stream()
+                        .filter(tile -> tile.x() >= minX && tile.x() <= maxX && tile.y() >= minY && tile.y() <= maxY)
+                        .forEach(this::resetTile);
             }
-            counter.incrementAndGet();
-        });
-        if (counter.get() > 100) {
-            dirtyAll();
+        }
+    }
+
+    private void resetTile(TileZXY tile) {
+        ImageCache imageCache = this.cache.get(tile);
+        while (imageCache != null) {
+            // This waits for a pending rendering which is caching its image
+            final ImageCache dirty = imageCache.invalidate();
+            final ImageCache current = this.cache.get(tile);
+            if (current != imageCache) {
+                // The rendering cached its image before being cancelled, it may not include the change
+                imageCache = current;
+                continue;
+            }
+            if (dirty == null) {
+                this.cache.remove(tile);
+            } else if (dirty != imageCache) {
+                this.cache.put(tile, dirty);
+            }
+            return;
         }
     }
 
     private void dirtyAll() {
-        this.cache.getMatching(".*").forEach((key, value) -> {
-            this.cache.remove(key);
-            this.cache.put(key, value.becomeDirty());
-        });
+        this.cache.getMatching(".*").keySet().forEach(this::resetTile);
+    }
+
+    /**
+     * Keep the tiles of the zoom levels around the given zoom level up to date when the data changes. The tiles of the other
+     * zoom levels are marked as dirty, they are rendered again if their zoom level is shown again.
+     * @param zoom The zoom level of the view
+     */
+    void updateCachedZooms(int zoom) {
+        final Set<Integer> zooms = new HashSet<>(Arrays.asList(zoom - 1, zoom, zoom + 1));
+        zooms.remove(-1);
+        for (Integer cachedZoom : cachedZooms) {
+            if (!zooms.contains(cachedZoom)) {
+                cachedZooms.remove(cachedZoom);
+                this.cache.getMatching("TileZXY\\{" + cachedZoom + "/.*").keySet().forEach(this::resetTile);
+            }
+        }
+        cachedZooms.addAll(zooms);
     }
 
     /**
@@ -1539,7 +1664,11 @@ public class OsmDataLayer extends AbstractOsmDataLayer
 
     @Override
     public boolean autosave(File file) throws IOException {
-        new OsmExporter().exportData(file, this, true /* no backup with appended ~ */);
+        OsmExporter exporter = new OsmPbfExporter(true);
+        if (!exporter.acceptFile(file, this)) {
+            exporter = new OsmExporter();
+        }
+        exporter.exportData(file, this, true /* no backup with appended ~ */);
         return true;
     }
 
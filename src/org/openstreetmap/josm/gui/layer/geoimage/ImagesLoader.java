@@ -5,6 +5,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,11 +16,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.io.importexport.ImageImporter;
@@ -37,7 +43,7 @@ import org.openstreetmap.josm.tools.Utils;
  */
 final class ImagesLoader extends PleaseWaitRunnable {
 
-    private boolean canceled;
+    private volatile boolean canceled;
     private final List<GeoImageLayer> layers = new ArrayList<>();
     private final Collection<File> selection;
     private final Set<String> loadedDirectories = new HashSet<>();
@@ -45,6 +51,8 @@ final class ImagesLoader extends PleaseWaitRunnable {
     private final GpxLayer gpxLayer;
 
     private static final BooleanProperty PROP_ONE_LAYER_PER_FOLDER = new BooleanProperty("geoimage.one-layer-per-folder", false);
+    private static final IntegerProperty PROP_THREADS = new IntegerProperty("geoimage.loader.numberOfThreads",
+            Runtime.getRuntime().availableProcessors());
 
     /**
      * Constructs a new {@code ImagesLoader}.
@@ -63,7 +71,6 @@ final class ImagesLoader extends PleaseWaitRunnable {
     }
 
     @Override
-    @SuppressWarnings("PMD.PreserveStackTrace")
     protected void realRun() throws IOException {
         progressMonitor.subTask(tr("Starting directory scan"));
         Collection<File> files = new ArrayList<>();
@@ -79,29 +86,28 @@ final class ImagesLoader extends PleaseWaitRunnable {
         progressMonitor.subTask(tr("Read photos..."));
         progressMonitor.setTicksCount(files.size());
 
-        // read the image files
+        // read the image files, the EXIF headers are read in parallel and the entries are added in file order
         Map<String, List<ImageEntry>> entries = new TreeMap<>();
-
-        for (File f : files) {
-
-            if (canceled) {
-                break;
+        final int threads = Math.max(1, Math.min(files.size(), PROP_THREADS.get()));
+        final ExecutorService readers = Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("geoimage-exif-reader-%d", Thread.NORM_PRIORITY));
+        try {
+            final List<Future<ImageEntry>> futures = new ArrayList<>(files.size());
+            for (File f : files) {
+                futures.add(readers.submit(() -> readImageEntry(f)));
             }
-
-            progressMonitor.subTask(tr("Reading {0}...", f.getName()));
-            progressMonitor.worked(1);
-
-            ImageEntry e = new ImageEntry(f);
-            try {
-                e.extractExif();
-            } catch (UncheckedIOException uncheckedIOException) {
-                // We want to throw the actual IOException that is wrapped, not the unchecked IO exception.
-                // See #23866
-                Logging.trace(uncheckedIOException);
-                throw uncheckedIOException.getCause();
+            for (Future<ImageEntry> future : futures) {
+                if (canceled) {
+                    break;
+                }
+                ImageEntry e = getImageEntry(future);
+                progressMonitor.subTask(tr("Reading {0}...", e.getFile().getName()));
+                progressMonitor.worked(1);
+                File parentFile = e.getFile().getParentFile();
+                entries.computeIfAbsent(parentFile != null ? parentFile.getName() : "", x -> new ArrayList<>()).add(e);
             }
-            File parentFile = f.getParentFile();
-            entries.computeIfAbsent(parentFile != null ? parentFile.getName() : "", x -> new ArrayList<>()).add(e);
+        } finally {
+            readers.shutdownNow();
         }
         if (Boolean.TRUE.equals(PROP_ONE_LAYER_PER_FOLDER.get())) {
             entries.entrySet().stream().map(e -> new GeoImageLayer(e.getValue(), gpxLayer, e.getKey())).forEach(layers::add);
@@ -111,6 +117,37 @@ final class ImagesLoader extends PleaseWaitRunnable {
         files.clear();
     }
 
+    private ImageEntry readImageEntry(File f) {
+        ImageEntry e = new ImageEntry(f);
+        if (!canceled) {
+            e.extractExif();
+        }
+        return e;
+    }
+
+    @SuppressWarnings("PMD.PreserveStackTrace")
+    private static ImageEntry getImageEntry(Future<ImageEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                // We want to throw the actual IOException that is wrapped, not the unchecked IO exception.
+                // See #23866
+                Logging.trace(cause);
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     private void addRecursiveFiles(Collection<File> files, Collection<File> sel) {
         boolean nullFile = false;
 
@@ -8,6 +8,9 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.jcs3.access.behavior.ICacheAccess;
 import org.apache.commons.jcs3.engine.behavior.ICache;
@@ -17,11 +20,13 @@ import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Stopwatch;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Loads thumbnail previews for a list of images from a {@link GeoImageLayer}.
  *
- * Thumbnails are loaded in the background and cached on disk for the next session.
+ * Thumbnails are loaded in the background, by several threads (see {@code geoimage.thumbnail.numberOfThreads}),
+ * and cached on disk for the next session.
  */
 public class ThumbsLoader implements Runnable {
     public static final int maxSize = 120;
@@ -66,22 +71,32 @@ public class ThumbsLoader implements Runnable {
 
     @Override
     public void run() {
-        int count = 0;
         Stopwatch stopwatch = Stopwatch.createStarted();
         Logging.debug("Loading {0} thumbnails", data.size());
-        for (ImageEntry entry : data) {
-            if (stop) return;
-
-            // Do not load thumbnails that were loaded before.
-            if (!entry.hasThumbnail()) {
-                entry.setThumbnail(loadThumb(entry));
-
-                if (layer != null && MainApplication.isDisplayingMapView()) {
-                    layer.updateBufferAndRepaint();
-                }
+        final ForkJoinPool pool = data.size() > 1
+                ? Utils.newForkJoinPool("geoimage.thumbnail.numberOfThreads", "thumbnail-decoder-%d", Thread.MIN_PRIORITY)
+                : null;
+        final AtomicInteger count = new AtomicInteger();
+        try {
+            if (pool != null) {
+                // the thumbnails are shown as soon as they are loaded, in any order
+                pool.submit(() -> data.parallelStream().forEach(entry -> loadThumbnail(entry, count))).get();
+            } else {
+                data.forEach(entry -> loadThumbnail(entry, count));
+            }
+        } catch (InterruptedException e) {
+            Logging.trace(e);
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            Logging.error(e);
+            return;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
-            count++;
         }
+        if (stop) return;
         Logging.debug("Loaded {0} thumbnails in {1}", count, stopwatch);
         if (layer != null) {
             layer.thumbsLoaded();
@@ -89,6 +104,20 @@ public class ThumbsLoader implements Runnable {
         }
     }
 
+    private void loadThumbnail(ImageEntry entry, AtomicInteger count) {
+        if (stop) return;
+
+        // Do not load thumbnails that were loaded before.
+        if (!entry.hasThumbnail()) {
+            entry.setThumbnail(loadThumb(entry));
+
+            if (layer != null && MainApplication.isDisplayingMapView()) {
+                layer.updateBufferAndRepaint();
+            }
+        }
+        count.incrementAndGet();
+    }
+
     private BufferedImage loadThumb(ImageEntry entry) {
         final String cacheIdent = entry.getFile().toString() + ICache.NAME_COMPONENT_DELIMITER + maxSize;
 
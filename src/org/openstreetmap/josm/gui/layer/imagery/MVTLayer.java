@@ -108,6 +108,7 @@ public class MVTLayer extends AbstractCachedTileSourceLayer<MapboxVectorTileSour
     @Override
     public void paint(Graphics2D g, MapView mv, Bounds box) {
         this.dataSet.setZoom(this.getZoomLevel());
+        this.dataSet.markTilesInView(box);
         AbstractMapRenderer painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, false);
         painter.enableSlowOperations(mv.getMapMover() == null || !mv.getMapMover().movementInProgress()
           || !OsmDataLayer.PROPERTY_HIDE_LABELS_WHILE_DRAGGING.get());
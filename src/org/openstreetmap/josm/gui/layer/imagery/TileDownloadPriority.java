@@ -0,0 +1,107 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.imagery;
+
+import java.util.Objects;
+
+/**
+ * The download priority of the tiles for a given view, see
+ * {@link org.openstreetmap.josm.data.imagery.TMSCachedTileLoader#setTilePriority}.
+ * <p>
+ * The visible tiles are downloaded first, from the center of the view to its edges. Then come the tiles of the ring
+ * around the view which are loaded in advance for panning, then the tiles of the other zoom levels, the closest
+ * zoom levels first.
+ * @since xxx
+ */
+public final class TileDownloadPriority {
+    /** The number of tiles around the view which are loaded in advance, at the zoom level of the view */
+    public static final int RING = 1;
+    /** The number of zoom levels above the zoom level of the view for which tiles are still needed */
+    public static final int MAX_HIGHER_ZOOM = 2;
+
+    private final int zoom;
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    /**
+     * Constructs a new {@code TileDownloadPriority}.
+     * @param zoom the zoom level of the view
+     * @param minX the minimum X coordinate of the visible tiles
+     * @param minY the minimum Y coordinate of the visible tiles
+     * @param maxX the maximum X coordinate of the visible tiles
+     * @param maxY the maximum Y coordinate of the visible tiles
+     */
+    public TileDownloadPriority(int zoom, int minX, int minY, int maxX, int maxY) {
+        this.zoom = zoom;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Returns the scale from the coordinates of the tiles at the given zoom level to the zoom level of the view
+     * @param tileZoom the zoom level of the tile
+     * @return the size of a tile at the given zoom level, in tiles of the zoom level of the view
+     */
+    private double getScale(int tileZoom) {
+        return Math.scalb(1d, zoom - tileZoom);
+    }
+
+    private boolean isVisible(TilePosition tile, int ring) {
+        final double scale = getScale(tile.getZoom());
+        final double x = tile.getX() * scale;
+        final double y = tile.getY() * scale;
+        return x + scale > minX - ring && x < maxX + 1 + ring && y + scale > minY - ring && y < maxY + 1 + ring;
+    }
+
+    /**
+     * Returns the download priority of a tile.
+     * @param tile the tile
+     * @return the priority, lower values are downloaded first
+     */
+    public long getPriority(TilePosition tile) {
+        final long tier;
+        if (tile.getZoom() == zoom) {
+            tier = isVisible(tile, 0) ? 0 : 1;
+        } else {
+            tier = 1L + Math.abs(tile.getZoom() - zoom);
+        }
+        final double scale = getScale(tile.getZoom());
+        final double distance = Math.abs((tile.getX() + 0.5) * scale - (minX + maxX + 1) / 2d)
+                + Math.abs((tile.getY() + 0.5) * scale - (minY + maxY + 1) / 2d);
+        // distance in 1/16 of tiles, so that the tiles of other zoom levels are sorted too
+        return (tier << Integer.SIZE) + (long) Math.min(distance * 16, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determines if a tile is not needed anymore for this view: it is neither visible nor in the ring around the view,
+     * or it is too detailed to be displayed.
+     * @param tile the tile
+     * @return {@code true} if the download of the tile can be cancelled
+     */
+    public boolean isStale(TilePosition tile) {
+        return tile.getZoom() > zoom + MAX_HIGHER_ZOOM || !isVisible(tile, RING);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        TileDownloadPriority other = (TileDownloadPriority) obj;
+        return zoom == other.zoom && minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(zoom, minX, minY, maxX, maxY);
+    }
+
+    @Override
+    public String toString() {
+        return "TileDownloadPriority [zoom=" + zoom + ", minX=" + minX + ", minY=" + minY + ", maxX=" + maxX + ", maxY=" + maxY + ']';
+    }
+}
@@ -269,7 +269,7 @@ public class ElemStyles implements PreferenceChangedListener {
                 if (!drawMultipolygon || !r.isMultipolygon() || !r.isUsable() || !(r instanceof Relation)) {
                     continue;
                 }
-                Multipolygon multipolygon = MultipolygonCache.getInstance().get((Relation) r);
+                Multipolygon multipolygon = MultipolygonCache.getInstance().getForRendering((Relation) r);
 
                 if (multipolygon.getOuterWays().contains(osm)) {
                     boolean hasIndependentLineStyle = false;
@@ -339,7 +339,7 @@ public class ElemStyles implements PreferenceChangedListener {
                 if (!drawMultipolygon || !ref.isMultipolygon() || !ref.isUsable() || !(ref instanceof Relation)) {
                     continue;
                 }
-                final Multipolygon multipolygon = MultipolygonCache.getInstance().get((Relation) ref);
+                final Multipolygon multipolygon = MultipolygonCache.getInstance().getForRendering((Relation) ref);
 
                 if (multipolygon.getInnerWays().contains(osm)) {
                     p = generateStyles(osm, scale, false);
@@ -8,6 +8,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities;
@@ -300,19 +302,54 @@ public final class MapPaintStyles {
                 Logging.error(e);
             }
         }
-        for (StyleSource source : styles.getStyleSources()) {
-            if (source.active) {
-                loadStyleForFirstTime(source);
-            } else {
+        final List<StyleSource> sources = styles.getStyleSources();
+        // the styles are independent: they are downloaded and parsed in parallel, and registered in their order
+        CachedFile.prefetch(sources.stream().filter(source -> source.active).map(source -> source.url).collect(Collectors.toList()),
+                MapCSSStyleSource.MAPCSS_STYLE_MIME_TYPES);
+        // the loading may block on I/O, so it does not run in the common pool. The tasks of the parallel stream are run
+        // by the pool of the task which starts it
+        final ForkJoinPool pool = Utils.newForkJoinPool("mappaint.sources.numberOfThreads", "mappaint-reader-%d", Thread.NORM_PRIORITY);
+        final List<String> loaded;
+        try {
+            loaded = pool.submit(() -> sources.parallelStream().map(source -> {
+                if (source.active) {
+                    return loadStyle(source);
+                }
                 source.loadStyleSource(true);
+                return null;
+            }).collect(Collectors.toList())).join();
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).active) {
+                registerStyle(sources.get(i), loaded.get(i));
             }
         }
         fireMapPaintStylesUpdated();
     }
 
     private static void loadStyleForFirstTime(StyleSource source) {
+        registerStyle(source, loadStyle(source));
+    }
+
+    /**
+     * Loads a style.
+     * @param source the style source
+     * @return the log message with the loading time
+     */
+    private static String loadStyle(StyleSource source) {
         final Stopwatch stopwatch = Stopwatch.createStarted();
         source.loadStyleSource();
+        return stopwatch.toString("Initializing map style " + source.url);
+    }
+
+    /**
+     * Watches a loaded style for changes if it is local, and logs its loading.
+     * @param source the style source
+     * @param message the log message with the loading time
+     */
+    private static void registerStyle(StyleSource source, String message) {
         if (Config.getPref().getBoolean("mappaint.auto_reload_local_styles", true) && source.isLocal()) {
             try {
                 FileWatcher.getDefaultInstance().registerSource(source);
@@ -320,13 +357,10 @@ public final class MapPaintStyles {
                 Logging.error(e);
             }
         }
-        if (Logging.isDebugEnabled() || !source.isValid()) {
-            String message = stopwatch.toString("Initializing map style " + source.url);
-            if (!source.isValid()) {
-                Logging.warn(message + " (" + source.getErrors().size() + " errors, " + source.getWarnings().size() + " warnings)");
-            } else {
-                Logging.debug(message);
-            }
+        if (!source.isValid()) {
+            Logging.warn(message + " (" + source.getErrors().size() + " errors, " + source.getWarnings().size() + " warnings)");
+        } else {
+            Logging.debug(message);
         }
     }
 
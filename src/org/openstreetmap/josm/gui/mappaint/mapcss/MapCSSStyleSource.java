@@ -153,47 +153,34 @@ public class MapCSSStyleSource extends StyleSource {
 
     @Override
     public void loadStyleSource(boolean metadataOnly) {
+        // the style is parsed into a temporary source without the lock, so that the styles can be parsed in parallel
+        // while the map is painted. The parsed rules are then swapped in under the lock.
+        final MapCSSStyleSource parsed = new MapCSSStyleSource((SourceEntry) this);
+        // remove "areaStyle" pseudo classes intended only for validator (causes StackOverflowError otherwise), see #16183
+        parsed.removeAreaStylePseudoClass = url == null || !url.contains("validator"); // resource://data/validator/ or xxx.validator.mapcss
+        parse(parsed);
         STYLE_SOURCE_LOCK.writeLock().lock();
         try {
             init();
             rules.clear();
             ruleIndex.clear();
-            // remove "areaStyle" pseudo classes intended only for validator (causes StackOverflowError otherwise), see #16183
-            removeAreaStylePseudoClass = url == null || !url.contains("validator"); // resource://data/validator/ or xxx.validator.mapcss
-            try (InputStream in = getSourceInputStream()) {
-                try (Reader reader = new BufferedReader(UTFInputStreamReader.create(in))) {
-                    // evaluate @media { ... } blocks
-                    MapCSSParser preprocessor = new MapCSSParser(reader, MapCSSParser.LexicalState.PREPROCESSOR);
-
-                    // do the actual mapcss parsing
-                    try (Reader in2 = new StringReader(preprocessor.pp_root(this))) {
-                        new MapCSSParser(in2, MapCSSParser.LexicalState.DEFAULT).sheet(this);
-                    }
-
-                    loadMeta();
-                    if (!metadataOnly) {
-                        loadCanvas();
-                        loadSettings();
-                    } else {
-                        rules.clear();
-                    }
-                } finally {
-                    closeSourceInputStream(in);
+            removeAreaStylePseudoClass = parsed.removeAreaStylePseudoClass;
+            rules.addAll(parsed.rules);
+            parsed.getErrors().forEach(this::logError);
+            parsed.getWarnings().forEach(this::logWarning);
+            try {
+                loadMeta();
+                if (!metadataOnly) {
+                    loadCanvas();
+                    loadSettings();
                 }
-            } catch (IOException | IllegalArgumentException e) {
+            } catch (IllegalArgumentException e) {
                 Logging.warn(tr("Failed to load Mappaint styles from ''{0}''. Exception was: {1}", url, e.toString()));
                 Logging.log(Logging.LEVEL_ERROR, e);
                 logError(e);
-            } catch (TokenMgrError e) {
-                Logging.warn(tr("Failed to parse Mappaint styles from ''{0}''. Error was: {1}", url, e.getMessage()));
-                Logging.error(e);
-                logError(e);
-            } catch (ParseException e) {
-                Logging.warn(tr("Failed to parse Mappaint styles from ''{0}''. Error was: {1}", url, e.getMessage()));
-                Logging.error(e);
-                logError(new ParseException(e.getMessage())); // allow e to be garbage collected, it links to the entire token stream
             }
             if (metadataOnly) {
+                rules.clear();
                 return;
             }
             // optimization: filter rules for different primitive types
@@ -204,6 +191,38 @@ public class MapCSSStyleSource extends StyleSource {
         }
     }
 
+    /**
+     * Parses this style source into the given temporary style source.
+     * @param parsed the style source receiving the parsed rules and the errors
+     */
+    private void parse(MapCSSStyleSource parsed) {
+        try (InputStream in = getSourceInputStream()) {
+            try (Reader reader = new BufferedReader(UTFInputStreamReader.create(in))) {
+                // evaluate @media { ... } blocks
+                MapCSSParser preprocessor = new MapCSSParser(reader, MapCSSParser.LexicalState.PREPROCESSOR);
+
+                // do the actual mapcss parsing
+                try (Reader in2 = new StringReader(preprocessor.pp_root(parsed))) {
+                    new MapCSSParser(in2, MapCSSParser.LexicalState.DEFAULT).sheet(parsed);
+                }
+            } finally {
+                closeSourceInputStream(in);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            Logging.warn(tr("Failed to load Mappaint styles from ''{0}''. Exception was: {1}", url, e.toString()));
+            Logging.log(Logging.LEVEL_ERROR, e);
+            parsed.logError(e);
+        } catch (TokenMgrError e) {
+            Logging.warn(tr("Failed to parse Mappaint styles from ''{0}''. Error was: {1}", url, e.getMessage()));
+            Logging.error(e);
+            parsed.logError(e);
+        } catch (ParseException e) {
+            Logging.warn(tr("Failed to parse Mappaint styles from ''{0}''. Error was: {1}", url, e.getMessage()));
+            Logging.error(e);
+            parsed.logError(new ParseException(e.getMessage())); // allow e to be garbage collected, it links to the entire token stream
+        }
+    }
+
     @Override
     public InputStream getSourceInputStream() throws IOException {
         if (css != null) {
@@ -109,6 +109,30 @@ public class LineElement extends StyleElement {
         this.wayDirectionArrows = wayDirectionArrows;
     }
 
+    /**
+     * Returns the width of the line in pixels, not considering its real width
+     * @return the width of the line in pixels
+     * @since xxx
+     */
+    public float getLineWidth() {
+        return line.getLineWidth();
+    }
+
+    /**
+     * Returns how far from the way a line of the given width is drawn, in pixels, not considering the arrows drawn along it
+     * @param width the width of the line in pixels, see {@link #getLineWidth()}
+     * @return the distance from the way, including the joins and caps of the line and its offset
+     * @since xxx
+     */
+    public float getExtent(float width) {
+        // a miter join ends up to miterlimit half widths from its node, a square cap up to sqrt(2) half widths
+        float factor = (float) Math.sqrt(2);
+        if (line.getLineJoin() == BasicStroke.JOIN_MITER) {
+            factor = Math.max(factor, line.getMiterLimit());
+        }
+        return width / 2 * factor + Math.abs(offset);
+    }
+
     @Override
     public void paintPrimitive(IPrimitive primitive, MapPaintSettings paintSettings, StyledMapRenderer painter,
             boolean selected, boolean outermember, boolean member) {
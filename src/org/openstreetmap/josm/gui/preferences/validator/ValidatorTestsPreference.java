@@ -50,6 +50,7 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
     private JCheckBox prefUseLayer;
     private JCheckBox prefOtherUpload;
     private JCheckBox prefOther;
+    private JCheckBox prefLive;
 
     /** The list of all tests */
     private Collection<Test> allTests;
@@ -76,6 +77,10 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
         prefOtherUpload.setToolTipText(tr("Show the informational tests in the upload check windows."));
         testPanel.add(prefOtherUpload, GBC.eol());
 
+        prefLive = new JCheckBox(tr("Validate modified objects while editing."), ValidatorPrefHelper.PREF_LIVE.get());
+        prefLive.setToolTipText(tr("Validate the modified objects again after each change, while the validation results are shown."));
+        testPanel.add(prefLive, GBC.eol());
+
         ActionListener otherUploadEnabled = e -> prefOtherUpload.setEnabled(prefOther.isSelected());
         prefOther.addActionListener(otherUploadEnabled);
         otherUploadEnabled.actionPerformed(null);
@@ -124,6 +129,7 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
         ValidatorPrefHelper.PREF_OTHER.put(prefOther.isSelected());
         ValidatorPrefHelper.PREF_OTHER_UPLOAD.put(prefOtherUpload.isSelected());
         ValidatorPrefHelper.PREF_LAYER.put(prefUseLayer.isSelected());
+        ValidatorPrefHelper.PREF_LIVE.put(prefLive.isSelected());
         return false;
     }
 
@@ -0,0 +1,160 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openstreetmap.josm.data.Version;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Disk cache of the parsed tagging preset sources.
+ * <p>
+ * The XML of a source is stored as the events recorded by {@link org.openstreetmap.josm.tools.XmlObjectParser#record(java.io.Reader)},
+ * in a file named after the SHA-256 hash of the source URL. The file also stores the SHA-256 hash of the XML and the JOSM version:
+ * the cached events are only used if they were read from the same XML by the same version, so that the XML is neither
+ * parsed nor validated again at each start.
+ * @since xxx
+ */
+final class TaggingPresetCache {
+
+    /**
+     * Whether the parsed tagging preset sources are cached on disk
+     */
+    static final BooleanProperty USE_CACHE = new BooleanProperty("taggingpreset.cache", true);
+
+    private static final int MAGIC = 0x4a505243; // JPRC
+    private static final int FORMAT = 1;
+
+    private TaggingPresetCache() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given bytes.
+     * @param bytes the bytes
+     * @return the SHA-256 hash
+     */
+    static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    private static File getFile(String source, boolean validate) {
+        final String key = (validate ? "validated:" : "") + source;
+        return new File(new File(Config.getDirs().getCacheDirectory(true), "presets"),
+                Utils.toHexString(sha256(key.getBytes(StandardCharsets.UTF_8))) + ".bin");
+    }
+
+    /**
+     * Returns the cached events of a source.
+     * @param source the source URL
+     * @param validate whether the XML was validated against the schema
+     * @param hash the SHA-256 hash of the XML of the source
+     * @return the cached events, or {@code null} if the source is not cached, or was cached from another XML or JOSM version
+     */
+    static List<String[]> get(String source, boolean validate, byte[] hash) {
+        if (!USE_CACHE.get()) {
+            return null;
+        }
+        final File file = getFile(source, validate);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT || in.readInt() != Version.getInstance().getVersion()) {
+                return null;
+            }
+            final byte[] cachedHash = new byte[hash.length];
+            in.readFully(cachedHash);
+            if (!Arrays.equals(hash, cachedHash)) {
+                return null;
+            }
+            final int size = in.readInt();
+            final List<String[]> events = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final String[] event = new String[in.readInt()];
+                for (int j = 0; j < event.length; j++) {
+                    event[j] = readString(in);
+                }
+                events.add(event);
+            }
+            return events;
+        } catch (IOException | RuntimeException e) {
+            Logging.warn("Failed to read the cached presets of {0}: {1}", source, e);
+            return null;
+        }
+    }
+
+    /**
+     * Caches the events of a source.
+     * @param source the source URL
+     * @param validate whether the XML was validated against the schema
+     * @param hash the SHA-256 hash of the XML of the source
+     * @param events the events of the XML
+     */
+    static void put(String source, boolean validate, byte[] hash, List<String[]> events) {
+        if (!USE_CACHE.get()) {
+            return;
+        }
+        final File file = getFile(source, validate);
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            // the file is written next to the cache file, then moved, so that it is never read while it is written
+            tmp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeInt(Version.getInstance().getVersion());
+                out.write(hash);
+                out.writeInt(events.size());
+                for (String[] event : events) {
+                    out.writeInt(event.length);
+                    for (String string : event) {
+                        writeString(out, string);
+                    }
+                }
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Logging.warn("Failed to cache the presets of {0}: {1}", source, e);
+            if (tmp != null) {
+                Utils.deleteFile(tmp.toFile());
+            }
+        }
+    }
+
+    // DataOutputStream.writeUTF is limited to 64 KiB, which the text of a preset may exceed
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,148 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.gui.tagging.presets.items.CheckGroup;
+import org.openstreetmap.josm.gui.tagging.presets.items.KeyedItem;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * An index of the tagging presets by the keys of their items, to find the presets which may match some tags.
+ * <p>
+ * A preset matches only if one of its items matches positively, see {@link TaggingPresetItem#matches(Iterable, Map)}.
+ * A {@link KeyedItem} matches positively only if the tags contain its key, so a preset made of such items needs to be
+ * tested only for the tags which contain one of their keys. The presets with other items which may match, and the presets
+ * overriding {@link TaggingPreset#test(IPrimitive)}, are always tested.
+ * <p>
+ * The index cannot be modified and can be queried concurrently. It must be built again when the presets change.
+ * @since xxx
+ */
+final class TaggingPresetIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private final TaggingPreset[] presets;
+    /** the numbers of the presets which may match, by key */
+    private final Map<String, int[]> presetsByKey = new HashMap<>();
+    /** the numbers of the presets which are always tested */
+    private final int[] alwaysTested;
+
+    /**
+     * Constructs a new {@code TaggingPresetIndex}.
+     * @param presets the presets, in the order in which they are returned
+     */
+    TaggingPresetIndex(Collection<TaggingPreset> presets) {
+        this.presets = presets.toArray(new TaggingPreset[0]);
+        final Map<String, List<Integer>> byKey = new HashMap<>();
+        final List<Integer> always = new ArrayList<>();
+        for (int i = 0; i < this.presets.length; i++) {
+            final Set<String> keys = new HashSet<>();
+            boolean indexable = isTestInherited(this.presets[i]);
+            for (TaggingPresetItem item : this.presets[i].data) {
+                indexable &= addMatchKeys(item, keys);
+            }
+            if (!indexable) {
+                always.add(i);
+            } else {
+                for (String key : keys) {
+                    byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        byKey.forEach((key, list) -> presetsByKey.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+        alwaysTested = always.isEmpty() ? EMPTY : always.stream().mapToInt(Integer::intValue).toArray();
+        Logging.debug("Indexed {0} tagging presets by {1} keys, {2} presets are always tested",
+                this.presets.length, presetsByKey.size(), alwaysTested.length);
+    }
+
+    /**
+     * Adds the keys an item needs to match positively.
+     * @param item the preset item
+     * @param keys the keys of the preset
+     * @return {@code false} if the item may match positively whatever the keys of the tags are
+     */
+    private static boolean addMatchKeys(TaggingPresetItem item, Set<String> keys) {
+        if (item instanceof KeyedItem) {
+            final KeyedItem ki = (KeyedItem) item;
+            if (!"none".equals(ki.match) && ki.key != null) {
+                keys.add(ki.key);
+            }
+            return isMatchesInherited(item, KeyedItem.class);
+        } else if (item instanceof CheckGroup) {
+            boolean indexable = isMatchesInherited(item, CheckGroup.class);
+            for (KeyedItem check : ((CheckGroup) item).checks) {
+                indexable &= addMatchKeys(check, keys);
+            }
+            return indexable;
+        }
+        return isMatchesInherited(item, TaggingPresetItem.class);
+    }
+
+    /**
+     * Determines if an item uses the {@link TaggingPresetItem#matches(Map)} implementation of a known class.
+     * Items of plugins may override it.
+     * @param item the item
+     * @param knownClass the class whose implementation is known
+     * @return {@code true} if the item does not override the implementation of the known class
+     */
+    private static boolean isMatchesInherited(TaggingPresetItem item, Class<?> knownClass) {
+        try {
+            return item.getClass().getMethod("matches", Map.class).getDeclaringClass() == knownClass;
+        } catch (NoSuchMethodException | SecurityException e) {
+            Logging.trace(e);
+            return false;
+        }
+    }
+
+    /**
+     * Determines if a preset uses the {@link TaggingPreset#test(IPrimitive)} and
+     * {@link TaggingPreset#matches(Collection, Map, boolean)} implementations of {@link TaggingPreset}.
+     * Presets of plugins may override them.
+     * @param preset the preset
+     * @return {@code true} if the preset does not override the implementations of {@code TaggingPreset}
+     */
+    private static boolean isTestInherited(TaggingPreset preset) {
+        try {
+            final Class<?> c = preset.getClass();
+            return c.getMethod("test", IPrimitive.class).getDeclaringClass() == TaggingPreset.class
+                && c.getMethod("matches", Collection.class, Map.class, boolean.class).getDeclaringClass() == TaggingPreset.class;
+        } catch (NoSuchMethodException | SecurityException e) {
+            Logging.trace(e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the presets which may match the given tags and pass the given test, in the order of the presets.
+     * @param tags the tags
+     * @param test the test of the candidate presets
+     * @return the candidate presets which pass the test
+     */
+    List<TaggingPreset> getMatchingPresets(Map<String, String> tags, Predicate<TaggingPreset> test) {
+        final BitSet candidates = new BitSet(presets.length);
+        for (int i : alwaysTested) {
+            candidates.set(i);
+        }
+        for (String key : tags.keySet()) {
+            for (int i : presetsByKey.getOrDefault(key, EMPTY)) {
+                candidates.set(i);
+            }
+        }
+        final List<TaggingPreset> result = new ArrayList<>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (test.test(presets[i])) {
+                result.add(presets[i]);
+            }
+        }
+        return result;
+    }
+}
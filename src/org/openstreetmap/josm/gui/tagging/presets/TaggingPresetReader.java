@@ -4,6 +4,7 @@ package org.openstreetmap.josm.gui.tagging.presets;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -20,6 +21,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import javax.swing.JOptionPane;
 
@@ -183,6 +189,21 @@ public final class TaggingPresetReader {
      * @throws SAXException if any XML error occurs
      */
     static Collection<TaggingPreset> readAll(Reader in, boolean validate, HashSetWithLast<TaggingPreset> all) throws SAXException {
+        return readAll(read(in, validate), all);
+    }
+
+    private static List<String[]> read(Reader in, boolean validate) throws SAXException {
+        return validate ? XmlObjectParser.recordWithValidation(in, NAMESPACE, SCHEMA_SOURCE) : XmlObjectParser.record(in);
+    }
+
+    /**
+     * Reads all tagging presets from the events of a source.
+     * @param events the events of the source, see {@link XmlObjectParser#record(Reader)}
+     * @param all the accumulator for parsed tagging presets
+     * @return the accumulator
+     * @throws SAXException if any XML error occurs
+     */
+    private static Collection<TaggingPreset> readAll(List<String[]> events, HashSetWithLast<TaggingPreset> all) throws SAXException {
         XmlObjectParser parser = buildParser();
 
         /* to detect end of {@code <checkgroup>} */
@@ -199,11 +220,7 @@ public final class TaggingPresetReader {
         /* lastIdIterators contains non empty iterators of items to be handled before obtaining the next item from the XML parser */
         final Deque<Iterator<Object>> lastIdIterators = new ArrayDeque<>();
 
-        if (validate) {
-            parser.startWithValidation(in, NAMESPACE, SCHEMA_SOURCE);
-        } else {
-            parser.start(in);
-        }
+        parser.start(events);
         while (parser.hasNext() || !lastIdIterators.isEmpty()) {
             final Object o;
             if (!lastIdIterators.isEmpty()) {
@@ -369,26 +386,99 @@ public final class TaggingPresetReader {
      */
     static Collection<TaggingPreset> readAll(String source, boolean validate, HashSetWithLast<TaggingPreset> all)
             throws SAXException, IOException {
-        Collection<TaggingPreset> tp;
+        return readAll(read(source, validate), all);
+    }
+
+    /**
+     * The XML of a tagging preset source, read into events. The sources are read in parallel, but their presets are created
+     * one after another, since the presets of a source may refer to the ones of the previous sources.
+     */
+    private static final class SourceEvents {
+        private final File zipIcons;
+        private final List<String[]> events;
+
+        SourceEvents(File zipIcons, List<String[]> events) {
+            this.zipIcons = zipIcons;
+            this.events = events;
+        }
+    }
+
+    /**
+     * Reads the XML of the given source into events, from the disk cache if the XML has not changed since it was cached.
+     * @param source a given filename, URL or internal resource
+     * @param validate if {@code true}, XML validation will be performed
+     * @return the events of the source
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    private static SourceEvents read(String source, boolean validate) throws SAXException, IOException {
         Logging.debug("Reading presets from {0}", source);
         Stopwatch stopwatch = Stopwatch.createStarted();
+        File zipFile = null;
+        byte[] xml;
         try (
             CachedFile cf = new CachedFile(source).setHttpAccept(PRESET_MIME_TYPES);
             // zip may be null, but Java 7 allows it: https://blogs.oracle.com/darcy/entry/project_coin_null_try_with
             InputStream zip = cf.findZipEntryInputStream("xml", "preset")
         ) {
             if (zip != null) {
-                zipIcons = cf.getFile();
-                I18n.addTexts(zipIcons);
+                zipFile = cf.getFile();
+                xml = zip.readAllBytes();
+            } else {
+                try (InputStream in = cf.getInputStream()) {
+                    xml = in.readAllBytes();
+                }
             }
-            try (InputStreamReader r = UTFInputStreamReader.create(zip == null ? cf.getInputStream() : zip)) {
-                tp = readAll(new BufferedReader(r), validate, all);
+        }
+        final byte[] hash = TaggingPresetCache.sha256(xml);
+        List<String[]> events = TaggingPresetCache.get(source, validate, hash);
+        if (events == null) {
+            try (InputStreamReader r = UTFInputStreamReader.create(new ByteArrayInputStream(xml))) {
+                events = read(new BufferedReader(r), validate);
             }
+            TaggingPresetCache.put(source, validate, hash, events);
+        }
+        Logging.debug(stopwatch.toString("Reading presets from " + source));
+        return new SourceEvents(zipFile, events);
+    }
+
+    private static Collection<TaggingPreset> readAll(SourceEvents source, HashSetWithLast<TaggingPreset> all) throws SAXException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        if (source.zipIcons != null) {
+            zipIcons = source.zipIcons;
+            I18n.addTexts(zipIcons);
         }
+        Collection<TaggingPreset> tp = readAll(source.events, all);
         Logging.debug(stopwatch.toString("Reading presets"));
         return tp;
     }
 
+    /**
+     * Returns the result of a completed {@link #read(String, boolean)} task, or throws its exception.
+     * @param future the completed task
+     * @return the events of the source
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     * @throws InterruptedException if the current thread was interrupted
+     */
+    private static SourceEvents getRead(Future<SourceEvents> future) throws SAXException, IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
     /**
      * Reads all tagging presets from the given sources.
      * @param sources Collection of tagging presets sources.
@@ -408,9 +498,29 @@ public final class TaggingPresetReader {
      */
     public static Collection<TaggingPreset> readAll(Collection<String> sources, boolean validate, boolean displayErrMsg) {
         HashSetWithLast<TaggingPreset> allPresets = new HashSetWithLast<>();
-        for (String source : sources) {
+        // the presets of a source may refer to the ones of the previous sources: the sources are downloaded and parsed
+        // in parallel, and their presets are created in their order
+        CachedFile.prefetch(sources, PRESET_MIME_TYPES);
+        final List<String> sourceList = new ArrayList<>(sources);
+        // the reading may block on I/O, so it does not run in the common pool
+        final ForkJoinPool pool = Utils.newForkJoinPool("taggingpreset.sources.numberOfThreads", "taggingpreset-reader-%d",
+                Thread.NORM_PRIORITY);
+        final List<Future<SourceEvents>> read;
+        try {
+            read = pool.invokeAll(sourceList.stream()
+                    .map(source -> (Callable<SourceEvents>) () -> read(source, validate))
+                    .collect(Collectors.toList()));
+        } finally {
+            pool.shutdown();
+        }
+        for (int n = 0; n < sourceList.size(); n++) {
+            final String source = sourceList.get(n);
             try {
-                readAll(source, validate, allPresets);
+                readAll(getRead(read.get(n)), allPresets);
+            } catch (InterruptedException e) {
+                Logging.trace(e);
+                Thread.currentThread().interrupt();
+                break;
             } catch (IOException e) {
                 Logging.log(Logging.LEVEL_ERROR, e);
                 Logging.error(source);
@@ -32,7 +32,6 @@ import org.openstreetmap.josm.gui.tagging.presets.items.Roles;
 import org.openstreetmap.josm.gui.tagging.presets.items.Roles.Role;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.MultiMap;
-import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 
 /**
  * Class holding Tagging Presets and allowing to manage them.
@@ -47,6 +46,8 @@ public final class TaggingPresets {
     private static final MultiMap<String, String> PRESET_TAG_CACHE = new MultiMap<>();
     /** cache for roles found in the preset */
     private static final Set<String> PRESET_ROLE_CACHE = new HashSet<>();
+    /** index of the presets by key, built when needed */
+    private static TaggingPresetIndex presetIndex;
 
     /** The collection of listeners */
     private static final Collection<TaggingPresetListener> listeners = new ArrayList<>();
@@ -70,6 +71,7 @@ public final class TaggingPresets {
     public static void readFromPreferences() {
         TAGGING_PRESETS.clear();
         TAGGING_PRESETS.addAll(TaggingPresetReader.readFromPreferences(false, false));
+        invalidateIndex();
         cachePresets(TAGGING_PRESETS);
     }
 
@@ -148,6 +150,7 @@ public final class TaggingPresets {
             }
         }
         TAGGING_PRESETS.clear();
+        invalidateIndex();
         PRESET_TAG_CACHE.clear();
         PRESET_ROLE_CACHE.clear();
         MainApplication.getMenu().presetsMenu.removeAll();
@@ -243,7 +246,7 @@ public final class TaggingPresets {
      */
     public static Collection<TaggingPreset> getMatchingPresets(final Collection<TaggingPresetType> t,
                                                                final Map<String, String> tags, final boolean onlyShowable) {
-        return SubclassFilteredCollection.filter(getTaggingPresets(), preset -> preset.matches(t, tags, onlyShowable));
+        return getIndex().getMatchingPresets(tags, preset -> preset.matches(t, tags, onlyShowable));
     }
 
     /**
@@ -255,7 +258,22 @@ public final class TaggingPresets {
      * @since 13623 (signature)
      */
     public static Collection<TaggingPreset> getMatchingPresets(final IPrimitive primitive) {
-        return SubclassFilteredCollection.filter(getTaggingPresets(), preset -> preset.test(primitive));
+        return getIndex().getMatchingPresets(primitive.getKeys(), preset -> preset.test(primitive));
+    }
+
+    /**
+     * Returns the index of the presets by key, see {@link #getMatchingPresets(IPrimitive)}.
+     * @return the index of the presets
+     */
+    private static synchronized TaggingPresetIndex getIndex() {
+        if (presetIndex == null) {
+            presetIndex = new TaggingPresetIndex(TAGGING_PRESETS);
+        }
+        return presetIndex;
+    }
+
+    private static synchronized void invalidateIndex() {
+        presetIndex = null;
     }
 
     /**
@@ -264,6 +282,7 @@ public final class TaggingPresets {
      */
     public static void addTaggingPresets(Collection<TaggingPreset> presets) {
         if (presets != null && TAGGING_PRESETS.addAll(presets)) {
+            invalidateIndex();
             listeners.forEach(TaggingPresetListener::taggingPresetsModified);
         }
     }
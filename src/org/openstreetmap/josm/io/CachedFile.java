@@ -20,12 +20,17 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -372,6 +377,45 @@ public class CachedFile implements Closeable {
         return res;
     }
 
+    /**
+     * Downloads the given remote files into the cache in parallel, so that they are not downloaded one after another
+     * when they are read afterwards. Local files and resources are ignored. The download errors are only logged,
+     * they are reported again when the files are read.
+     * <p>
+     * The number of parallel downloads is limited by the preference {@code cachedfile.prefetch.threads}.
+     * @param urls the URLs of the files to download
+     * @param httpAccept the accepted MIME types sent in the HTTP Accept header, can be {@code null}
+     * @since xxx
+     */
+    public static void prefetch(Collection<String> urls, String httpAccept) {
+        final List<String> remote = urls.stream().filter(CachedFile::isRemote).distinct().collect(Collectors.toList());
+        final int threads = Math.min(remote.size(), Config.getPref().getInt("cachedfile.prefetch.threads", 8));
+        if (threads <= 1) {
+            return;
+        }
+        final ExecutorService service = Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("cachedfile-prefetch-%d", Thread.NORM_PRIORITY));
+        try {
+            service.invokeAll(remote.stream().<Callable<Void>>map(url -> () -> {
+                try (CachedFile f = new CachedFile(url).setHttpAccept(httpAccept)) {
+                    f.getFile();
+                } catch (IOException | RuntimeException e) {
+                    Logging.debug("Failed to prefetch {0}: {1}", url, e);
+                }
+                return null;
+            }).collect(Collectors.toList()));
+        } catch (InterruptedException e) {
+            Logging.trace(e);
+            Thread.currentThread().interrupt();
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static boolean isRemote(String name) {
+        return name != null && (name.startsWith("http://") || name.startsWith("https://"));
+    }
+
     /**
      * Clear the cache for the given resource.
      * This forces a fresh download.
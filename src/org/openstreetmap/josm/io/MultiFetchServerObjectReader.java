@@ -17,6 +17,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -60,6 +61,11 @@ import org.openstreetmap.josm.tools.Utils;
  *       Logging.info("There are skipped ways: " + reader.getMissingPrimitives());
  *    }
  * </pre>
+ * <p>
+ * The ids are fetched in packages by several threads, and each package is merged as soon as it has been parsed,
+ * while the other packages are still being downloaded. The size of the packages adapts to the response time of the server.
+ * By default, the packages are merged into a new dataset. Use {@link #setStreamingTarget(DataSet)} to merge them
+ * directly into the dataset which will hold the result of the download.
  */
 public class MultiFetchServerObjectReader extends OsmServerReader {
     /**
@@ -69,12 +75,16 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
      * <a href="https://web.archive.org/web/20190902193246/https://boutell.com/newfaq/misc/urllength.html">WWW FAQ</a>.
      */
     private static final int MAX_IDS_PER_REQUEST = 170;
+    /** the max. length of the list of ids in a request URL, see {@link #MAX_IDS_PER_REQUEST} */
+    private static final int MAX_IDS_LENGTH_PER_REQUEST = MAX_IDS_PER_REQUEST * 11;
+    /** the min. number of primitives retrieved in one step when the server is slow */
+    private static final int MIN_IDS_PER_REQUEST = 20;
 
     private final Set<Long> nodes;
     private final Set<Long> ways;
     private final Set<Long> relations;
     private final Set<PrimitiveId> missingPrimitives;
-    private final DataSet outputDataSet;
+    private DataSet outputDataSet;
     protected final Map<OsmPrimitiveType, Set<Long>> primitivesMap;
 
     protected boolean recurseDownRelations;
@@ -237,6 +247,22 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         return this;
     }
 
+    /**
+     * Sets the dataset into which the fetched primitives are merged, package by package, as soon as they are parsed.
+     * {@link #parseOsm(ProgressMonitor)} then replies this dataset. This avoids keeping a copy of the downloaded data
+     * until the download is complete.
+     * <p>
+     * The invisible primitives of the target are deleted at the end of the download, so the target is expected to be
+     * a dataset dedicated to the downloaded data, not the dataset of a layer.
+     * @param target the dataset into which the fetched primitives are merged. Must not be null.
+     * @return this
+     * @since xxx
+     */
+    public MultiFetchServerObjectReader setStreamingTarget(DataSet target) {
+        this.outputDataSet = Objects.requireNonNull(target, "target");
+        return this;
+    }
+
     /**
      * extracts a subset of max {@link #MAX_IDS_PER_REQUEST} ids from <code>ids</code> and
      * replies the subset. The extracted subset is removed from <code>ids</code>.
@@ -245,18 +271,29 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
      * @return the subset of ids
      */
     protected Set<Long> extractIdPackage(Set<Long> ids) {
-        Set<Long> pkg = new HashSet<>();
-        if (ids.isEmpty())
-            return pkg;
-        if (ids.size() > MAX_IDS_PER_REQUEST) {
-            Iterator<Long> it = ids.iterator();
-            for (int i = 0; i < MAX_IDS_PER_REQUEST; i++) {
-                pkg.add(it.next());
+        return extractIdPackage(ids, MAX_IDS_PER_REQUEST);
+    }
+
+    /**
+     * extracts a subset of max <code>maxSize</code> ids from <code>ids</code>, fitting in a request URL, and
+     * replies the subset. The extracted subset is removed from <code>ids</code>.
+     *
+     * @param ids a set of ids
+     * @param maxSize the max. number of ids to extract
+     * @return the subset of ids
+     * @since xxx
+     */
+    protected Set<Long> extractIdPackage(Set<Long> ids, int maxSize) {
+        Set<Long> pkg = new LinkedHashSet<>();
+        int length = 0;
+        for (Iterator<Long> it = ids.iterator(); it.hasNext() && pkg.size() < maxSize;) {
+            Long id = it.next();
+            length += String.valueOf(id).length() + 1;
+            if (length > MAX_IDS_LENGTH_PER_REQUEST && !pkg.isEmpty()) {
+                break;
             }
-            ids.removeAll(pkg);
-        } else {
-            pkg.addAll(ids);
-            ids.clear();
+            pkg.add(id);
+            it.remove();
         }
         return pkg;
     }
@@ -316,8 +353,8 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         progressMonitor.setTicksCount(ids.size());
         progressMonitor.setTicks(0);
         // The complete set containing all primitives to fetch
-        Set<Long> toFetch = new HashSet<>(ids);
-        // Build a list of fetchers that will  download smaller sets containing only MAX_IDS_PER_REQUEST (200) primitives each.
+        Set<Long> toFetch = new LinkedHashSet<>(ids);
+        // Fetchers download smaller sets of at most MAX_IDS_PER_REQUEST primitives each, fewer if the server is slow.
         // we will run up to MAX_DOWNLOAD_THREADS concurrent fetchers.
         int threadsNumber = Config.getPref().getInt("osm.download.threads", OsmApi.MAX_DOWNLOAD_THREADS);
         threadsNumber = Utils.clamp(threadsNumber, 1, OsmApi.MAX_DOWNLOAD_THREADS);
@@ -325,24 +362,27 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
                 threadsNumber, Utils.newThreadFactory(getClass() + "-%d", Thread.NORM_PRIORITY));
         CompletionService<FetchResult> ecs = new ExecutorCompletionService<>(exec);
         List<Future<FetchResult>> jobs = new ArrayList<>();
-        // There exists a race condition where this is cancelled after isCanceled is called, such that
-        // the exec ThreadPool has been shut down. This can cause a RejectedExecutionException.
-        synchronized (this) {
-            while (!toFetch.isEmpty() && !isCanceled()) {
-                jobs.add(ecs.submit(new Fetcher(type, extractIdPackage(toFetch), progressMonitor)));
-            }
-        }
-        // Run the fetchers
+        // Packages are submitted as the previous ones complete, so that their size follows the response time of the server
+        PackageSizer sizer = new PackageSizer();
+        int maxJobs = 2 * threadsNumber;
+        submitFetchers(ecs, jobs, type, toFetch, sizer, maxJobs, progressMonitor);
+        // Merge the packages as they arrive, while the other fetchers are running
         for (int i = 0; i < jobs.size() && !isCanceled(); i++) {
             progressMonitor.subTask(msg + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount());
             try {
                 FetchResult result = ecs.take().get();
+                sizer.update(result.duration);
                 if (result.rc404 != null) {
                     List<Long> toSplit = new ArrayList<>(result.rc404);
                     int n = toSplit.size() / 2;
-                    jobs.add(ecs.submit(new Fetcher(type, new HashSet<>(toSplit.subList(0, n)), progressMonitor)));
-                    jobs.add(ecs.submit(new Fetcher(type, new HashSet<>(toSplit.subList(n, toSplit.size())), progressMonitor)));
+                    synchronized (this) {
+                        if (!isCanceled()) {
+                            jobs.add(ecs.submit(new Fetcher(type, new HashSet<>(toSplit.subList(0, n)), progressMonitor)));
+                            jobs.add(ecs.submit(new Fetcher(type, new HashSet<>(toSplit.subList(n, toSplit.size())), progressMonitor)));
+                        }
+                    }
                 }
+                submitFetchers(ecs, jobs, type, toFetch, sizer, maxJobs - (jobs.size() - i - 1), progressMonitor);
                 if (result.missingPrimitives != null) {
                     missingPrimitives.addAll(result.missingPrimitives);
                 }
@@ -369,6 +409,35 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         exec = null;
     }
 
+    private void submitFetchers(CompletionService<FetchResult> ecs, List<Future<FetchResult>> jobs, OsmPrimitiveType type,
+            Set<Long> toFetch, PackageSizer sizer, int count, ProgressMonitor progressMonitor) {
+        // There exists a race condition where this is cancelled after isCanceled is called, such that
+        // the exec ThreadPool has been shut down. This can cause a RejectedExecutionException.
+        synchronized (this) {
+            for (int i = 0; i < count && !toFetch.isEmpty() && !isCanceled(); i++) {
+                jobs.add(ecs.submit(new Fetcher(type, extractIdPackage(toFetch, sizer.size), progressMonitor)));
+            }
+        }
+    }
+
+    /**
+     * Adapts the number of ids per request to the response time of the server: packages are made smaller when the server
+     * is slow, so that the download is spread over the fetchers and the data arrives more steadily, and larger again when
+     * the server is fast, up to the limit of the URL length.
+     */
+    private static final class PackageSizer {
+        private final long targetDuration = Config.getPref().getLong("osm.download.multifetch.target-duration", 5000);
+        private int size = MAX_IDS_PER_REQUEST;
+
+        void update(long duration) {
+            if (duration > targetDuration) {
+                size = Math.max(MIN_IDS_PER_REQUEST, size / 2);
+            } else if (duration < targetDuration / 2) {
+                size = Math.min(MAX_IDS_PER_REQUEST, size * 2);
+            }
+        }
+    }
+
     /**
      * invokes one or more Multi Gets to fetch the {@link OsmPrimitive}s and replies
      * the dataset of retrieved primitives. Note that the dataset includes non visible primitives too!
@@ -398,8 +467,7 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
                 if (isCanceled())
                     return null;
                 OverpassDownloadReader reader = new OverpassDownloadReader(new Bounds(0, 0, 0, 0), getBaseUrl(), request);
-                DataSet ds = reader.parseOsm(progressMonitor.createSubTaskMonitor(1, false));
-                new DataSetMerger(outputDataSet, ds).merge();
+                merge(reader.parseOsm(progressMonitor.createSubTaskMonitor(1, false)));
                 checkMissing(outputDataSet, progressMonitor);
             } else {
                 downloadRelations(progressMonitor);
@@ -440,8 +508,9 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         missingReader.setRecurseDownAppended(false);
         missingReader.setRecurseDownRelations(false);
         missingReader.append(missing);
-        DataSet mds = missingReader.parseOsm(progressMonitor.createSubTaskMonitor(missing.size(), false));
-        new DataSetMerger(ds, mds).merge();
+        // The missing primitives are merged package by package into the dataset
+        missingReader.setStreamingTarget(ds);
+        missingReader.parseOsm(progressMonitor.createSubTaskMonitor(missing.size(), false));
         missingPrimitives.addAll(missingReader.getMissingPrimitives());
     }
 
@@ -530,6 +599,9 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
 
         private Set<Long> rc404;
 
+        /** the time spent to fetch the primitives, in milliseconds */
+        private long duration;
+
         /**
          * Constructs a {@code FetchResult}
          * @param dataSet The resulting data set
@@ -575,7 +647,13 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
 
         @Override
         public FetchResult call() throws Exception {
-            return fetch(progressMonitor);
+            long start = System.currentTimeMillis();
+            FetchResult result = fetch(progressMonitor);
+            if (result == null) {
+                result = new FetchResult(null, null);
+            }
+            result.duration = System.currentTimeMillis() - start;
+            return result;
         }
 
         /**
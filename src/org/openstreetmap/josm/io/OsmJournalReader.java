@@ -0,0 +1,342 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Reads an OSM XML snapshot and replays the journal written by {@link OsmJournalWriter} on top of it.
+ * <p>
+ * The ids of new primitives are kept as they are in the snapshot and the journal, so that the resulting dataset
+ * can be written as a new snapshot which further journal blocks refer to.
+ * Replaying stops at the first truncated or corrupted block, the dataset then holds the state saved by the last valid block.
+ * @since xxx
+ */
+public class OsmJournalReader extends OsmReader {
+
+    private static final OsmPrimitiveType[] REMOVAL_ORDER = {OsmPrimitiveType.RELATION, OsmPrimitiveType.WAY, OsmPrimitiveType.NODE};
+
+    /** A primitive read from the journal, with the ids of its children as they are in the journal */
+    private static final class JournalRecord {
+        private final PrimitiveData data;
+        private final long[] nodeIds;
+        private final List<JournalMember> members;
+
+        JournalRecord(PrimitiveData data, long[] nodeIds, List<JournalMember> members) {
+            this.data = data;
+            this.nodeIds = nodeIds;
+            this.members = members;
+        }
+    }
+
+    private static final class JournalMember {
+        private final String role;
+        private final PrimitiveId id;
+
+        JournalMember(String role, PrimitiveId id) {
+            this.role = role;
+            this.id = id;
+        }
+    }
+
+    protected OsmJournalReader() {
+        // Restricts visibility
+    }
+
+    @Override
+    protected OsmPrimitive buildPrimitive(PrimitiveData pd) {
+        if (pd.getUniqueId() >= 0) {
+            return super.buildPrimitive(pd);
+        }
+        OsmPrimitive p = pd.getType().newInstance(pd.getUniqueId(), true);
+        if (pd.getUniqueId() < pd.getIdGenerator().currentUniqueId()) {
+            // new primitives created after the restore must not get the same id
+            pd.getIdGenerator().advanceUniqueId(pd.getUniqueId());
+        }
+        p.setVisible(pd.isVisible());
+        p.load(pd);
+        externalIdMap.put(pd.getPrimitiveId(), p);
+        return p;
+    }
+
+    /**
+     * Replays the journal on the parsed dataset.
+     * @param journal the journal input stream
+     * @return the number of blocks replayed
+     * @throws IOException if the journal header is invalid, or in case of I/O error
+     */
+    protected int replayJournal(InputStream journal) throws IOException {
+        DataInputStream in = new DataInputStream(journal);
+        if (in.readInt() != OsmJournalWriter.MAGIC || in.readInt() != OsmJournalWriter.VERSION) {
+            throw new IOException(tr("Invalid journal header"));
+        }
+        boolean locked = ds.isLocked();
+        if (locked) {
+            ds.unlock();
+        }
+        int blocks = 0;
+        try {
+            byte[] block;
+            while ((block = readBlock(in)) != null) {
+                applyBlock(new DataInputStream(new ByteArrayInputStream(block)));
+                blocks++;
+            }
+        } finally {
+            if (locked) {
+                ds.lock();
+            }
+        }
+        return blocks;
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < 0) {
+                Logging.warn("Invalid journal block length: " + length);
+                return null;
+            }
+            byte[] block = new byte[length];
+            in.readFully(block);
+            CRC32 crc = new CRC32();
+            crc.update(block);
+            if (in.readInt() != (int) crc.getValue()) {
+                Logging.warn("Corrupted journal block, ignoring the rest of the journal");
+                return null;
+            }
+            return block;
+        } catch (EOFException e) {
+            Logging.trace(e);
+            return null;
+        }
+    }
+
+    private void applyBlock(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<JournalRecord> updated = new ArrayList<>();
+        List<PrimitiveId> removed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            OsmPrimitiveType type = readType(in);
+            int flags = in.readByte();
+            long id = in.readLong();
+            if ((flags & OsmJournalWriter.FLAG_REMOVED) != 0) {
+                removed.add(new SimplePrimitiveId(id, type));
+            } else {
+                updated.add(readRecord(in, type, flags, id));
+            }
+        }
+        ds.update(() -> {
+            Map<OsmPrimitive, JournalRecord> primitives = new HashMap<>(updated.size());
+            for (JournalRecord r : updated) {
+                primitives.put(loadPrimitive(r.data), r);
+            }
+            // Set the children once all primitives of the block exist, as they may refer to each other
+            primitives.forEach((p, r) -> {
+                if (p instanceof Way && r.nodeIds != null) {
+                    List<Node> nodes = new ArrayList<>(r.nodeIds.length);
+                    for (long nodeId : r.nodeIds) {
+                        OsmPrimitive n = getOrCreatePrimitive(new SimplePrimitiveId(nodeId, OsmPrimitiveType.NODE));
+                        if (n != null) {
+                            nodes.add((Node) n);
+                        }
+                    }
+                    ((Way) p).setNodes(nodes);
+                } else if (p instanceof Relation && r.members != null) {
+                    List<RelationMember> members = new ArrayList<>(r.members.size());
+                    for (JournalMember m : r.members) {
+                        OsmPrimitive member = getOrCreatePrimitive(m.id);
+                        if (member != null) {
+                            members.add(new RelationMember(m.role, member));
+                        }
+                    }
+                    ((Relation) p).setMembers(members);
+                }
+            });
+            // Remove relations first, then ways, then nodes
+            for (OsmPrimitiveType type : REMOVAL_ORDER) {
+                for (PrimitiveId id : removed) {
+                    if (id.getType() == type) {
+                        OsmPrimitive p = getPrimitive(id);
+                        externalIdMap.remove(id);
+                        if (p != null && p.getDataSet() == ds) {
+                            ds.removePrimitive(p.getPrimitiveId());
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private static OsmPrimitiveType readType(DataInputStream in) throws IOException {
+        int type = in.readByte();
+        if (type < 0 || type > OsmPrimitiveType.RELATION.ordinal()) {
+            throw new IOException("Invalid primitive type in journal: " + type);
+        }
+        return OsmPrimitiveType.values()[type];
+    }
+
+    private static JournalRecord readRecord(DataInputStream in, OsmPrimitiveType type, int flags, long id) throws IOException {
+        PrimitiveData data = type == OsmPrimitiveType.NODE ? new NodeData(id)
+                : type == OsmPrimitiveType.WAY ? new WayData(id) : new RelationData(id);
+        data.setDeleted((flags & OsmJournalWriter.FLAG_DELETED) != 0);
+        data.setModified((flags & OsmJournalWriter.FLAG_MODIFIED) != 0);
+        data.setVisible((flags & OsmJournalWriter.FLAG_VISIBLE) != 0);
+        data.setIncomplete((flags & OsmJournalWriter.FLAG_INCOMPLETE) != 0);
+        data.setVersion(in.readInt());
+        data.setChangesetId(in.readInt());
+        data.setRawTimestamp(in.readInt());
+        if ((flags & OsmJournalWriter.FLAG_USER) != 0) {
+            long uid = in.readLong();
+            String name = readString(in);
+            data.setUser(uid > 0 ? User.createOsmUser(uid, name) : User.createLocalUser(name));
+        }
+        int tags = in.readInt();
+        for (int i = 0; i < tags; i++) {
+            data.put(readString(in), readString(in));
+        }
+        long[] nodeIds = null;
+        List<JournalMember> members = null;
+        if (data.isIncomplete()) {
+            return new JournalRecord(data, null, null);
+        } else if ((flags & OsmJournalWriter.FLAG_COORDINATES) != 0) {
+            ((NodeData) data).setCoor(new LatLon(in.readDouble(), in.readDouble()));
+        } else if (type == OsmPrimitiveType.WAY) {
+            nodeIds = new long[in.readInt()];
+            for (int i = 0; i < nodeIds.length; i++) {
+                nodeIds[i] = in.readLong();
+            }
+        } else if (type == OsmPrimitiveType.RELATION) {
+            int count = in.readInt();
+            members = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                OsmPrimitiveType memberType = readType(in);
+                long memberId = in.readLong();
+                members.add(new JournalMember(readString(in), new SimplePrimitiveId(memberId, memberType)));
+            }
+        }
+        return new JournalRecord(data, nodeIds, members);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the primitive of a journal record, or updates it if it already exists.
+     * The nodes of ways and the members of relations are set later.
+     * @param data the primitive data, without nodes or members
+     * @return the primitive
+     */
+    private OsmPrimitive loadPrimitive(PrimitiveData data) {
+        OsmPrimitive p = getPrimitive(data.getPrimitiveId());
+        if (p == null) {
+            p = buildPrimitive(data);
+            ds.addPrimitive(p);
+        } else {
+            p.load(data);
+        }
+        return p;
+    }
+
+    private OsmPrimitive getPrimitive(PrimitiveId id) {
+        OsmPrimitive p = externalIdMap.get(id);
+        if (p == null && id.getUniqueId() > 0) {
+            p = ds.getPrimitiveById(id);
+        }
+        return p;
+    }
+
+    private OsmPrimitive getOrCreatePrimitive(PrimitiveId id) {
+        OsmPrimitive p = getPrimitive(id);
+        if (p == null) {
+            if (id.getUniqueId() <= 0) {
+                Logging.warn("Journal refers to missing primitive " + id);
+                return null;
+            }
+            // Incomplete primitive not downloaded yet
+            p = id.getType().newInstance(id.getUniqueId(), false);
+            ds.addPrimitive(p);
+            externalIdMap.put(id, p);
+        }
+        return p;
+    }
+
+    /**
+     * Parses the given snapshot and replays the given journal on it.
+     *
+     * @param snapshot the OSM XML snapshot input stream. Must not be null.
+     * @param journal the journal input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link org.openstreetmap.josm.gui.progress.NullProgressMonitor#INSTANCE}
+     * is assumed
+     * @return the dataset with the snapshot data and the journal changes
+     * @throws IllegalDataException if an error was found while parsing the snapshot or if the journal is invalid
+     */
+    public static DataSet parseDataSet(InputStream snapshot, InputStream journal, ProgressMonitor progressMonitor)
+            throws IllegalDataException {
+        OsmJournalReader reader = new OsmJournalReader();
+        DataSet ds = reader.doParseDataSet(snapshot, progressMonitor);
+        reader.replay(journal);
+        return ds;
+    }
+
+    /**
+     * Parses the given OSM PBF snapshot, as written by {@link OsmPbfWriter}, and replays the given journal on it.
+     *
+     * @param snapshot the OSM PBF snapshot input stream. Must not be null.
+     * @param journal the journal input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link org.openstreetmap.josm.gui.progress.NullProgressMonitor#INSTANCE}
+     * is assumed
+     * @return the dataset with the snapshot data and the journal changes
+     * @throws IllegalDataException if an error was found while parsing the snapshot or if the journal is invalid
+     */
+    public static DataSet parsePbfDataSet(InputStream snapshot, InputStream journal, ProgressMonitor progressMonitor)
+            throws IllegalDataException {
+        OsmPbfReader snapshotReader = new OsmPbfReader();
+        OsmJournalReader reader = new OsmJournalReader();
+        reader.ds = snapshotReader.doParseDataSet(snapshot, progressMonitor);
+        // The journal refers to the primitives by their ids in the snapshot
+        reader.externalIdMap.putAll(snapshotReader.externalIdMap);
+        reader.replay(journal);
+        return reader.ds;
+    }
+
+    private void replay(InputStream journal) throws IllegalDataException {
+        try {
+            int blocks = replayJournal(journal);
+            Logging.debug("Replayed {0} journal blocks", blocks);
+        } catch (IOException e) {
+            throw new IllegalDataException(e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Writes an append-only journal of changes made to a {@link DataSet} since a snapshot of it was saved.
+ * <p>
+ * The journal starts with a header, followed by blocks. Each block holds the current state of the primitives changed
+ * since the previous block, or a removal mark for the primitives which are not in the dataset anymore. Primitives
+ * are identified by their unique id at the time the snapshot and the journal were written.
+ * A block is written as its length, its content and its CRC32 checksum, so that a truncated or corrupted block
+ * (and all blocks after it) can be detected and skipped by {@link OsmJournalReader}.
+ * @since xxx
+ */
+public class OsmJournalWriter implements Closeable {
+
+    /** The magic number at the start of a journal file */
+    static final int MAGIC = 0x4a4f534a; // "JOSJ"
+    /** The version of the journal format */
+    static final int VERSION = 1;
+
+    static final int FLAG_REMOVED = 1;
+    static final int FLAG_DELETED = 1 << 1;
+    static final int FLAG_MODIFIED = 1 << 2;
+    static final int FLAG_VISIBLE = 1 << 3;
+    static final int FLAG_INCOMPLETE = 1 << 4;
+    static final int FLAG_USER = 1 << 5;
+    static final int FLAG_COORDINATES = 1 << 6;
+
+    private final DataOutputStream out;
+
+    /**
+     * Constructs a new {@code OsmJournalWriter}.
+     * @param out the output stream, usually opened in append mode
+     */
+    public OsmJournalWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes the header of the journal. Must be called once, before the first block.
+     * @throws IOException in case of I/O error
+     */
+    public void writeHeader() throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Encodes the given primitives as a journal block. The caller must hold the read lock of the dataset.
+     * @param ds the dataset of the journal
+     * @param primitives the changed primitives. Those which are not in {@code ds} anymore are written as removed.
+     * @return the block, to be written with {@link #writeBlock(byte[])}
+     * @throws IOException in case of I/O error
+     */
+    public static byte[] encodeBlock(DataSet ds, Collection<? extends OsmPrimitive> primitives) throws IOException {
+        return encodeBlock(ds, primitives, Collections.emptyList());
+    }
+
+    /**
+     * Encodes the given primitives and removals as a journal block. The caller must hold the read lock of the dataset.
+     * @param ds the dataset of the journal
+     * @param primitives the changed primitives. Those which are not in {@code ds} anymore are written as removed.
+     * @param removed the ids of the primitives removed from {@code ds}
+     * @return the block, to be written with {@link #writeBlock(byte[])}
+     * @throws IOException in case of I/O error
+     * @since xxx
+     */
+    public static byte[] encodeBlock(DataSet ds, Collection<? extends OsmPrimitive> primitives, Collection<? extends PrimitiveId> removed)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            data.writeInt(primitives.size() + removed.size());
+            for (OsmPrimitive p : primitives) {
+                writePrimitive(data, ds, p);
+            }
+            for (PrimitiveId id : removed) {
+                writeRemoved(data, id);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a block encoded by {@link #encodeBlock}, with its length and checksum.
+     * @param block the encoded block
+     * @throws IOException in case of I/O error
+     */
+    public void writeBlock(byte[] block) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(block);
+        out.writeInt(block.length);
+        out.write(block);
+        out.writeInt((int) crc.getValue());
+        out.flush();
+    }
+
+    private static void writeRemoved(DataOutputStream data, PrimitiveId id) throws IOException {
+        data.writeByte(id.getType().ordinal());
+        data.writeByte(FLAG_REMOVED);
+        data.writeLong(id.getUniqueId());
+    }
+
+    private static void writePrimitive(DataOutputStream data, DataSet ds, OsmPrimitive p) throws IOException {
+        if (p.getDataSet() != ds) {
+            writeRemoved(data, p);
+            return;
+        }
+        data.writeByte(p.getType().ordinal());
+        final User user = p.getUser();
+        final LatLon coor = p instanceof Node ? ((Node) p).getCoor() : null;
+        int flags = 0;
+        flags |= p.isDeleted() ? FLAG_DELETED : 0;
+        flags |= p.isModified() ? FLAG_MODIFIED : 0;
+        flags |= p.isVisible() ? FLAG_VISIBLE : 0;
+        flags |= p.isIncomplete() ? FLAG_INCOMPLETE : 0;
+        flags |= user != null ? FLAG_USER : 0;
+        flags |= coor != null ? FLAG_COORDINATES : 0;
+        data.writeByte(flags);
+        data.writeLong(p.getUniqueId());
+        data.writeInt(p.getVersion());
+        data.writeInt(p.getChangesetId());
+        data.writeInt(p.getRawTimestamp());
+        if (user != null) {
+            data.writeLong(user.getId());
+            writeString(data, user.getName());
+        }
+        Map<String, String> keys = p.getKeys();
+        data.writeInt(keys.size());
+        for (Map.Entry<String, String> e : keys.entrySet()) {
+            writeString(data, e.getKey());
+            writeString(data, e.getValue());
+        }
+        if (p.isIncomplete()) {
+            return;
+        }
+        if (coor != null) {
+            data.writeDouble(coor.lat());
+            data.writeDouble(coor.lon());
+        } else if (p instanceof Way) {
+            Way w = (Way) p;
+            data.writeInt(w.getNodesCount());
+            for (int i = 0; i < w.getNodesCount(); i++) {
+                data.writeLong(w.getNodeId(i));
+            }
+        } else if (p instanceof Relation) {
+            Relation r = (Relation) p;
+            data.writeInt(r.getMembersCount());
+            for (RelationMember m : r.getMembers()) {
+                data.writeByte(m.getType().ordinal());
+                data.writeLong(m.getUniqueId());
+                writeString(data, m.getRole());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,42 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.File;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.pbf.OsmPbfIndex;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * Read the data of an area from an indexed OSM PBF file, so that local extracts can be used like the OSM server.
+ * @since xxx
+ */
+public class OsmPbfIndexReader extends OsmServerReader {
+
+    private final File file;
+    private final OsmPbfIndex index;
+    private final Bounds bounds;
+
+    /**
+     * Constructs a new {@code OsmPbfIndexReader}.
+     * @param file the PBF file
+     * @param index the index of the file, see {@link OsmPbfReader#getIndex}
+     * @param bounds the area to read
+     */
+    public OsmPbfIndexReader(File file, OsmPbfIndex index, Bounds bounds) {
+        this.file = Objects.requireNonNull(file);
+        this.index = Objects.requireNonNull(index);
+        this.bounds = Objects.requireNonNull(bounds);
+    }
+
+    @Override
+    public DataSet parseOsm(ProgressMonitor progressMonitor) throws OsmTransferException {
+        try {
+            return OsmPbfReader.parseDataSet(file, index, bounds, progressMonitor);
+        } catch (IllegalDataException e) {
+            throw new OsmTransferException(e);
+        }
+    }
+}
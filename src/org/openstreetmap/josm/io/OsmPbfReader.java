@@ -1,19 +1,39 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io;
 
+import static org.openstreetmap.josm.tools.I18n.tr;
+
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.DataSource;
@@ -33,12 +53,17 @@ import org.openstreetmap.josm.data.osm.pbf.Blob;
 import org.openstreetmap.josm.data.osm.pbf.BlobHeader;
 import org.openstreetmap.josm.data.osm.pbf.HeaderBlock;
 import org.openstreetmap.josm.data.osm.pbf.Info;
-import org.openstreetmap.josm.data.protobuf.ProtobufPacked;
+import org.openstreetmap.josm.data.osm.pbf.OsmPbfIndex;
 import org.openstreetmap.josm.data.protobuf.ProtobufParser;
+import org.openstreetmap.josm.data.protobuf.ProtobufReader;
 import org.openstreetmap.josm.data.protobuf.ProtobufRecord;
 import org.openstreetmap.josm.data.protobuf.WireType;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.util.LruCache;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 
 import jakarta.annotation.Nonnull;
@@ -126,6 +151,10 @@ public final class OsmPbfReader extends AbstractReader {
      * Nano degrees
      */
     private static final double NANO_DEGREES = 1e-9;
+    /**
+     * Nano degrees per degree
+     */
+    private static final double NANO_DEGREES_PER_DEGREE = 1e9;
     /**
      * The maximum BlobHeader size. BlobHeaders should (but not must) be less than half this
      */
@@ -135,7 +164,16 @@ public final class OsmPbfReader extends AbstractReader {
      */
     private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
 
-    private OsmPbfReader() {
+    /**
+     * {@code true} if the data sources were read from the JOSM extension of the header block, instead of its bbox
+     */
+    private boolean josmDataSources;
+    /**
+     * {@code true} if the dataset has to be locked once read, see {@link OsmPbfWriter#JOSM_LOCKED}
+     */
+    private boolean locked;
+
+    OsmPbfReader() {
         // Hide constructor
     }
 
@@ -152,6 +190,133 @@ public final class OsmPbfReader extends AbstractReader {
         return new OsmPbfReader().doParseDataSet(source, progressMonitor);
     }
 
+    /**
+     * Parse the primitives of a PBF file in an area, using an index to decode only the blocks needed.
+     * <p>
+     * This reads the nodes in the area, the ways which have at least one of these nodes (with all their nodes), and the relations
+     * which have at least one of these nodes or ways as member. Other members are incomplete.
+     *
+     * @param file            the PBF file
+     * @param index           the index of the file, see {@link #getIndex(File, ProgressMonitor)}
+     * @param bounds          the area to read
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the file
+     * @since xxx
+     */
+    public static DataSet parseDataSet(File file, OsmPbfIndex index, Bounds bounds, ProgressMonitor progressMonitor)
+            throws IllegalDataException {
+        final OsmPbfReader reader = new OsmPbfReader();
+        try (InputStream source = InputStream.nullInputStream()) {
+            return reader.doParseDataSet(source, progressMonitor, (InputStream ignored) -> reader.parseArea(file, index, bounds));
+        } catch (IOException e) {
+            throw new IllegalDataException(e);
+        }
+    }
+
+    /**
+     * Parse the primitives of a PBF file with ids in a range, using an index to decode only the blocks needed.
+     * The nodes of the ways read are read as well, other members are incomplete.
+     *
+     * @param file            the PBF file
+     * @param index           the index of the file, see {@link #getIndex(File, ProgressMonitor)}
+     * @param type            the type of the primitives to read
+     * @param minId           the minimal id to read
+     * @param maxId           the maximal id to read
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the file
+     * @since xxx
+     */
+    public static DataSet parseDataSet(File file, OsmPbfIndex index, OsmPrimitiveType type, long minId, long maxId,
+            ProgressMonitor progressMonitor) throws IllegalDataException {
+        final OsmPbfReader reader = new OsmPbfReader();
+        try (InputStream source = InputStream.nullInputStream()) {
+            return reader.doParseDataSet(source, progressMonitor, (InputStream ignored) -> reader.parseIds(file, index, type, minId, maxId));
+        } catch (IOException e) {
+            throw new IllegalDataException(e);
+        }
+    }
+
+    /**
+     * Get the index of a PBF file. The index is stored next to the file (with an additional {@code .idx} extension), and rebuilt
+     * if the file has been modified since.
+     *
+     * @param file            the PBF file
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @return the index of the file
+     * @throws IOException          if the file could not be read
+     * @throws IllegalDataException if the file is not a valid PBF file
+     * @since xxx
+     */
+    @Nonnull
+    public static OsmPbfIndex getIndex(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        final File indexFile = new File(file.getPath() + ".idx");
+        if (indexFile.isFile()) {
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(indexFile.toPath()))) {
+                final OsmPbfIndex index = OsmPbfIndex.read(inputStream);
+                if (index.isUpToDate(file.length(), file.lastModified())) {
+                    return index;
+                }
+            } catch (IOException e) {
+                Logging.log(Logging.LEVEL_WARN, "Could not read PBF index " + indexFile, e);
+            }
+        }
+        final OsmPbfIndex index = buildIndex(file, progressMonitor);
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(indexFile.toPath()))) {
+            index.write(outputStream);
+        } catch (IOException e) {
+            // Read-only directory, the index is still usable for this session
+            Logging.log(Logging.LEVEL_WARN, "Could not save PBF index " + indexFile, e);
+        }
+        return index;
+    }
+
+    /**
+     * Build the index of a PBF file. The file is memory-mapped, and the data blocks are decoded on the worker pool.
+     *
+     * @param file            the PBF file
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @return the index of the file
+     * @throws IOException          if the file could not be read
+     * @throws IllegalDataException if the file is not a valid PBF file
+     * @since xxx
+     */
+    @Nonnull
+    public static OsmPbfIndex buildIndex(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        final ProgressMonitor monitor = progressMonitor != null ? progressMonitor : NullProgressMonitor.INSTANCE;
+        final long lastModified = file.lastModified();
+        try (MappedPbfFile pbf = new MappedPbfFile(file)) {
+            final List<BlobLocation> dataBlobs = new ArrayList<>();
+            boolean headerFound = false;
+            for (BlobLocation location : pbf.scanBlobs()) {
+                if ("OSMHeader".equals(location.type)) {
+                    checkRequiredFeatures(parseHeaderBlock(pbf.readBlob(location)));
+                    headerFound = true;
+                } else if ("OSMData".equals(location.type)) {
+                    if (!headerFound) {
+                        throw new IllegalDataException("A header block must occur before the first data block");
+                    }
+                    dataBlobs.add(location);
+                }
+            }
+            monitor.beginTask(tr("Indexing {0}...", file.getName()), dataBlobs.size());
+            try {
+                final IndexBuilder builder = new IndexBuilder(pbf);
+                decodeDataBlobs(pbf, dataBlobs, monitor::isCanceled, (location, data) -> {
+                    builder.add(location, data);
+                    monitor.worked(1);
+                });
+                if (monitor.isCanceled()) {
+                    throw new InterruptedIOException("Indexing of " + file + " was canceled");
+                }
+                return new OsmPbfIndex(pbf.size(), lastModified, builder.blocks);
+            } finally {
+                monitor.finishTask();
+            }
+        }
+    }
+
     @Override
     protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
         return doParseDataSet(source, progressMonitor, this::parse);
@@ -164,6 +329,10 @@ public final class OsmPbfReader extends AbstractReader {
         } else {
             inputStream = new BoundedInputStream(new BufferedInputStream(source));
         }
+        final int threads = getDecoderThreads();
+        final ExecutorService decoders = newDecoders(threads);
+        // The decoded blocks must be added in file order, so that the dataset is the same as with a sequential read
+        final Deque<Future<PrimitiveBlockData>> pendingBlocks = new ArrayDeque<>();
         try (ProtobufParser parser = new ProtobufParser(inputStream)) {
             final ByteArrayOutputStream baos = new ByteArrayOutputStream();
             HeaderBlock headerBlock = null;
@@ -177,19 +346,288 @@ public final class OsmPbfReader extends AbstractReader {
                     }
                     // OSM PBF is fun -- it has *nested* pbf data
                     final Blob blob = parseBlob(blobHeader, inputStream, parser, baos);
-                    headerBlock = parseHeaderBlock(blob, baos);
+                    headerBlock = parseHeaderBlock(blob);
                     checkRequiredFeatures(headerBlock);
+                    parseJosmHeader(blob);
                     blobHeader = null;
                 } else if ("OSMData".equals(blobHeader.type())) {
                     if (headerBlock == null) {
                         throw new IllegalStateException("A header block must occur before the first data block");
                     }
                     final Blob blob = parseBlob(blobHeader, inputStream, parser, baos);
-                    parseDataBlock(baos, headerBlock, blob);
+                    if (decoders == null) {
+                        addPrimitiveBlock(headerBlock, parseDataBlock(blob));
+                    } else {
+                        pendingBlocks.add(decoders.submit(() -> parseDataBlock(blob)));
+                        // Limit the number of decoded blocks waiting in memory
+                        while (pendingBlocks.size() > 2 * threads && !this.cancel) {
+                            addPrimitiveBlock(headerBlock, awaitPrimitiveBlock(pendingBlocks.poll()));
+                        }
+                    }
                     blobHeader = null;
                 } // Other software *may* extend the FileBlocks (from just "OSMHeader" and "OSMData"), so don't throw an error.
             }
+            while (!pendingBlocks.isEmpty() && !this.cancel) {
+                addPrimitiveBlock(headerBlock, awaitPrimitiveBlock(pendingBlocks.poll()));
+            }
+            if (this.locked) {
+                getDataSet().lock();
+            }
+        } finally {
+            if (decoders != null) {
+                decoders.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Wait for a data block to be decoded
+     *
+     * @param future The pending decoding of the block
+     * @return The decoded block
+     * @throws IOException          if one of the streams had an issue while decoding the block
+     * @throws IllegalDataException if the block contained an invalid OSM primitive
+     */
+    @Nonnull
+    private static PrimitiveBlockData awaitPrimitiveBlock(Future<PrimitiveBlockData> future) throws IOException, IllegalDataException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof IllegalDataException) {
+                throw (IllegalDataException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JosmRuntimeException(cause);
+        }
+    }
+
+    /**
+     * Get the number of threads used to decode data blocks
+     *
+     * @return The number of threads, {@code 1} if the blocks are decoded in the calling thread
+     */
+    private static int getDecoderThreads() {
+        return Config.getPref().getInt("pbf.reader.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create the worker pool used to decode data blocks
+     *
+     * @param threads The number of threads, see {@link #getDecoderThreads()}
+     * @return The pool, or {@code null} if the blocks should be decoded in the calling thread
+     */
+    @Nullable
+    private static ExecutorService newDecoders(int threads) {
+        return threads > 1
+                ? Executors.newFixedThreadPool(threads, Utils.newThreadFactory("pbf-decoder-%d", Thread.NORM_PRIORITY))
+                : null;
+    }
+
+    /**
+     * Decode data blobs of a mapped file on the worker pool
+     *
+     * @param pbf       The mapped file
+     * @param locations The data blobs to decode
+     * @param cancelled Checked before each blob, to stop decoding
+     * @param consumer  The consumer for the decoded blocks, called in the order of {@code locations} from the calling thread
+     * @throws IOException          if a blob could not be read
+     * @throws IllegalDataException if a blob contained an invalid OSM primitive
+     */
+    private static void decodeDataBlobs(MappedPbfFile pbf, List<BlobLocation> locations, BooleanSupplier cancelled,
+            DecodedBlockConsumer consumer) throws IOException, IllegalDataException {
+        final int threads = getDecoderThreads();
+        final ExecutorService decoders = newDecoders(threads);
+        final Deque<Future<PrimitiveBlockData>> pendingBlocks = new ArrayDeque<>();
+        int consumed = 0;
+        try {
+            for (BlobLocation location : locations) {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                final Blob blob = pbf.readBlob(location);
+                if (decoders == null) {
+                    consumer.accept(location, parseDataBlock(blob));
+                } else {
+                    pendingBlocks.add(decoders.submit(() -> parseDataBlock(blob)));
+                    while (pendingBlocks.size() > 2 * threads) {
+                        consumer.accept(locations.get(consumed++), awaitPrimitiveBlock(pendingBlocks.poll()));
+                    }
+                }
+            }
+            while (!pendingBlocks.isEmpty() && !cancelled.getAsBoolean()) {
+                consumer.accept(locations.get(consumed++), awaitPrimitiveBlock(pendingBlocks.poll()));
+            }
+        } finally {
+            if (decoders != null) {
+                decoders.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Read the primitives in an area, see {@link #parseDataSet(File, OsmPbfIndex, Bounds, ProgressMonitor)}
+     *
+     * @param file   The PBF file
+     * @param index  The index of the file
+     * @param bounds The area to read
+     * @throws IOException          if the file could not be read
+     * @throws IllegalDataException if the file contained an invalid OSM primitive
+     */
+    private void parseArea(File file, OsmPbfIndex index, Bounds bounds) throws IOException, IllegalDataException {
+        final BBox area = bounds.toBBox();
+        final PrimitiveBlockData selection = new PrimitiveBlockData(false);
+        final Set<Long> nodes = new HashSet<>();
+        final Set<Long> ways = new HashSet<>();
+        // Keep only a few decoded node blocks to find the nodes of the ways, the others are decoded again if needed
+        final Map<Long, PrimitiveBlockData> nodeBlocks = new LruCache<>(Config.getPref().getInt("pbf.area.cached.blocks", 16));
+        try (MappedPbfFile pbf = new MappedPbfFile(file)) {
+            decodeDataBlobs(pbf, locations(index.getBlocks(OsmPrimitiveType.NODE, area)), () -> this.cancel, (location, data) -> {
+                nodeBlocks.put(location.offset, data);
+                for (PrimitiveData primitive : data.primitives) {
+                    if (primitive instanceof NodeData && ((NodeData) primitive).getCoor() != null
+                            && bounds.contains(((NodeData) primitive).getCoor())) {
+                        select(selection, data, primitive);
+                        nodes.add(primitive.getUniqueId());
+                    }
+                }
+            });
+            decodeDataBlobs(pbf, locations(index.getBlocks(OsmPrimitiveType.WAY, area)), () -> this.cancel, (location, data) -> {
+                for (PrimitiveData primitive : data.primitives) {
+                    if (primitive instanceof WayData && data.ways.get(primitive.getUniqueId()).stream().anyMatch(nodes::contains)) {
+                        select(selection, data, primitive);
+                        ways.add(primitive.getUniqueId());
+                    }
+                }
+            });
+            selectWayNodes(pbf, index, selection, nodes, nodeBlocks);
+            decodeDataBlobs(pbf, locations(index.getBlocks(OsmPrimitiveType.RELATION, area)), () -> this.cancel, (location, data) -> {
+                for (PrimitiveData primitive : data.primitives) {
+                    if (primitive instanceof RelationData && data.relations.get(primitive.getUniqueId()).stream().anyMatch(
+                            member -> (member.getMemberType() == OsmPrimitiveType.NODE && nodes.contains(member.getMemberId()))
+                                    || (member.getMemberType() == OsmPrimitiveType.WAY && ways.contains(member.getMemberId())))) {
+                        select(selection, data, primitive);
+                    }
+                }
+            });
+        }
+        if (!this.cancel) {
+            addPrimitiveBlock(null, selection);
+            getDataSet().addDataSource(new DataSource(bounds, file.getName()));
+        }
+    }
+
+    /**
+     * Read the primitives with ids in a range, see {@link #parseDataSet(File, OsmPbfIndex, OsmPrimitiveType, long, long, ProgressMonitor)}
+     *
+     * @param file  The PBF file
+     * @param index The index of the file
+     * @param type  The type of the primitives to read
+     * @param minId The minimal id
+     * @param maxId The maximal id
+     * @throws IOException          if the file could not be read
+     * @throws IllegalDataException if the file contained an invalid OSM primitive
+     */
+    private void parseIds(File file, OsmPbfIndex index, OsmPrimitiveType type, long minId, long maxId)
+            throws IOException, IllegalDataException {
+        final PrimitiveBlockData selection = new PrimitiveBlockData(false);
+        final Set<Long> nodes = new HashSet<>();
+        try (MappedPbfFile pbf = new MappedPbfFile(file)) {
+            decodeDataBlobs(pbf, locations(index.getBlocks(type, minId, maxId)), () -> this.cancel, (location, data) -> {
+                for (PrimitiveData primitive : data.primitives) {
+                    if (primitive.getType() == type && primitive.getUniqueId() >= minId && primitive.getUniqueId() <= maxId) {
+                        select(selection, data, primitive);
+                        if (type == OsmPrimitiveType.NODE) {
+                            nodes.add(primitive.getUniqueId());
+                        }
+                    }
+                }
+            });
+            if (type == OsmPrimitiveType.WAY) {
+                selectWayNodes(pbf, index, selection, nodes, new HashMap<>());
+            }
+        }
+        if (!this.cancel) {
+            addPrimitiveBlock(null, selection);
+        }
+    }
+
+    /**
+     * Add the missing nodes of the selected ways to a selection
+     *
+     * @param pbf        The mapped file
+     * @param index      The index of the file
+     * @param selection  The selection
+     * @param nodes      The ids of the nodes already selected, updated with the added nodes
+     * @param nodeBlocks Some blocks which have already been decoded, by offset
+     * @throws IOException          if the file could not be read
+     * @throws IllegalDataException if the file contained an invalid OSM primitive
+     */
+    private void selectWayNodes(MappedPbfFile pbf, OsmPbfIndex index, PrimitiveBlockData selection, Set<Long> nodes,
+            Map<Long, PrimitiveBlockData> nodeBlocks) throws IOException, IllegalDataException {
+        final long[] missing = selection.ways.values().stream().flatMap(Collection::stream)
+                .filter(id -> !nodes.contains(id)).mapToLong(Long::longValue).distinct().sorted().toArray();
+        if (missing.length == 0) {
+            return;
+        }
+        final List<BlobLocation> locations = new ArrayList<>();
+        final List<PrimitiveBlockData> decoded = new ArrayList<>();
+        for (OsmPbfIndex.Block block : index.getBlocks(OsmPrimitiveType.NODE, missing[0], missing[missing.length - 1])) {
+            // Only read the blocks which contain at least one of the missing ids
+            final int first = Arrays.binarySearch(missing, block.minId(OsmPrimitiveType.NODE));
+            final int insertion = first >= 0 ? first : -first - 1;
+            if (first >= 0 || (insertion < missing.length && missing[insertion] <= block.maxId(OsmPrimitiveType.NODE))) {
+                final PrimitiveBlockData data = nodeBlocks.get(block.offset());
+                if (data != null) {
+                    decoded.add(data);
+                } else {
+                    locations.add(new BlobLocation("OSMData", block.offset(), block.size()));
+                }
+            }
+        }
+        final DecodedBlockConsumer consumer = (location, data) -> {
+            for (PrimitiveData primitive : data.primitives) {
+                if (primitive instanceof NodeData && Arrays.binarySearch(missing, primitive.getUniqueId()) >= 0
+                        && nodes.add(primitive.getUniqueId())) {
+                    select(selection, data, primitive);
+                }
+            }
+        };
+        for (PrimitiveBlockData data : decoded) {
+            consumer.accept(null, data);
+        }
+        decodeDataBlobs(pbf, locations, () -> this.cancel, consumer);
+    }
+
+    /**
+     * Add a decoded primitive to a selection
+     *
+     * @param selection The selection
+     * @param data      The decoded block of the primitive
+     * @param primitive The primitive
+     */
+    private static void select(PrimitiveBlockData selection, PrimitiveBlockData data, PrimitiveData primitive) {
+        selection.primitives.add(primitive);
+        selection.uploadDiscouraged |= data.uploadDiscouraged;
+        if (primitive instanceof WayData) {
+            selection.ways.put(primitive.getUniqueId(), data.ways.get(primitive.getUniqueId()));
+        } else if (primitive instanceof RelationData) {
+            selection.relations.put(primitive.getUniqueId(), data.relations.get(primitive.getUniqueId()));
+        }
+    }
+
+    private static List<BlobLocation> locations(List<OsmPbfIndex.Block> blocks) {
+        final List<BlobLocation> locations = new ArrayList<>(blocks.size());
+        for (OsmPbfIndex.Block block : blocks) {
+            locations.add(new BlobLocation("OSMData", block.offset(), block.size()));
         }
+        return locations;
     }
 
     /**
@@ -299,58 +737,210 @@ public final class OsmPbfReader extends AbstractReader {
         return new Blob(size, type, bytes);
     }
 
+    /**
+     * Parse a blob header from a mapped file
+     *
+     * @param reader The reader for the BlobHeader message
+     * @return The BlobHeader message
+     * @throws IOException          if the message is truncated
+     * @throws IllegalDataException If the OSM PBF is (probably) corrupted
+     */
+    @Nonnull
+    private static BlobHeader parseBlobHeader(ProtobufReader reader) throws IOException, IllegalDataException {
+        String type = null;
+        byte[] indexData = null;
+        int datasize = Integer.MIN_VALUE;
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1:
+                    type = reader.readString();
+                    break;
+                case 2:
+                    indexData = reader.readBytes();
+                    break;
+                case 3:
+                    datasize = (int) reader.readVarInt();
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        if (type == null || Integer.MIN_VALUE == datasize || datasize < 0) {
+            throw new IllegalDataException("OSM PBF BlobHeader could not be read. PBF is probably corrupted.");
+        } else if (datasize > MAX_BLOB_SIZE) { // There is a hard limit of 32 MiB for the blob size. It *should* be less than 16 MiB.
+            throw new IllegalDataException("OSM PBF Blob size is too large. PBF is probably corrupted. ("
+                    + Utils.getSizeString(MAX_BLOB_SIZE, Locale.ENGLISH) + " < " + Utils.getSizeString(datasize, Locale.ENGLISH));
+        }
+        return new BlobHeader(type, indexData, datasize);
+    }
+
+    /**
+     * Parse a blob from a mapped file
+     *
+     * @param reader The reader for the Blob message
+     * @return The blob to use elsewhere
+     * @throws IOException If the message is truncated
+     */
+    @Nonnull
+    private static Blob parseBlob(ProtobufReader reader) throws IOException {
+        int size = Integer.MIN_VALUE;
+        Blob.CompressionType type = null;
+        byte[] bytes = null;
+        while (reader.hasNext()) {
+            final int field = reader.nextField();
+            if (field == 2) {
+                size = (int) reader.readVarInt();
+                continue;
+            }
+            switch (field) {
+                case 1:
+                    type = Blob.CompressionType.raw;
+                    break;
+                case 3:
+                    type = Blob.CompressionType.zlib;
+                    break;
+                case 4:
+                    type = Blob.CompressionType.lzma;
+                    break;
+                case 5:
+                    type = Blob.CompressionType.bzip2;
+                    break;
+                case 6:
+                    type = Blob.CompressionType.lz4;
+                    break;
+                case 7:
+                    type = Blob.CompressionType.zstd;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown compression type: " + field);
+            }
+            bytes = reader.readBytes();
+        }
+        if (type == null) {
+            throw new IllegalStateException("Compression type not found, pbf may be malformed");
+        }
+        return new Blob(size, type, bytes);
+    }
+
     /**
      * Parse a header block. This assumes that the parser has hit a string with the text "OSMHeader".
      *
      * @param blob The blob with the header block data
-     * @param baos The reusable output stream to use
      * @return The parsed HeaderBlock
      * @throws IOException if one of the {@link InputStream}s has a problem
      */
     @Nonnull
-    private static HeaderBlock parseHeaderBlock(Blob blob, ByteArrayOutputStream baos) throws IOException {
-        try (InputStream blobInput = blob.inputStream();
-             ProtobufParser parser = new ProtobufParser(blobInput)) {
-            BBox bbox = null;
-            List<String> required = new ArrayList<>();
-            List<String> optional = new ArrayList<>();
-            String program = null;
-            String source = null;
-            Long osmosisReplicationTimestamp = null;
-            Long osmosisReplicationSequenceNumber = null;
-            String osmosisReplicationBaseUrl = null;
-            while (parser.hasNext()) {
-                final ProtobufRecord current = new ProtobufRecord(baos, parser);
-                switch (current.getField()) {
-                    case 1: // bbox
-                        bbox = parseBBox(baos, current);
-                        break;
-                    case 4: // repeated required features
-                        required.add(current.asString());
-                        break;
-                    case 5: // repeated optional features
-                        optional.add(current.asString());
-                        break;
-                    case 16: // writing program
-                        program = current.asString();
-                        break;
-                    case 17: // source
-                        source = current.asString();
-                        break;
-                    case 32: // osmosis replication timestamp
-                        osmosisReplicationTimestamp = current.asSignedVarInt().longValue();
-                        break;
-                    case 33: // osmosis replication sequence number
-                        osmosisReplicationSequenceNumber = current.asSignedVarInt().longValue();
-                        break;
-                    case 34: // osmosis replication base url
-                        osmosisReplicationBaseUrl = current.asString();
-                        break;
-                    default: // fall through -- unknown header block field
-                }
+    private static HeaderBlock parseHeaderBlock(Blob blob) throws IOException {
+        final ProtobufReader reader = readBlob(blob);
+        BBox bbox = null;
+        List<String> required = new ArrayList<>();
+        List<String> optional = new ArrayList<>();
+        String program = null;
+        String source = null;
+        Long osmosisReplicationTimestamp = null;
+        Long osmosisReplicationSequenceNumber = null;
+        String osmosisReplicationBaseUrl = null;
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1: // bbox
+                    bbox = parseBBox(reader.readMessage());
+                    break;
+                case 4: // repeated required features
+                    required.add(reader.readString());
+                    break;
+                case 5: // repeated optional features
+                    optional.add(reader.readString());
+                    break;
+                case 16: // writing program
+                    program = reader.readString();
+                    break;
+                case 17: // source
+                    source = reader.readString();
+                    break;
+                case 32: // osmosis replication timestamp
+                    osmosisReplicationTimestamp = reader.readSignedVarInt();
+                    break;
+                case 33: // osmosis replication sequence number
+                    osmosisReplicationSequenceNumber = reader.readSignedVarInt();
+                    break;
+                case 34: // osmosis replication base url
+                    osmosisReplicationBaseUrl = reader.readString();
+                    break;
+                default: // unknown header block field
+                    reader.skip();
+            }
+        }
+        return new HeaderBlock(bbox, required.toArray(new String[0]), optional.toArray(new String[0]), program,
+                source, osmosisReplicationTimestamp, osmosisReplicationSequenceNumber, osmosisReplicationBaseUrl);
+    }
+
+    /**
+     * Read the JOSM extension of a header block, written by {@link OsmPbfWriter}, and apply it to the dataset
+     *
+     * @param blob The blob with the header block data
+     * @throws IOException          if one of the {@link InputStream}s has a problem
+     * @throws IllegalDataException if a policy is invalid
+     */
+    private void parseJosmHeader(Blob blob) throws IOException, IllegalDataException {
+        final ProtobufReader reader = readBlob(blob);
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case OsmPbfWriter.JOSM_DATA_SOURCE:
+                    parseJosmDataSource(reader.readMessage());
+                    break;
+                case OsmPbfWriter.JOSM_UPLOAD_POLICY:
+                    parseUploadPolicy("upload", reader.readString());
+                    break;
+                case OsmPbfWriter.JOSM_DOWNLOAD_POLICY:
+                    parseDownloadPolicy("download", reader.readString());
+                    break;
+                case OsmPbfWriter.JOSM_LOCKED:
+                    this.locked = reader.readBoolean();
+                    break;
+                default: // Standard header block fields, see parseHeaderBlock
+                    reader.skip();
+            }
+        }
+    }
+
+    /**
+     * Read a data source of the JOSM extension of a header block
+     *
+     * @param reader The reader for the data source message
+     * @throws IOException if the message is malformed
+     */
+    private void parseJosmDataSource(ProtobufReader reader) throws IOException {
+        BBox bbox = null;
+        String origin = null;
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1:
+                    bbox = parseBBox(reader.readMessage());
+                    break;
+                case 2:
+                    origin = reader.readString();
+                    break;
+                default: // Fall through -- the extension could be extended
+                    reader.skip();
             }
-            return new HeaderBlock(bbox, required.toArray(new String[0]), optional.toArray(new String[0]), program,
-                    source, osmosisReplicationTimestamp, osmosisReplicationSequenceNumber, osmosisReplicationBaseUrl);
+        }
+        if (bbox != null) {
+            getDataSet().addDataSource(new DataSource(new Bounds((LatLon) bbox.getMin(), (LatLon) bbox.getMax()), origin));
+            this.josmDataSources = true;
+        }
+    }
+
+    /**
+     * Decompress a blob, so that it can be read without further allocations
+     *
+     * @param blob The blob to decompress
+     * @return The reader for the decompressed blob
+     * @throws IOException if we don't support the compression type, or the decompressor has issues
+     */
+    @Nonnull
+    private static ProtobufReader readBlob(Blob blob) throws IOException {
+        try (InputStream inputStream = blob.inputStream()) {
+            return new ProtobufReader(inputStream.readAllBytes());
         }
     }
 
@@ -370,171 +960,209 @@ public final class OsmPbfReader extends AbstractReader {
     }
 
     /**
-     * Parse a data blob (should be "OSMData")
+     * Parse a data blob (should be "OSMData"). This does not modify the reader state, so several blobs may be parsed concurrently.
      *
-     * @param baos        The reusable stream
-     * @param headerBlock The header block with data source information
-     * @param blob        The blob to read OSM data from
+     * @param blob The blob to read OSM data from
+     * @return The decoded primitives, to be added with {@link #addPrimitiveBlock(HeaderBlock, PrimitiveBlockData)}
      * @throws IOException          if we don't support the compression type
      * @throws IllegalDataException If an invalid OSM primitive was read
      */
-    private void parseDataBlock(ByteArrayOutputStream baos, HeaderBlock headerBlock, Blob blob) throws IOException, IllegalDataException {
+    @Nonnull
+    private static PrimitiveBlockData parseDataBlock(Blob blob) throws IOException, IllegalDataException {
         String[] stringTable = null; // field 1, note that stringTable[0] is a delimiter, so it is always blank and unused
         // field 2 -- we cannot parse these live just in case the following fields come later
-        final List<ProtobufRecord> primitiveGroups = new ArrayList<>();
+        final List<ProtobufReader> primitiveGroups = new ArrayList<>();
         int granularity = 100; // field 17
         long latOffset = 0; // field 19
         long lonOffset = 0; // field 20
         int dateGranularity = 1000; // field 18, default is milliseconds since the 1970 epoch
-        try (InputStream inputStream = blob.inputStream();
-             ProtobufParser parser = new ProtobufParser(inputStream)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        stringTable = parseStringTable(baos, protobufRecord.getBytes());
-                        break;
-                    case 2:
-                        primitiveGroups.add(protobufRecord);
-                        break;
-                    case 17:
-                        granularity = protobufRecord.asUnsignedVarInt().intValue();
-                        break;
-                    case 18:
-                        dateGranularity = protobufRecord.asUnsignedVarInt().intValue();
-                        break;
-                    case 19:
-                        latOffset = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 20:
-                        lonOffset = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    default: // Pass, since someone might have extended the format
-                }
+        final ProtobufReader reader = readBlob(blob);
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1:
+                    stringTable = parseStringTable(reader.readMessage());
+                    break;
+                case 2:
+                    primitiveGroups.add(reader.readMessage());
+                    break;
+                case 17:
+                    granularity = (int) reader.readVarInt();
+                    break;
+                case 18:
+                    dateGranularity = (int) reader.readVarInt();
+                    break;
+                case 19:
+                    latOffset = reader.readVarInt();
+                    break;
+                case 20:
+                    lonOffset = reader.readVarInt();
+                    break;
+                default: // Pass, since someone might have extended the format
+                    reader.skip();
             }
         }
         final PrimitiveBlockRecord primitiveBlockRecord = new PrimitiveBlockRecord(stringTable, granularity, latOffset, lonOffset,
                 dateGranularity);
-        final DataSet ds = getDataSet();
-        if (!primitiveGroups.isEmpty() && headerBlock.bbox() != null) {
-            try {
-                ds.beginUpdate();
+        final PrimitiveBlockData primitiveBlockData = new PrimitiveBlockData(!primitiveGroups.isEmpty());
+        for (ProtobufReader primitiveGroup : primitiveGroups) {
+            parsePrimitiveGroup(primitiveGroup, primitiveBlockRecord, primitiveBlockData);
+        }
+        return primitiveBlockData;
+    }
+
+    /**
+     * Add the primitives of a decoded data block to the dataset. Blocks must be added in file order.
+     *
+     * @param headerBlock        The header block with data source information, may be {@code null} for blocks without primitive groups
+     * @param primitiveBlockData The decoded block
+     */
+    private void addPrimitiveBlock(HeaderBlock headerBlock, PrimitiveBlockData primitiveBlockData) {
+        final DataSet ds = getDataSet();
+        try {
+            ds.beginUpdate();
+            if (primitiveBlockData.hasPrimitiveGroups && headerBlock.bbox() != null && !this.josmDataSources) {
                 ds.addDataSource(new DataSource(new Bounds((LatLon) headerBlock.bbox().getMin(), (LatLon) headerBlock.bbox().getMax()),
                         headerBlock.source()));
-            } finally {
-                ds.endUpdate();
             }
-        }
-        for (ProtobufRecord primitiveGroup : primitiveGroups) {
-            try (primitiveGroup) {
-                ds.beginUpdate();
-                parsePrimitiveGroup(baos, primitiveGroup.getBytes(), primitiveBlockRecord);
-            } finally {
-                ds.endUpdate();
+            if (primitiveBlockData.uploadDiscouraged) {
+                ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+            }
+            for (PrimitiveData primitiveData : primitiveBlockData.primitives) {
+                buildPrimitive(primitiveData);
             }
+        } finally {
+            ds.endUpdate();
         }
+        this.ways.putAll(primitiveBlockData.ways);
+        this.relations.putAll(primitiveBlockData.relations);
     }
 
     /**
      * This parses a bbox from a record (HeaderBBox message)
      *
-     * @param baos    The reusable {@link ByteArrayOutputStream} to avoid unnecessary allocations
-     * @param current The current record
+     * @param reader The reader for the HeaderBBox message
      * @return The <i>immutable</i> bbox, or {@code null}
-     * @throws IOException If something happens with the {@link InputStream}s (probably won't happen)
+     * @throws IOException If the message is malformed
      */
     @Nullable
-    private static BBox parseBBox(ByteArrayOutputStream baos, ProtobufRecord current) throws IOException {
-        try (ByteArrayInputStream bboxInputStream = new ByteArrayInputStream(current.getBytes());
-             ProtobufParser bboxParser = new ProtobufParser(bboxInputStream)) {
-            double left = Double.NaN;
-            double right = Double.NaN;
-            double top = Double.NaN;
-            double bottom = Double.NaN;
-            while (bboxParser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, bboxParser);
-                if (protobufRecord.getType() == WireType.VARINT) {
-                    double value = protobufRecord.asSignedVarInt().longValue() * NANO_DEGREES;
-                    switch (protobufRecord.getField()) {
-                        case 1:
-                            left = value;
-                            break;
-                        case 2:
-                            right = value;
-                            break;
-                        case 3:
-                            top = value;
-                            break;
-                        case 4:
-                            bottom = value;
-                            break;
-                        default: // Fall through -- someone might have extended the format
-                    }
+    private static BBox parseBBox(ProtobufReader reader) throws IOException {
+        double left = Double.NaN;
+        double right = Double.NaN;
+        double top = Double.NaN;
+        double bottom = Double.NaN;
+        while (reader.hasNext()) {
+            final int field = reader.nextField();
+            if (reader.getWireType() == WireType.VARINT) {
+                double value = reader.readSignedVarInt() * NANO_DEGREES;
+                switch (field) {
+                    case 1:
+                        left = value;
+                        break;
+                    case 2:
+                        right = value;
+                        break;
+                    case 3:
+                        top = value;
+                        break;
+                    case 4:
+                        bottom = value;
+                        break;
+                    default: // Fall through -- someone might have extended the format
                 }
-            }
-            if (!Double.isNaN(left) && !Double.isNaN(top) && !Double.isNaN(right) && !Double.isNaN(bottom)) {
-                return new BBox(left, top, right, bottom).toImmutable();
+            } else {
+                reader.skip();
             }
         }
+        if (!Double.isNaN(left) && !Double.isNaN(top) && !Double.isNaN(right) && !Double.isNaN(bottom)) {
+            return new BBox(left, top, right, bottom).toImmutable();
+        }
         return null;
     }
 
     /**
      * Parse the string table
      *
-     * @param baos  The reusable stream
-     * @param bytes The message bytes
+     * @param reader The reader for the StringTable message
      * @return The parsed table (reminder: index 0 is empty, note that all strings are already interned by {@link String#intern()})
-     * @throws IOException if something happened while reading a {@link ByteArrayInputStream}
+     * @throws IOException if the message is malformed
      */
     @Nonnull
-    private static String[] parseStringTable(ByteArrayOutputStream baos, byte[] bytes) throws IOException {
-        try (ByteArrayInputStream is = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(is)) {
-            final List<String> list = new ArrayList<>();
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                if (protobufRecord.getField() == 1) {
-                    list.add(protobufRecord.asString().intern()); // field is technically repeated bytes
-                }
+    private static String[] parseStringTable(ProtobufReader reader) throws IOException {
+        final List<String> list = new ArrayList<>();
+        while (reader.hasNext()) {
+            if (reader.nextField() == 1) {
+                list.add(reader.readString().intern()); // field is technically repeated bytes
+            } else {
+                reader.skip();
             }
-            return list.toArray(new String[0]);
         }
+        return list.toArray(new String[0]);
     }
 
     /**
      * Parse a PrimitiveGroup. Note: this parsing implementation doesn't check and make certain that all primitives in the group are the same
      * type.
      *
-     * @param baos                 The reusable stream
-     * @param bytes                The bytes to decode
+     * @param reader               The reader for the PrimitiveGroup message
      * @param primitiveBlockRecord The record to use for creating the primitives
+     * @param primitiveBlockData   The decoded block to add the primitives to
      * @throws IllegalDataException if one of the primitive records was invalid
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
+     * @throws IOException          if the message is malformed
      */
-    private void parsePrimitiveGroup(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1: // Nodes, repeated
-                        parseNode(baos, protobufRecord.getBytes(), primitiveBlockRecord);
-                        break;
-                    case 2: // Dense nodes, not repeated
-                        parseDenseNodes(baos, protobufRecord.getBytes(), primitiveBlockRecord);
-                        break;
-                    case 3: // Ways, repeated
-                        parseWay(baos, protobufRecord.getBytes(), primitiveBlockRecord);
-                        break;
-                    case 4: // relations, repeated
-                        parseRelation(baos, protobufRecord.getBytes(), primitiveBlockRecord);
-                        break;
-                    case 5: // Changesets, repeated
-                        // Skip -- we don't have a good way to store changeset information in JOSM
-                    default: // OSM PBF could be extended
-                }
+    private static void parsePrimitiveGroup(ProtobufReader reader, PrimitiveBlockRecord primitiveBlockRecord,
+            PrimitiveBlockData primitiveBlockData) throws IllegalDataException, IOException {
+        final int start = primitiveBlockData.primitives.size();
+        long[] flags = null;
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1: // Nodes, repeated
+                    parseNode(reader.readMessage(), primitiveBlockRecord, primitiveBlockData);
+                    break;
+                case 2: // Dense nodes, not repeated
+                    parseDenseNodes(reader.readMessage(), primitiveBlockRecord, primitiveBlockData);
+                    break;
+                case 3: // Ways, repeated
+                    parseWay(reader.readMessage(), primitiveBlockRecord, primitiveBlockData);
+                    break;
+                case 4: // relations, repeated
+                    parseRelation(reader.readMessage(), primitiveBlockRecord, primitiveBlockData);
+                    break;
+                case OsmPbfWriter.JOSM_FLAGS: // JOSM extension, see OsmPbfWriter
+                    flags = joinArrays(flags == null ? EMPTY_LONG : flags, reader.readPackedVarInt());
+                    break;
+                case 5: // Changesets, repeated
+                    // Skip -- we don't have a good way to store changeset information in JOSM
+                default: // OSM PBF could be extended
+                    reader.skip();
+            }
+        }
+        if (flags != null) {
+            applyFlags(primitiveBlockData.primitives.subList(start, primitiveBlockData.primitives.size()), flags);
+        }
+    }
+
+    /**
+     * Apply the JOSM state written by {@link OsmPbfWriter} to the primitives of a group
+     *
+     * @param primitives The primitives of the group
+     * @param flags      The flags of the primitives, in the same order
+     * @throws IllegalDataException if there is not one flag per primitive
+     */
+    private static void applyFlags(List<PrimitiveData> primitives, long[] flags) throws IllegalDataException {
+        if (primitives.size() != flags.length) {
+            throw new IllegalDataException("OSM PBF has mismatched JOSM flags lengths");
+        }
+        for (int i = 0; i < flags.length; i++) {
+            final PrimitiveData primitive = primitives.get(i);
+            // Same as the "action" attribute of the OSM XML format
+            if ((flags[i] & OsmPbfWriter.FLAG_DELETED) != 0) {
+                primitive.setDeleted(true);
+                primitive.setModified(primitive.isVisible());
+            } else if ((flags[i] & OsmPbfWriter.FLAG_MODIFIED) != 0) {
+                primitive.setModified(true);
+            }
+            if ((flags[i] & OsmPbfWriter.FLAG_NO_COORDINATES) != 0 && primitive instanceof NodeData) {
+                ((NodeData) primitive).setCoor(null);
             }
         }
     }
@@ -542,107 +1170,93 @@ public final class OsmPbfReader extends AbstractReader {
     /**
      * Parse a singular node
      *
-     * @param baos                 The reusable stream
-     * @param bytes                The bytes to decode
+     * @param reader               The reader for the Node message
      * @param primitiveBlockRecord The record to use (mostly for tags and lat/lon calculations)
+     * @param primitiveBlockData   The decoded block to add the primitives to
      * @throws IllegalDataException if the PBF did not provide all the data necessary for node creation
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
+     * @throws IOException          if the message is malformed
      */
-    private void parseNode(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            long id = Long.MIN_VALUE;
-            final List<String> keys = new ArrayList<>();
-            final List<String> values = new ArrayList<>();
-            Info info = null;
-            long lat = Long.MIN_VALUE;
-            long lon = Long.MIN_VALUE;
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        id = protobufRecord.asSignedVarInt().intValue();
-                        break;
-                    case 2:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            keys.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 3:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            values.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 4:
-                        info = parseInfo(baos, protobufRecord.getBytes());
-                        break;
-                    case 8:
-                        lat = protobufRecord.asSignedVarInt().longValue();
-                        break;
-                    case 9:
-                        lon = protobufRecord.asSignedVarInt().longValue();
-                        break;
-                    default: // Fall through -- PBF could be extended (unlikely)
-                }
-            }
-            if (id == Long.MIN_VALUE || lat == Long.MIN_VALUE || lon == Long.MIN_VALUE) {
-                throw new IllegalDataException("OSM PBF did not provide all the required node information");
-            }
-            final NodeData node = new NodeData(id);
-            node.setCoor(calculateLatLon(primitiveBlockRecord, lat, lon));
-            addTags(node, keys, values);
-            if (info != null) {
-                setOsmPrimitiveData(primitiveBlockRecord, node, info);
-            } else {
-                ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+    private static void parseNode(ProtobufReader reader, PrimitiveBlockRecord primitiveBlockRecord,
+            PrimitiveBlockData primitiveBlockData) throws IllegalDataException, IOException {
+        long id = Long.MIN_VALUE;
+        final List<String> keys = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+        Info info = null;
+        long lat = Long.MIN_VALUE;
+        long lon = Long.MIN_VALUE;
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1:
+                    id = reader.readSignedVarInt();
+                    break;
+                case 2:
+                    addStrings(reader, primitiveBlockRecord, keys);
+                    break;
+                case 3:
+                    addStrings(reader, primitiveBlockRecord, values);
+                    break;
+                case 4:
+                    info = parseInfo(reader.readMessage());
+                    break;
+                case 8:
+                    lat = reader.readSignedVarInt();
+                    break;
+                case 9:
+                    lon = reader.readSignedVarInt();
+                    break;
+                default: // Fall through -- PBF could be extended (unlikely)
+                    reader.skip();
             }
-            buildPrimitive(node);
         }
+        if (id == Long.MIN_VALUE || lat == Long.MIN_VALUE || lon == Long.MIN_VALUE) {
+            throw new IllegalDataException("OSM PBF did not provide all the required node information");
+        }
+        final NodeData node = new NodeData(id);
+        node.setCoor(calculateLatLon(primitiveBlockRecord, lat, lon));
+        addTags(node, keys, values);
+        if (info != null) {
+            setOsmPrimitiveData(primitiveBlockRecord, node, info);
+        } else {
+            primitiveBlockData.uploadDiscouraged = true;
+        }
+        primitiveBlockData.primitives.add(node);
     }
 
     /**
      * Parse dense nodes from a record
      *
-     * @param baos                 The reusable output stream
-     * @param bytes                The bytes for the dense node
+     * @param reader               The reader for the DenseNodes message
      * @param primitiveBlockRecord Used for data that is common between several different objects.
+     * @param primitiveBlockData   The decoded block to add the primitives to
      * @throws IllegalDataException if the nodes could not be parsed, or one of the nodes would be malformed
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
+     * @throws IOException          if the message is malformed
      */
-    private void parseDenseNodes(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
+    private static void parseDenseNodes(ProtobufReader reader, PrimitiveBlockRecord primitiveBlockRecord,
+            PrimitiveBlockData primitiveBlockData) throws IllegalDataException, IOException {
         long[] ids = EMPTY_LONG;
         long[] lats = EMPTY_LONG;
         long[] lons = EMPTY_LONG;
         long[] keyVals = EMPTY_LONG; // technically can be int
         Info[] denseInfo = null;
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1: // packed node ids, DELTA encoded
-                        long[] tids = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        ids = joinArrays(ids, tids);
-                        break;
-                    case 5: // DenseInfo
-                        denseInfo = parseDenseInfo(baos, protobufRecord.getBytes()); // not repeated or packed
-                        break;
-                    case 8: // packed lat, DELTA encoded
-                        long[] tlats = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        lats = joinArrays(lats, tlats);
-                        break;
-                    case 9: // packed lon, DELTA encoded
-                        long[] tlons = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        lons = joinArrays(lons, tlons);
-                        break;
-                    case 10: // key_val mappings, packed. '0' used as separator between nodes
-                        long[] tkeyVal = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        keyVals = joinArrays(keyVals, tkeyVal);
-                        break;
-                    default: // Someone might have extended the PBF format
-                }
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1: // packed node ids, DELTA encoded
+                    ids = joinArrays(ids, reader.readPackedSignedVarInt());
+                    break;
+                case 5: // DenseInfo
+                    denseInfo = parseDenseInfo(reader.readMessage()); // not repeated or packed
+                    break;
+                case 8: // packed lat, DELTA encoded
+                    lats = joinArrays(lats, reader.readPackedSignedVarInt());
+                    break;
+                case 9: // packed lon, DELTA encoded
+                    lons = joinArrays(lons, reader.readPackedSignedVarInt());
+                    break;
+                case 10: // key_val mappings, packed. '0' used as separator between nodes
+                    keyVals = joinArrays(keyVals, reader.readPackedVarInt());
+                    break;
+                default: // Someone might have extended the PBF format
+                    reader.skip();
             }
         }
 
@@ -659,7 +1273,7 @@ public final class OsmPbfReader extends AbstractReader {
                     final Info info = denseInfo[i];
                     setOsmPrimitiveData(primitiveBlockRecord, node, info);
                 } else {
-                    ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+                    primitiveBlockData.uploadDiscouraged = true;
                 }
                 lat += lats[i];
                 lon += lons[i];
@@ -682,8 +1296,7 @@ public final class OsmPbfReader extends AbstractReader {
                         break;
                     }
                 }
-                // Just add the nodes as we make them -- avoid creating another list that expands every time we parse a node
-                buildPrimitive(node);
+                primitiveBlockData.primitives.add(node);
             }
         } else {
             throw new IllegalDataException("OSM PBF has mismatched DenseNode lengths");
@@ -693,14 +1306,14 @@ public final class OsmPbfReader extends AbstractReader {
     /**
      * Parse a way from the PBF
      *
-     * @param baos                 The reusable stream
-     * @param bytes                The bytes for the way
+     * @param reader               The reader for the Way message
      * @param primitiveBlockRecord Used for common information, like tags
+     * @param primitiveBlockData   The decoded block to add the primitives to
      * @throws IllegalDataException if an invalid way could have been created
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
+     * @throws IOException          if the message is malformed
      */
-    private void parseWay(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
+    private static void parseWay(ProtobufReader reader, PrimitiveBlockRecord primitiveBlockRecord,
+            PrimitiveBlockData primitiveBlockData) throws IllegalDataException, IOException {
         long id = Long.MIN_VALUE;
         List<String> keys = new ArrayList<>();
         List<String> values = new ArrayList<>();
@@ -708,39 +1321,31 @@ public final class OsmPbfReader extends AbstractReader {
         long[] refs = EMPTY_LONG; // DELTA encoded
         // We don't do live drawing, so we don't care about lats and lons (we essentially throw them away with the current parser)
         // This is for the optional feature "LocationsOnWays"
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        id = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 2:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            keys.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 3:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            values.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 4:
-                        info = parseInfo(baos, protobufRecord.getBytes());
-                        break;
-                    case 8:
-                        long[] tRefs = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        refs = joinArrays(refs, tRefs);
-                        break;
-                    // case 9 and 10 are for "LocationsOnWays" -- this is only usable if we can create the way geometry directly
-                    // if this is ever supported, lats = joinArrays(lats, decodePackedSInt64(...))
-                    default: // PBF could be expanded by other people
-                }
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1:
+                    id = reader.readVarInt();
+                    break;
+                case 2:
+                    addStrings(reader, primitiveBlockRecord, keys);
+                    break;
+                case 3:
+                    addStrings(reader, primitiveBlockRecord, values);
+                    break;
+                case 4:
+                    info = parseInfo(reader.readMessage());
+                    break;
+                case 8:
+                    refs = joinArrays(refs, reader.readPackedSignedVarInt());
+                    break;
+                // case 9 and 10 are for "LocationsOnWays" -- this is only usable if we can create the way geometry directly
+                // if this is ever supported, lats = joinArrays(lats, reader.readPackedSignedVarInt())
+                default: // PBF could be expanded by other people
+                    reader.skip();
             }
         }
-        if (refs.length == 0 || id == Long.MIN_VALUE) {
-            throw new IllegalDataException("A way with either no id or no nodes was found");
+        if (id == Long.MIN_VALUE) {
+            throw new IllegalDataException("A way with no id was found");
         }
         final WayData wayData = new WayData(id);
         final List<Long> nodeIds = new ArrayList<>(refs.length);
@@ -749,27 +1354,27 @@ public final class OsmPbfReader extends AbstractReader {
             ref += tRef;
             nodeIds.add(ref);
         }
-        this.ways.put(wayData.getUniqueId(), nodeIds);
+        primitiveBlockData.ways.put(wayData.getUniqueId(), nodeIds);
         addTags(wayData, keys, values);
         if (info != null) {
             setOsmPrimitiveData(primitiveBlockRecord, wayData, info);
         } else {
-            ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+            primitiveBlockData.uploadDiscouraged = true;
         }
-        buildPrimitive(wayData);
+        primitiveBlockData.primitives.add(wayData);
     }
 
     /**
      * Parse a relation from a PBF
      *
-     * @param baos                 The reusable stream
-     * @param bytes                The bytes to use
+     * @param reader               The reader for the Relation message
      * @param primitiveBlockRecord Mostly used for tags
+     * @param primitiveBlockData   The decoded block to add the primitives to
      * @throws IllegalDataException if the PBF had a bad relation definition
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
+     * @throws IOException          if the message is malformed
      */
-    private void parseRelation(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
+    private static void parseRelation(ProtobufReader reader, PrimitiveBlockRecord primitiveBlockRecord,
+            PrimitiveBlockData primitiveBlockData) throws IllegalDataException, IOException {
         long id = Long.MIN_VALUE;
         final List<String> keys = new ArrayList<>();
         final List<String> values = new ArrayList<>();
@@ -777,41 +1382,31 @@ public final class OsmPbfReader extends AbstractReader {
         long[] rolesStringId = EMPTY_LONG; // Technically int
         long[] memids = EMPTY_LONG;
         long[] types = EMPTY_LONG; // Technically an enum
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        id = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 2:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            keys.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 3:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            values.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 4:
-                        info = parseInfo(baos, protobufRecord.getBytes());
-                        break;
-                    case 8:
-                        long[] tRoles = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        rolesStringId = joinArrays(rolesStringId, tRoles);
-                        break;
-                    case 9:
-                        long[] tMemids = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        memids = joinArrays(memids, tMemids);
-                        break;
-                    case 10:
-                        long[] tTypes = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        types = joinArrays(types, tTypes);
-                        break;
-                    default: // Fall through for PBF extensions
-                }
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1:
+                    id = reader.readVarInt();
+                    break;
+                case 2:
+                    addStrings(reader, primitiveBlockRecord, keys);
+                    break;
+                case 3:
+                    addStrings(reader, primitiveBlockRecord, values);
+                    break;
+                case 4:
+                    info = parseInfo(reader.readMessage());
+                    break;
+                case 8:
+                    rolesStringId = joinArrays(rolesStringId, reader.readPackedVarInt());
+                    break;
+                case 9:
+                    memids = joinArrays(memids, reader.readPackedSignedVarInt());
+                    break;
+                case 10:
+                    types = joinArrays(types, reader.readPackedVarInt());
+                    break;
+                default: // Fall through for PBF extensions
+                    reader.skip();
             }
         }
         if (keys.size() != values.size() || rolesStringId.length != memids.length || memids.length != types.length || id == Long.MIN_VALUE) {
@@ -821,7 +1416,7 @@ public final class OsmPbfReader extends AbstractReader {
         if (info != null) {
             setOsmPrimitiveData(primitiveBlockRecord, data, info);
         } else {
-            ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+            primitiveBlockData.uploadDiscouraged = true;
         }
         addTags(data, keys, values);
         OsmPrimitiveType[] valueTypes = OsmPrimitiveType.values();
@@ -833,53 +1428,64 @@ public final class OsmPbfReader extends AbstractReader {
             OsmPrimitiveType type = valueTypes[(int) types[i]];
             members.add(new RelationMemberData(role, type, memberId));
         }
-        this.relations.put(data.getUniqueId(), members);
-        buildPrimitive(data);
+        primitiveBlockData.relations.put(data.getUniqueId(), members);
+        primitiveBlockData.primitives.add(data);
     }
 
     /**
      * Parse info for an object
      *
-     * @param baos  The reusable stream to use
-     * @param bytes The bytes to decode
+     * @param reader The reader for the Info message
      * @return The info for an object
-     * @throws IOException if something happened while reading a {@link ByteArrayInputStream}
+     * @throws IOException if the message is malformed
      */
     @Nonnull
-    private static Info parseInfo(ByteArrayOutputStream baos, byte[] bytes) throws IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            int version = -1;
-            Long timestamp = null;
-            Long changeset = null;
-            Integer uid = null;
-            Integer userSid = null;
-            boolean visible = true;
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        version = protobufRecord.asUnsignedVarInt().intValue();
-                        break;
-                    case 2:
-                        timestamp = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 3:
-                        changeset = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 4:
-                        uid = protobufRecord.asUnsignedVarInt().intValue();
-                        break;
-                    case 5:
-                        userSid = protobufRecord.asUnsignedVarInt().intValue();
-                        break;
-                    case 6:
-                        visible = protobufRecord.asUnsignedVarInt().byteValue() == 1;
-                        break;
-                    default: // Fall through, since the PBF format could be extended
-                }
+    private static Info parseInfo(ProtobufReader reader) throws IOException {
+        int version = -1;
+        Long timestamp = null;
+        Long changeset = null;
+        Integer uid = null;
+        Integer userSid = null;
+        boolean visible = true;
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1:
+                    version = (int) reader.readVarInt();
+                    break;
+                case 2:
+                    timestamp = reader.readVarInt();
+                    break;
+                case 3:
+                    changeset = reader.readVarInt();
+                    break;
+                case 4:
+                    uid = (int) reader.readVarInt();
+                    break;
+                case 5:
+                    userSid = (int) reader.readVarInt();
+                    break;
+                case 6:
+                    visible = reader.readVarInt() == 1;
+                    break;
+                default: // Fall through, since the PBF format could be extended
+                    reader.skip();
             }
-            return new Info(version, timestamp, changeset, uid, userSid, visible);
+        }
+        return new Info(version, timestamp, changeset, uid, userSid, visible);
+    }
+
+    /**
+     * Add the strings of a packed string table index field to a list
+     *
+     * @param reader               The reader, positioned on the value of the packed field
+     * @param primitiveBlockRecord The record with the string table
+     * @param strings              The list to add the strings to
+     * @throws IOException if the message is malformed
+     */
+    private static void addStrings(ProtobufReader reader, PrimitiveBlockRecord primitiveBlockRecord, List<String> strings)
+            throws IOException {
+        for (long number : reader.readPackedVarInt()) {
+            strings.add(primitiveBlockRecord.stringTable[(int) number]);
         }
     }
 
@@ -893,8 +1499,9 @@ public final class OsmPbfReader extends AbstractReader {
      */
     @Nonnull
     private static LatLon calculateLatLon(PrimitiveBlockRecord primitiveBlockRecord, long lat, long lon) {
-        return new LatLon(NANO_DEGREES * (primitiveBlockRecord.latOffset + (primitiveBlockRecord.granularity * lat)),
-                NANO_DEGREES * (primitiveBlockRecord.lonOffset + (primitiveBlockRecord.granularity * lon)));
+        // Divide instead of multiplying by NANO_DEGREES, so that decimal coordinates written by OsmPbfWriter are read back exactly
+        return new LatLon((primitiveBlockRecord.latOffset + (primitiveBlockRecord.granularity * lat)) / NANO_DEGREES_PER_DEGREE,
+                (primitiveBlockRecord.lonOffset + (primitiveBlockRecord.granularity * lon)) / NANO_DEGREES_PER_DEGREE);
     }
 
     /**
@@ -928,7 +1535,13 @@ public final class OsmPbfReader extends AbstractReader {
         if (info.timestamp() != null) {
             primitive.setRawTimestamp(Math.toIntExact(info.timestamp() * primitiveBlockRecord.dateGranularity / 1000));
         }
-        if (info.uid() != null && info.userSid() != null) {
+        if (info.uid() != null && info.uid() == 0) {
+            // No user, or a local user written by OsmPbfWriter
+            final String userName = info.userSid() != null ? primitiveBlockRecord.stringTable[info.userSid()] : "";
+            if (!userName.isEmpty()) {
+                primitive.setUser(User.createLocalUser(userName));
+            }
+        } else if (info.uid() != null && info.userSid() != null) {
             primitive.setUser(User.createOsmUser(info.uid(), primitiveBlockRecord.stringTable[info.userSid()]));
         } else if (info.uid() != null) {
             primitive.setUser(User.getById(info.uid()));
@@ -941,20 +1554,6 @@ public final class OsmPbfReader extends AbstractReader {
         }
     }
 
-    /**
-     * Convert an array of numbers to an array of longs, decoded from uint (zig zag decoded)
-     *
-     * @param numbers The numbers to convert
-     * @return The long array (the same array that was passed in)
-     */
-    @Nonnull
-    private static long[] decodePackedSInt64(long[] numbers) {
-        for (int i = 0; i < numbers.length; i++) {
-            numbers[i] = ProtobufParser.decodeZigZag(numbers[i]);
-        }
-        return numbers;
-    }
-
     /**
      * Join two different arrays
      *
@@ -978,51 +1577,41 @@ public final class OsmPbfReader extends AbstractReader {
     /**
      * Parse dense info
      *
-     * @param baos  The reusable stream
-     * @param bytes The bytes to decode
+     * @param reader The reader for the DenseInfo message
      * @return The dense info array
      * @throws IllegalDataException If the data has mismatched array lengths
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
+     * @throws IOException          if the message is malformed
      */
     @Nonnull
-    private static Info[] parseDenseInfo(ByteArrayOutputStream baos, byte[] bytes) throws IllegalDataException, IOException {
+    private static Info[] parseDenseInfo(ProtobufReader reader) throws IllegalDataException, IOException {
         long[] version = EMPTY_LONG; // technically ints
         long[] timestamp = EMPTY_LONG;
         long[] changeset = EMPTY_LONG;
         long[] uid = EMPTY_LONG; // technically int
         long[] userSid = EMPTY_LONG; // technically int
         long[] visible = EMPTY_LONG; // optional, true if not set, technically booleans
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        long[] tVersion = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        version = joinArrays(version, tVersion);
-                        break;
-                    case 2:
-                        long[] tTimestamp = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        timestamp = joinArrays(timestamp, tTimestamp);
-                        break;
-                    case 3:
-                        long[] tChangeset = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        changeset = joinArrays(changeset, tChangeset);
-                        break;
-                    case 4:
-                        long[] tUid = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        uid = joinArrays(uid, tUid);
-                        break;
-                    case 5:
-                        long[] tUserSid = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        userSid = joinArrays(userSid, tUserSid);
-                        break;
-                    case 6:
-                        long[] tVisible = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        visible = joinArrays(visible, tVisible);
-                        break;
-                    default: // Fall through
-                }
+        while (reader.hasNext()) {
+            switch (reader.nextField()) {
+                case 1:
+                    version = joinArrays(version, reader.readPackedVarInt());
+                    break;
+                case 2:
+                    timestamp = joinArrays(timestamp, reader.readPackedSignedVarInt());
+                    break;
+                case 3:
+                    changeset = joinArrays(changeset, reader.readPackedSignedVarInt());
+                    break;
+                case 4:
+                    uid = joinArrays(uid, reader.readPackedSignedVarInt());
+                    break;
+                case 5:
+                    userSid = joinArrays(userSid, reader.readPackedSignedVarInt());
+                    break;
+                case 6:
+                    visible = joinArrays(visible, reader.readPackedVarInt());
+                    break;
+                default: // Fall through
+                    reader.skip();
             }
         }
         if (version.length > 0) {
@@ -1048,6 +1637,411 @@ public final class OsmPbfReader extends AbstractReader {
         throw new IllegalDataException("OSM PBF has mismatched DenseInfo lengths");
     }
 
+    /**
+     * The primitives decoded from one PrimitiveBlock, before they are added to the dataset
+     */
+    private static final class PrimitiveBlockData {
+        private final boolean hasPrimitiveGroups;
+        private final List<PrimitiveData> primitives = new ArrayList<>();
+        private final Map<Long, Collection<Long>> ways = new HashMap<>();
+        private final Map<Long, Collection<RelationMemberData>> relations = new HashMap<>();
+        private boolean uploadDiscouraged;
+
+        /**
+         * Create a new decoded block
+         *
+         * @param hasPrimitiveGroups {@code true} if the block contains at least one PrimitiveGroup
+         */
+        PrimitiveBlockData(boolean hasPrimitiveGroups) {
+            this.hasPrimitiveGroups = hasPrimitiveGroups;
+        }
+    }
+
+    /**
+     * The location of a blob in a PBF file
+     */
+    private static final class BlobLocation {
+        private final String type;
+        private final long offset;
+        private final int size;
+
+        /**
+         * Create a new location
+         *
+         * @param type   The blob type from the BlobHeader ("OSMHeader" or "OSMData")
+         * @param offset The offset of the Blob message in the file
+         * @param size   The size of the Blob message
+         */
+        BlobLocation(String type, long offset, int size) {
+            this.type = type;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A consumer for blocks decoded by {@link #decodeDataBlobs}
+     */
+    @FunctionalInterface
+    private interface DecodedBlockConsumer {
+        /**
+         * Use a decoded block
+         *
+         * @param location The location of the blob, may be {@code null} for blocks which were decoded before
+         * @param data     The decoded block
+         * @throws IOException          if another block could not be read
+         * @throws IllegalDataException if the block contained an invalid OSM primitive
+         */
+        void accept(BlobLocation location, PrimitiveBlockData data) throws IOException, IllegalDataException;
+    }
+
+    /**
+     * A PBF file mapped in memory. Large files are mapped by windows, since a mapping is limited to 2 GiB.
+     */
+    private static final class MappedPbfFile implements AutoCloseable {
+        /** The size of a mapped window. This is more than the size of a BlobHeader and a Blob, so that each fits in one window. */
+        private static final long WINDOW_SIZE = 1L << 30;
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        /**
+         * Map a file
+         *
+         * @param file The file to map
+         * @throws IOException if the file could not be opened
+         */
+        MappedPbfFile(File file) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.size = this.channel.size();
+        }
+
+        /**
+         * The size of the file
+         *
+         * @return The size in bytes
+         */
+        long size() {
+            return this.size;
+        }
+
+        /**
+         * Get a slice of the file
+         *
+         * @param offset The offset of the slice in the file
+         * @param length The length of the slice
+         * @return The slice, in big endian byte order
+         * @throws IOException if the file could not be mapped, or the slice is not in the file
+         */
+        ByteBuffer slice(long offset, int length) throws IOException {
+            if (offset < 0 || length < 0 || offset > this.size - length) {
+                throw new EOFException("Truncated OSM PBF: " + length + " bytes expected at " + offset + ", size " + this.size);
+            }
+            if (this.window == null || offset < this.windowStart || offset + length > this.windowStart + this.window.capacity()) {
+                this.windowStart = offset;
+                this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, this.size - offset));
+            }
+            final ByteBuffer slice = this.window.duplicate();
+            slice.position((int) (offset - this.windowStart));
+            slice.limit(slice.position() + length);
+            return slice.slice();
+        }
+
+        /**
+         * Find all the blobs of the file, without reading them
+         *
+         * @return The blobs, in file order
+         * @throws IOException          if the file could not be read
+         * @throws IllegalDataException if the file is (probably) corrupted
+         */
+        List<BlobLocation> scanBlobs() throws IOException, IllegalDataException {
+            final List<BlobLocation> locations = new ArrayList<>();
+            long position = 0;
+            while (position < this.size) {
+                // Each blob is prefixed by the length of its BlobHeader, as a 4 byte network byte order int
+                final int headerSize = slice(position, Integer.BYTES).getInt();
+                if (headerSize < 0 || headerSize > MAX_BLOBHEADER_SIZE) {
+                    throw new IllegalDataException("OSM PBF BlobHeader is too large. PBF is probably corrupted. (" +
+                            Utils.getSizeString(MAX_BLOBHEADER_SIZE, Locale.ENGLISH) + " < " + Utils.getSizeString(headerSize, Locale.ENGLISH));
+                }
+                position += Integer.BYTES;
+                final BlobHeader header = parseBlobHeader(new ProtobufReader(slice(position, headerSize)));
+                position += headerSize;
+                locations.add(new BlobLocation(header.type(), position, header.dataSize()));
+                position += header.dataSize();
+            }
+            if (position != this.size) {
+                throw new EOFException("Truncated OSM PBF: the last blob ends at " + position + ", size " + this.size);
+            }
+            return locations;
+        }
+
+        /**
+         * Read a blob
+         *
+         * @param location The location of the blob
+         * @return The blob
+         * @throws IOException if the file could not be read
+         */
+        Blob readBlob(BlobLocation location) throws IOException {
+            return parseBlob(new ProtobufReader(slice(location.offset, location.size)));
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.window = null;
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Compute the index entries of decoded data blocks.
+     * <p>
+     * The bbox of a way or relation block is the union of the exact bboxes of its ways and relations. The members are looked up
+     * in the blocks of the file which contain them, those blocks are decoded again when they are not in a small cache anymore.
+     */
+    private static final class IndexBuilder {
+        private static final OsmPrimitiveType[] TYPES = {OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION};
+        private final MappedPbfFile pbf;
+        private final List<OsmPbfIndex.Block> blocks = new ArrayList<>();
+        /** The blocks with nodes, used to compute the bbox of ways and relations */
+        private final List<OsmPbfIndex.Block> nodeBlocks = new ArrayList<>();
+        /** The blocks with ways, used to compute the bbox of relations */
+        private final List<OsmPbfIndex.Block> wayBlocks = new ArrayList<>();
+        /** The extents of the nodes and ways of the last used blocks, by block offset */
+        private final Map<Long, Extents[]> cache;
+        private boolean nodesSorted = true;
+        private boolean waysSorted = true;
+
+        /**
+         * Create a new builder
+         *
+         * @param pbf The mapped file, to decode the blocks containing the members of ways and relations
+         */
+        IndexBuilder(MappedPbfFile pbf) {
+            this.pbf = pbf;
+            this.cache = new LruCache<>(Config.getPref().getInt("pbf.index.cached.blocks", 256));
+        }
+
+        /**
+         * Add a decoded block. Blocks must be added in file order.
+         *
+         * @param location The location of the block
+         * @param data     The decoded block
+         * @throws IOException          if the block of a member could not be read
+         * @throws IllegalDataException if the block of a member contained an invalid OSM primitive
+         */
+        void add(BlobLocation location, PrimitiveBlockData data) throws IOException, IllegalDataException {
+            final long[] minIds = new long[TYPES.length];
+            final long[] maxIds = new long[TYPES.length];
+            Arrays.fill(minIds, Long.MAX_VALUE);
+            Arrays.fill(maxIds, Long.MIN_VALUE);
+            for (PrimitiveData primitive : data.primitives) {
+                final int type = primitive.getType().ordinal();
+                minIds[type] = Math.min(minIds[type], primitive.getUniqueId());
+                maxIds[type] = Math.max(maxIds[type], primitive.getUniqueId());
+            }
+            final Extents nodes = nodeExtents(data);
+            final BBox bbox = new BBox();
+            final Extents ways = wayExtents(data, nodes, bbox);
+            boolean bboxKnown = ways != null;
+            for (int i = 0; bboxKnown && i < nodes.ids.length; i++) {
+                bbox.add(nodes.minLon[i], nodes.minLat[i]);
+            }
+            for (PrimitiveData primitive : data.primitives) {
+                if (bboxKnown && primitive instanceof RelationData) {
+                    for (RelationMemberData member : data.relations.get(primitive.getUniqueId())) {
+                        // Relation members of relations are not followed: a relation is read for an area if one of its node
+                        // or way members is read
+                        if (member.getMemberType() == OsmPrimitiveType.NODE) {
+                            bboxKnown &= nodes.add(bbox, member.getMemberId()) || addMemberBBox(bbox, OsmPrimitiveType.NODE,
+                                    member.getMemberId());
+                        } else if (member.getMemberType() == OsmPrimitiveType.WAY) {
+                            bboxKnown &= ways.add(bbox, member.getMemberId()) || addMemberBBox(bbox, OsmPrimitiveType.WAY,
+                                    member.getMemberId());
+                        }
+                    }
+                }
+            }
+            final OsmPbfIndex.Block block = new OsmPbfIndex.Block(location.offset, location.size, bboxKnown ? bbox : null,
+                    minIds, maxIds);
+            this.blocks.add(block);
+            if (block.contains(OsmPrimitiveType.NODE)) {
+                this.nodesSorted &= this.nodeBlocks.isEmpty()
+                        || this.nodeBlocks.get(this.nodeBlocks.size() - 1).maxId(OsmPrimitiveType.NODE) < block.minId(OsmPrimitiveType.NODE);
+                this.nodeBlocks.add(block);
+            }
+            if (block.contains(OsmPrimitiveType.WAY)) {
+                this.waysSorted &= this.wayBlocks.isEmpty()
+                        || this.wayBlocks.get(this.wayBlocks.size() - 1).maxId(OsmPrimitiveType.WAY) < block.minId(OsmPrimitiveType.WAY);
+                this.wayBlocks.add(block);
+            }
+            if (block.contains(OsmPrimitiveType.NODE) || block.contains(OsmPrimitiveType.WAY)) {
+                this.cache.put(block.offset(), new Extents[] {nodes, ways});
+            }
+        }
+
+        /**
+         * Get the coordinates of the nodes of a block
+         *
+         * @param data The decoded block
+         * @return The extents of the nodes, sorted by id
+         */
+        private static Extents nodeExtents(PrimitiveBlockData data) {
+            final List<NodeData> nodes = new ArrayList<>();
+            for (PrimitiveData primitive : data.primitives) {
+                if (primitive instanceof NodeData) {
+                    nodes.add((NodeData) primitive);
+                }
+            }
+            nodes.sort(Comparator.comparingLong(NodeData::getUniqueId));
+            final long[] ids = new long[nodes.size()];
+            final double[] lon = new double[ids.length];
+            final double[] lat = new double[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                final LatLon coor = nodes.get(i).getCoor();
+                ids[i] = nodes.get(i).getUniqueId();
+                lon[i] = coor != null ? coor.lon() : Double.NaN;
+                lat[i] = coor != null ? coor.lat() : Double.NaN;
+            }
+            // A node is its own bbox, the arrays are shared
+            return new Extents(ids, lon, lat, lon, lat);
+        }
+
+        /**
+         * Compute the bboxes of the ways of a block
+         *
+         * @param data  The decoded block
+         * @param nodes The nodes of the block
+         * @param bbox  The bbox of the block, extended with the ways
+         * @return The extents of the ways, sorted by id, or {@code null} if they could not be computed since the blocks are not
+         * sorted by id
+         * @throws IOException          if the block of a node could not be read
+         * @throws IllegalDataException if the block of a node contained an invalid OSM primitive
+         */
+        private Extents wayExtents(PrimitiveBlockData data, Extents nodes, BBox bbox) throws IOException, IllegalDataException {
+            final long[] ids = data.ways.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            final Extents ways = new Extents(ids, new double[ids.length], new double[ids.length], new double[ids.length],
+                    new double[ids.length]);
+            for (int i = 0; i < ids.length; i++) {
+                final BBox wayBBox = new BBox();
+                for (Long nodeId : data.ways.get(ids[i])) {
+                    if (!nodes.add(wayBBox, nodeId) && !addMemberBBox(wayBBox, OsmPrimitiveType.NODE, nodeId)) {
+                        return null;
+                    }
+                }
+                ways.set(i, wayBBox);
+                bbox.add(wayBBox);
+            }
+            return ways;
+        }
+
+        /**
+         * Add the bbox of a member which is in another block
+         *
+         * @param bbox The bbox to extend
+         * @param type The member type, {@link OsmPrimitiveType#NODE} or {@link OsmPrimitiveType#WAY}
+         * @param id   The member id
+         * @return {@code false} if the bbox could not be computed, since the blocks are not sorted by id
+         * @throws IOException          if the block of the member could not be read
+         * @throws IllegalDataException if the block of the member contained an invalid OSM primitive
+         */
+        private boolean addMemberBBox(BBox bbox, OsmPrimitiveType type, long id) throws IOException, IllegalDataException {
+            final boolean sorted = type == OsmPrimitiveType.NODE ? this.nodesSorted : this.waysSorted;
+            if (!sorted) {
+                return false;
+            }
+            final List<OsmPbfIndex.Block> sortedBlocks = type == OsmPrimitiveType.NODE ? this.nodeBlocks : this.wayBlocks;
+            int low = 0;
+            int high = sortedBlocks.size() - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final OsmPbfIndex.Block block = sortedBlocks.get(middle);
+                if (block.maxId(type) < id) {
+                    low = middle + 1;
+                } else if (block.minId(type) > id) {
+                    high = middle - 1;
+                } else if (block.bbox() == null) {
+                    return false;
+                } else {
+                    final Extents extents = getExtents(block)[type == OsmPrimitiveType.NODE ? 0 : 1];
+                    if (extents == null) {
+                        return false;
+                    }
+                    // A member missing from the block of its id range is not in the file
+                    extents.add(bbox, id);
+                    return true;
+                }
+            }
+            // The member is not in the file
+            return true;
+        }
+
+        /**
+         * Get the extents of the nodes and ways of a block, from the cache or by decoding the block again
+         *
+         * @param block The block
+         * @return The extents of the nodes and of the ways, the latter {@code null} if they could not be computed
+         * @throws IOException          if the block could not be read
+         * @throws IllegalDataException if the block contained an invalid OSM primitive
+         */
+        private Extents[] getExtents(OsmPbfIndex.Block block) throws IOException, IllegalDataException {
+            Extents[] extents = this.cache.get(block.offset());
+            if (extents == null) {
+                final PrimitiveBlockData data = parseDataBlock(this.pbf.readBlob(new BlobLocation("OSMData", block.offset(), block.size())));
+                final Extents nodes = nodeExtents(data);
+                final Extents ways = block.contains(OsmPrimitiveType.WAY) ? wayExtents(data, nodes, new BBox()) : null;
+                extents = new Extents[] {nodes, ways};
+                this.cache.put(block.offset(), extents);
+            }
+            return extents;
+        }
+    }
+
+    /**
+     * The bboxes of the nodes or of the ways of a block, sorted by id. Primitives without coordinates have a NaN extent.
+     */
+    private static final class Extents {
+        private final long[] ids;
+        private final double[] minLon;
+        private final double[] minLat;
+        private final double[] maxLon;
+        private final double[] maxLat;
+
+        Extents(long[] ids, double[] minLon, double[] minLat, double[] maxLon, double[] maxLat) {
+            this.ids = ids;
+            this.minLon = minLon;
+            this.minLat = minLat;
+            this.maxLon = maxLon;
+            this.maxLat = maxLat;
+        }
+
+        void set(int i, BBox bbox) {
+            final boolean valid = bbox.isValid();
+            this.minLon[i] = valid ? bbox.getMinLon() : Double.NaN;
+            this.minLat[i] = valid ? bbox.getMinLat() : Double.NaN;
+            this.maxLon[i] = valid ? bbox.getMaxLon() : Double.NaN;
+            this.maxLat[i] = valid ? bbox.getMaxLat() : Double.NaN;
+        }
+
+        /**
+         * Extend a bbox with the extent of a primitive
+         * @param bbox The bbox to extend
+         * @param id The id of the primitive
+         * @return {@code true} if the primitive is in these extents
+         */
+        boolean add(BBox bbox, long id) {
+            final int i = Arrays.binarySearch(this.ids, id);
+            if (i < 0) {
+                return false;
+            }
+            bbox.add(this.minLon[i], this.minLat[i]);
+            bbox.add(this.maxLon[i], this.maxLat[i]);
+            return true;
+        }
+    }
+
     /**
      * A record class for passing PrimitiveBlock information to the PrimitiveGroup parser
      */
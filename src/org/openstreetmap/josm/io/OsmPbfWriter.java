@@ -0,0 +1,562 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DownloadPolicy;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.protobuf.ProtobufWriter;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Writes OSM data to an OSM PBF file, see <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">PBF Format</a>.
+ * <p>
+ * The primitives are written by type, sorted by id, in blocks of at most {@value #MAX_PRIMITIVES_PER_BLOCK} primitives with their own
+ * string table. Nodes are written as dense nodes. The blocks are encoded and compressed on a worker pool, and written in order.
+ * <p>
+ * The data sources, upload and download policies and locked datasets, which have no equivalent in the OSM PBF format, are written in
+ * extension fields of the header, which are skipped by other programs and read by {@link OsmPbfReader}. The modified and deleted
+ * primitives are only kept for JOSM's own files, like autosave and session files (see {@link #OsmPbfWriter(OutputStream, boolean,
+ * boolean)}): other files are read as an unmodified state of the OSM database, so their deleted primitives are dropped.
+ * @since xxx
+ */
+public class OsmPbfWriter implements Closeable {
+
+    /** The maximal number of primitives in a block, the OSM PBF format recommends 8000 */
+    static final int MAX_PRIMITIVES_PER_BLOCK = 8000;
+    /** The maximal number of way nodes and relation members in a block, so that blocks stay well below the 32 MiB limit of blobs */
+    static final int MAX_REFERENCES_PER_BLOCK = 500_000;
+
+    /** HeaderBlock extension: repeated data source, with a HeaderBBox (1) and an origin (2) */
+    static final int JOSM_DATA_SOURCE = 64;
+    /** HeaderBlock extension: upload policy, as in the OSM XML format */
+    static final int JOSM_UPLOAD_POLICY = 65;
+    /** HeaderBlock extension: download policy, as in the OSM XML format */
+    static final int JOSM_DOWNLOAD_POLICY = 66;
+    /** HeaderBlock extension: locked dataset */
+    static final int JOSM_LOCKED = 67;
+    /** PrimitiveGroup extension: packed flags of the primitives of the group, in the order of the group */
+    static final int JOSM_FLAGS = 64;
+
+    static final int FLAG_MODIFIED = 1;
+    static final int FLAG_DELETED = 1 << 1;
+    static final int FLAG_NO_COORDINATES = 1 << 2;
+
+    private static final int GRANULARITY = 100;
+    private static final double NANO_DEGREES = 1e9;
+    private static final Comparator<OsmPrimitive> BY_ID = Comparator.comparingLong(OsmPrimitive::getUniqueId);
+
+    private final OutputStream out;
+    private final boolean compress;
+    private final boolean josmState;
+
+    /**
+     * Constructs a new {@code OsmPbfWriter} for files read by other programs. The deleted primitives are not written, and the
+     * modified ones are written as unmodified.
+     * @param out the output stream, closed with this writer
+     * @param compress {@code true} to compress the blocks with zlib
+     */
+    public OsmPbfWriter(OutputStream out, boolean compress) {
+        this(out, compress, false);
+    }
+
+    /**
+     * Constructs a new {@code OsmPbfWriter}.
+     * @param out the output stream, closed with this writer
+     * @param compress {@code true} to compress the blocks with zlib
+     * @param josmState {@code true} to write the modified and deleted primitives in an extension field, for files read by JOSM
+     * only like autosave and session files
+     */
+    public OsmPbfWriter(OutputStream out, boolean compress, boolean josmState) {
+        this.out = out;
+        this.compress = compress;
+        this.josmState = josmState;
+    }
+
+    /**
+     * Writes the given dataset. The caller has to hold the read lock of the dataset.
+     * @param ds the dataset to write
+     * @throws IOException in case of I/O error
+     */
+    public void write(DataSet ds) throws IOException {
+        out.write(encodeBlob("OSMHeader", encodeHeader(ds).toByteArray()));
+        final int threads = getEncoderThreads();
+        final ExecutorService encoders = threads > 1
+                ? Executors.newFixedThreadPool(threads, Utils.newThreadFactory("pbf-encoder-%d", Thread.NORM_PRIORITY))
+                : null;
+        // The blocks are written in the order they are created, so that the file does not depend on the encoding order
+        final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+        try {
+            for (List<? extends OsmPrimitive> block : splitBlocks(ds)) {
+                if (encoders == null) {
+                    out.write(encodeDataBlock(block));
+                } else {
+                    pendingBlocks.add(encoders.submit(() -> encodeDataBlock(block)));
+                    // Limit the number of encoded blocks waiting in memory
+                    while (pendingBlocks.size() > 2 * threads) {
+                        out.write(awaitBlock(pendingBlocks.poll()));
+                    }
+                }
+            }
+            while (!pendingBlocks.isEmpty()) {
+                out.write(awaitBlock(pendingBlocks.poll()));
+            }
+            out.flush();
+        } finally {
+            if (encoders != null) {
+                encoders.shutdownNow();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static int getEncoderThreads() {
+        return Config.getPref().getInt("pbf.writer.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    private static byte[] awaitBlock(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JosmRuntimeException(cause);
+        }
+    }
+
+    private boolean shouldWrite(OsmPrimitive p) {
+        // Same as OsmWriter: new primitives which have been deleted are dropped, incomplete primitives are only referenced
+        return !p.isIncomplete() && (!p.isDeleted() || (josmState && !p.isNewOrUndeleted()));
+    }
+
+    private static int getReferenceCount(OsmPrimitive p) {
+        if (p instanceof Way) {
+            return ((Way) p).getNodesCount();
+        } else if (p instanceof Relation) {
+            return ((Relation) p).getMembersCount();
+        }
+        return 0;
+    }
+
+    /**
+     * Sorts the primitives of the dataset by type and id, and splits them in blocks
+     * @param ds the dataset
+     * @return the blocks, each holding primitives of a single type
+     */
+    private List<List<OsmPrimitive>> splitBlocks(DataSet ds) {
+        final List<List<OsmPrimitive>> blocks = new ArrayList<>();
+        for (Collection<? extends OsmPrimitive> primitives : Arrays.asList(ds.getNodes(), ds.getWays(), ds.getRelations())) {
+            final OsmPrimitive[] sorted = primitives.stream().filter(this::shouldWrite).toArray(OsmPrimitive[]::new);
+            Arrays.parallelSort(sorted, BY_ID);
+            int start = 0;
+            int references = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                references += getReferenceCount(sorted[i]);
+                if (i + 1 - start == MAX_PRIMITIVES_PER_BLOCK || references >= MAX_REFERENCES_PER_BLOCK || i + 1 == sorted.length) {
+                    blocks.add(Arrays.asList(sorted).subList(start, i + 1));
+                    start = i + 1;
+                    references = 0;
+                }
+            }
+        }
+        return blocks;
+    }
+
+    private static ProtobufWriter encodeBBox(Bounds bounds) {
+        final ProtobufWriter bbox = new ProtobufWriter(48);
+        bbox.writeSignedVarInt(1, Math.round(bounds.getMinLon() * NANO_DEGREES));
+        bbox.writeSignedVarInt(2, Math.round(bounds.getMaxLon() * NANO_DEGREES));
+        bbox.writeSignedVarInt(3, Math.round(bounds.getMaxLat() * NANO_DEGREES));
+        bbox.writeSignedVarInt(4, Math.round(bounds.getMinLat() * NANO_DEGREES));
+        return bbox;
+    }
+
+    private static ProtobufWriter encodeHeader(DataSet ds) {
+        final ProtobufWriter header = new ProtobufWriter();
+        final Collection<DataSource> dataSources = ds.getDataSources();
+        if (!dataSources.isEmpty()) {
+            Bounds bounds = null;
+            for (DataSource source : dataSources) {
+                if (bounds == null) {
+                    bounds = new Bounds(source.bounds);
+                } else {
+                    bounds.extend(source.bounds);
+                }
+            }
+            header.writeMessage(1, encodeBBox(bounds));
+        }
+        header.writeString(4, "OsmSchema-V0.6");
+        header.writeString(4, "DenseNodes");
+        header.writeString(16, "JOSM");
+        if (!dataSources.isEmpty() && dataSources.iterator().next().origin != null) {
+            header.writeString(17, dataSources.iterator().next().origin);
+        }
+        for (DataSource source : dataSources) {
+            final ProtobufWriter dataSource = new ProtobufWriter(64);
+            dataSource.writeMessage(1, encodeBBox(source.bounds));
+            if (source.origin != null) {
+                dataSource.writeString(2, source.origin);
+            }
+            header.writeMessage(JOSM_DATA_SOURCE, dataSource);
+        }
+        if (ds.getUploadPolicy() != null && ds.getUploadPolicy() != UploadPolicy.NORMAL) {
+            header.writeString(JOSM_UPLOAD_POLICY, ds.getUploadPolicy().getXmlFlag());
+        }
+        if (ds.getDownloadPolicy() != null && ds.getDownloadPolicy() != DownloadPolicy.NORMAL) {
+            header.writeString(JOSM_DOWNLOAD_POLICY, ds.getDownloadPolicy().getXmlFlag());
+        }
+        if (ds.isLocked()) {
+            header.writeBoolean(JOSM_LOCKED, true);
+        }
+        return header;
+    }
+
+    /**
+     * Encodes a blob with its blob header, as written in the file
+     * @param type the type of the blob, {@code OSMHeader} or {@code OSMData}
+     * @param data the encoded block
+     * @return the bytes to write
+     */
+    private byte[] encodeBlob(String type, byte[] data) {
+        final ProtobufWriter blob = new ProtobufWriter(data.length / (compress ? 2 : 1) + 16);
+        if (compress) {
+            final Deflater deflater = new Deflater();
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 16);
+                final byte[] buffer = new byte[64 * 1024];
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+                blob.writeVarInt(2, data.length);
+                blob.writeBytes(3, compressed.toByteArray());
+            } finally {
+                deflater.end();
+            }
+        } else {
+            blob.writeBytes(1, data);
+        }
+        final ProtobufWriter blobHeader = new ProtobufWriter(32);
+        blobHeader.writeString(1, type);
+        blobHeader.writeVarInt(3, blob.size());
+        final int headerSize = blobHeader.size();
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(4 + headerSize + blob.size());
+        result.write(headerSize >>> 24);
+        result.write(headerSize >>> 16);
+        result.write(headerSize >>> 8);
+        result.write(headerSize);
+        try {
+            blobHeader.writeTo(result);
+            blob.writeTo(result);
+        } catch (IOException e) {
+            // Cannot happen with a ByteArrayOutputStream
+            throw new JosmRuntimeException(e);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Encodes a PrimitiveBlock. Called from the worker pool.
+     * @param primitives the primitives of the block, all of the same type
+     * @return the bytes to write
+     */
+    private byte[] encodeDataBlock(List<? extends OsmPrimitive> primitives) {
+        final StringTable strings = new StringTable();
+        final ProtobufWriter group = new ProtobufWriter(primitives.size() * 32);
+        int granularity = GRANULARITY;
+        if (primitives.get(0) instanceof Node) {
+            granularity = getGranularity(primitives);
+            encodeDenseNodes(group, primitives, strings, granularity);
+        } else {
+            final ProtobufWriter message = new ProtobufWriter();
+            for (OsmPrimitive p : primitives) {
+                message.reset();
+                if (p instanceof Way) {
+                    encodeWay(message, (Way) p, strings);
+                    group.writeMessage(3, message);
+                } else {
+                    encodeRelation(message, (Relation) p, strings);
+                    group.writeMessage(4, message);
+                }
+            }
+        }
+        if (josmState) {
+            encodeFlags(group, primitives);
+        }
+
+        final ProtobufWriter block = new ProtobufWriter(group.size() + strings.size() * 16 + 16);
+        final ProtobufWriter stringTable = new ProtobufWriter(strings.size() * 16);
+        for (String s : strings.strings) {
+            stringTable.writeString(1, s);
+        }
+        block.writeMessage(1, stringTable);
+        block.writeMessage(2, group);
+        if (granularity != GRANULARITY) {
+            block.writeVarInt(17, granularity);
+        }
+        return encodeBlob("OSMData", block.toByteArray());
+    }
+
+    /**
+     * Selects the granularity of a block of nodes: the default one if it represents all coordinates exactly, like
+     * the coordinates read from the OSM API, nanodegrees otherwise. Coordinates with more decimals are rounded to
+     * the nearest nanodegree.
+     * @param nodes the nodes of the block
+     * @return the granularity, in nanodegrees
+     */
+    private static int getGranularity(List<? extends OsmPrimitive> nodes) {
+        for (OsmPrimitive p : nodes) {
+            final Node n = (Node) p;
+            if (n.isLatLonKnown() && (toUnits(n.lat(), GRANULARITY) * GRANULARITY / NANO_DEGREES != n.lat()
+                    || toUnits(n.lon(), GRANULARITY) * GRANULARITY / NANO_DEGREES != n.lon())) {
+                return 1;
+            }
+        }
+        return GRANULARITY;
+    }
+
+    private static long toUnits(double degrees, int granularity) {
+        return Math.round(degrees * NANO_DEGREES / granularity);
+    }
+
+    private static void encodeDenseNodes(ProtobufWriter group, List<? extends OsmPrimitive> nodes, StringTable strings, int granularity) {
+        final int count = nodes.size();
+        final long[] ids = new long[count];
+        final long[] lats = new long[count];
+        final long[] lons = new long[count];
+        final long[] versions = new long[count];
+        final long[] timestamps = new long[count];
+        final long[] changesets = new long[count];
+        final long[] uids = new long[count];
+        final long[] userSids = new long[count];
+        final long[] visible = new long[count];
+        boolean hasInvisible = false;
+        int keyValCount = 0;
+        for (OsmPrimitive p : nodes) {
+            keyValCount += p.hasKeys() ? 2 * p.getNumKeys() + 1 : 1;
+        }
+        final long[] keyVals = new long[keyValCount];
+        int keyValIndex = 0;
+        boolean hasKeys = false;
+        long lastId = 0;
+        long lastLat = 0;
+        long lastLon = 0;
+        long lastTimestamp = 0;
+        long lastChangeset = 0;
+        long lastUid = 0;
+        long lastUserSid = 0;
+        for (int i = 0; i < count; i++) {
+            final Node n = (Node) nodes.get(i);
+            final long id = n.getUniqueId();
+            final long lat = n.isLatLonKnown() ? toUnits(n.lat(), granularity) : 0;
+            final long lon = n.isLatLonKnown() ? toUnits(n.lon(), granularity) : 0;
+            ids[i] = id - lastId;
+            lats[i] = lat - lastLat;
+            lons[i] = lon - lastLon;
+            lastId = id;
+            lastLat = lat;
+            lastLon = lon;
+            versions[i] = n.getVersion();
+            timestamps[i] = n.getRawTimestamp() - lastTimestamp;
+            changesets[i] = n.getChangesetId() - lastChangeset;
+            lastTimestamp = n.getRawTimestamp();
+            lastChangeset = n.getChangesetId();
+            final long uid = getUid(n.getUser());
+            final long userSid = getUserSid(n.getUser(), strings);
+            uids[i] = uid - lastUid;
+            userSids[i] = userSid - lastUserSid;
+            lastUid = uid;
+            lastUserSid = userSid;
+            visible[i] = n.isVisible() ? 1 : 0;
+            hasInvisible |= !n.isVisible();
+            if (n.hasKeys()) {
+                hasKeys = true;
+                for (Map.Entry<String, String> tag : n.getKeys().entrySet()) {
+                    keyVals[keyValIndex++] = strings.get(tag.getKey());
+                    keyVals[keyValIndex++] = strings.get(tag.getValue());
+                }
+            }
+            keyVals[keyValIndex++] = 0;
+        }
+        final ProtobufWriter denseInfo = new ProtobufWriter(count * 8);
+        denseInfo.writePackedVarInt(1, versions, count);
+        denseInfo.writePackedSignedVarInt(2, timestamps, count);
+        denseInfo.writePackedSignedVarInt(3, changesets, count);
+        denseInfo.writePackedSignedVarInt(4, uids, count);
+        denseInfo.writePackedSignedVarInt(5, userSids, count);
+        if (hasInvisible) {
+            denseInfo.writePackedVarInt(6, visible, count);
+        }
+        final ProtobufWriter dense = new ProtobufWriter(count * 16 + denseInfo.size());
+        dense.writePackedSignedVarInt(1, ids, count);
+        dense.writeMessage(5, denseInfo);
+        dense.writePackedSignedVarInt(8, lats, count);
+        dense.writePackedSignedVarInt(9, lons, count);
+        if (hasKeys) {
+            dense.writePackedVarInt(10, keyVals, keyValIndex);
+        }
+        group.writeMessage(2, dense);
+    }
+
+    private static long getUid(User user) {
+        return user != null && user.isOsmUser() ? user.getId() : 0;
+    }
+
+    private static long getUserSid(User user, StringTable strings) {
+        // Local users are written without uid
+        return user != null && (user.isOsmUser() || user.isLocalUser()) ? strings.get(user.getName()) : 0;
+    }
+
+    private static void encodeTags(ProtobufWriter message, OsmPrimitive p, StringTable strings) {
+        if (!p.hasKeys()) {
+            return;
+        }
+        final int count = p.getNumKeys();
+        final long[] keys = new long[count];
+        final long[] values = new long[count];
+        int i = 0;
+        for (Map.Entry<String, String> tag : p.getKeys().entrySet()) {
+            keys[i] = strings.get(tag.getKey());
+            values[i] = strings.get(tag.getValue());
+            i++;
+        }
+        message.writePackedVarInt(2, keys, i);
+        message.writePackedVarInt(3, values, i);
+    }
+
+    private static void encodeInfo(ProtobufWriter message, OsmPrimitive p, StringTable strings) {
+        final ProtobufWriter info = new ProtobufWriter(32);
+        info.writeVarInt(1, p.getVersion());
+        info.writeVarInt(2, p.getRawTimestamp());
+        info.writeVarInt(3, p.getChangesetId());
+        final User user = p.getUser();
+        if (user != null && (user.isOsmUser() || user.isLocalUser())) {
+            info.writeVarInt(4, getUid(user));
+            info.writeVarInt(5, getUserSid(user, strings));
+        }
+        if (!p.isVisible()) {
+            info.writeBoolean(6, false);
+        }
+        message.writeMessage(4, info);
+    }
+
+    private static void encodeWay(ProtobufWriter message, Way w, StringTable strings) {
+        message.writeVarInt(1, w.getUniqueId());
+        encodeTags(message, w, strings);
+        encodeInfo(message, w, strings);
+        final int count = w.getNodesCount();
+        final long[] refs = new long[count];
+        long lastRef = 0;
+        for (int i = 0; i < count; i++) {
+            final long ref = w.getNode(i).getUniqueId();
+            refs[i] = ref - lastRef;
+            lastRef = ref;
+        }
+        message.writePackedSignedVarInt(8, refs, count);
+    }
+
+    private static void encodeRelation(ProtobufWriter message, Relation r, StringTable strings) {
+        message.writeVarInt(1, r.getUniqueId());
+        encodeTags(message, r, strings);
+        encodeInfo(message, r, strings);
+        final int count = r.getMembersCount();
+        final long[] roles = new long[count];
+        final long[] memberIds = new long[count];
+        final long[] types = new long[count];
+        long lastId = 0;
+        for (int i = 0; i < count; i++) {
+            final RelationMember member = r.getMember(i);
+            roles[i] = strings.get(member.getRole());
+            memberIds[i] = member.getUniqueId() - lastId;
+            lastId = member.getUniqueId();
+            types[i] = member.getType().ordinal();
+        }
+        message.writePackedVarInt(8, roles, count);
+        message.writePackedSignedVarInt(9, memberIds, count);
+        message.writePackedVarInt(10, types, count);
+    }
+
+    private static void encodeFlags(ProtobufWriter group, List<? extends OsmPrimitive> primitives) {
+        final long[] flags = new long[primitives.size()];
+        boolean hasFlags = false;
+        for (int i = 0; i < flags.length; i++) {
+            final OsmPrimitive p = primitives.get(i);
+            if (p.isDeleted()) {
+                flags[i] |= FLAG_DELETED;
+            } else if (p.isModified()) {
+                flags[i] |= FLAG_MODIFIED;
+            }
+            if (p instanceof Node && !((Node) p).isLatLonKnown()) {
+                flags[i] |= FLAG_NO_COORDINATES;
+            }
+            hasFlags |= flags[i] != 0;
+        }
+        if (hasFlags) {
+            group.writePackedVarInt(JOSM_FLAGS, flags, flags.length);
+        }
+    }
+
+    /**
+     * The string table of a block. Index 0 is reserved, it separates the tags of dense nodes.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        StringTable() {
+            strings.add("");
+        }
+
+        int get(String s) {
+            return indexes.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+
+        int size() {
+            return strings.size();
+        }
+    }
+}
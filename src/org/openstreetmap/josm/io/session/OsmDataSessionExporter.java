@@ -1,6 +1,8 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io.session;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -8,7 +10,9 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.OsmPbfWriter;
 import org.openstreetmap.josm.io.OsmWriter;
 import org.openstreetmap.josm.io.OsmWriterFactory;
 
@@ -18,17 +22,53 @@ import org.openstreetmap.josm.io.OsmWriterFactory;
  */
 public class OsmDataSessionExporter extends GenericSessionExporter<OsmDataLayer> {
 
+    /**
+     * Whether the data included in session files is written in the OSM PBF format instead of OSM XML. Such layers have the
+     * version {@value OsmDataSessionImporter#PBF_VERSION} in the session file, which older versions of JOSM do not read.
+     * @since xxx
+     */
+    public static final BooleanProperty PROP_PBF = new BooleanProperty("session.osm-data.pbf", false);
+
+    private final boolean pbf;
+
     /**
      * Constructs a new {@code OsmDataSessionExporter}.
      * @param layer Data layer to export
      */
     public OsmDataSessionExporter(OsmDataLayer layer) { // NO_UCD (test only)
-        super(layer, "osm-data", "0.1", "osm");
+        this(layer, PROP_PBF.get());
+    }
+
+    private OsmDataSessionExporter(OsmDataLayer layer, boolean pbf) {
+        super(layer, "osm-data", pbf ? OsmDataSessionImporter.PBF_VERSION : "0.1", pbf ? "osm.pbf" : "osm");
+        this.pbf = pbf;
     }
 
     @Override
-    protected void addDataFile(OutputStream out) {
-        exportData(layer.data, out);
+    protected void addDataFile(OutputStream out) throws IOException {
+        if (pbf) {
+            exportPbfData(layer.data, out);
+        } else {
+            exportData(layer.data, out);
+        }
+    }
+
+    /**
+     * Exports OSM data to the given output stream in the OSM PBF format.
+     * @param data data set
+     * @param out output stream (must be closed by caller)
+     * @throws IOException in case of I/O error
+     * @since xxx
+     */
+    public static void exportPbfData(DataSet data, OutputStream out) throws IOException {
+        try (OsmPbfWriter w = new OsmPbfWriter(new NonClosingOutputStream(out), true, true)) {
+            data.getReadLock().lock();
+            try {
+                w.write(data);
+            } finally {
+                data.getReadLock().unlock();
+            }
+        }
     }
 
     /**
@@ -52,4 +92,23 @@ public class OsmDataSessionExporter extends GenericSessionExporter<OsmDataLayer>
             data.getReadLock().unlock();
         }
     }
+
+    /**
+     * An output stream which does not close the underlying stream, e.g. the zip stream of the session
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
@@ -32,6 +32,12 @@ import org.w3c.dom.NodeList;
  */
 public class OsmDataSessionImporter implements SessionLayerImporter {
 
+    /**
+     * The version of the meta data of layers whose data is in the OSM PBF format
+     * @since xxx
+     */
+    public static final String PBF_VERSION = "0.2";
+
     @Override
     public Layer load(Element elem, ImportSupport support, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
         checkMetaVersion(elem);
@@ -54,8 +60,9 @@ public class OsmDataSessionImporter implements SessionLayerImporter {
      */
     public static void checkMetaVersion(Element elem) throws IllegalDataException {
         String version = elem.getAttribute("version");
-        if (!"0.1".equals(version)) {
-            throw new IllegalDataException(tr("Version ''{0}'' of meta data for osm data layer is not supported. Expected: 0.1", version));
+        if (!"0.1".equals(version) && !PBF_VERSION.equals(version)) {
+            throw new IllegalDataException(tr("Version ''{0}'' of meta data for osm data layer is not supported. Expected: 0.1 or {1}",
+                    version, PBF_VERSION));
         }
     }
 
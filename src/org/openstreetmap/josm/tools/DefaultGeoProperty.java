@@ -4,10 +4,15 @@ package org.openstreetmap.josm.tools;
 import java.awt.Rectangle;
 import java.awt.geom.Area;
 import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
+import org.openstreetmap.josm.data.IQuadBucketType;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.PackedRTree;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 
@@ -18,6 +23,40 @@ public class DefaultGeoProperty implements GeoProperty<Boolean> {
 
     private final Area area;
     private LatLon random;
+    /** The segments of the area outline */
+    private final PackedRTree<Segment> segments;
+
+    /**
+     * A segment of the area outline
+     */
+    private static final class Segment implements IQuadBucketType {
+        final double x1;
+        final double y1;
+        final double x2;
+        final double y2;
+
+        Segment(double x1, double y1, double x2, double y2) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        @Override
+        public BBox getBBox() {
+            return new BBox(x1, y1, x2, y2);
+        }
+
+        /**
+         * Determines if the segment crosses the horizontal ray starting at the given point towards the east
+         * @param x the longitude of the point
+         * @param y the latitude of the point
+         * @return {@code true} if the segment crosses the ray
+         */
+        boolean crossesRay(double x, double y) {
+            return (y1 > y) != (y2 > y) && x1 + (y - y1) * (x2 - x1) / (y2 - y1) > x;
+        }
+    }
 
     /**
      * Create DefaultGeoProperty based on a collection of closed ways.
@@ -31,6 +70,7 @@ public class DefaultGeoProperty implements GeoProperty<Boolean> {
             Geometry.buildPath2DLatLon(w.getNodes(), path);
         }
         this.area = new Area(path);
+        this.segments = buildSegments(area);
     }
 
     /**
@@ -40,11 +80,54 @@ public class DefaultGeoProperty implements GeoProperty<Boolean> {
      */
     public DefaultGeoProperty(Relation multipolygon) {
         this.area = Geometry.getAreaLatLon(multipolygon);
+        this.segments = buildSegments(area);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is the lookup used by {@link GeoPropertyIndex} when a point is not in an uniform rectangle. The crossings of the
+     * outline with a ray starting at the point are counted, like {@link Area#contains(double, double)} does, but only the
+     * segments found by a search in a {@link PackedRTree} are considered.
+     */
     @Override
     public Boolean get(LatLon ll) {
-        return area.contains(ll.lon(), ll.lat());
+        final double x = ll.lon();
+        final double y = ll.lat();
+        final int[] crossings = {0};
+        segments.search(x, y, Double.POSITIVE_INFINITY, y, s -> {
+            if (s.crossesRay(x, y)) {
+                crossings[0]++;
+            }
+        });
+        return (crossings[0] & 1) == 1;
+    }
+
+    private static PackedRTree<Segment> buildSegments(Area area) {
+        final List<Segment> list = new ArrayList<>();
+        final double[] coords = new double[6];
+        double startX = 0;
+        double startY = 0;
+        double lastX = 0;
+        double lastY = 0;
+        for (PathIterator it = area.getPathIterator(null, 1e-9); !it.isDone(); it.next()) {
+            switch (it.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    startX = coords[0];
+                    startY = coords[1];
+                    break;
+                case PathIterator.SEG_LINETO:
+                    list.add(new Segment(lastX, lastY, coords[0], coords[1]));
+                    break;
+                default: // SEG_CLOSE, the flattening iterator returns no curves
+                    list.add(new Segment(lastX, lastY, startX, startY));
+                    coords[0] = startX;
+                    coords[1] = startY;
+            }
+            lastX = coords[0];
+            lastY = coords[1];
+        }
+        return new PackedRTree<>(list);
     }
 
     @Override
@@ -1,7 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.tools;
 
-import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -17,6 +17,9 @@ import org.openstreetmap.josm.data.osm.BBox;
  * This index tries to find rectangles with uniform property and caches them.
  * Rectangles are subdivided, if there are different properties within.
  * (Up to a maximum level, when the slow method is used again.)
+ * <p>
+ * Look-ups do not lock: the rectangles are immutable once created, and missing ones are added atomically.
+ * Concurrent look-ups of the same missing rectangle may compute it twice, only one of them is kept.
  *
  * @param <T> the property (like land/water or nation)
  */
@@ -25,6 +28,10 @@ public class GeoPropertyIndex<T> {
     private final int maxLevel;
     private final GeoProperty<T> geoProp;
     private final GPLevel<T> root;
+    /**
+     * The level of the last look-up, where the next one starts. This is only a hint: it is not volatile,
+     * as a stale or foreign level is still correct, the look-up moves up to the parent levels if needed.
+     */
     private GPLevel<T> lastLevelUsed;
 
     private static final boolean DEBUG = false;
@@ -68,8 +75,8 @@ public class GeoPropertyIndex<T> {
         private final GPLevel<T> parent;
         private final GeoPropertyIndex<T> owner;
 
-        // child order by index is sw, nw, se, ne
-        private GPLevel<T>[] children;
+        // child order by index is sw, nw, se, ne, null when the value is uniform
+        private final AtomicReferenceArray<GPLevel<T>> children;
 
         public GPLevel(int level, BBox bbox, GPLevel<T> parent, GeoPropertyIndex<T> owner) {
             this.level = level;
@@ -77,6 +84,7 @@ public class GeoPropertyIndex<T> {
             this.parent = parent;
             this.owner = owner;
             this.val = owner.geoProp.get(bbox);
+            this.children = val == null && level < owner.maxLevel ? new AtomicReferenceArray<>(4) : null;
         }
 
         public T get(LatLon ll) {
@@ -93,7 +101,9 @@ public class GeoPropertyIndex<T> {
             }
             if (val != null) {
                 if (DEBUG) Logging.trace("GPLevel[{0}]{1} hit! {2}", level, bbox, val);
-                owner.lastLevelUsed = this;
+                if (owner.lastLevelUsed != this) {
+                    owner.lastLevelUsed = this;
+                }
                 return val;
             }
             if (level >= owner.maxLevel) {
@@ -101,31 +111,26 @@ public class GeoPropertyIndex<T> {
                 return owner.geoProp.get(ll);
             }
 
-            GPLevel<T>[] currentChildren = this.getChildren();
-
             LatLon center = bbox.getCenter();
             for (int idx = 0; idx < 4; idx++) {
-                BBox testBBox = null;
-                if (currentChildren[idx] != null)
-                    testBBox = currentChildren[idx].bbox;
-
-                if (testBBox == null) {
-                    testBBox = generateTestBBox(idx, center.lon(), center.lat());
-                }
+                GPLevel<T> child = children.get(idx);
+                BBox testBBox = child != null ? child.bbox : generateTestBBox(idx, center.lon(), center.lat());
                 if (isInside(testBBox, ll)) {
-                    generateChild(currentChildren, testBBox, idx);
-                    return currentChildren[idx].getBounded(ll);
+                    if (child == null) {
+                        child = generateChild(testBBox, idx);
+                    }
+                    return child.getBounded(ll);
                 }
             }
             throw new AssertionError("Point "+ll+" should be inside one of the children of "+bbox);
         }
 
         /**
-         * Generate the bbox for the specified index in the {@link #getChildren()} array
-         * @param idx The index in the {@link #getChildren()} array
+         * Generate the bbox for the specified index in the {@link #children} array
+         * @param idx The index in the {@link #children} array
          * @param lon2 The longitude of the center of the previous level
          * @param lat2 The latitude of the center of the previous level
-         * @return The test bbox for the specified index in the {@link #getChildren()} array
+         * @return The test bbox for the specified index in the {@link #children} array
          */
         private BBox generateTestBBox(int idx, double lon2, double lat2) {
             double lon1;
@@ -154,35 +159,15 @@ public class GeoPropertyIndex<T> {
         }
 
         /**
-         * Safely generate the child in a multi-threaded environment
-         * @param currentChildren The children array to check
-         * @param testBBox The current bbox (will be used to create the new {@link GPLevel})
+         * Generate the child at the given index, unless another thread did it first
+         * @param testBBox The bbox of the child
          * @param idx The index in the child array
+         * @return The child at the given index
          */
-        private synchronized void generateChild(GPLevel<T>[] currentChildren, BBox testBBox, int idx) {
-            if (currentChildren[idx] == null) {
-                if (DEBUG) Logging.trace("GPLevel[{0}]{1} - new with idx {2}", level, bbox, idx);
-                currentChildren[idx] = new GPLevel<>(level + 1, testBBox, this, owner);
-            }
-        }
-
-        /**
-         * Get the children array safely in a multi-threaded environment.
-         * If this ends up being a performance issue, look up the "immutable" double-checked locking idiom.
-         * Just be certain you have a good test when checking the performance differences.
-         * See #23309/#23036. The issue there is that {@link Territories#getRegionalTaginfoUrls(LatLon)}
-         * uses a {@link Collection#parallelStream}.
-         * @return The children array (sw, nw, se, ne)
-         */
-        private synchronized GPLevel<T>[] getChildren() {
-            GPLevel<T>[] currentChildren = this.children;
-            if (currentChildren == null) {
-                @SuppressWarnings("unchecked")
-                GPLevel<T>[] tmp = new GPLevel[4];
-                currentChildren = tmp;
-                this.children = currentChildren;
-            }
-            return currentChildren;
+        private GPLevel<T> generateChild(BBox testBBox, int idx) {
+            if (DEBUG) Logging.trace("GPLevel[{0}]{1} - new with idx {2}", level, bbox, idx);
+            children.compareAndSet(idx, null, new GPLevel<>(level + 1, testBBox, this, owner));
+            return children.get(idx);
         }
 
         /**
@@ -33,7 +33,7 @@ public final class RightAndLefthandTraffic {
      * @param ll the coordinates of the point
      * @return true if there is right-hand traffic, false if there is left-hand traffic
      */
-    public static synchronized boolean isRightHandTraffic(LatLon ll) {
+    public static boolean isRightHandTraffic(LatLon ll) {
         Boolean value = rlCache.get(ll);
         return value == null || !value;
     }
@@ -41,9 +41,8 @@ public final class RightAndLefthandTraffic {
     /**
      * Initializes Right and lefthand traffic data.
      * @param geoProperty the property containing the traffic data
-     * TODO: Synchronization can be refined inside the {@link GeoPropertyIndex} as most look-ups are read-only.
      */
-    static synchronized void initialize(DefaultGeoProperty geoProperty) {
+    static void initialize(DefaultGeoProperty geoProperty) {
         rlCache = new GeoPropertyIndex<>(geoProperty, 24);
     }
 
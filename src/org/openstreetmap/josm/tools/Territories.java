@@ -18,6 +18,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -44,6 +45,9 @@ import org.openstreetmap.josm.spi.preferences.Config;
 
 /**
  * Look up territories ISO3166 codes at a certain place.
+ * <p>
+ * The look-ups do not lock, they can be done concurrently, for instance by the style and validator worker threads.
+ * The indexes are built once by {@link #initialize()} or {@link #initializeInternalData()} and never modified afterwards.
  */
 public final class Territories {
 
@@ -56,7 +60,7 @@ public final class Territories {
     private static final String ISO3166_2_LC = ISO3166_2.toLowerCase(Locale.ENGLISH);
     private static final String TAGINFO = "taginfo";
 
-    private static DataSet dataSet;
+    private static volatile DataSet dataSet;
 
     static volatile Map<String, GeoPropertyIndex<Boolean>> iso3166Cache;
     static volatile Map<String, TaginfoRegionalInstance> taginfoCache;
@@ -74,7 +78,7 @@ public final class Territories {
      *
      * @return the ISO3166-1 and ISO3166-2 codes for the given location
      */
-    public static synchronized Set<String> getKnownIso3166Codes() {
+    public static Set<String> getKnownIso3166Codes() {
         return iso3166Cache.keySet();
     }
 
@@ -96,7 +100,7 @@ public final class Territories {
      * @param ll the coordinates of the point
      * @return true, if the point is inside a territory with the given code
      */
-    public static synchronized boolean isIso3166Code(String code, LatLon ll) {
+    public static boolean isIso3166Code(String code, LatLon ll) {
         GeoPropertyIndex<Boolean> gpi = iso3166Cache.get(code);
         if (gpi == null) {
             Logging.warn(tr("Unknown territory id: {0}", code));
@@ -105,18 +109,42 @@ public final class Territories {
         return Boolean.TRUE.equals(gpi.get(ll)); // avoid NPE, see #16491
     }
 
+    /**
+     * Determine the ISO3166-1 and ISO3166-2 codes of the territories containing each of the given points.
+     * <p>
+     * This is faster than calling {@link #isIso3166Code(String, LatLon)} for every code and point, as each territory
+     * index is traversed for all points in a row, nearby points being resolved from the same rectangles.
+     *
+     * @param lls the coordinates of the points
+     * @return for each point, at the same index, the sorted codes of the territories containing it
+     * @since xxx
+     */
+    public static List<Set<String>> getIso3166Codes(LatLon... lls) {
+        final List<Set<String>> result = new ArrayList<>(lls.length);
+        for (int i = 0; i < lls.length; i++) {
+            result.add(new TreeSet<>());
+        }
+        iso3166Cache.forEach((code, gpi) -> {
+            for (int i = 0; i < lls.length; i++) {
+                if (Boolean.TRUE.equals(gpi.get(lls[i]))) {
+                    result.get(i).add(code);
+                }
+            }
+        });
+        return result;
+    }
+
     /**
      * Returns the original territories dataset. Be extra cautious when manipulating it!
      * @return the original territories dataset
      * @since 15565
      */
-    public static synchronized DataSet getOriginalDataSet() {
+    public static DataSet getOriginalDataSet() {
         return dataSet;
     }
 
     /**
      * Initializes territories.
-     * TODO: Synchronization can be refined inside the {@link GeoPropertyIndex} as most look-ups are read-only.
      * @see #initializeInternalData()
      */
     public static synchronized void initialize() {
@@ -128,14 +156,15 @@ public final class Territories {
      * Initializes territories using the internal data only.
      */
     public static synchronized void initializeInternalData() {
-        iso3166Cache = new HashMap<>();
-        taginfoCache = new TreeMap<>();
-        customTagsCache = new TreeMap<>();
+        final Map<String, GeoPropertyIndex<Boolean>> iso3166 = new HashMap<>();
+        final Map<String, TaginfoRegionalInstance> taginfo = new TreeMap<>();
+        final Map<String, TagMap> customTags = new TreeMap<>();
         Collection<Way> traffic = new ArrayList<>();
+        DataSet data = null;
         try (CachedFile cf = new CachedFile("resource://data/" + FILENAME);
                 InputStream is = cf.getInputStream()) {
-            dataSet = OsmReader.parseDataSet(is, null);
-            for (OsmPrimitive osm : dataSet.allPrimitives()) {
+            data = OsmReader.parseDataSet(is, null);
+            for (OsmPrimitive osm : data.allPrimitives()) {
                 if (osm instanceof Node) {
                     continue;
                 }
@@ -151,37 +180,43 @@ public final class Territories {
                         gp = new DefaultGeoProperty((Relation) osm);
                     }
                     GeoPropertyIndex<Boolean> gpi = new GeoPropertyIndex<>(gp, 24);
-                    addInCache(iso1, gpi, tags);
-                    addInCache(iso2, gpi, tags);
+                    addInCache(iso3166, customTags, iso1, gpi, tags);
+                    addInCache(iso3166, customTags, iso2, gpi, tags);
                     if (iso1 != null) {
-                        String taginfo = osm.get(TAGINFO);
-                        if (taginfo != null) {
-                            taginfoCache.put(iso1, new TaginfoRegionalInstance(taginfo, Collections.singleton(iso1)));
+                        String url = osm.get(TAGINFO);
+                        if (url != null) {
+                            taginfo.put(iso1, new TaginfoRegionalInstance(url, Collections.singleton(iso1)));
                         }
                     }
                 }
                 RightAndLefthandTraffic.appendLeftDrivingBoundaries(osm, traffic);
             }
             RightAndLefthandTraffic.initialize(new DefaultGeoProperty(traffic));
+            // Publish the complete indexes at once, so that concurrent look-ups never see partial data
+            iso3166Cache = Collections.unmodifiableMap(iso3166);
+            taginfoCache = Collections.unmodifiableMap(taginfo);
+            customTagsCache = Collections.unmodifiableMap(customTags);
         } catch (IOException | IllegalDataException ex) {
             throw new JosmRuntimeException(ex);
         } finally {
-            if (dataSet != null)
-                MultipolygonCache.getInstance().clear(dataSet);
+            if (data != null)
+                MultipolygonCache.getInstance().clear(data);
             if (!Logging.isDebugEnabled()) {
                 // unset dataSet to save memory, see #18907
                 dataSet = null;
             } else {
+                dataSet = data;
                 Logging.debug("Retaining {0} to allow editing via advanced preferences", FILENAME);
             }
         }
     }
 
-    private static void addInCache(String code, GeoPropertyIndex<Boolean> gpi, TagMap tags) {
+    private static void addInCache(Map<String, GeoPropertyIndex<Boolean>> iso3166, Map<String, TagMap> customTags,
+            String code, GeoPropertyIndex<Boolean> gpi, TagMap tags) {
         if (code != null) {
-            iso3166Cache.put(code, gpi);
+            iso3166.put(code, gpi);
             if (!tags.isEmpty()) {
-                customTagsCache.put(code, tags);
+                customTags.put(code, tags);
             }
         }
     }
@@ -192,7 +227,7 @@ public final class Territories {
     }
 
     static void initializeExternalData(String source, String path) {
-        taginfoGeofabrikCache = new TreeMap<>();
+        final Map<String, TaginfoRegionalInstance> taginfoGeofabrik = new TreeMap<>();
         try (CachedFile cf = new CachedFile(path); InputStream is = cf.getInputStream(); JsonParser json = Json.createParser(is)) {
             while (json.hasNext()) {
                 Event event = json.next();
@@ -204,9 +239,9 @@ public final class Territories {
                             JsonArray iso1 = props.getJsonArray(ISO3166_1_LC);
                             JsonArray iso2 = props.getJsonArray(ISO3166_2_LC);
                             if (iso1 != null) {
-                                readExternalTaginfo(taginfoGeofabrikCache, taginfo, iso1, source);
+                                readExternalTaginfo(taginfoGeofabrik, taginfo, iso1, source);
                             } else if (iso2 != null) {
-                                readExternalTaginfo(taginfoGeofabrikCache, taginfo, iso2, source);
+                                readExternalTaginfo(taginfoGeofabrik, taginfo, iso2, source);
                             }
                         }));
                     }
@@ -216,6 +251,7 @@ public final class Territories {
             Logging.debug(e);
             Logging.warn(tr("Failed to parse external taginfo data at {0}: {1}", path, e.getMessage()));
         }
+        taginfoGeofabrikCache = Collections.unmodifiableMap(taginfoGeofabrik);
     }
 
     private static void readExternalTaginfo(Map<String, TaginfoRegionalInstance> cache, String taginfo, JsonArray jsonCodes, String source) {
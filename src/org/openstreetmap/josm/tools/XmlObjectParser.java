@@ -9,6 +9,7 @@ import java.io.Reader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -32,7 +33,9 @@ import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.LocatorImpl;
 import org.xml.sax.helpers.XMLFilterImpl;
 
 /**
@@ -46,6 +49,25 @@ public class XmlObjectParser implements Iterable<Object> {
      */
     public static final String lang = LanguageInfo.getLanguageCodeXML();
 
+    /**
+     * The type of a recorded start of element: {@code {type, line, column, qname, attribute qname, attribute value, ...}}
+     * @see #record(Reader)
+     * @since xxx
+     */
+    public static final String EVENT_START = "S";
+    /**
+     * The type of a recorded end of element: {@code {type, line, column, qname}}
+     * @see #record(Reader)
+     * @since xxx
+     */
+    public static final String EVENT_END = "E";
+    /**
+     * The type of recorded characters: {@code {type, text}}
+     * @see #record(Reader)
+     * @since xxx
+     */
+    public static final String EVENT_CHARACTERS = "C";
+
     private static class AddNamespaceFilter extends XMLFilterImpl {
 
         private final String namespace;
@@ -64,6 +86,72 @@ public class XmlObjectParser implements Iterable<Object> {
         }
     }
 
+    /**
+     * Records the SAX events of a document, see {@link #record(Reader)}.
+     */
+    private static final class Recorder extends DefaultHandler {
+        private final List<String[]> events = new ArrayList<>();
+        private final StringBuilder characters = new StringBuilder(64);
+        private Locator locator;
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+
+        private String[] event(String type, int length) {
+            flushCharacters();
+            final String[] event = new String[length];
+            event[0] = type;
+            event[1] = locator != null ? Integer.toString(locator.getLineNumber()) : "-1";
+            event[2] = locator != null ? Integer.toString(locator.getColumnNumber()) : "-1";
+            events.add(event);
+            return event;
+        }
+
+        private void flushCharacters() {
+            if (characters.length() > 0) {
+                events.add(new String[] {EVENT_CHARACTERS, characters.toString()});
+                characters.setLength(0);
+            }
+        }
+
+        @Override
+        public void startElement(String ns, String lname, String qname, Attributes a) {
+            final String[] event = event(EVENT_START, 4 + 2 * a.getLength());
+            event[3] = qname;
+            for (int i = 0; i < a.getLength(); ++i) {
+                event[4 + 2 * i] = a.getQName(i);
+                event[5 + 2 * i] = a.getValue(i);
+            }
+        }
+
+        @Override
+        public void endElement(String ns, String lname, String qname) {
+            event(EVENT_END, 4)[3] = qname;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            characters.append(ch, start, length);
+        }
+
+        @Override
+        public void endDocument() {
+            flushCharacters();
+        }
+
+        @Override
+        public void error(SAXParseException e) throws SAXException {
+            throw new XmlParsingException(e).rememberLocation(locator);
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException {
+            throw new XmlParsingException(e).rememberLocation(locator);
+        }
+    }
+
     private final class Parser extends DefaultHandler {
         private final Stack<Object> current = new Stack<>();
         private StringBuilder characters = new StringBuilder(64);
@@ -261,6 +349,12 @@ public class XmlObjectParser implements Iterable<Object> {
     }
 
     private Iterable<Object> start(final Reader in, final ContentHandler contentHandler) throws SAXException, IOException {
+        parse(in, contentHandler);
+        queueIterator = queue.iterator();
+        return this;
+    }
+
+    private static void parse(final Reader in, final ContentHandler contentHandler) throws SAXException, IOException {
         try {
             XMLReader reader = XmlUtils.newSafeSAXParser().getXMLReader();
             reader.setContentHandler(contentHandler);
@@ -272,13 +366,27 @@ public class XmlObjectParser implements Iterable<Object> {
                 Logging.log(Logging.LEVEL_ERROR, "Cannot disable 'load-external-dtd' feature:", e);
             }
             reader.parse(new InputSource(in));
-            queueIterator = queue.iterator();
-            return this;
         } catch (ParserConfigurationException e) {
             throw new JosmRuntimeException(e);
         }
     }
 
+    private static ContentHandler validate(String namespace, String schemaSource, DefaultHandler handler) throws SAXException {
+        SchemaFactory factory = XmlUtils.newXmlSchemaFactory();
+        try (CachedFile cf = new CachedFile(schemaSource); InputStream mis = cf.getInputStream()) {
+            Schema schema = factory.newSchema(new StreamSource(mis));
+            ValidatorHandler validator = schema.newValidatorHandler();
+            validator.setContentHandler(handler);
+            validator.setErrorHandler(handler);
+
+            AddNamespaceFilter filter = new AddNamespaceFilter(namespace);
+            filter.setContentHandler(validator);
+            return filter;
+        } catch (IOException e) {
+            throw new SAXException(tr("Failed to load XML schema."), e);
+        }
+    }
+
     /**
      * Starts parsing from the given input reader, without validation.
      * @param in The input reader
@@ -302,19 +410,82 @@ public class XmlObjectParser implements Iterable<Object> {
      * @throws SAXException if any XML or I/O error occurs
      */
     public Iterable<Object> startWithValidation(final Reader in, String namespace, String schemaSource) throws SAXException {
-        SchemaFactory factory = XmlUtils.newXmlSchemaFactory();
-        try (CachedFile cf = new CachedFile(schemaSource); InputStream mis = cf.getInputStream()) {
-            Schema schema = factory.newSchema(new StreamSource(mis));
-            ValidatorHandler validator = schema.newValidatorHandler();
-            validator.setContentHandler(parser);
-            validator.setErrorHandler(parser);
+        try {
+            return start(in, validate(namespace, schemaSource, parser));
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
 
-            AddNamespaceFilter filter = new AddNamespaceFilter(namespace);
-            filter.setContentHandler(validator);
-            return start(in, filter);
+    /**
+     * Reads the given input reader into a list of events, without validation, to create the objects later with {@link #start(List)}.
+     * <p>
+     * Unlike the creation of the objects, the reading does not depend on the mapping nor on any global state:
+     * several documents can be read in parallel.
+     * @param in The input reader
+     * @return the events of the document, see {@link #EVENT_START}, {@link #EVENT_END} and {@link #EVENT_CHARACTERS}
+     * @throws SAXException if any XML or I/O error occurs
+     * @since xxx
+     */
+    public static List<String[]> record(final Reader in) throws SAXException {
+        final Recorder recorder = new Recorder();
+        try {
+            parse(in, recorder);
         } catch (IOException e) {
-            throw new SAXException(tr("Failed to load XML schema."), e);
+            throw new SAXException(e);
+        }
+        return recorder.events;
+    }
+
+    /**
+     * Reads the given input reader into a list of events, with XSD validation, to create the objects later with {@link #start(List)}.
+     * @param in The input reader
+     * @param namespace default namespace
+     * @param schemaSource XSD schema
+     * @return the events of the document, see {@link #EVENT_START}, {@link #EVENT_END} and {@link #EVENT_CHARACTERS}
+     * @throws SAXException if any XML or I/O error occurs
+     * @see #record(Reader)
+     * @since xxx
+     */
+    public static List<String[]> recordWithValidation(final Reader in, String namespace, String schemaSource) throws SAXException {
+        final Recorder recorder = new Recorder();
+        try {
+            parse(in, validate(namespace, schemaSource, recorder));
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+        return recorder.events;
+    }
+
+    /**
+     * Starts creating the objects from the events of a document read by {@link #record(Reader)}.
+     * @param events the events of the document
+     * @return iterable collection of objects
+     * @throws SAXException if the objects cannot be created
+     * @since xxx
+     */
+    public Iterable<Object> start(final List<String[]> events) throws SAXException {
+        final LocatorImpl locator = new LocatorImpl();
+        parser.setDocumentLocator(locator);
+        for (String[] event : events) {
+            if (EVENT_CHARACTERS.equals(event[0])) {
+                parser.characters(event[1].toCharArray(), 0, event[1].length());
+                continue;
+            }
+            locator.setLineNumber(Integer.parseInt(event[1]));
+            locator.setColumnNumber(Integer.parseInt(event[2]));
+            if (EVENT_START.equals(event[0])) {
+                final AttributesImpl attributes = new AttributesImpl();
+                for (int i = 4; i + 1 < event.length; i += 2) {
+                    attributes.addAttribute("", "", event[i], "CDATA", event[i + 1]);
+                }
+                parser.startElement("", "", event[3], attributes);
+            } else {
+                parser.endElement("", "", event[3]);
+            }
         }
+        queueIterator = queue.iterator();
+        return this;
     }
 
     /**
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -299,6 +300,29 @@ class MultiFetchServerObjectReaderTest {
         assertTrue(reader.getMissingPrimitives().isEmpty());
     }
 
+    /**
+     * Test to multi-get 800 nodes into a streaming target.
+     * @throws OsmTransferException if an error occurs
+     */
+    @Test
+    void testMultiGet800NodesStreaming() throws OsmTransferException {
+        MultiFetchServerObjectReader reader = new MultiFetchServerObjectReader();
+        ArrayList<Node> nodes = new ArrayList<>(ds.getNodes());
+        for (int i = 0; i < 812; i++) {
+            reader.append(nodes.get(i));
+        }
+        DataSet target = new DataSet();
+        reader.setStreamingTarget(target);
+        assertSame(target, reader.parseOsm(NullProgressMonitor.INSTANCE));
+        assertEquals(812, target.getNodes().size());
+        for (Node n1:target.getNodes()) {
+            Node n2 = (Node) ds.getPrimitiveById(n1);
+            assertNotNull(n2);
+            assertEquals(n1.get("name"), n2.get("name"));
+        }
+        assertTrue(reader.getMissingPrimitives().isEmpty());
+    }
+
     /**
      * Test to multi-get non-existing node.
      * @throws OsmTransferException if an error occurs
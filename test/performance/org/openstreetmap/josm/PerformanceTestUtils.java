@@ -97,8 +97,9 @@ public final class PerformanceTestUtils {
      * Runs the given performance test several (approx. 10) times and prints the median run time.
      * @param name The name to use in the output
      * @param testRunner The test to run
+     * @return the average run time in milliseconds, without the fastest and slowest runs
      */
-    public static void runPerformanceTest(String name, Runnable testRunner) {
+    public static double runPerformanceTest(String name, Runnable testRunner) {
         for (int i = 0; i < TIMES_WARMUP; i++) {
             cleanSystem();
             Stopwatch capture = Stopwatch.createStarted();
@@ -117,6 +118,7 @@ public final class PerformanceTestUtils {
         // Sort out e.g. GC during test run.
         double avg = times.subList(2, times.size() - 2).stream().mapToLong(l -> l).average().getAsDouble();
         measurementPlotsPluginOutput(name, avg);
+        return avg;
     }
 
     @SuppressFBWarnings(value = "DM_GC")
@@ -0,0 +1,78 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * This test measures the performance of {@link DataSetMerger} on large downloads.
+ */
+@PerformanceTest
+@Projection
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class DataSetMergerPerformanceTest {
+    private static final int WAY_COUNT = 100_000;
+    private static final int NODES_PER_WAY = 9;
+
+    /**
+     * Generates a downloaded dataset of 1M primitives: 900k nodes and 100k ways.
+     * @param version the version of the primitives
+     * @return the dataset
+     */
+    private static DataSet generateDownload(int version) {
+        DataSet ds = new DataSet();
+        ds.setVersion("0.6");
+        long nodeId = 1;
+        for (int i = 0; i < WAY_COUNT; i++) {
+            List<Node> nodes = new ArrayList<>(NODES_PER_WAY);
+            for (int j = 0; j < NODES_PER_WAY; j++) {
+                Node n = new Node(nodeId++, version);
+                n.setCoor(new LatLon((i / 1000) * 0.01 + j * 0.001, (i % 1000) * 0.01));
+                ds.addPrimitive(n);
+                nodes.add(n);
+            }
+            Way w = new Way(i + 1, version);
+            w.setNodes(nodes);
+            w.put("building", "yes");
+            ds.addPrimitive(w);
+        }
+        return ds;
+    }
+
+    /**
+     * Measures the merge of 1M primitives into an empty dataset, then into a dataset which already contains them.
+     */
+    @Test
+    void testMerge1M() {
+        DataSet target = new DataSet();
+        target.setVersion("0.6");
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("DataSetMerger#merge() of 1M new primitives");
+        DataSetMerger merger = new DataSetMerger(target, generateDownload(1));
+        merger.merge();
+        timer.done();
+        assertTrue(merger.getConflicts().isEmpty());
+        assertEquals(WAY_COUNT * (NODES_PER_WAY + 1), target.allPrimitives().size());
+
+        DataSet update = generateDownload(2);
+        timer = PerformanceTestUtils.startTimer("DataSetMerger#merge() of 1M existing primitives");
+        merger = new DataSetMerger(target, update);
+        merger.merge();
+        timer.done();
+        assertTrue(merger.getConflicts().isEmpty());
+        assertEquals(WAY_COUNT * (NODES_PER_WAY + 1), target.allPrimitives().size());
+        assertEquals(2, target.getPrimitiveById(1, OsmPrimitiveType.WAY).getVersion());
+    }
+}
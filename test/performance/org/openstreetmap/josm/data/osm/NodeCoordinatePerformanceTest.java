@@ -0,0 +1,108 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test measures the memory and time used by the coordinates of the nodes of a large dataset, see {@link Node#getEastNorth()}.
+ * The values can be compared with the ones of earlier revisions in the measurement plots.
+ */
+@PerformanceTest
+@Projection
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class NodeCoordinatePerformanceTest {
+    private static final int NODE_COUNT = 2_000_000;
+    private static DataSet dataSet;
+
+    /**
+     * Create a dataset with random nodes
+     */
+    @BeforeAll
+    static void setUp() {
+        final Random random = new Random(42);
+        dataSet = new DataSet();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            dataSet.addPrimitive(new Node(new LatLon(random.nextDouble() * 10 + 45, random.nextDouble() * 10 + 5)));
+        }
+    }
+
+    /**
+     * Measure the heap used by the nodes, before and after they have been projected
+     */
+    @Test
+    @SuppressFBWarnings(value = "DM_GC")
+    void testHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        dataSet.invalidateEastNorthCache();
+        System.gc();
+        final long before = runtime.totalMemory() - runtime.freeMemory();
+        final DataSet copy = new DataSet(dataSet);
+        System.gc();
+        final long loaded = runtime.totalMemory() - runtime.freeMemory();
+        projectAll(copy);
+        System.gc();
+        final long projected = runtime.totalMemory() - runtime.freeMemory();
+        final double loadedPerNode = (loaded - before) / (double) NODE_COUNT;
+        final double projectedPerNode = (projected - before) / (double) NODE_COUNT;
+        PerformanceTestUtils.measurementPlotsPluginOutput("Node heap (bytes)", loadedPerNode);
+        PerformanceTestUtils.measurementPlotsPluginOutput("Projected node heap (bytes)", projectedPerNode);
+        assertEquals(NODE_COUNT, copy.getNodes().size());
+    }
+
+    /**
+     * Measure the time needed to read the projected coordinates of all nodes, as the renderer does for each frame
+     */
+    @Test
+    void testGetEastNorth() {
+        projectAll(dataSet);
+        PerformanceTestUtils.runPerformanceTest("Read east/north of " + NODE_COUNT + " nodes", () -> projectAll(dataSet));
+    }
+
+    /**
+     * Measure the time needed to project all nodes after a projection change
+     */
+    @Test
+    void testProjectionChange() {
+        PerformanceTestUtils.runPerformanceTest("Project " + NODE_COUNT + " nodes", () -> {
+            dataSet.invalidateEastNorthCache();
+            projectAll(dataSet);
+        });
+    }
+
+    /**
+     * Measure the time needed to search the nodes of the map view, as the renderer does for each frame
+     */
+    @Test
+    void testSearchNodes() {
+        final BBox bbox = new BBox(7, 47, 9, 49);
+        PerformanceTestUtils.runPerformanceTest("Search nodes in " + NODE_COUNT + " nodes",
+                () -> assertFalse(dataSet.searchNodes(bbox).isEmpty()));
+    }
+
+    private static void projectAll(DataSet ds) {
+        final Projecting projecting = ProjectionRegistry.getProjection();
+        double sum = 0;
+        for (Node node : ds.getNodes()) {
+            final EastNorth en = node.getEastNorth(projecting);
+            sum += en.east() + en.north();
+        }
+        assertFalse(Double.isNaN(sum));
+    }
+}
@@ -0,0 +1,115 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+
+/**
+ * This test compares the build and search times of {@link PackedRTree} and {@link QuadBuckets}.
+ * The values can be compared with the ones of earlier revisions in the measurement plots.
+ */
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class PackedRTreePerformanceTest {
+    private static final int NODE_COUNT = 1_000_000;
+    private static final int WAY_COUNT = 200_000;
+    private static final int SEARCH_COUNT = 1_000;
+
+    private static List<Node> nodes;
+    private static List<Way> ways;
+    private static List<BBox> searches;
+
+    /**
+     * Create random nodes, ways and search boxes
+     */
+    @BeforeAll
+    static void setUp() {
+        final Random random = new Random(42);
+        nodes = new ArrayList<>(NODE_COUNT);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes.add(new Node(new LatLon(random.nextDouble() * 10 + 45, random.nextDouble() * 10 + 5)));
+        }
+        ways = new ArrayList<>(WAY_COUNT);
+        for (int i = 0; i < WAY_COUNT; i++) {
+            final Way w = new Way();
+            w.setNodes(Arrays.asList(nodes.get(random.nextInt(NODE_COUNT)), nodes.get(random.nextInt(NODE_COUNT))));
+            if (w.getBBox().width() < 0.05 && w.getBBox().height() < 0.05) {
+                ways.add(w);
+            }
+        }
+        searches = new ArrayList<>(SEARCH_COUNT);
+        for (int i = 0; i < SEARCH_COUNT; i++) {
+            final double lat = random.nextDouble() * 10 + 45;
+            final double lon = random.nextDouble() * 10 + 5;
+            searches.add(new BBox(lon, lat, lon + 0.1, lat + 0.1));
+        }
+    }
+
+    /**
+     * Measure the time needed to build a {@link QuadBuckets} of nodes
+     */
+    @Test
+    void testBuildQuadBuckets() {
+        PerformanceTestUtils.runPerformanceTest("QuadBuckets build of " + NODE_COUNT + " nodes", () -> {
+            final QuadBuckets<Node> qb = new QuadBuckets<>();
+            qb.addAll(nodes);
+            assertEquals(NODE_COUNT, qb.size());
+        });
+    }
+
+    /**
+     * Measure the time needed to build a {@link PackedRTree} of nodes
+     */
+    @Test
+    void testBuildPackedRTree() {
+        PerformanceTestUtils.runPerformanceTest("PackedRTree build of " + NODE_COUNT + " nodes",
+                () -> assertEquals(NODE_COUNT, new PackedRTree<>(nodes).size()));
+    }
+
+    /**
+     * Measure the time needed to search nodes and ways in {@link QuadBuckets}
+     */
+    @Test
+    void testSearchQuadBuckets() {
+        final QuadBuckets<Node> qbNodes = new QuadBuckets<>();
+        qbNodes.addAll(nodes);
+        final QuadBuckets<Way> qbWays = new QuadBuckets<>();
+        qbWays.addAll(ways);
+        PerformanceTestUtils.runPerformanceTest("QuadBuckets " + SEARCH_COUNT + " searches", () -> {
+            int found = 0;
+            for (BBox bbox : searches) {
+                found += qbNodes.search(bbox).size() + qbWays.search(bbox).size();
+            }
+            assertTrue(found > 0);
+        });
+    }
+
+    /**
+     * Measure the time needed to search nodes and ways in {@link PackedRTree}
+     */
+    @Test
+    void testSearchPackedRTree() {
+        final PackedRTree<Node> treeNodes = new PackedRTree<>(nodes);
+        final PackedRTree<Way> treeWays = new PackedRTree<>(ways);
+        PerformanceTestUtils.runPerformanceTest("PackedRTree " + SEARCH_COUNT + " searches", () -> {
+            int found = 0;
+            for (BBox bbox : searches) {
+                found += treeNodes.search(bbox).size() + treeWays.search(bbox).size();
+            }
+            assertTrue(found > 0);
+        });
+    }
+}
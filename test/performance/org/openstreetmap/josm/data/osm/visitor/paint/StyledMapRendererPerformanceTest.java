@@ -8,6 +8,11 @@ import javax.imageio.ImageIO;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -36,6 +41,27 @@ class StyledMapRendererPerformanceTest extends AbstractMapRendererPerformanceTes
         return new StyledMapRenderer(g, nc, false);
     }
 
+    /**
+     * Measure the frame time of the whole city, with the draw phase split in 1, 4 and 16 strips drawn in parallel.
+     * @param partitions the number of strips, see {@link StyledMapRenderer#PREFERENCE_DRAW_PARTITIONS}
+     * @throws Exception if the data cannot be loaded
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 16})
+    void testPartitionedDraw(int partitions) throws Exception {
+        final DataSet ds = PerformanceTestUtils.getNeubrandenburgDataSet();
+        final Bounds bounds = new Bounds(53.51, 13.20, 53.59, 13.34);
+        nc.zoomTo(bounds);
+        StyledMapRenderer.PREFERENCE_DRAW_PARTITIONS.put(partitions);
+        try {
+            final Rendering renderer = buildRenderer();
+            PerformanceTestUtils.runPerformanceTest("City frame with " + partitions + " draw partitions",
+                    () -> renderer.render(ds, true, bounds));
+        } finally {
+            StyledMapRenderer.PREFERENCE_DRAW_PARTITIONS.put(null);
+        }
+    }
+
     /**
      * run this manually to verify that the rendering is set up properly
      * @throws IOException if any I/O error occurs
@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.validation;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Collection;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.PerformanceTestUtils;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.tests.ApiCapabilitiesTest;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
@@ -62,4 +64,37 @@ class ValidationTaskPerformanceTest {
             assertTrue(validationTask.getErrors().size() > 3000);
         });
     }
+
+    /**
+     * Compares the sequential and the parallel execution of the validation task on a test dataset.
+     */
+    @Test
+    void testParallelSpeedup() {
+        DataSet dataSet = MainApplication.getLayerManager().getActiveDataSet();
+        Collection<OsmPrimitive> primitives = dataSet.allPrimitives();
+
+        ValidatorPrefHelper.PREF_PARALLEL.put(false);
+        List<TestError> sequentialErrors = validate(primitives);
+        double sequential = PerformanceTestUtils.runPerformanceTest("ValidationTask#realRun (sequential) on " + dataSet.getName(),
+                () -> validate(primitives));
+
+        ValidatorPrefHelper.PREF_PARALLEL.put(true);
+        List<TestError> parallelErrors = validate(primitives);
+        double parallel = PerformanceTestUtils.runPerformanceTest("ValidationTask#realRun (parallel) on " + dataSet.getName(),
+                () -> validate(primitives));
+
+        assertEquals(sequentialErrors.size(), parallelErrors.size());
+        for (int i = 0; i < sequentialErrors.size(); i++) {
+            assertEquals(sequentialErrors.get(i).getUniqueCode(), parallelErrors.get(i).getUniqueCode());
+            assertEquals(sequentialErrors.get(i).getPrimitives(), parallelErrors.get(i).getPrimitives());
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput("ValidationTask#realRun parallel speedup on " + dataSet.getName(),
+                sequential / parallel);
+    }
+
+    private List<TestError> validate(Collection<OsmPrimitive> primitives) {
+        ValidationTask validationTask = new ValidationTask(NullProgressMonitor.INSTANCE, tests, primitives, primitives);
+        validationTask.realRun();
+        return validationTask.getErrors();
+    }
 }
@@ -0,0 +1,116 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.vector;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.imagery.ImageryInfo;
+import org.openstreetmap.josm.data.imagery.vectortile.mapbox.MVTTile;
+import org.openstreetmap.josm.data.imagery.vectortile.mapbox.MapboxVectorTileSource;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+
+/**
+ * Tests how fast Mapbox Vector Tiles are decoded and added to a {@link VectorDataSet}.
+ * <p>
+ * The tiles are read from a {@code {z}/{x}/{y}.mvt} directory tree, given by the {@code josm.perf.mvt.dir} system property.
+ * The (small) Mapillary tiles of the test data are used by default.
+ */
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class VectorDataSetPerformanceTest {
+    private static final int TIMES = 20;
+
+    private static final class TileData {
+        final int zoom;
+        final int x;
+        final int y;
+        final byte[] content;
+
+        TileData(Path file) throws IOException {
+            final int count = file.getNameCount();
+            this.zoom = Integer.parseInt(file.getName(count - 3).toString());
+            this.x = Integer.parseInt(file.getName(count - 2).toString());
+            this.y = Integer.parseInt(file.getName(count - 1).toString().replace(".mvt", ""));
+            this.content = Files.readAllBytes(file);
+        }
+
+        MVTTile load(MapboxVectorTileSource source) {
+            final MVTTile tile = new MVTTile(source, x, y, zoom);
+            try {
+                tile.loadImage(new ByteArrayInputStream(content));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return tile;
+        }
+    }
+
+    private static MapboxVectorTileSource tileSource;
+    private static List<TileData> corpus;
+
+    /**
+     * Reads the tiles in memory, so that disk access is ignored
+     * @throws IOException if the tiles cannot be read
+     */
+    @BeforeAll
+    static void setUp() throws IOException {
+        final Path root = Paths.get(System.getProperty("josm.perf.mvt.dir", TestUtils.getTestDataRoot() + "pbf/mapillary"));
+        tileSource = new MapboxVectorTileSource(new ImageryInfo("Test MVT", "file:/" + root + "/{z}/{x}/{y}.mvt"));
+        corpus = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(".mvt")).collect(Collectors.toList())) {
+                corpus.add(new TileData(file));
+            }
+        }
+        assertFalse(corpus.isEmpty());
+    }
+
+    /**
+     * Time how long it takes to decode the tiles, one tile at a time and several tiles at once
+     */
+    @Test
+    void testDecode() {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(TIMES + "x decode " + corpus.size() + " tiles");
+        for (int i = 0; i < TIMES; i++) {
+            corpus.forEach(tile -> tile.load(tileSource));
+        }
+        timer.done();
+
+        timer = PerformanceTestUtils.startTimer(TIMES + "x decode " + corpus.size() + " tiles, parallel");
+        IntStream.range(0, TIMES).parallel().forEach(i -> corpus.parallelStream().forEach(tile -> tile.load(tileSource)));
+        timer.done();
+    }
+
+    /**
+     * Time how long it takes to add decoded tiles to a data set
+     */
+    @Test
+    void testAddTileData() {
+        final List<MVTTile> tiles = IntStream.range(0, TIMES).mapToObj(i -> corpus).flatMap(List::stream)
+                .map(tile -> tile.load(tileSource)).collect(Collectors.toList());
+        final VectorDataSet dataSet = new VectorDataSet();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("add " + tiles.size() + " tiles");
+        tiles.forEach(dataSet::addTileData);
+        timer.done();
+        dataSet.setZoom(corpus.get(corpus.size() - 1).zoom);
+        assertFalse(dataSet.allPrimitives().isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.Territories;
+
+/**
+ * Tests how fast the MapCSS {@code inside()} and {@code outside()} conditions are evaluated,
+ * from several threads as done by the style computation.
+ */
+@PerformanceTest
+@Projection
+@org.openstreetmap.josm.testutils.annotations.Territories
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class MapCSSInsidePerformanceTest {
+
+    private static final int NODE_COUNT = 200_000;
+
+    private static final String CSS = "node[inside(\"FR\")] { set fr; }\n"
+            + "node[inside(\"DE,AT,CH\")] { set dach; }\n"
+            + "node[outside(\"EU\")] { set noneu; }\n"
+            + "node[inside(\"GB\")][outside(\"GB-SCT\")] { set gb; }\n";
+
+    private static List<Node> nodes;
+
+    /**
+     * Generates nodes spread over Europe.
+     */
+    @BeforeAll
+    static void setUp() {
+        Random random = new Random(42);
+        nodes = new ArrayList<>(NODE_COUNT);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes.add(new Node(new LatLon(35 + random.nextDouble() * 25, -10 + random.nextDouble() * 35)));
+        }
+    }
+
+    /**
+     * Time how long it takes to apply {@code inside()} rules to all nodes, sequentially and in parallel
+     */
+    @Test
+    void testInside() {
+        MapCSSStyleSource source = new MapCSSStyleSource(CSS);
+        source.loadStyleSource();
+        nodes.subList(0, 1000).forEach(n -> source.apply(new MultiCascade(), n, 1, false));
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(NODE_COUNT + "x MapCSSStyleSource#apply(...) with inside()");
+        nodes.forEach(n -> source.apply(new MultiCascade(), n, 1, false));
+        timer.done();
+
+        timer = PerformanceTestUtils.startTimer(NODE_COUNT + "x MapCSSStyleSource#apply(...) with inside(), parallel");
+        long count = nodes.parallelStream().filter(n -> {
+            MultiCascade mc = new MultiCascade();
+            source.apply(mc, n, 1, false);
+            return mc.getCascade(null).containsKey("fr");
+        }).count();
+        timer.done();
+        assertEquals(nodes.stream().filter(n -> Territories.isIso3166Code("FR", n.getCoor())).count(), count);
+    }
+
+    /**
+     * Time how long it takes to resolve the territories of all nodes, one by one and in one batch
+     */
+    @Test
+    void testGetIso3166Codes() {
+        LatLon[] lls = nodes.stream().map(Node::getCoor).toArray(LatLon[]::new);
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(NODE_COUNT + "x Territories#isIso3166Code(...) for all codes");
+        long count = 0;
+        for (LatLon ll : lls) {
+            for (String code : Territories.getKnownIso3166Codes()) {
+                if (Territories.isIso3166Code(code, ll)) {
+                    count++;
+                }
+            }
+        }
+        timer.done();
+
+        timer = PerformanceTestUtils.startTimer("Territories#getIso3166Codes(...) for " + NODE_COUNT + " points");
+        long batchCount = Territories.getIso3166Codes(lls).stream().mapToInt(Set::size).sum();
+        timer.done();
+        assertEquals(count, batchCount);
+    }
+}
@@ -0,0 +1,90 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+
+/**
+ * Tests how fast the presets matching a selection are found, as done by the properties dialog on selection change.
+ */
+@PerformanceTest
+@org.openstreetmap.josm.testutils.annotations.TaggingPresets
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class TaggingPresetsPerformanceTest {
+    private static final int PRIMITIVE_COUNT = 10_000;
+
+    private static List<OsmPrimitive> primitives;
+
+    /**
+     * Generates nodes, ways and relations with tags of the presets.
+     */
+    @BeforeAll
+    static void setUp() {
+        final Random random = new Random(42);
+        final List<String> keys = new ArrayList<>(TaggingPresets.getPresetKeys());
+        keys.sort(null);
+        primitives = new ArrayList<>(PRIMITIVE_COUNT);
+        for (int i = 0; i < PRIMITIVE_COUNT; i++) {
+            final OsmPrimitive p;
+            switch (i % 3) {
+            case 0:
+                p = new Node(new LatLon(random.nextDouble(), random.nextDouble()));
+                break;
+            case 1:
+                p = new Way();
+                ((Way) p).setNodes(List.of(new Node(LatLon.ZERO), new Node(LatLon.NORTH_POLE)));
+                break;
+            default:
+                p = new Relation();
+            }
+            for (int t = random.nextInt(5); t >= 0; t--) {
+                final String key = keys.get(random.nextInt(keys.size()));
+                final List<String> values = new ArrayList<>(TaggingPresets.getPresetValues(key));
+                p.put(key, values.isEmpty() ? "yes" : values.get(random.nextInt(values.size())));
+            }
+            primitives.add(p);
+        }
+    }
+
+    /**
+     * Time how long it takes to find the matching presets of all primitives, by testing all presets and with the index
+     */
+    @Test
+    void testGetMatchingPresets() {
+        final Collection<TaggingPreset> presets = TaggingPresets.getTaggingPresets();
+        TaggingPresets.getMatchingPresets(primitives.get(0));
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(PRIMITIVE_COUNT + "x TaggingPreset#test(...) for "
+                + presets.size() + " presets");
+        long expected = 0;
+        for (OsmPrimitive p : primitives) {
+            expected += presets.stream().filter(preset -> preset.test(p)).count();
+        }
+        timer.done();
+
+        timer = PerformanceTestUtils.startTimer(PRIMITIVE_COUNT + "x TaggingPresets#getMatchingPresets(...)");
+        long count = 0;
+        for (OsmPrimitive p : primitives) {
+            count += TaggingPresets.getMatchingPresets(p).size();
+        }
+        timer.done();
+        assertEquals(expected, count);
+    }
+}
@@ -4,8 +4,13 @@ package org.openstreetmap.josm.data.cache;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -13,10 +18,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.jcs3.access.behavior.ICacheAccess;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
 import org.openstreetmap.josm.data.imagery.TMSCachedTileLoader;
 import org.openstreetmap.josm.data.imagery.TileJobOptions;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Simple tests for ThreadPoolExecutor / HostLimitQueue verifying, that this pair works OK
@@ -25,6 +32,12 @@ import org.openstreetmap.josm.tools.Logging;
 @BasicPreferences
 @Timeout(20)
 class HostLimitQueueTest {
+    /**
+     * The disk cache directory, so that the tests do not write to the working directory
+     */
+    @TempDir
+    static File cacheDir;
+
     /**
      * Mock class for tests
      */
@@ -66,6 +79,31 @@ class HostLimitQueueTest {
         }
     }
 
+    /**
+     * Mock class recording the order in which the tasks are run
+     */
+    static class PriorityTask extends Task {
+        private final long priority;
+        private final List<Long> order;
+
+        PriorityTask(ICacheAccess<String, CacheEntry> cache, URL url, long priority, List<Long> order) {
+            super(cache, url, new AtomicInteger());
+            this.priority = priority;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            order.add(priority);
+            executionFinished();
+        }
+
+        @Override
+        public long getPriority() {
+            return priority;
+        }
+    }
+
     /**
      * Check if single threaded execution works properly
      * @throws Exception in case of error
@@ -73,7 +111,7 @@ class HostLimitQueueTest {
     @Test
     void testSingleThreadPerHost() throws Exception {
         ThreadPoolExecutor tpe = TMSCachedTileLoader.getNewThreadPoolExecutor("test-%d", 3, 1);
-        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, "");
+        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, cacheDir.getPath());
         AtomicInteger counter = new AtomicInteger(0);
         long start = System.currentTimeMillis();
         for (int i = 0; i < 10; i++) {
@@ -99,7 +137,7 @@ class HostLimitQueueTest {
     @Test
     void testMultipleThreadPerHost() throws Exception {
         ThreadPoolExecutor tpe = TMSCachedTileLoader.getNewThreadPoolExecutor("test-%d", 3, 2);
-        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, "");
+        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, cacheDir.getPath());
         AtomicInteger counter = new AtomicInteger(0);
         long start = System.currentTimeMillis();
         for (int i = 0; i < 10; i++) {
@@ -124,7 +162,7 @@ class HostLimitQueueTest {
     @Test
     void testTwoHosts() throws Exception {
         ThreadPoolExecutor tpe = TMSCachedTileLoader.getNewThreadPoolExecutor("test-%d", 3, 1);
-        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, "");
+        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, cacheDir.getPath());
         AtomicInteger counter = new AtomicInteger(0);
         long start = System.currentTimeMillis();
         for (int i = 0; i < 10; i++) {
@@ -142,4 +180,29 @@ class HostLimitQueueTest {
         assertTrue(duration < 6*1000 & duration > 4*1000,
                 "Expected duration between 4 and 6 seconds not met. Actual duration: " + (duration /1000));
     }
+
+    /**
+     * Check that the queued jobs are run by priority
+     * @throws Exception in case of error
+     */
+    @Test
+    void testPriority() throws Exception {
+        HostLimitQueue queue = new HostLimitQueue(1);
+        ThreadPoolExecutor tpe = new ThreadPoolExecutor(1, 1, 300, TimeUnit.SECONDS, queue,
+                Utils.newThreadFactory("test-%d", Thread.NORM_PRIORITY));
+        ICacheAccess<String, CacheEntry> cache = JCSCacheManager.getCache("test", 3, 0, cacheDir.getPath());
+        AtomicInteger counter = new AtomicInteger(0);
+        List<Long> order = Collections.synchronizedList(new ArrayList<>());
+        // the first task keeps the only thread busy while the other ones are queued
+        tpe.execute(new Task(cache, new URL("http://localhost/blocker"), counter));
+        for (long priority : new long[] {5, 3, 9, 1, 3}) {
+            tpe.execute(new PriorityTask(cache, new URL("http://localhost/" + priority), priority, order));
+        }
+        tpe.shutdown();
+        assertTrue(tpe.awaitTermination(15, TimeUnit.SECONDS));
+        assertEquals(1, counter.get());
+        assertEquals(Arrays.asList(1L, 3L, 3L, 5L, 9L), order);
+        assertEquals(5, queue.getServedCount());
+        assertTrue(queue.getMaxWaitTime() >= queue.getAverageWaitTime());
+    }
 }
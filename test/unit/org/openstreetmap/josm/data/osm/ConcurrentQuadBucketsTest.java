@@ -0,0 +1,130 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests of {@link ConcurrentQuadBuckets}.
+ */
+class ConcurrentQuadBucketsTest {
+    private static List<Node> createNodes(Random random, int count) {
+        List<Node> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add(new Node(new LatLon(random.nextDouble() * 2 + 50, random.nextDouble() * 2 + 10)));
+        }
+        return nodes;
+    }
+
+    /**
+     * Test that searches give the same results as {@link QuadBuckets}
+     */
+    @Test
+    void testSearch() {
+        Random random = new Random(1);
+        List<Node> nodes = createNodes(random, 10_000);
+        QuadBuckets<Node> expected = new QuadBuckets<>();
+        ConcurrentQuadBuckets<Node> actual = new ConcurrentQuadBuckets<>();
+        expected.addAll(nodes);
+        actual.addAll(nodes);
+        assertEquals(nodes.size(), actual.size());
+        assertEquals(new HashSet<>(nodes), new HashSet<>(actual));
+        for (int i = 0; i < 100; i++) {
+            double lat = random.nextDouble() * 2 + 50;
+            double lon = random.nextDouble() * 2 + 10;
+            BBox bbox = new BBox(lon, lat, lon + random.nextDouble() * 0.5, lat + random.nextDouble() * 0.5);
+            assertEquals(new HashSet<>(expected.search(bbox)), new HashSet<>(actual.search(bbox)));
+        }
+
+        // Remove half of the nodes
+        for (Node node : nodes.subList(0, nodes.size() / 2)) {
+            assertTrue(actual.remove(node));
+            assertFalse(actual.contains(node));
+        }
+        assertEquals(nodes.size() - nodes.size() / 2, actual.size());
+        assertEquals(new HashSet<>(nodes.subList(nodes.size() / 2, nodes.size())),
+                new HashSet<>(actual.search(new BBox(-180, -90, 180, 90))));
+        assertFalse(actual.remove(nodes.get(0)));
+    }
+
+    /**
+     * Test handling of objects with invalid bbox and removal with the iterator
+     */
+    @Test
+    void testSpecialBBox() {
+        ConcurrentQuadBuckets<Way> qbWays = new ConcurrentQuadBuckets<>();
+        Way w1 = new Way(1);
+        Way w2 = new Way(2);
+        Node n1 = new Node(1);
+        Node n2 = new Node(2);
+        n2.setCoor(new LatLon(10, 20));
+        w2.setNodes(Arrays.asList(n1, n2));
+        qbWays.addAll(Arrays.asList(w1, w2));
+        assertEquals(2, qbWays.size());
+        assertTrue(qbWays.contains(w1));
+        assertTrue(qbWays.contains(w2));
+        assertEquals(Collections.singletonList(w2), qbWays.search(new BBox(19, 9, 21, 11)));
+
+        Iterator<Way> iter = qbWays.iterator();
+        int count = 2;
+        while (iter.hasNext()) {
+            iter.next();
+            iter.remove();
+            assertEquals(--count, qbWays.size());
+        }
+        assertTrue(qbWays.isEmpty());
+        assertFalse(qbWays.contains(w1));
+        assertFalse(qbWays.contains(w2));
+    }
+
+    /**
+     * Test that searches running concurrently with modifications always find the objects which are not modified
+     * @throws Exception if the search thread failed
+     */
+    @Test
+    void testConcurrentSearch() throws Exception {
+        Random random = new Random(2);
+        List<Node> stable = createNodes(random, 2_000);
+        List<Node> changing = createNodes(random, 20_000);
+        ConcurrentQuadBuckets<Node> qb = new ConcurrentQuadBuckets<>();
+        qb.addAll(stable);
+        BBox all = new BBox(-180, -90, 180, 90);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> searches = executor.submit(() -> {
+                int count = 0;
+                while (!done.get()) {
+                    assertTrue(new HashSet<>(qb.search(all)).containsAll(stable));
+                    count++;
+                }
+                return count;
+            });
+            for (int i = 0; i < 3; i++) {
+                qb.addAll(changing);
+                qb.removeAll(changing);
+            }
+            done.set(true);
+            assertTrue(searches.get() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(new HashSet<>(stable), new HashSet<>(qb.search(all)));
+    }
+}
@@ -1432,4 +1432,49 @@ class DataSetMergerTest {
         assertFalse(theirNode.isDeleted());
         assertFalse(myNode.isDeleted());
     }
+
+    /**
+     * Test a merge large enough to be prepared in parallel, with existing, new and semantically equal primitives
+     */
+    @Test
+    void testLargeMerge() {
+        final int count = 5000;
+        final Node[] myNodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            myNodes[i] = new Node(i + 1, 1);
+            myNodes[i].setCoor(new LatLon(i * 0.001, 0));
+            my.addPrimitive(myNodes[i]);
+        }
+        final Node myNewNode = new Node(new LatLon(-1, -1));
+        my.addPrimitive(myNewNode);
+
+        final Way theirWay = new Way(1, 1);
+        for (int i = 0; i < 2 * count; i++) {
+            Node n = new Node(i + 1, 2);
+            n.setCoor(new LatLon(i * 0.001, 1));
+            their.addPrimitive(n);
+            if (i % 2 == 0) {
+                theirWay.addNode(n);
+            }
+        }
+        final Node theirNewNode = new Node(new LatLon(-1, -1));
+        their.addPrimitive(theirNewNode);
+        their.addPrimitive(theirWay);
+
+        final DataSetMerger visitor = new DataSetMerger(my, their);
+        visitor.merge();
+
+        assertTrue(visitor.getConflicts().isEmpty());
+        assertEquals(2 * count + 1, my.getNodes().size());
+        // existing nodes are updated in place, new version from their dataset
+        assertSame(myNodes[10], my.getPrimitiveById(11, OsmPrimitiveType.NODE));
+        assertEquals(2, myNodes[10].getVersion());
+        assertEquals(1, myNodes[10].lon(), 1e-7);
+        // the new node is merged onto the semantically equal new node
+        assertTrue(my.containsNode(myNewNode));
+        final Way myWay = (Way) my.getPrimitiveById(1, OsmPrimitiveType.WAY);
+        assertEquals(count, myWay.getNodesCount());
+        assertSame(myNodes[0], myWay.firstNode());
+        assertSame(my.getPrimitiveById(2 * count - 1, OsmPrimitiveType.NODE), myWay.lastNode());
+    }
 }
@@ -77,6 +77,27 @@ class DataSetTest {
         assertEquals(4, result.size(), "We should have found four items.");
     }
 
+    /**
+     * Unit test for {@link DataSet#searchNodesLockFree}, {@link DataSet#searchWaysLockFree} and {@link DataSet#searchRelationsLockFree}
+     */
+    @Test
+    void testSearchLockFree() {
+        final DataSet ds = new DataSet();
+        Node node = new Node(LatLon.ZERO);
+        Node node2 = new Node(new LatLon(-0.01, -0.01));
+        Way way = TestUtils.newWay("", node, node2);
+        Relation r = new Relation(1);
+        r.addMember(new RelationMember("role", node));
+        way.getNodes().forEach(ds::addPrimitive);
+        ds.addPrimitive(way);
+        ds.addPrimitive(r);
+        BBox bbox = new BBox(new LatLon(-1.0, -1.0), new LatLon(1.0, 1.0));
+        assertEquals(ds.searchNodes(bbox), ds.searchNodesLockFree(bbox));
+        assertEquals(ds.searchWays(bbox), ds.searchWaysLockFree(bbox));
+        assertEquals(ds.searchRelations(bbox), ds.searchRelationsLockFree(bbox));
+        assertEquals(2, ds.searchNodesLockFree(bbox).size());
+    }
+
     /**
      * Unit test of methods {@link DataSet#addChangeSetTag} / {@link DataSet#getChangeSetTags}.
      */
@@ -337,4 +358,40 @@ class DataSetTest {
         assertEquals(4, copy.allPrimitives().size());
         assertTrue(copy.isLocked());
     }
+
+    /**
+     * Checks that the searches of a locked dataset, which use packed trees, give the same results.
+     */
+    @Test
+    void testSearchLocked() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(10, 10));
+        Node n2 = new Node(new LatLon(20, 20));
+        Node n3 = new Node(new LatLon(30, 30));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(w);
+        Relation r = new Relation();
+        r.setMembers(Collections.singletonList(new RelationMember(null, n3)));
+        ds.addPrimitive(r);
+        BBox bbox = new BBox(15, 15, 35, 35);
+        ds.lock();
+        // The packed trees are built on the second search
+        for (int i = 0; i < 3; i++) {
+            assertEquals(new HashSet<>(Arrays.asList(n2, n3)), new HashSet<>(ds.searchNodes(bbox)));
+            assertEquals(Collections.singletonList(w), ds.searchWays(bbox));
+            assertEquals(Collections.singletonList(r), ds.searchRelations(bbox));
+            assertTrue(ds.searchNodes(new BBox(0, 0, 5, 5)).isEmpty());
+        }
+        ds.unlock();
+        Node n4 = new Node(new LatLon(25, 25));
+        ds.addPrimitive(n4);
+        ds.lock();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(new HashSet<>(Arrays.asList(n2, n3, n4)), new HashSet<>(ds.searchNodes(bbox)));
+        }
+    }
 }
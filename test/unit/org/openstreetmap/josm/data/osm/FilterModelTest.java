@@ -0,0 +1,131 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.LayerManager;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link FilterModel}.
+ */
+@BasicPreferences
+@LayerManager
+@Projection
+class FilterModelTest {
+    /**
+     * Test that the filters are executed again on the primitives affected by dataset events
+     */
+    @Test
+    void testIncrementalFiltering() {
+        final DataSet ds = new DataSet();
+        final Node n1 = new Node(LatLon.ZERO);
+        final Node n2 = new Node(LatLon.NORTH_POLE);
+        final Node n3 = new Node(LatLon.SOUTH_POLE);
+        n3.put("amenity", "parking");
+        final Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "residential");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        ds.addPrimitive(w);
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(ds, "", null));
+
+        final FilterModel model = new FilterModel();
+        final Filter filter = new Filter();
+        filter.text = "highway";
+        filter.hiding = true;
+        model.addFilter(filter);
+        model.executeFilters();
+        assertTrue(w.isDisabledAndHidden());
+        assertTrue(n1.isDisabledAndHidden());
+        assertFalse(n3.isDisabled());
+        assertEquals(3, model.getDisabledAndHiddenCount());
+
+        // Events are processed once the dataset is unlocked, as done by the dataset event manager
+        final List<AbstractDatasetChangedEvent> events = new ArrayList<>();
+        final DataSetListenerAdapter listener = new DataSetListenerAdapter(events::add);
+        final Consumer<Runnable> update = r -> {
+            ds.update(r);
+            new ArrayList<>(events).forEach(model::executeFilters);
+            events.clear();
+        };
+        ds.addDataSetListener(listener);
+        try {
+            // The way and its untagged nodes are shown again
+            update.accept(() -> w.remove("highway"));
+            assertFalse(w.isDisabled());
+            assertFalse(n1.isDisabled());
+            assertEquals(0, model.getDisabledAndHiddenCount());
+
+            // Several changes in one update
+            update.accept(() -> {
+                n3.put("highway", "bus_stop");
+                w.put("highway", "service");
+                n1.setCoor(new LatLon(1, 1));
+            });
+            assertTrue(w.isDisabledAndHidden());
+            assertTrue(n2.isDisabledAndHidden());
+            assertTrue(n3.isDisabledAndHidden());
+            assertEquals(4, model.getDisabledAndHiddenCount());
+
+            // Removed nodes are not counted anymore, the other node of the way is still hidden
+            update.accept(() -> {
+                w.removeNode(n1);
+                ds.removePrimitive(n1.getPrimitiveId());
+            });
+            assertTrue(n2.isDisabledAndHidden());
+            assertEquals(3, model.getDisabledAndHiddenCount());
+
+            // Deleted nodes are not counted anymore, and are counted again once undeleted
+            update.accept(() -> n3.setDeleted(true));
+            assertEquals(2, model.getDisabledAndHiddenCount());
+            update.accept(() -> n3.setDeleted(false));
+            assertEquals(3, model.getDisabledAndHiddenCount());
+            assertEquals(0, model.getDisabledCount());
+        } finally {
+            ds.removeDataSetListener(listener);
+        }
+    }
+
+    /**
+     * Test of {@link FilterModel#getAffectedPrimitives(AbstractDatasetChangedEvent)}
+     */
+    @Test
+    void testGetAffectedPrimitives() {
+        final DataSet ds = new DataSet();
+        assertNull(FilterModel.getAffectedPrimitives(new DataChangedEvent(ds)));
+        final Node n = new Node(LatLon.ZERO);
+        final Way w = new Way();
+        w.addNode(n);
+        ds.addPrimitive(n);
+        ds.addPrimitive(w);
+        final List<AbstractDatasetChangedEvent> events = new ArrayList<>();
+        final DataSetListenerAdapter listener = new DataSetListenerAdapter(events::add);
+        ds.addDataSetListener(listener);
+        n.setCoor(LatLon.NORTH_POLE);
+        ds.removeDataSetListener(listener);
+        final Collection<OsmPrimitive> affected = FilterModel.getAffectedPrimitives(events.get(0));
+        assertEquals(2, affected.size());
+        assertTrue(affected.contains(w));
+        assertTrue(FilterModel.getAffectedPrimitives(new DataChangedEvent(ds, events)).contains(w));
+    }
+}
@@ -23,6 +23,8 @@ import org.openstreetmap.josm.data.osm.search.SearchMode;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
@@ -59,6 +61,26 @@ class FilterTest {
 
     @Test
     void testFilter() throws Exception {
+        checkFilterResults();
+    }
+
+    /**
+     * Test that the filters give the same results when the primitives are evaluated in parallel
+     * @throws Exception if an error occurs
+     */
+    @Test
+    @BasicPreferences
+    void testFilterParallel() throws Exception {
+        Config.getPref().putInt("filter.numberOfThreads", 2);
+        FilterWorker.PROP_PARALLEL_CHUNK_SIZE.put(1);
+        try {
+            checkFilterResults();
+        } finally {
+            FilterWorker.PROP_PARALLEL_CHUNK_SIZE.remove();
+        }
+    }
+
+    private static void checkFilterResults() throws Exception {
         for (int i : new int[] {1, 2, 3, 11, 12, 13, 14, 15}) {
             DataSet ds;
             try (InputStream is = Files.newInputStream(Paths.get("nodist/data/filterTests.osm"))) {
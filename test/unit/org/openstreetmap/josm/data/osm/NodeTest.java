@@ -120,6 +120,38 @@ class NodeTest {
         assertTrue(n.isOutSideWorld());
     }
 
+    /**
+     * Test that the projected coordinates are kept when a node is added to or removed from a dataset,
+     * and are updated when the node moves.
+     */
+    @Test
+    void testEastNorthCache() {
+        EastNorth en = new EastNorth(1000.123456789, 2000.987654321);
+        Node n = new Node(en);
+        assertEquals(en, n.getEastNorth());
+        DataSet ds = new DataSet();
+        ds.addPrimitive(n);
+        assertEquals(en, n.getEastNorth());
+        Node other = new Node(new LatLon(1, 2));
+        ds.addPrimitive(other);
+        assertEquals(new LatLon(1, 2), other.getCoor());
+        EastNorth otherEn = other.getEastNorth();
+        ds.removePrimitive(n);
+        assertEquals(en, n.getEastNorth());
+        ds.addPrimitive(n);
+        assertEquals(en, n.getEastNorth());
+        assertEquals(otherEn, other.getEastNorth());
+
+        EastNorth moved = en.add(10, 10);
+        n.setEastNorth(moved);
+        assertEquals(moved, n.getEastNorth());
+        n.setCoor(LatLon.ZERO);
+        assertEquals(0, n.getEastNorth().east(), 1e-9);
+        ds.invalidateEastNorthCache();
+        assertEquals(0, n.getEastNorth().north(), 1e-9);
+        assertEquals(otherEn, other.getEastNorth());
+    }
+
     /**
      * Test that {@link Node#hasDirectionKeys} is not set.
      */
@@ -0,0 +1,90 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests of {@link PackedRTree}.
+ */
+class PackedRTreeTest {
+    /**
+     * Test that searches give the same results as {@link QuadBuckets}, for several tree depths
+     */
+    @Test
+    void testSearch() {
+        Random random = new Random(1);
+        for (int count : new int[] {0, 1, PackedRTree.NODE_SIZE, PackedRTree.NODE_SIZE + 1, 1000, 20_000}) {
+            List<Way> ways = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Node n1 = new Node(new LatLon(random.nextDouble() * 2 + 50, random.nextDouble() * 2 + 10));
+                Node n2 = new Node(new LatLon(n1.lat() + random.nextDouble() * 0.01, n1.lon() + random.nextDouble() * 0.01));
+                Way w = new Way();
+                w.setNodes(Arrays.asList(n1, n2));
+                ways.add(w);
+            }
+            QuadBuckets<Way> expected = new QuadBuckets<>();
+            expected.addAll(ways);
+            PackedRTree<Way> actual = new PackedRTree<>(ways);
+            assertEquals(count, actual.size());
+            assertEquals(new HashSet<>(ways), new HashSet<>(actual));
+            for (int i = 0; i < 100; i++) {
+                double lat = random.nextDouble() * 2 + 50;
+                double lon = random.nextDouble() * 2 + 10;
+                BBox bbox = new BBox(lon, lat, lon + random.nextDouble() * 0.5, lat + random.nextDouble() * 0.5);
+                assertEquals(new HashSet<>(expected.search(bbox)), new HashSet<>(actual.search(bbox)));
+            }
+            for (Way w : ways) {
+                assertTrue(actual.contains(w));
+            }
+        }
+    }
+
+    /**
+     * Test the search of nodes, and the handling of objects with invalid bbox
+     */
+    @Test
+    void testNodes() {
+        Node n1 = new Node(1);
+        Node n2 = new Node(new LatLon(10, 20));
+        Node n3 = new Node(new LatLon(10, 20));
+        Node n4 = new Node(new LatLon(-10, -20));
+        PackedRTree<Node> tree = new PackedRTree<>(Arrays.asList(n1, n2, n3, n4));
+        assertEquals(4, tree.size());
+        assertTrue(tree.contains(n1));
+        assertTrue(tree.contains(n4));
+        assertFalse(tree.contains(new Node(new LatLon(10, 20))));
+        assertEquals(new HashSet<>(Arrays.asList(n2, n3)), new HashSet<>(tree.search(new BBox(20, 10, 20, 10))));
+        assertEquals(Collections.singletonList(n4), tree.search(new BBox(-21, -11, -19, -9)));
+        assertTrue(tree.search(new BBox(0, 0, 1, 1)).isEmpty());
+        assertTrue(tree.search(new BBox()).isEmpty());
+    }
+
+    /**
+     * Test that the Hilbert curve fills the first 4x4 square first, moving by one step at a time, and ends at the east corner
+     */
+    @Test
+    void testHilbert() {
+        int[][] positions = new int[16][];
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                positions[PackedRTree.hilbert(x, y)] = new int[] {x, y};
+            }
+        }
+        for (int d = 1; d < 16; d++) {
+            assertEquals(1, Math.abs(positions[d][0] - positions[d - 1][0]) + Math.abs(positions[d][1] - positions[d - 1][1]));
+        }
+        assertEquals(-1, PackedRTree.hilbert((1 << 16) - 1, 0));
+    }
+}
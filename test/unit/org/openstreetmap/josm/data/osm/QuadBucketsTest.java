@@ -36,8 +36,8 @@ class QuadBucketsTest {
         List<Relation> allRelations = new ArrayList<>(ds.getRelations());
 
         QuadBucketPrimitiveStore<Node, Way, Relation> s = (QuadBucketPrimitiveStore<Node, Way, Relation>) getPrivateField(ds, "store");
-        QuadBuckets<Node> nodes = (QuadBuckets<Node>) getPrivateField(s, "nodes");
-        QuadBuckets<Way> ways = (QuadBuckets<Way>) getPrivateField(s, "ways");
+        Collection<Node> nodes = (Collection<Node>) getPrivateField(s, "nodes");
+        Collection<Way> ways = (Collection<Way>) getPrivateField(s, "ways");
         Collection<Relation> relations = (Collection<Relation>) getPrivateField(s, "relations");
 
         int expectedCount = allNodes.size();
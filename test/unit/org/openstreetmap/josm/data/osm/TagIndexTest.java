@@ -0,0 +1,54 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of {@link TagIndex}.
+ */
+@BasicPreferences
+class TagIndexTest {
+    /**
+     * Test that the index follows the additions, tag changes and removals of primitives
+     */
+    @Test
+    void testUpdates() {
+        final DataSet ds = new DataSet();
+        final Node n1 = new Node(LatLon.ZERO);
+        n1.put("amenity", "fuel");
+        ds.addPrimitive(n1);
+        final TagIndex index = ds.getTagIndex();
+        assertSame(index, ds.getTagIndex());
+        assertEquals(Collections.singleton(n1), index.getPrimitives("amenity", "fuel"));
+
+        final Node n2 = new Node(LatLon.NORTH_POLE);
+        n2.put("amenity", "parking");
+        ds.addPrimitive(n2);
+        assertEquals(Collections.singleton(n2), index.getPrimitives("amenity", "parking"));
+        assertEquals(2, index.getPrimitives("amenity").size());
+        assertEquals(Collections.singleton(n2), index.getPrimitives(k -> k.startsWith("amen"), v -> v.startsWith("park")));
+
+        n1.put("amenity", "parking");
+        assertTrue(index.getPrimitives("amenity", "fuel").isEmpty());
+        assertEquals(2, index.getPrimitives("amenity", "parking").size());
+
+        ds.update(() -> {
+            n2.remove("amenity");
+            n2.put("name", "Foo");
+        });
+        assertEquals(Collections.singleton(n1), index.getPrimitives("amenity"));
+        assertEquals(Collections.singleton(n2), index.getPrimitives("name", "Foo"));
+
+        ds.removePrimitive(n1.getPrimitiveId());
+        assertTrue(index.getPrimitives("amenity").isEmpty());
+        assertTrue(index.getPrimitives("unknown-key-" + TagIndexTest.class.getName()).isEmpty());
+    }
+}
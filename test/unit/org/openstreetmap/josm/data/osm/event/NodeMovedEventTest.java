@@ -2,8 +2,15 @@
 package org.openstreetmap.josm.data.osm.event;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 
 /**
  * Unit tests of {@link NodeMovedEvent} class.
@@ -16,4 +23,22 @@ class NodeMovedEventTest {
     void testToString() {
         assertEquals("NODE_MOVED", new NodeMovedEvent(null, null).toString());
     }
+
+    /**
+     * Unit test of {@link NodeMovedEvent#getOldCoor}.
+     */
+    @Test
+    void testOldCoor() {
+        DataSet ds = new DataSet();
+        Node n = new Node(new LatLon(1, 2));
+        ds.addPrimitive(n);
+        List<AbstractDatasetChangedEvent> events = new ArrayList<>();
+        ds.addDataSetListener(new DataSetListenerAdapter(events::add));
+        n.setCoor(new LatLon(3, 4));
+        assertEquals(1, events.size());
+        NodeMovedEvent event = (NodeMovedEvent) events.get(0);
+        assertSame(n, event.getNode());
+        assertEquals(new LatLon(1, 2), event.getOldCoor());
+        assertEquals(new LatLon(3, 4), n.getCoor());
+    }
 }
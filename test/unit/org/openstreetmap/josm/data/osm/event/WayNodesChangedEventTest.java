@@ -2,8 +2,18 @@
 package org.openstreetmap.josm.data.osm.event;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
 
 /**
  * Unit tests of {@link WayNodesChangedEvent} class.
@@ -16,4 +26,27 @@ class WayNodesChangedEventTest {
     void testToString() {
         assertEquals("WAY_NODES_CHANGED", new WayNodesChangedEvent(null, null).toString());
     }
+
+    /**
+     * Unit test of {@link WayNodesChangedEvent#getOldBBox}.
+     */
+    @Test
+    void testOldBBox() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 2));
+        Node n2 = new Node(new LatLon(3, 4));
+        Node n3 = new Node(new LatLon(5, 6));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitiveRecursive(w);
+        ds.addPrimitive(n3);
+        List<AbstractDatasetChangedEvent> events = new ArrayList<>();
+        ds.addDataSetListener(new DataSetListenerAdapter(events::add));
+        w.setNodes(Arrays.asList(n2, n3));
+        assertEquals(1, events.size());
+        WayNodesChangedEvent event = (WayNodesChangedEvent) events.get(0);
+        assertSame(w, event.getChangedWay());
+        assertEquals(new BBox(2, 1, 4, 3), event.getOldBBox());
+        assertEquals(new BBox(4, 3, 6, 5), w.getBBox());
+    }
 }
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -21,6 +22,7 @@ import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.openstreetmap.josm.TestUtils;
@@ -860,4 +862,54 @@ class SearchCompilerTest {
     void testNonRegression22156() {
         assertThrows(SearchParseError.class, () -> SearchCompiler.compile("nth%: 0"));
     }
+
+    /**
+     * Test that the tag index is not used by default
+     * @throws SearchParseError if an error has been encountered while compiling
+     */
+    @Test
+    void testGetCandidatesDisabled() throws SearchParseError {
+        final DataSet ds = new DataSet();
+        ds.addPrimitive(OsmUtils.createPrimitive("node amenity=fuel"));
+        assertNull(SearchCompiler.getCandidates(SearchCompiler.compile("amenity=fuel"), ds));
+    }
+
+    /**
+     * Test that the candidates found with the tag index include all matching primitives
+     * @param searchString search string to test
+     * @param indexed whether the search string can use the tag index
+     * @throws SearchParseError if an error has been encountered while compiling
+     */
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {"amenity=fuel|true", "amenity=*|true", "*=fuel|true", "amenity:fu|true", "Amenity:FU|true",
+            "oneway?|true", "-oneway?|false", "amenity=fuel name=*|true", "amenity=fuel OR oneway?|true", "amenity=fuel XOR name=Bar|true",
+            "*=|false", "name=|false", "-amenity=fuel|false"})
+    void testGetCandidates(String searchString, boolean indexed) throws SearchParseError {
+        SearchCompiler.PROP_TAG_INDEX.put(true);
+        try {
+            final DataSet ds = new DataSet();
+            for (String tags : Arrays.asList("amenity=fuel", "amenity=fuel name=Foo", "amenity=parking name=Bar",
+                    "highway=residential oneway=yes", "highway=residential oneway=no", "", "other=fuel")) {
+                ds.addPrimitive(OsmUtils.createPrimitive("node " + tags));
+            }
+            final Match c = SearchCompiler.compile(searchString);
+            final Collection<OsmPrimitive> candidates = SearchCompiler.getCandidates(c, ds);
+            assertEquals(indexed, candidates != null, searchString);
+            if (candidates != null) {
+                for (OsmPrimitive p : ds.allPrimitives()) {
+                    assertTrue(!c.match(p) || candidates.contains(p), p::toString);
+                }
+            }
+            // Check that the index follows tag changes
+            final Node n = ds.getNodes().stream().filter(p -> !p.hasKeys()).findFirst().orElseThrow(AssertionError::new);
+            n.put("amenity", "fuel");
+            n.put("oneway", "yes");
+            n.put("name", "Baz");
+            final Collection<OsmPrimitive> updated = SearchCompiler.getCandidates(c, ds);
+            assertEquals(indexed, updated != null, searchString);
+            assertTrue(updated == null || !c.match(n) || updated.contains(n), searchString);
+        } finally {
+            SearchCompiler.PROP_TAG_INDEX.put(false);
+        }
+    }
 }
@@ -3,10 +3,26 @@ package org.openstreetmap.josm.data.osm.visitor.paint;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.testutils.ImageTestUtils.assertImageEquals;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.testutils.annotations.MapPaintStyles;
+import org.openstreetmap.josm.testutils.annotations.Projection;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
@@ -90,4 +106,170 @@ class StyledMapRendererTest {
             .suppress(Warning.NONFINAL_FIELDS)
             .verify();
     }
+
+    /**
+     * Checks that drawing the view in parallel strips gives the same image as drawing it at once.
+     */
+    @Test
+    @MapPaintStyles
+    @Projection
+    void testPartitionedDraw() {
+        final Random random = new Random(1);
+        final DataSet ds = new DataSet();
+        for (int i = 0; i < 2000; i++) {
+            final Node n1 = new Node(new LatLon(random.nextDouble(), random.nextDouble()));
+            final Node n2 = new Node(new LatLon(n1.lat() + random.nextDouble() * 0.2, n1.lon() + random.nextDouble() * 0.2));
+            n1.put("amenity", "bench");
+            final Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2));
+            w.put("highway", i % 2 == 0 ? "primary" : "footway");
+            w.put("name", "Street " + i);
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            ds.addPrimitive(w);
+        }
+        final NavigatableComponent nc = newView(800, 600);
+        nc.zoomTo(new Bounds(0, 0, 1, 1));
+        try {
+            final BufferedImage expected = render(ds, nc);
+            for (int partitions : new int[] {2, 7}) {
+                StyledMapRenderer.PREFERENCE_DRAW_PARTITIONS.put(partitions);
+                assertImageEquals(partitions + " partitions", expected, render(ds, nc), 0, 0, diff -> { /* ignored */ });
+            }
+        } finally {
+            StyledMapRenderer.PREFERENCE_DRAW_PARTITIONS.put(null);
+        }
+    }
+
+    /**
+     * Checks that the labels and icons drawn across the seams of the strips are drawn as when drawing the view at once.
+     */
+    @Test
+    @MapPaintStyles
+    @Projection
+    void testPartitionedDrawAcrossSeams() {
+        final Random random = new Random(2);
+        final DataSet ds = new DataSet();
+        // enough lines to draw them in strips
+        for (int i = 0; i < 2500; i++) {
+            final Node n1 = new Node(new LatLon(random.nextDouble(), random.nextDouble()));
+            final Node n2 = new Node(new LatLon(n1.lat() + random.nextDouble() * 0.05, n1.lon() + random.nextDouble() * 0.05));
+            final Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2));
+            w.put("highway", "residential");
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            ds.addPrimitive(w);
+        }
+        final NavigatableComponent nc = newView(800, 600);
+        nc.zoomTo(new Bounds(0, 0, 1, 1));
+        for (int partitions : new int[] {2, 7}) {
+            final int stripHeight = (nc.getHeight() + partitions - 1) / partitions;
+            for (int y = stripHeight; y < nc.getHeight(); y += stripHeight) {
+                for (int x = 50; x < nc.getWidth(); x += 150) {
+                    // a node with an icon and a label just above the seam, a labelled line and area across it
+                    final Node poi = new Node(nc.getLatLon(x, y - 2));
+                    poi.put("amenity", "restaurant");
+                    poi.put("name", "Restaurant at the seam " + y);
+                    ds.addPrimitive(poi);
+                    final Node n1 = new Node(nc.getLatLon(x + 20, y - 40));
+                    final Node n2 = new Node(nc.getLatLon(x + 60, y + 40));
+                    final Node n3 = new Node(nc.getLatLon(x + 100, y - 40));
+                    ds.addPrimitive(n1);
+                    ds.addPrimitive(n2);
+                    ds.addPrimitive(n3);
+                    final Way street = new Way();
+                    street.setNodes(Arrays.asList(n1, n2, n3));
+                    street.put("highway", "primary");
+                    street.put("name", "Street across the seam");
+                    street.put("oneway", "yes");
+                    ds.addPrimitive(street);
+                    final Way building = new Way();
+                    building.setNodes(Arrays.asList(n1, n2, n3, n1));
+                    building.put("building", "yes");
+                    building.put("name", "Building");
+                    ds.addPrimitive(building);
+                }
+            }
+        }
+        try {
+            final BufferedImage expected = render(ds, nc);
+            for (int partitions : new int[] {2, 7}) {
+                StyledMapRenderer.PREFERENCE_DRAW_PARTITIONS.put(partitions);
+                assertImageEquals(partitions + " partitions", expected, render(ds, nc), 0, 0, diff -> { /* ignored */ });
+            }
+        } finally {
+            StyledMapRenderer.PREFERENCE_DRAW_PARTITIONS.put(null);
+        }
+    }
+
+    /**
+     * Checks that a data set is painted while another thread holds its write lock, e.g. while a download is merged.
+     * @throws Exception if the writer thread fails
+     */
+    @Test
+    @MapPaintStyles
+    @Projection
+    void testRenderWriteLocked() throws Exception {
+        final DataSet ds = new DataSet();
+        final Node n1 = new Node(new LatLon(0.2, 0.2));
+        final Node n2 = new Node(new LatLon(0.8, 0.8));
+        final Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "primary");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+        final NavigatableComponent nc = newView(200, 200);
+        nc.zoomTo(new Bounds(0, 0, 1, 1));
+        final BufferedImage expected = render(ds, nc);
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch painted = new CountDownLatch(1);
+        final Thread writer = new Thread(() -> {
+            ds.beginUpdate();
+            try {
+                locked.countDown();
+                painted.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ds.endUpdate();
+            }
+        });
+        writer.start();
+        try {
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            // the layer must not be skipped while the lock is held
+            assertImageEquals("write locked", expected, render(ds, nc), 0, 0, diff -> { /* ignored */ });
+        } finally {
+            painted.countDown();
+            writer.join();
+        }
+    }
+
+    private static NavigatableComponent newView(int width, int height) {
+        return new NavigatableComponent() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+        };
+    }
+
+    private static BufferedImage render(DataSet ds, NavigatableComponent nc) {
+        final BufferedImage image = new BufferedImage(nc.getWidth(), nc.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, nc.getWidth(), nc.getHeight());
+        new StyledMapRenderer(g, nc, false).render(ds, false, nc.getRealBounds());
+        g.dispose();
+        return image;
+    }
 }
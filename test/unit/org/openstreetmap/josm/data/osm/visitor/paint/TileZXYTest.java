@@ -11,6 +11,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.tools.Pair;
 
 class TileZXYTest {
     static Stream<Arguments> testBBoxCalculation() {
@@ -52,6 +53,18 @@ class TileZXYTest {
         assertEquals(tile, TileZXY.latLonToTile(lat, lon, tile.zoom()));
     }
 
+    @Test
+    void testBoundsToTileRange() {
+        final Bounds tile = TileZXY.tileToBounds(new TileZXY(19, 262144, 262143));
+        final double delta = 0.00001; // Purely to get off of tile boundaries
+        final Bounds inner = new Bounds(tile.getMinLat() + delta, tile.getMinLon() + delta, tile.getMaxLat() - delta, tile.getMaxLon() - delta);
+        assertEquals(new Pair<>(new TileZXY(19, 262144, 262143), new TileZXY(19, 262144, 262143)), TileZXY.boundsToTileRange(inner, 19, 0));
+        assertEquals(new Pair<>(new TileZXY(19, 262143, 262142), new TileZXY(19, 262145, 262144)), TileZXY.boundsToTileRange(inner, 19, 0.5));
+        assertEquals(new Pair<>(new TileZXY(18, 131072, 131071), new TileZXY(18, 131072, 131071)), TileZXY.boundsToTileRange(inner, 18, 0));
+        // The range is limited to the existing tiles
+        assertEquals(new Pair<>(new TileZXY(1, 0, 0), new TileZXY(1, 1, 1)), TileZXY.boundsToTileRange(inner, 1, 5));
+    }
+
     @Test
     void testEqualsContract() {
         EqualsVerifier.forClass(TileZXY.class).verify();
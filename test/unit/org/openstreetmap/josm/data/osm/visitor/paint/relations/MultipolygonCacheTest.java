@@ -0,0 +1,97 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint.relations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link MultipolygonCache}.
+ */
+@BasicPreferences
+@Projection
+class MultipolygonCacheTest {
+
+    private static Way createClosedWay(DataSet ds, double lat, double lon) {
+        Node n1 = new Node(new LatLon(lat, lon));
+        Node n2 = new Node(new LatLon(lat, lon + 1));
+        Node n3 = new Node(new LatLon(lat + 1, lon + 1));
+        Node n4 = new Node(new LatLon(lat + 1, lon));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2, n3, n4, n1));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        ds.addPrimitive(n4);
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    private static void awaitPrecompute(MultipolygonCache cache) {
+        assertTrue(cache.getThreadPool().awaitQuiescence(30, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test that multipolygons are computed in background and that the last valid geometry is drawn until they are computed again
+     */
+    @Test
+    void testPrecompute() {
+        final MultipolygonCache cache = MultipolygonCache.getInstance();
+        final DataSet ds = new DataSet();
+        final Way outer1 = createClosedWay(ds, 0, 0);
+        final Way outer2 = createClosedWay(ds, 10, 10);
+        final Relation r = new Relation();
+        r.put("type", "multipolygon");
+        r.put("landuse", "forest");
+        r.setMembers(Collections.singletonList(new RelationMember("outer", outer1)));
+        ds.addPrimitive(r);
+        ds.addDataSetListener(cache);
+        try {
+            cache.precompute(ds, ds.getRelations());
+            awaitPrecompute(cache);
+            final long hits = cache.getHitCount();
+            final long misses = cache.getMissCount();
+            final Multipolygon mp1 = cache.get(r);
+            assertNotNull(mp1);
+            assertEquals(Collections.singletonList(outer1), mp1.getOuterWays());
+            assertEquals(hits + 1, cache.getHitCount());
+            assertEquals(misses, cache.getMissCount());
+
+            // Block the background computation, the renderer still gets the previous geometry
+            synchronized (cache) {
+                r.setMembers(Collections.singletonList(new RelationMember("outer", outer2)));
+                assertSame(mp1, cache.getForRendering(r));
+            }
+            awaitPrecompute(cache);
+            final Multipolygon mp2 = cache.getForRendering(r);
+            assertNotSame(mp1, mp2);
+            assertEquals(Collections.singletonList(outer2), mp2.getOuterWays());
+            assertEquals(hits + 3, cache.getHitCount());
+            assertEquals(misses, cache.getMissCount());
+
+            // Without background computation, the multipolygon is computed when it is drawn
+            cache.clear(ds);
+            assertNotNull(cache.getForRendering(r));
+            assertEquals(misses + 1, cache.getMissCount());
+        } finally {
+            ds.removeDataSetListener(cache);
+            cache.clear(ds);
+        }
+    }
+}
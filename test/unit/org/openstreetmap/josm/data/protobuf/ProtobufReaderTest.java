@@ -0,0 +1,138 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ProtobufReader}
+ */
+class ProtobufReaderTest {
+    /**
+     * Check the example from the protobuf encoding documentation (field 1, var int 150)
+     * @throws IOException if the data could not be read
+     */
+    @Test
+    void testVarInt() throws IOException {
+        ProtobufReader reader = new ProtobufReader(ProtobufTest.toByteArray(new int[] {0x08, 0x96, 0x01}));
+        assertTrue(reader.hasNext());
+        assertEquals(1, reader.nextField());
+        assertEquals(WireType.VARINT, reader.getWireType());
+        assertEquals(150, reader.readVarInt());
+        assertFalse(reader.hasNext());
+    }
+
+    /**
+     * Check that large and zig-zag encoded var ints are decoded as the {@link ProtobufParser} methods do
+     * @throws IOException if the data could not be read
+     */
+    @Test
+    void testSignedVarInt() throws IOException {
+        // -1 as int64 takes 10 bytes
+        ProtobufReader reader = new ProtobufReader(ProtobufTest.toByteArray(
+                new int[] {0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0x01, 0x03, 0x96, 0x01}));
+        assertEquals(-1, reader.readVarInt());
+        assertEquals(-2, reader.readSignedVarInt());
+        assertEquals(ProtobufParser.decodeZigZag(150L), reader.readSignedVarInt());
+    }
+
+    /**
+     * Check fixed size values and skipping
+     * @throws IOException if the data could not be read
+     */
+    @Test
+    void testFixedAndSkip() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) (1 << 3 | 5)).putFloat(1.5f);
+        buffer.put((byte) (2 << 3 | 1)).putDouble(-2.25);
+        buffer.put((byte) (3 << 3 | 2)).put((byte) 2).put((byte) 'h').put((byte) 'i');
+        buffer.put((byte) (4 << 3 | 2)).put((byte) 1).put((byte) 0);
+        buffer.put((byte) (5 << 3)).put((byte) 7);
+        buffer.flip();
+        ProtobufReader reader = new ProtobufReader(buffer);
+        assertEquals(1, reader.nextField());
+        assertEquals(WireType.THIRTY_TWO_BIT, reader.getWireType());
+        assertEquals(1.5f, reader.readFloat());
+        assertEquals(2, reader.nextField());
+        assertEquals(-2.25, reader.readDouble());
+        assertEquals(3, reader.nextField());
+        assertEquals("hi", reader.readString());
+        assertEquals(4, reader.nextField());
+        reader.skip();
+        assertEquals(5, reader.nextField());
+        assertEquals(7, reader.readVarInt());
+        assertFalse(reader.hasNext());
+
+        reader = new ProtobufReader(buffer);
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, reader.nextField());
+            reader.skip();
+        }
+        assertFalse(reader.hasNext());
+    }
+
+    /**
+     * Check that packed fields give the same results as {@link ProtobufPacked}
+     * @throws IOException if the data could not be read
+     */
+    @Test
+    void testPacked() throws IOException {
+        byte[] packed = ProtobufTest.toByteArray(new int[] {-128, 64, -18, 49, -70, 3});
+        byte[] message = new byte[packed.length + 2];
+        message[0] = 1 << 3 | 2;
+        message[1] = (byte) packed.length;
+        System.arraycopy(packed, 0, message, 2, packed.length);
+
+        ProtobufReader reader = new ProtobufReader(message);
+        reader.nextField();
+        assertArrayEquals(new ProtobufPacked(packed.clone()).getArray(), reader.readPackedVarInt());
+        reader = new ProtobufReader(message);
+        reader.nextField();
+        assertArrayEquals(new long[] {4096, 3191, 221}, reader.readPackedSignedVarInt());
+
+        // A non-packed repeated value
+        reader = new ProtobufReader(new byte[] {1 << 3, 3});
+        reader.nextField();
+        assertArrayEquals(new long[] {-2}, reader.readPackedSignedVarInt());
+    }
+
+    /**
+     * Check that embedded messages are read as slices
+     * @throws IOException if the data could not be read
+     */
+    @Test
+    void testMessage() throws IOException {
+        byte[] bytes = {0x7f, 1 << 3 | 2, 2, 1 << 3, 42, 2 << 3, 1, 0x7f};
+        ProtobufReader reader = new ProtobufReader(bytes, 1, bytes.length - 2);
+        assertEquals(1, reader.nextField());
+        ProtobufReader message = reader.readMessage();
+        assertEquals(2, message.remaining());
+        assertEquals(1, message.nextField());
+        assertEquals(42, message.readVarInt());
+        assertFalse(message.hasNext());
+        assertEquals(2, reader.nextField());
+        assertEquals(1, reader.readVarInt());
+        assertFalse(reader.hasNext());
+    }
+
+    /**
+     * Check that truncated data is detected
+     */
+    @Test
+    void testTruncated() {
+        assertThrows(EOFException.class, () -> new ProtobufReader(new byte[] {(byte) 0x96}).readVarInt());
+        assertThrows(EOFException.class, () -> new ProtobufReader(new byte[] {1, 2, 3}).readFixed32());
+        assertThrows(EOFException.class, () -> new ProtobufReader(new byte[] {5, 'a'}).readString());
+        assertThrows(IOException.class, () -> new ProtobufReader(new byte[] {2, 0x7f, (byte) 0x96}).readPackedVarInt());
+    }
+}
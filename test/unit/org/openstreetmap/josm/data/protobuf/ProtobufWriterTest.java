@@ -0,0 +1,65 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ProtobufWriter}
+ */
+class ProtobufWriterTest {
+    /**
+     * Check the example from the protobuf encoding documentation (field 1, var int 150)
+     */
+    @Test
+    void testVarInt() {
+        ProtobufWriter writer = new ProtobufWriter();
+        writer.writeVarInt(1, 150);
+        assertArrayEquals(ProtobufTest.toByteArray(new int[] {0x08, 0x96, 0x01}), writer.toByteArray());
+        writer.reset();
+        writer.writeVarInt(1, -1);
+        // -1 as int64 takes 10 bytes
+        assertEquals(11, writer.size());
+    }
+
+    /**
+     * Check that the written fields are read back by {@link ProtobufReader}
+     * @throws IOException if the data could not be read
+     */
+    @Test
+    void testRoundTrip() throws IOException {
+        ProtobufWriter message = new ProtobufWriter(16);
+        message.writeString(1, "nested");
+        ProtobufWriter writer = new ProtobufWriter(16);
+        writer.writeSignedVarInt(1, -2);
+        writer.writeBoolean(2, true);
+        writer.writeString(3, "héllo");
+        writer.writeMessage(4, message);
+        writer.writePackedVarInt(5, new long[] {0, 1, 300, Long.MAX_VALUE, 42}, 4);
+        writer.writePackedSignedVarInt(6, new long[] {-1, 1, Long.MIN_VALUE}, 3);
+        writer.writePackedVarInt(7, new long[0], 0);
+
+        ProtobufReader reader = new ProtobufReader(writer.toByteArray());
+        assertEquals(1, reader.nextField());
+        assertEquals(-2, reader.readSignedVarInt());
+        assertEquals(2, reader.nextField());
+        assertEquals(true, reader.readBoolean());
+        assertEquals(3, reader.nextField());
+        assertEquals("héllo", reader.readString());
+        assertEquals(4, reader.nextField());
+        ProtobufReader nested = reader.readMessage();
+        assertEquals(1, nested.nextField());
+        assertEquals("nested", nested.readString());
+        assertEquals(5, reader.nextField());
+        assertArrayEquals(new long[] {0, 1, 300, Long.MAX_VALUE}, reader.readPackedVarInt());
+        assertEquals(6, reader.nextField());
+        assertArrayEquals(new long[] {-1, 1, Long.MIN_VALUE}, reader.readPackedSignedVarInt());
+        // Empty packed fields are not written
+        assertFalse(reader.hasNext());
+    }
+}
@@ -0,0 +1,105 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.data.validation.tests.DuplicateNode;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link ValidationTask} class.
+ */
+@BasicPreferences
+@Projection
+class ValidationTaskTest {
+
+    private static List<TestError> validate(Collection<OsmPrimitive> primitives, boolean parallel) {
+        ValidatorPrefHelper.PREF_PARALLEL.put(parallel);
+        ValidatorPrefHelper.PREF_PARALLEL_CHUNK_SIZE.put(7);
+        List<org.openstreetmap.josm.data.validation.Test> tests = Arrays.asList(new UntaggedNode(), new DuplicateNode());
+        ValidationTask task = new ValidationTask(NullProgressMonitor.INSTANCE, tests, primitives, null);
+        task.realRun();
+        return task.getErrors();
+    }
+
+    /**
+     * Checks that the parallel execution of thread-safe tests yields the same errors in the same order.
+     */
+    @Test
+    void testParallelSameAsSequential() {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 100; i++) {
+            Node n = new Node(new LatLon(i % 10, i % 20));
+            if (i % 3 == 0) {
+                n.put("fixme", "check " + i);
+            }
+            ds.addPrimitive(n);
+        }
+        List<OsmPrimitive> primitives = ds.allPrimitives().stream().collect(Collectors.toList());
+        List<TestError> sequential = validate(primitives, false);
+        List<TestError> parallel = validate(primitives, true);
+
+        assertTrue(new UntaggedNode().isThreadSafe());
+        assertTrue(sequential.size() > 80);
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getTester().getClass(), parallel.get(i).getTester().getClass());
+            assertEquals(sequential.get(i).getCode(), parallel.get(i).getCode());
+            assertEquals(new ArrayList<>(sequential.get(i).getPrimitives()), new ArrayList<>(parallel.get(i).getPrimitives()));
+        }
+    }
+
+    /**
+     * Check that the shared segment index and the parallel search find the same crossings as the test alone.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testSegmentIndex() throws Exception {
+        final DataSet ds;
+        try (InputStream in = Files.newInputStream(Paths.get(TestUtils.getTestDataRoot(), "crossingWays.osm"))) {
+            ds = OsmReader.parseDataSet(in, null);
+        }
+        for (CrossingWays test : Arrays.asList(new CrossingWays.Ways(), new CrossingWays.SelfCrossing(), new CrossingWays.Boundaries())) {
+            ValidatorPrefHelper.PREF_PARALLEL.put(false);
+            test.startTest(null);
+            test.visit(ds.allPrimitives());
+            test.endTest();
+            List<TestError> expected = new ArrayList<>(test.getErrors());
+            test.clear();
+
+            ValidatorPrefHelper.PREF_PARALLEL.put(true);
+            ValidatorPrefHelper.PREF_PARALLEL_CHUNK_SIZE.put(7);
+            ValidationTask task = new ValidationTask(NullProgressMonitor.INSTANCE, Collections.singletonList(test), ds.allPrimitives(), null);
+            task.realRun();
+            List<TestError> errors = task.getErrors();
+            assertEquals(expected.size(), errors.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(new ArrayList<>(expected.get(i).getPrimitives()), new ArrayList<>(errors.get(i).getPrimitives()));
+                assertEquals(new ArrayList<>(expected.get(i).getHighlighted()), new ArrayList<>(errors.get(i).getHighlighted()));
+            }
+        }
+    }
+}
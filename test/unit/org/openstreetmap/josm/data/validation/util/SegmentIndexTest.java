@@ -0,0 +1,111 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests for class {@link SegmentIndex}.
+ */
+@Projection
+class SegmentIndexTest {
+    private static final double GRID_DETAIL = 0.01;
+
+    private static Way newWay(double... latLons) {
+        Node[] nodes = new Node[latLons.length / 2];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(new LatLon(latLons[2 * i], latLons[2 * i + 1]));
+        }
+        return TestUtils.newWay("", nodes);
+    }
+
+    private static Set<Integer> getNeighbours(SegmentIndex index, int segment) {
+        Set<Integer> neighbours = new HashSet<>();
+        for (int n = 0; n < index.getCellCount(segment); n++) {
+            int cell = index.getCell(segment, n);
+            for (int i = 0; i < index.getCellSize(cell); i++) {
+                neighbours.add(index.getCellSegment(cell, i));
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Test the numbering of ways and segments
+     */
+    @Test
+    void testSegments() {
+        Way w1 = newWay(0, 0, 0, 0.01, 0.01, 0.01);
+        Way w2 = newWay(0.005, 0.005, -0.005, 0.005);
+        Way w3 = newWay(1, 1);
+        SegmentIndex index = new SegmentIndex(Arrays.asList(w1, w2, w3), GRID_DETAIL);
+        assertEquals(3, index.getWayCount());
+        assertEquals(1, index.indexOf(w2));
+        assertEquals(-1, index.indexOf(newWay(0, 0, 1, 1)));
+        assertTrue(index.containsAll(Arrays.asList(w3, w1)));
+        assertFalse(index.containsAll(Collections.singleton(newWay(0, 0, 1, 1))));
+        assertEquals(0, index.getFirstSegment(0));
+        assertEquals(2, index.getFirstSegment(1));
+        assertEquals(3, index.getFirstSegment(2));
+        assertEquals(3, index.getFirstSegment(3));
+        assertEquals(1, index.getSegmentWay(2));
+        assertEquals(new WaySegment(w1, 1), index.getWaySegment(1));
+        assertEquals(new WaySegment(w2, 0), index.getWaySegment(2));
+    }
+
+    /**
+     * Test that the cells of the segments are the ones of {@link ValUtil#getSegmentCells}
+     */
+    @Test
+    void testCells() {
+        Way w1 = newWay(0, 0, 0, 0.01, 0.01, 0.01);
+        Way w2 = newWay(0.005, 0.005, -0.005, 0.005);
+        Way w3 = newWay(0.5, 0.5, 0.6, 0.6);
+        SegmentIndex index = new SegmentIndex(Arrays.asList(w1, w2, w3), GRID_DETAIL);
+        for (int segment = 0; segment < index.getFirstSegment(index.getWayCount()); segment++) {
+            WaySegment ws = index.getWaySegment(segment);
+            assertEquals(ValUtil.getSegmentCells(ws.getFirstNode(), ws.getSecondNode(), GRID_DETAIL).size(), index.getCellCount(segment));
+            // a segment is listed in its cells, by increasing number
+            for (int n = 0; n < index.getCellCount(segment); n++) {
+                int cell = index.getCell(segment, n);
+                boolean found = false;
+                for (int i = 0; i < index.getCellSize(cell); i++) {
+                    found |= index.getCellSegment(cell, i) == segment;
+                    assertTrue(i == 0 || index.getCellSegment(cell, i - 1) <= index.getCellSegment(cell, i));
+                }
+                assertTrue(found);
+            }
+        }
+        // the first segment of w1 crosses w2, w3 is far away
+        assertTrue(getNeighbours(index, 0).contains(2));
+        assertFalse(getNeighbours(index, 0).contains(3));
+        assertEquals(Collections.singleton(3), getNeighbours(index, 3));
+    }
+
+    /**
+     * Test that segments with unknown coordinates are not in any cell
+     */
+    @Test
+    void testUnknownCoordinates() {
+        Way w = newWay(0, 0, 0, 0.01);
+        w.addNode(new Node(1));
+        SegmentIndex index = new SegmentIndex(Collections.singleton(w), GRID_DETAIL);
+        assertEquals(2, index.getFirstSegment(1));
+        assertTrue(index.getCellCount(0) > 0);
+        assertEquals(0, index.getCellCount(1));
+    }
+}
@@ -2,6 +2,7 @@
 package org.openstreetmap.josm.data.vector;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.file.Paths;
@@ -14,7 +15,9 @@ import org.awaitility.Awaitility;
 import org.awaitility.Durations;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.imagery.ImageryInfo;
 import org.openstreetmap.josm.data.imagery.vectortile.mapbox.MVTTile;
 import org.openstreetmap.josm.data.imagery.vectortile.mapbox.MapboxVectorCachedTileLoader;
@@ -124,4 +127,65 @@ class VectorDataSetTest {
         assertEquals(1, dataSet.getWays().size());
         assertEquals(0, dataSet.getRelations().size());
     }
+
+    /**
+     * Check that the least recently added tiles are evicted
+     */
+    @Test
+    void testTileEviction() {
+        final VectorDataSet dataSet = this.layer.getData();
+        dataSet.setZoom(14);
+        VectorDataSet.MAX_TILES.put(1);
+        try {
+            final MapboxVectorTileSource tileSource = this.layer.getTileSource();
+            final MVTTile first = (MVTTile) this.layer.createTile(tileSource, 3248, 6258, 14);
+            this.layer.getTileLoader().createTileLoaderJob(first).submit();
+            Awaitility.await().atMost(Durations.FIVE_SECONDS).until(() -> this.layer.finishedLoading().contains(first));
+            final MVTTile second = (MVTTile) this.layer.createTile(tileSource, 3249, 6258, 14);
+            this.layer.getTileLoader().createTileLoaderJob(second).submit();
+            Awaitility.await().atMost(Durations.FIVE_SECONDS).until(() -> this.layer.finishedLoading().contains(second));
+
+            // The first tile has to be loaded again to be displayed
+            assertFalse(first.isLoaded());
+            assertTrue(first.getData().getAllPrimitives().isEmpty());
+            assertEquals(second.getData().getAllPrimitives().size(), dataSet.allPrimitives().size());
+        } finally {
+            VectorDataSet.MAX_TILES.remove();
+        }
+    }
+
+    /**
+     * Check that the tiles of the painted area are not evicted, and are evicted once they are not painted anymore
+     */
+    @Test
+    void testTileEvictionInView() {
+        final VectorDataSet dataSet = this.layer.getData();
+        dataSet.setZoom(14);
+        VectorDataSet.MAX_TILES.put(1);
+        try {
+            final MapboxVectorTileSource tileSource = this.layer.getTileSource();
+            final MVTTile first = (MVTTile) this.layer.createTile(tileSource, 3248, 6258, 14);
+            this.layer.getTileLoader().createTileLoaderJob(first).submit();
+            Awaitility.await().atMost(Durations.FIVE_SECONDS).until(() -> this.layer.finishedLoading().contains(first));
+            dataSet.markTilesInView(new Bounds(first.getBBox().getCenter()));
+            final MVTTile second = (MVTTile) this.layer.createTile(tileSource, 3249, 6258, 14);
+            this.layer.getTileLoader().createTileLoaderJob(second).submit();
+            Awaitility.await().atMost(Durations.FIVE_SECONDS).until(() -> this.layer.finishedLoading().contains(second));
+
+            // The first tile is painted, so it is kept
+            assertTrue(first.isLoaded());
+            assertFalse(first.getData().getAllPrimitives().isEmpty());
+            assertEquals(first.getData().getAllPrimitives().size() + second.getData().getAllPrimitives().size(),
+                    dataSet.allPrimitives().size());
+
+            // Once the second tile is painted instead, the first tile is evicted on the next insertion
+            dataSet.markTilesInView(new Bounds(second.getBBox().getCenter()));
+            dataSet.addTileData(second);
+            assertFalse(first.isLoaded());
+            assertTrue(first.getData().getAllPrimitives().isEmpty());
+            assertEquals(second.getData().getAllPrimitives().size(), dataSet.allPrimitives().size());
+        } finally {
+            VectorDataSet.MAX_TILES.remove();
+        }
+    }
 }
@@ -0,0 +1,106 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.dialogs.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.ValidationTask;
+import org.openstreetmap.josm.data.validation.tests.DuplicateNode;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link LiveValidation} class.
+ */
+@BasicPreferences
+@Projection
+class LiveValidationTest {
+
+    private static List<TestError> validate(Collection<OsmPrimitive> primitives, boolean partial) {
+        ValidationTask task = new ValidationTask(null, NullProgressMonitor.INSTANCE,
+                Collections.singletonList(new DuplicateNode()), primitives, partial ? primitives : null, false);
+        task.run();
+        return task.getErrors();
+    }
+
+    /**
+     * The duplicated node error of a node whose tags are modified is found again, although the other node is not modified.
+     */
+    @Test
+    void testDuplicateNodeTagEdit() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 1));
+        Node n2 = new Node(new LatLon(1, 1));
+        Node n3 = new Node(new LatLon(2, 2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        List<TestError> errors = validate(new ArrayList<>(ds.allPrimitives()), false);
+        assertEquals(1, errors.size());
+        ValidatorTreePanel vtp = new ValidatorTreePanel(new ArrayList<>(errors));
+
+        n1.put("note", "modified");
+        Set<OsmPrimitive> primitives = LiveValidation.addErrorPrimitives(Collections.singletonList(n1), vtp.getErrors());
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), primitives);
+        vtp.updateErrors(primitives, validate(primitives, true));
+        assertEquals(1, vtp.getErrors().size());
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), new HashSet<>(vtp.getErrors().get(0).getPrimitives()));
+
+        // the error is removed once the node is moved away
+        n1.setCoor(new LatLon(3, 3));
+        primitives = LiveValidation.addErrorPrimitives(Collections.singletonList(n1), vtp.getErrors());
+        vtp.updateErrors(primitives, validate(primitives, true));
+        assertEquals(Collections.emptyList(), vtp.getErrors());
+        vtp.destroy();
+    }
+
+    /**
+     * The duplicated node error of a node moved onto an untouched node is found, since the close nodes are validated as well.
+     */
+    @Test
+    void testDuplicateNodeMove() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 1));
+        Node n2 = new Node(new LatLon(2, 2));
+        Node n3 = new Node(new LatLon(2.1, 2.1));
+        Node n4 = new Node(new LatLon(3, 3));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        ds.addPrimitive(n4);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n3, n4));
+        ds.addPrimitive(w);
+        ValidatorTreePanel vtp = new ValidatorTreePanel(new ArrayList<>(validate(new ArrayList<>(ds.allPrimitives()), false)));
+        assertEquals(Collections.emptyList(), vtp.getErrors());
+
+        n1.setCoor(new LatLon(2, 2));
+        Set<OsmPrimitive> primitives = LiveValidation.addErrorPrimitives(
+                LiveValidation.addNeighbours(ds, Collections.singletonList(n1)), vtp.getErrors());
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), primitives);
+        vtp.updateErrors(primitives, validate(primitives, true));
+        assertEquals(1, vtp.getErrors().size());
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), new HashSet<>(vtp.getErrors().get(0).getPrimitives()));
+
+        // the parent ways of a moved node are validated as well
+        n4.setCoor(new LatLon(2.1, 2.2));
+        primitives = LiveValidation.addNeighbours(ds, Collections.singletonList(n4));
+        assertEquals(new HashSet<>(Arrays.asList(n4, w)), primitives);
+        vtp.destroy();
+    }
+}
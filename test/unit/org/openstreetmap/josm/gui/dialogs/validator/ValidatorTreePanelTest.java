@@ -5,14 +5,20 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import javax.swing.tree.DefaultMutableTreeNode;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.validation.Severity;
@@ -77,4 +83,87 @@ class ValidatorTreePanelTest {
         assertNull(vtp.getFilter());
         vtp.destroy();
     }
+
+    /**
+     * Unit test of {@link ValidatorTreePanel#updateErrors}.
+     */
+    @Test
+    void testUpdateErrors() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(1, 1));
+        Node n3 = new Node(new LatLon(2, 2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        TestError e1 = TestError.builder(null, Severity.ERROR, 0).message("err").primitives(n1).build();
+        TestError e23 = TestError.builder(null, Severity.WARNING, 0).message("warn").primitives(n2, n3).build();
+        ValidatorTreePanel vtp = new ValidatorTreePanel(new ArrayList<>(Arrays.asList(e1, e23)));
+
+        // the error of n2 and n3 is kept if n3 is not validated again
+        vtp.updateErrors(Collections.singleton(n2), Collections.emptyList());
+        assertEquals(Arrays.asList(e1, e23), vtp.getErrors());
+
+        // the errors of n2 and n3 are replaced, the error of n1 is kept
+        TestError e2 = TestError.builder(null, Severity.WARNING, 0).message("warn").primitives(n2).build();
+        vtp.updateErrors(new HashSet<>(Arrays.asList(n2, n3)), Collections.singletonList(e2));
+        assertEquals(Arrays.asList(e1, e2), vtp.getErrors());
+
+        // an error which is already known is not added twice
+        TestError e1bis = TestError.builder(null, Severity.ERROR, 0).message("err").primitives(n1).build();
+        vtp.updateErrors(Collections.singleton(n3), Collections.singletonList(e1bis));
+        assertEquals(Arrays.asList(e1, e2), vtp.getErrors());
+
+        // the errors of deleted primitives are removed
+        n1.setDeleted(true);
+        vtp.updateErrors(Collections.singleton(n2), Collections.emptyList());
+        assertEquals(Collections.emptyList(), vtp.getErrors());
+        vtp.destroy();
+    }
+
+    /**
+     * Unit test of {@link ValidatorTreePanel#updateErrors}: the nodes of the other messages are kept, and the tree is the same
+     * as when it is built again.
+     */
+    @Test
+    void testUpdateErrorsTree() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(1, 1));
+        Node n3 = new Node(new LatLon(2, 2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        TestError e1 = TestError.builder(null, Severity.ERROR, 0).message("err").primitives(n1).build();
+        TestError e2 = TestError.builder(null, Severity.WARNING, 0).message("warn", "foo").primitives(n2).build();
+        ValidatorTreePanel vtp = new ValidatorTreePanel(new ArrayList<>(Arrays.asList(e1, e2)));
+        DefaultMutableTreeNode errorsNode = (DefaultMutableTreeNode) vtp.getRoot().getChildAt(0);
+
+        // a second description of the warning adds a group node, a new message is sorted
+        vtp.updateErrors(new HashSet<>(Arrays.asList(n2, n3)), Arrays.asList(
+                TestError.builder(null, Severity.WARNING, 0).message("warn", "foo").primitives(n2).build(),
+                TestError.builder(null, Severity.WARNING, 0).message("warn", "bar").primitives(n3).build(),
+                TestError.builder(null, Severity.WARNING, 0).message("a warning").primitives(n3).build(),
+                TestError.builder(null, Severity.OTHER, 0).message("other").primitives(n3).build()));
+        assertSame(errorsNode, vtp.getRoot().getChildAt(0));
+        assertEquals(dump(new ValidatorTreePanel(new ArrayList<>(vtp.getErrors()))), dump(vtp));
+        assertEquals(Arrays.asList("", "Errors (1)", "Warnings (3)", "err (1)", "a warning (1)", "warn (2)"),
+                dump(vtp).subList(0, 6));
+
+        // the warnings are removed with their severity node
+        vtp.updateErrors(new HashSet<>(Arrays.asList(n2, n3)), Collections.emptyList());
+        assertSame(errorsNode, vtp.getRoot().getChildAt(0));
+        assertEquals(dump(new ValidatorTreePanel(new ArrayList<>(vtp.getErrors()))), dump(vtp));
+        assertEquals(1, vtp.getRoot().getChildCount());
+        vtp.destroy();
+    }
+
+    private static List<String> dump(ValidatorTreePanel vtp) {
+        final List<String> nodes = new ArrayList<>();
+        final Enumeration<?> enumeration = vtp.getRoot().breadthFirstEnumeration();
+        while (enumeration.hasMoreElements()) {
+            nodes.add(enumeration.nextElement().toString());
+        }
+        return nodes;
+    }
 }
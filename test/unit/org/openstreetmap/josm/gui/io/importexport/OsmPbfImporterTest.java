@@ -10,27 +10,38 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.AbstractPrimitive;
+import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.pbf.OsmPbfIndex;
 import org.openstreetmap.josm.data.protobuf.ProtobufTest;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmPbfReader;
+import org.openstreetmap.josm.io.OsmPbfWriter;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 
 /**
@@ -134,6 +145,80 @@ class OsmPbfImporterTest {
         }
     }
 
+    /**
+     * Check that the index can be saved, and that only the primitives of an area or id range are loaded with it
+     * @param tempDir The directory for the copy of the file and its index
+     * @throws IOException if the file could not be read
+     * @throws IllegalDataException if the file is not valid
+     */
+    @Test
+    void testPartialLoading(@TempDir Path tempDir) throws IOException, IllegalDataException {
+        final File file = tempDir.resolve("simple.osm.pbf").toFile();
+        Files.copy(Paths.get(TestUtils.getTestDataRoot(), "pbf", "osm", "simple.osm.pbf"), file.toPath());
+        final OsmPbfIndex index = OsmPbfReader.getIndex(file, NullProgressMonitor.INSTANCE);
+        assertTrue(new File(file.getPath() + ".idx").isFile());
+        assertTrue(index.isUpToDate(file.length(), file.lastModified()));
+        assertTrue(index.getBlocks().stream().allMatch(block -> block.offset() > 0 && block.size() > 0));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        index.write(outputStream);
+        final OsmPbfIndex read = OsmPbfIndex.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(index.getBlocks().size(), read.getBlocks().size());
+        assertTrue(read.isUpToDate(file.length(), file.lastModified()));
+
+        final DataSet area = OsmPbfReader.parseDataSet(file, read, new Bounds(39.19, -108.70, 39.21, -108.68),
+                NullProgressMonitor.INSTANCE);
+        assertAll(() -> assertEquals(4, area.getNodes().size()),
+                () -> assertEquals(1, area.getWays().size()),
+                () -> assertEquals(5, area.getWays().iterator().next().getNodesCount()),
+                () -> assertEquals(1, area.getRelations().size()),
+                () -> assertEquals(1, area.getDataSources().size()));
+        // The way and relation are in the same block as their nodes, its bbox is exactly the bbox of the nodes
+        final BBox nodesBBox = new BBox();
+        area.getNodes().forEach(node -> nodesBBox.add(node.getCoor()));
+        assertTrue(nodesBBox.bboxIsFunctionallyEqual(read.getBlocks().get(0).bbox(), 0.0));
+
+        final DataSet elsewhere = OsmPbfReader.parseDataSet(file, read, new Bounds(10, 10, 11, 11), NullProgressMonitor.INSTANCE);
+        assertTrue(elsewhere.allPrimitives().isEmpty());
+
+        final DataSet ways = OsmPbfReader.parseDataSet(file, read, OsmPrimitiveType.WAY, Long.MIN_VALUE, Long.MAX_VALUE, NullProgressMonitor.INSTANCE);
+        assertAll(() -> assertEquals(1, ways.getWays().size()),
+                () -> assertTrue(ways.getWays().iterator().next().getNodes().stream().noneMatch(OsmPrimitive::isIncomplete)),
+                () -> assertTrue(ways.getRelations().isEmpty()));
+    }
+
+    /**
+     * The bbox of way and relation blocks is computed from the coordinates of their members, which are in other blocks
+     * @param tempDir The temporary directory for the file
+     * @throws IOException if the file could not be written or read
+     * @throws IllegalDataException if the file could not be indexed
+     */
+    @Test
+    void testIndexMemberBBox(@TempDir Path tempDir) throws IOException, IllegalDataException {
+        final DataSet dataSet = new DataSet();
+        final Node node1 = new Node(new LatLon(0, 0));
+        final Node node2 = new Node(new LatLon(10, 10));
+        final Node node3 = new Node(new LatLon(50, 50));
+        final Way way = TestUtils.newWay("highway=residential", node1, node2);
+        final Relation relation = new Relation();
+        relation.addMember(new RelationMember("", way));
+        dataSet.addPrimitiveRecursive(way);
+        dataSet.addPrimitive(node3);
+        dataSet.addPrimitive(relation);
+        final File file = tempDir.resolve("members.osm.pbf").toFile();
+        try (OsmPbfWriter writer = new OsmPbfWriter(Files.newOutputStream(file.toPath()), true)) {
+            writer.write(dataSet);
+        }
+
+        final OsmPbfIndex index = OsmPbfReader.getIndex(file, NullProgressMonitor.INSTANCE);
+        final BBox expected = new BBox(0, 0, 10, 10);
+        for (OsmPrimitiveType type : Arrays.asList(OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION)) {
+            final OsmPbfIndex.Block block = index.getBlocks().stream().filter(b -> b.contains(type)).findFirst().orElseThrow();
+            assertTrue(expected.bboxIsFunctionallyEqual(block.bbox(), 0.0), type + ": " + block.bbox());
+        }
+        assertTrue(OsmPbfReader.parseDataSet(file, index, new Bounds(40, 40, 60, 60), NullProgressMonitor.INSTANCE).getWays().isEmpty());
+    }
+
     @Test
     void testIdParsing() throws IOException, IllegalDataException {
         final DataSet dataSet;
@@ -10,6 +10,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
@@ -27,6 +28,8 @@ import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.AutosaveTask.AutosaveLayerInfo;
+import org.openstreetmap.josm.io.OsmJournalReader;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.Projection;
 
@@ -147,7 +150,7 @@ class AutosaveTaskTest {
     }
 
     private int countFiles() {
-        String[] files = task.getAutosaveDir().toFile().list((dir, name) -> name.endsWith(".osm"));
+        String[] files = task.getAutosaveDir().toFile().list((dir, name) -> name.endsWith(".osm") || name.endsWith(".osm.pbf"));
         return files != null ? files.length : 0;
     }
 
@@ -165,9 +168,62 @@ class AutosaveTaskTest {
     @Test
     void testAutosaveSavesLayerMultipleTimes() {
         AutosaveTask.PROP_FILES_PER_LAYER.put(3);
+        AutosaveTask.PROP_JOURNAL.put(false);
         runAutosaveTaskSeveralTimes(5);
     }
 
+    /**
+     * Tests that {@link AutosaveTask#run()} appends the changes to a journal after the first save.
+     * @throws Exception in case of error
+     */
+    @Test
+    void testAutosaveAppendsToJournal() throws Exception {
+        Config.getPref().put("autosave.extension", "osm.pbf");
+        DataSet data = new DataSet();
+        OsmDataLayer layer = new OsmDataLayer(data, "OsmData", null);
+        MainApplication.getLayerManager().addLayer(layer);
+        try {
+            task.schedule();
+            Node node = new Node(new LatLon(10, 10));
+            data.addPrimitive(node);
+            task.run();
+            assertEquals(1, countFiles());
+            File[] snapshots = task.getAutosaveDir().toFile().listFiles((dir, name) -> name.endsWith(".osm.pbf"));
+            assertNotNull(snapshots);
+            File journal = task.getJournalFile(snapshots[0]);
+            assertFalse(journal.exists());
+
+            node.put("name", "foo");
+            Node other = new Node(new LatLon(20, 20));
+            data.addPrimitive(other);
+            task.run();
+            assertEquals(1, countFiles());
+            assertTrue(journal.exists());
+
+            DataSet recovered;
+            try (InputStream in = Files.newInputStream(snapshots[0].toPath());
+                 InputStream journalIn = Files.newInputStream(journal.toPath())) {
+                recovered = OsmJournalReader.parsePbfDataSet(in, journalIn, null);
+            }
+            assertEquals(2, recovered.getNodes().size());
+            // New primitives get new ids when they are read again
+            assertTrue(recovered.getNodes().stream().anyMatch(n -> "foo".equals(n.get("name")) && n.getCoor().equals(node.getCoor())));
+
+            // Removed primitives are journaled by id
+            data.removePrimitive(other);
+            task.run();
+            try (InputStream in = Files.newInputStream(snapshots[0].toPath());
+                 InputStream journalIn = Files.newInputStream(journal.toPath())) {
+                recovered = OsmJournalReader.parsePbfDataSet(in, journalIn, null);
+            }
+            assertEquals(1, recovered.getNodes().size());
+            assertEquals("foo", recovered.getNodes().iterator().next().get("name"));
+        } finally {
+            task.cancel();
+            Config.getPref().put("autosave.extension", null);
+        }
+    }
+
     private void runAutosaveTaskSeveralTimes(int times) {
         DataSet data = new DataSet();
         OsmDataLayer layer = new OsmDataLayer(data, "OsmData", null);
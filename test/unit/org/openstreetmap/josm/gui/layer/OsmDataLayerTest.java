@@ -6,13 +6,18 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.lang.reflect.Constructor;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 
+import org.apache.commons.jcs3.access.CacheAccess;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
@@ -29,6 +34,8 @@ import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.ImageCache;
+import org.openstreetmap.josm.data.osm.visitor.paint.TileZXY;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.datatransfer.ClipboardUtils;
 import org.openstreetmap.josm.io.IllegalDataException;
@@ -324,6 +331,48 @@ class OsmDataLayerTest {
         assertEquals("Data Layer from GeoJSON: foo.geojson", layer.getName());
     }
 
+    /**
+     * Unit test of the invalidation of the cached tiles when the data changes.
+     * @throws ReflectiveOperationException if the tile cache cannot be accessed
+     */
+    @Test
+    void testInvalidateTiles() throws ReflectiveOperationException {
+        final Node node = new Node(new LatLon(45, 5));
+        ds.addPrimitive(node);
+        @SuppressWarnings("unchecked")
+        final CacheAccess<TileZXY, ImageCache> cache = (CacheAccess<TileZXY, ImageCache>) TestUtils.getPrivateField(layer, "cache");
+        final Constructor<?> constructor = ImageCache.class.getDeclaredConstructors()[0];
+        constructor.setAccessible(true);
+        final ImageCache clean = (ImageCache) constructor.newInstance(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), null, false);
+        final TileZXY nodeTile = TileZXY.latLonToTile(45, 5, 16);
+        final TileZXY nodeTileZoom15 = TileZXY.latLonToTile(45, 5, 15);
+        final TileZXY farTile = TileZXY.latLonToTile(10, 10, 16);
+        final TileZXY otherZoomTile = TileZXY.latLonToTile(45, 5, 12);
+        for (TileZXY tile : Arrays.asList(nodeTile, nodeTileZoom15, farTile, otherZoomTile)) {
+            cache.put(tile, clean);
+        }
+        layer.updateCachedZooms(16);
+        assertEquals(new HashSet<>(Arrays.asList(15, 16, 17)), TestUtils.getPrivateField(layer, "cachedZooms"));
+
+        // Only the tiles of the kept zoom levels around the change are dirty
+        node.put("amenity", "bench");
+        assertTrue(cache.get(nodeTile).isDirty());
+        assertTrue(cache.get(nodeTileZoom15).isDirty());
+        assertFalse(cache.get(farTile).isDirty());
+        assertFalse(cache.get(otherZoomTile).isDirty());
+
+        // The tiles at the new position of a moved node are dirty
+        node.setCoor(new LatLon(10, 10));
+        assertTrue(cache.get(farTile).isDirty());
+
+        // The tiles of the zoom levels which are not kept up to date anymore are dirty
+        cache.put(farTile, clean);
+        layer.updateCachedZooms(12);
+        assertEquals(new HashSet<>(Arrays.asList(11, 12, 13)), TestUtils.getPrivateField(layer, "cachedZooms"));
+        assertTrue(cache.get(farTile).isDirty());
+        assertFalse(cache.get(otherZoomTile).isDirty());
+    }
+
     /**
      * Non-regression test for ticket <a href="https://josm.openstreetmap.de/ticket/17065">#17065</a>.
      */
@@ -8,12 +8,15 @@ import java.io.File;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
 import org.openstreetmap.josm.io.GpxReader;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.Main;
 import org.openstreetmap.josm.testutils.annotations.Projection;
@@ -49,4 +52,34 @@ class ImagesLoaderTest {
             assertEquals("<html>1 image loaded. 0 were found to be GPS tagged.</html>", layer.getToolTipText());
         }
     }
+
+    /**
+     * Test that the images read in parallel are the same as the ones read by a single thread
+     */
+    @Test
+    void testLoaderParallel() {
+        List<File> files = Stream.of(
+                TestUtils.getRegressionDataFile(11685, "2015-11-08_15-33-27-Xiaomi_YI-Y0030832.jpg"),
+                TestUtils.getRegressionDataFile(12255, "G0016941.JPG"),
+                TestUtils.getRegressionDataFile(14209, "0MbEfj1S--.1.jpg"),
+                TestUtils.getRegressionDataFile(14209, "7VWFOryj--.1.jpg"))
+                .map(File::new).collect(Collectors.toList());
+        Config.getPref().putInt("geoimage.loader.numberOfThreads", 1);
+        List<ImageEntry> expected = loadImages(files);
+        Config.getPref().putInt("geoimage.loader.numberOfThreads", 3);
+        List<ImageEntry> actual = loadImages(files);
+        assertEquals(files.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getFile(), actual.get(i).getFile());
+            assertEquals(expected.get(i).getExifInstant(), actual.get(i).getExifInstant());
+            assertEquals(expected.get(i).getPos(), actual.get(i).getPos());
+        }
+    }
+
+    private static List<ImageEntry> loadImages(List<File> files) {
+        new ImagesLoader(files, null).run();
+        GeoImageLayer layer = MainApplication.getLayerManager().getLayersOfType(GeoImageLayer.class).iterator().next();
+        MainApplication.getLayerManager().removeLayer(layer);
+        return layer.getImages();
+    }
 }
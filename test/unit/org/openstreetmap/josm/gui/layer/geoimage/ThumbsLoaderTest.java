@@ -3,18 +3,23 @@ package org.openstreetmap.josm.gui.layer.geoimage;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.tools.StreamUtils;
 
+import java.io.File;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Unit tests of {@link ThumbsLoader} class.
@@ -41,4 +46,23 @@ class ThumbsLoaderTest {
         }
     }
 
+    /**
+     * Test that the thumbnails of several images are loaded in parallel
+     */
+    @Test
+    void testLoadThumbnails() {
+        Config.getPref().putBoolean("geoimage.noThumbnailCache", true);
+        Config.getPref().putInt("geoimage.thumbnail.numberOfThreads", 3);
+        List<ImageEntry> imageEntries = Stream.of(
+                TestUtils.getRegressionDataFile(11685, "2015-11-08_15-33-27-Xiaomi_YI-Y0030832.jpg"),
+                TestUtils.getRegressionDataFile(12255, "G0016941.JPG"),
+                TestUtils.getRegressionDataFile(14209, "0MbEfj1S--.1.jpg"),
+                TestUtils.getRegressionDataFile(14209, "7VWFOryj--.1.jpg"))
+                .map(File::new).map(ImageEntry::new).collect(Collectors.toList());
+        new ThumbsLoader(imageEntries).run();
+        for (ImageEntry imageEntry : imageEntries) {
+            assertNotNull(imageEntry.getThumbnail(), imageEntry::toString);
+            assertTrue(imageEntry.getThumbnail().getWidth(null) > 0, imageEntry::toString);
+        }
+    }
 }
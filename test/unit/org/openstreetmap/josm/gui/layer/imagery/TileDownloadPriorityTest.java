@@ -0,0 +1,71 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.imagery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link TileDownloadPriority} class.
+ */
+class TileDownloadPriorityTest {
+    /** View of the tiles 10..13 x 20..22 at zoom 15 */
+    private final TileDownloadPriority priority = new TileDownloadPriority(15, 10, 20, 13, 22);
+
+    /**
+     * Test {@link TileDownloadPriority#getPriority}
+     */
+    @Test
+    void testGetPriority() {
+        TilePosition center = new TilePosition(11, 21, 15);
+        TilePosition edge = new TilePosition(13, 22, 15);
+        TilePosition ring = new TilePosition(14, 21, 15);
+        TilePosition lowerZoom = new TilePosition(5, 10, 14);
+        TilePosition higherZoom = new TilePosition(23, 43, 16);
+        TilePosition farZoom = new TilePosition(2, 5, 12);
+        // the lower and higher zoom levels have the same tier, the higher zoom tile is closer to the center
+        List<TilePosition> expected = Arrays.asList(center, edge, ring, higherZoom, lowerZoom, farZoom);
+        List<TilePosition> sorted = expected.stream()
+                .sorted(Comparator.comparingLong(priority::getPriority))
+                .collect(Collectors.toList());
+        assertEquals(expected, sorted);
+        assertTrue(priority.getPriority(center) < priority.getPriority(new TilePosition(10, 20, 15)));
+    }
+
+    /**
+     * Test {@link TileDownloadPriority#isStale}
+     */
+    @Test
+    void testIsStale() {
+        assertFalse(priority.isStale(new TilePosition(10, 20, 15)));
+        assertFalse(priority.isStale(new TilePosition(14, 23, 15)));
+        assertTrue(priority.isStale(new TilePosition(15, 21, 15)));
+        assertTrue(priority.isStale(new TilePosition(11, 30, 15)));
+        // lower zoom tiles covering the view are kept
+        assertFalse(priority.isStale(new TilePosition(0, 0, 10)));
+        assertTrue(priority.isStale(new TilePosition(1, 0, 10)));
+        // higher zoom tiles are kept only if they are not too detailed
+        assertFalse(priority.isStale(new TilePosition(44, 84, 17)));
+        assertTrue(priority.isStale(new TilePosition(88, 168, 18)));
+        assertTrue(priority.isStale(new TilePosition(0, 0, 17)));
+    }
+
+    /**
+     * Test {@link TileDownloadPriority#equals}
+     */
+    @Test
+    void testEquals() {
+        assertEquals(priority, new TileDownloadPriority(15, 10, 20, 13, 22));
+        assertEquals(priority.hashCode(), new TileDownloadPriority(15, 10, 20, 13, 22).hashCode());
+        assertNotEquals(priority, new TileDownloadPriority(15, 11, 20, 14, 22));
+        assertNotEquals(priority, new TileDownloadPriority(16, 10, 20, 13, 22));
+    }
+}
@@ -5,10 +5,14 @@ import static org.CustomMatchers.hasSize;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -55,6 +59,25 @@ class TaggingPresetReaderTest {
         assertEquals("[A1, A2, A3, B1, B2, B3, C1, C2, C3]", keys.toString());
     }
 
+    /**
+     * Test that the parsed sources are cached, and that the cache is only used for the same XML
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testCache() throws SAXException, IOException {
+        final String source = TestUtils.getTestDataRoot() + "preset_chunk.xml";
+        final byte[] hash = TaggingPresetCache.sha256(Files.readAllBytes(Paths.get(source)));
+        TaggingPresetReader.readAll(source, true);
+        assertNotNull(TaggingPresetCache.get(source, true, hash));
+        assertNull(TaggingPresetCache.get(source, true, TaggingPresetCache.sha256(new byte[0])));
+        // read again from the cache
+        final Collection<TaggingPreset> presets = TaggingPresetReader.readAll(source, true);
+        assertThat(presets, hasSize(1));
+        final List<String> keys = presets.iterator().next().data.stream().map(x -> ((Key) x).key).collect(Collectors.toList());
+        assertEquals("[A1, A2, A3, B1, B2, B3, C1, C2, C3]", keys.toString());
+    }
+
     /**
      * Test external entity resolving.
      * See #19286
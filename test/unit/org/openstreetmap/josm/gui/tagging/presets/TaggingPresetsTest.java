@@ -2,14 +2,23 @@
 package org.openstreetmap.josm.gui.tagging.presets;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import javax.swing.JMenu;
 import javax.swing.JSeparator;
@@ -17,7 +26,11 @@ import javax.swing.JSeparator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.actions.PreferencesAction;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MainMenu;
 import org.openstreetmap.josm.testutils.annotations.Main;
@@ -57,6 +70,52 @@ public class TaggingPresetsTest {
                 () -> assertInstanceOf(JSeparator.class, presetsMenu.getMenuComponent(3)));
     }
 
+    /**
+     * Test that {@link TaggingPresets#getMatchingPresets} returns the presets which match, in their order.
+     */
+    @Test
+    @org.openstreetmap.josm.testutils.annotations.TaggingPresets
+    void testGetMatchingPresets() {
+        final List<OsmPrimitive> primitives = Arrays.asList(
+                TestUtils.newNode("amenity=restaurant cuisine=pizza"),
+                TestUtils.newNode("natural=tree leaf_type=broadleaved"),
+                TestUtils.newNode("foo=bar"),
+                TestUtils.newNode(""),
+                TestUtils.newWay("highway=residential name=Main", new Node(1), new Node(2)),
+                TestUtils.newWay("building=yes addr:housenumber=1", new Node(1), new Node(2)),
+                TestUtils.newRelation("type=multipolygon landuse=forest"),
+                TestUtils.newRelation("type=route route=bus"));
+        final Collection<TaggingPreset> presets = TaggingPresets.getTaggingPresets();
+        assertFalse(presets.isEmpty());
+        for (OsmPrimitive p : primitives) {
+            assertEquals(presets.stream().filter(preset -> preset.test(p)).collect(Collectors.toList()),
+                    new ArrayList<>(TaggingPresets.getMatchingPresets(p)), p::toString);
+            final EnumSet<TaggingPresetType> types = EnumSet.of(TaggingPresetType.forPrimitive(p));
+            assertEquals(presets.stream().filter(preset -> preset.matches(types, p.getKeys(), true)).collect(Collectors.toList()),
+                    new ArrayList<>(TaggingPresets.getMatchingPresets(types, p.getKeys(), true)), p::toString);
+        }
+        assertFalse(TaggingPresets.getMatchingPresets(primitives.get(0)).isEmpty());
+        assertTrue(TaggingPresets.getMatchingPresets(primitives.get(3)).isEmpty());
+    }
+
+    /**
+     * Test that {@link TaggingPresets#getMatchingPresets(org.openstreetmap.josm.data.osm.IPrimitive)} calls
+     * {@link TaggingPreset#test} of the presets which override it.
+     */
+    @Test
+    @org.openstreetmap.josm.testutils.annotations.TaggingPresets
+    void testGetMatchingPresetsOverriddenTest() {
+        final TaggingPreset preset = new TaggingPreset() {
+            @Override
+            public boolean test(IPrimitive p) {
+                return p.hasKey("note");
+            }
+        };
+        TaggingPresets.addTaggingPresets(Collections.singleton(preset));
+        assertTrue(TaggingPresets.getMatchingPresets(TestUtils.newNode("note=foo")).contains(preset));
+        assertFalse(TaggingPresets.getMatchingPresets(TestUtils.newNode("foo=bar")).contains(preset));
+    }
+
     /**
      * Wait for asynchronous icon loading
      * @param presets presets collection
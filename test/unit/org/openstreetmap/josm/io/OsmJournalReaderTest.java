@@ -0,0 +1,216 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of {@link OsmJournalReader} and {@link OsmJournalWriter}.
+ */
+@BasicPreferences
+class OsmJournalReaderTest {
+
+    private static byte[] writeSnapshot(DataSet ds) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(baos, StandardCharsets.UTF_8)), false, ds.getVersion())) {
+            w.write(ds);
+        }
+        return baos.toByteArray();
+    }
+
+    private static void writeBlock(OsmJournalWriter writer, DataSet ds, OsmPrimitive... primitives) throws IOException {
+        writer.writeBlock(OsmJournalWriter.encodeBlock(ds, Arrays.asList(primitives)));
+    }
+
+    private static DataSet replay(byte[] snapshot, byte[] journal) throws IllegalDataException {
+        return OsmJournalReader.parseDataSet(new ByteArrayInputStream(snapshot), new ByteArrayInputStream(journal), null);
+    }
+
+    private static OsmPrimitive get(DataSet ds, long id, OsmPrimitiveType type) {
+        return ds.getPrimitiveById(id, type);
+    }
+
+    /**
+     * Test that the changes written to the journal are replayed on the snapshot
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testReplay() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 1));
+        Node n2 = new Node(new LatLon(2, 2));
+        Node n3 = new Node(5, 3);
+        n3.setCoor(new LatLon(3, 3));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        ds.addPrimitive(w);
+        byte[] snapshot = writeSnapshot(ds);
+
+        ByteArrayOutputStream journal = new ByteArrayOutputStream();
+        try (OsmJournalWriter writer = new OsmJournalWriter(journal)) {
+            writer.writeHeader();
+            // Block 1: move a node, tag the way, add a node and a relation referring to each other
+            n1.setCoor(new LatLon(1.5, 1.5));
+            w.put("highway", "residential");
+            Node n4 = new Node(new LatLon(4, 4));
+            ds.addPrimitive(n4);
+            w.addNode(n4);
+            Relation r = new Relation();
+            r.setMembers(Arrays.asList(new RelationMember("from", w), new RelationMember("via", n4)));
+            ds.addPrimitive(r);
+            writeBlock(writer, ds, r, n4, w, n1);
+            // Block 2: remove a node from the way and delete it, modify an existing primitive
+            w.removeNode(n2);
+            ds.removePrimitive(n2.getPrimitiveId());
+            n3.put("name", "Foo");
+            n3.setModified(true);
+            writeBlock(writer, ds, w, n2, n3);
+        }
+
+        DataSet result = replay(snapshot, journal.toByteArray());
+        assertEquals(ds.allPrimitives().size(), result.allPrimitives().size());
+        Node rn1 = (Node) get(result, n1.getUniqueId(), OsmPrimitiveType.NODE);
+        assertEquals(new LatLon(1.5, 1.5), rn1.getCoor());
+        assertNull(get(result, n2.getUniqueId(), OsmPrimitiveType.NODE));
+        Node rn3 = (Node) get(result, 5, OsmPrimitiveType.NODE);
+        assertEquals("Foo", rn3.get("name"));
+        assertEquals(3, rn3.getVersion());
+        assertTrue(rn3.isModified());
+        Way rw = (Way) get(result, w.getUniqueId(), OsmPrimitiveType.WAY);
+        assertEquals("residential", rw.get("highway"));
+        assertEquals(2, rw.getNodesCount());
+        assertEquals(rn1, rw.firstNode());
+        assertEquals(new LatLon(4, 4), rw.lastNode().getCoor());
+        Collection<Relation> relations = result.getRelations();
+        assertEquals(1, relations.size());
+        Relation rr = relations.iterator().next();
+        assertEquals(rw, rr.getMember(0).getMember());
+        assertEquals("via", rr.getMember(1).getRole());
+        assertEquals(rw.lastNode(), rr.getMember(1).getMember());
+    }
+
+    /**
+     * Test that the journal is replayed on a snapshot written by {@link OsmPbfWriter}
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testReplayOnPbfSnapshot() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 1));
+        Node n2 = new Node(new LatLon(2, 2));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        try (OsmPbfWriter writer = new OsmPbfWriter(snapshot, true, true)) {
+            writer.write(ds);
+        }
+
+        ByteArrayOutputStream journal = new ByteArrayOutputStream();
+        try (OsmJournalWriter writer = new OsmJournalWriter(journal)) {
+            writer.writeHeader();
+            n1.setCoor(new LatLon(1.5, 1.5));
+            Node n3 = new Node(new LatLon(3, 3));
+            ds.addPrimitive(n3);
+            w.addNode(n3);
+            writeBlock(writer, ds, n3, w, n1);
+        }
+
+        DataSet result = OsmJournalReader.parsePbfDataSet(new ByteArrayInputStream(snapshot.toByteArray()),
+                new ByteArrayInputStream(journal.toByteArray()), null);
+        assertEquals(4, result.allPrimitives().size());
+        Way rw = result.getWays().iterator().next();
+        assertEquals(3, rw.getNodesCount());
+        assertEquals(new LatLon(1.5, 1.5), rw.firstNode().getCoor());
+        assertEquals(new LatLon(3, 3), rw.lastNode().getCoor());
+    }
+
+    /**
+     * Test that the primitives created after a restore do not get the id of a new primitive of the journal
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testNewPrimitiveAfterReplay() throws Exception {
+        DataSet ds = new DataSet();
+        byte[] snapshot = writeSnapshot(ds);
+
+        // a node created in a previous session, with an id the id generator has not reached yet
+        long id = OsmPrimitiveType.NODE.getIdGenerator().currentUniqueId() - 1000;
+        Node n = (Node) OsmPrimitiveType.NODE.newInstance(id, true);
+        n.setCoor(new LatLon(1, 1));
+        ds.addPrimitive(n);
+        ByteArrayOutputStream journal = new ByteArrayOutputStream();
+        try (OsmJournalWriter writer = new OsmJournalWriter(journal)) {
+            writer.writeHeader();
+            writeBlock(writer, ds, n);
+        }
+
+        DataSet result = replay(snapshot, journal.toByteArray());
+        assertEquals(new LatLon(1, 1), ((Node) get(result, id, OsmPrimitiveType.NODE)).getCoor());
+        assertTrue(OsmPrimitiveType.NODE.getIdGenerator().currentUniqueId() <= id);
+        Node created = new Node(new LatLon(2, 2));
+        assertTrue(created.getUniqueId() < id);
+        result.addPrimitive(created);
+        assertEquals(2, result.getNodes().size());
+    }
+
+    /**
+     * Test that a truncated or corrupted block is ignored, as well as the blocks after it
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testTruncatedJournal() throws Exception {
+        DataSet ds = new DataSet();
+        Node n = new Node(new LatLon(1, 1));
+        ds.addPrimitive(n);
+        byte[] snapshot = writeSnapshot(ds);
+
+        ByteArrayOutputStream journal = new ByteArrayOutputStream();
+        int validLength;
+        try (OsmJournalWriter writer = new OsmJournalWriter(journal)) {
+            writer.writeHeader();
+            n.put("name", "1");
+            writeBlock(writer, ds, n);
+            validLength = journal.size();
+            n.put("name", "2");
+            writeBlock(writer, ds, n);
+        }
+        byte[] bytes = journal.toByteArray();
+
+        assertEquals("2", replay(snapshot, bytes).getNodes().iterator().next().get("name"));
+        assertEquals("1", replay(snapshot, Arrays.copyOf(bytes, bytes.length - 1)).getNodes().iterator().next().get("name"));
+        bytes[validLength + 10]++;
+        assertEquals("1", replay(snapshot, bytes).getNodes().iterator().next().get("name"));
+        assertFalse(replay(snapshot, Arrays.copyOf(bytes, 8)).getNodes().iterator().next().hasKeys());
+        assertThrows(IllegalDataException.class, () -> replay(snapshot, new byte[8]));
+    }
+}
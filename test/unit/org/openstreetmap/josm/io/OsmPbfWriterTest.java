@@ -0,0 +1,207 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DownloadPolicy;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of {@link OsmPbfWriter}.
+ */
+@BasicPreferences
+class OsmPbfWriterTest {
+
+    private static byte[] write(DataSet ds, boolean compress, boolean josmState) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OsmPbfWriter writer = new OsmPbfWriter(baos, compress, josmState)) {
+            writer.write(ds);
+        }
+        return baos.toByteArray();
+    }
+
+    private static DataSet read(byte[] bytes) throws IllegalDataException {
+        return OsmPbfReader.parseDataSet(new ByteArrayInputStream(bytes), null);
+    }
+
+    /**
+     * Test that the data and the JOSM state of a dataset are read back by {@link OsmPbfReader}
+     * @param compress whether the blocks are compressed
+     * @throws Exception if an error occurs
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void testRoundTrip(boolean compress) throws Exception {
+        DataSet ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(1, 2, 3, 4), "test"));
+        ds.addDataSource(new DataSource(new Bounds(-1, -2, 0.5, 0.25), "other"));
+        ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+        ds.setDownloadPolicy(DownloadPolicy.BLOCKED);
+        Node n1 = new Node(10, 3);
+        n1.setCoor(new LatLon(51.1234567, 7.7654321));
+        n1.setUser(User.createOsmUser(1234, "mapper"));
+        n1.setChangesetId(99);
+        n1.setRawTimestamp(1_600_000_000);
+        n1.put("amenity", "bench");
+        n1.put("note", "");
+        // A new node, with more decimals than the OSM API supports
+        Node n2 = new Node(new LatLon(1.123456789, -2.987654321));
+        n2.put("highway", "crossing");
+        Node n3 = new Node(11, 1);
+        n3.setCoor(new LatLon(0, 0));
+        n3.setModified(true);
+        Node n4 = new Node(12, 2);
+        n4.setCoor(new LatLon(0.1, 0.1));
+        n4.setDeleted(true);
+        // Not written, like with OsmWriter
+        Node n5 = new Node(new LatLon(5, 5));
+        Way w = new Way(20, 1);
+        w.setNodes(Arrays.asList(n1, n2, n3));
+        w.put("highway", "footway");
+        w.setUser(User.createLocalUser("local"));
+        Way incomplete = new Way(21);
+        Relation r = new Relation();
+        r.put("type", "route");
+        r.setMembers(Arrays.asList(new RelationMember("from", w), new RelationMember("", n1), new RelationMember("sub", incomplete)));
+        for (OsmPrimitive p : Arrays.asList(n1, n2, n3, n4, n5, w, incomplete, r)) {
+            ds.addPrimitive(p);
+        }
+        n5.setDeleted(true);
+
+        DataSet result = read(write(ds, compress, true));
+        assertEquals(ds.getDataSources().stream().map(s -> s.origin).collect(Collectors.toList()),
+                result.getDataSources().stream().map(s -> s.origin).collect(Collectors.toList()));
+        assertTrue(result.getDataSources().iterator().next().bounds.toBBox().bboxIsFunctionallyEqual(new Bounds(1, 2, 3, 4).toBBox(), 1e-9));
+        assertEquals(UploadPolicy.DISCOURAGED, result.getUploadPolicy());
+        assertEquals(DownloadPolicy.BLOCKED, result.getDownloadPolicy());
+        assertFalse(result.isLocked());
+        assertEquals(4, result.getNodes().size());
+
+        Node rn1 = (Node) result.getPrimitiveById(n1);
+        assertEquals(n1.getCoor(), rn1.getCoor());
+        assertEquals(n1.getKeys(), rn1.getKeys());
+        assertEquals(3, rn1.getVersion());
+        assertEquals(1234, rn1.getUser().getId());
+        assertEquals("mapper", rn1.getUser().getName());
+        assertEquals(99, rn1.getChangesetId());
+        assertEquals(1_600_000_000, rn1.getRawTimestamp());
+        assertFalse(rn1.isModified());
+        assertTrue(((Node) result.getPrimitiveById(n3)).isModified());
+        assertTrue(result.getPrimitiveById(n4).isDeleted());
+
+        Way rw = (Way) result.getPrimitiveById(w);
+        assertEquals("footway", rw.get("highway"));
+        assertEquals("local", rw.getUser().getName());
+        assertTrue(rw.getUser().isLocalUser());
+        assertEquals(3, rw.getNodesCount());
+        assertEquals(rn1, rw.firstNode());
+        Node rn2 = rw.getNode(1);
+        assertTrue(rn2.isNew());
+        assertEquals(n2.getCoor(), rn2.getCoor());
+        assertEquals("crossing", rn2.get("highway"));
+        assertNull(rn2.getUser());
+
+        Relation rr = result.getRelations().iterator().next();
+        assertTrue(rr.isNew());
+        assertEquals(3, rr.getMembersCount());
+        assertEquals(rw, rr.getMember(0).getMember());
+        assertEquals("", rr.getMember(1).getRole());
+        assertEquals(rn1, rr.getMember(1).getMember());
+        assertEquals("sub", rr.getMember(2).getRole());
+        assertTrue(rr.getMember(2).getMember().isIncomplete());
+        assertEquals(21, rr.getMember(2).getMember().getId());
+    }
+
+    /**
+     * Test that the files for other programs do not contain the modifications
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testModificationsNotWritten() throws Exception {
+        DataSet ds = new DataSet();
+        Node modified = new Node(1, 1);
+        modified.setCoor(new LatLon(1, 1));
+        Node deleted = new Node(2, 1);
+        deleted.setCoor(new LatLon(2, 2));
+        ds.addPrimitive(modified);
+        ds.addPrimitive(deleted);
+        modified.put("name", "modified");
+        deleted.setDeleted(true);
+
+        DataSet result = read(write(ds, true, false));
+        assertEquals(1, result.allPrimitives().size());
+        OsmPrimitive read = result.getPrimitiveById(modified);
+        assertEquals("modified", read.get("name"));
+        assertFalse(read.isModified());
+        assertNull(result.getPrimitiveById(deleted));
+    }
+
+    /**
+     * Test that the blocks encoded in parallel are written in order
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testBlocks() throws Exception {
+        Config.getPref().putInt("pbf.writer.threads", 3);
+        try {
+            DataSet ds = new DataSet();
+            List<Node> nodes = new ArrayList<>();
+            for (int i = 1; i <= 5 * OsmPbfWriter.MAX_PRIMITIVES_PER_BLOCK / 2; i++) {
+                Node n = new Node(i, 1);
+                n.setCoor(new LatLon(i * 1e-5, -i * 1e-5));
+                if (i % 7 == 0) {
+                    n.put("ref", Integer.toString(i));
+                }
+                ds.addPrimitive(n);
+                nodes.add(n);
+            }
+            Way w = new Way(1, 1);
+            w.setNodes(nodes);
+            ds.addPrimitive(w);
+            ds.lock();
+
+            DataSet result = read(write(ds, true, false));
+            assertTrue(result.isLocked());
+            assertEquals(nodes.size(), result.getNodes().size());
+            Way rw = (Way) result.getPrimitiveById(1, OsmPrimitiveType.WAY);
+            assertNotNull(rw);
+            assertEquals(w.getNodeIds(), rw.getNodeIds());
+            for (Node n : nodes) {
+                Node rn = (Node) result.getPrimitiveById(n);
+                assertTrue(n.equalsEpsilon(rn, ILatLon.MAX_SERVER_PRECISION), rn::toString);
+                assertEquals(n.getKeys(), rn.getKeys());
+            }
+        } finally {
+            Config.getPref().put("pbf.writer.threads", null);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -28,6 +29,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -386,6 +388,23 @@ class OsmReaderTest {
         assertEquals("runtime error: Query ran out of memory in \"query\" at line 5.", ds.getRemark());
     }
 
+    /**
+     * Test that the primitives read share the instances of their equal keys and values.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    void testSharedTagStrings() throws Exception {
+        String testData = "<osm version=\"0.6\" generator=\"fake generator\">"
+                + "<node id='1' version='1' lat='1' lon='1'><tag k='highway' v='crossing'/></node>"
+                + "<node id='2' version='1' lat='2' lon='2'><tag k='highway' v='crossing'/></node>"
+                + "</osm>";
+        DataSet ds = testValidData(testData, null);
+        Node n1 = (Node) ds.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        Node n2 = (Node) ds.getPrimitiveById(2, OsmPrimitiveType.NODE);
+        assertSame(n1.keys().findFirst().orElseThrow(AssertionError::new), n2.keys().findFirst().orElseThrow(AssertionError::new));
+        assertSame(n1.get("highway"), n2.get("highway"));
+    }
+
     /**
      * Test reading a file with unknown attributes in osm primitives
      * @param options The options to test
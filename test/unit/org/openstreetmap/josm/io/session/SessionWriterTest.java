@@ -2,8 +2,10 @@
 package org.openstreetmap.josm.io.session;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.Color;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -31,6 +33,7 @@ import org.openstreetmap.josm.data.imagery.ImageryInfo;
 import org.openstreetmap.josm.data.imagery.OffsetBookmark;
 import org.openstreetmap.josm.data.notes.Note;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
@@ -40,6 +43,7 @@ import org.openstreetmap.josm.gui.layer.NoteLayer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.layer.TMSLayer;
 import org.openstreetmap.josm.gui.layer.markerlayer.MarkerLayer;
+import org.openstreetmap.josm.io.OsmPbfReader;
 import org.openstreetmap.josm.testutils.annotations.Main;
 import org.openstreetmap.josm.testutils.annotations.Projection;
 import org.openstreetmap.josm.tools.MultiMap;
@@ -244,6 +248,27 @@ public class SessionWriterTest {
         testWrite(Collections.singletonList(createOsmLayer()), true);
     }
 
+    /**
+     * Tests to write a .joz file containing OSM data in the OSM PBF format.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testWriteOsmPbfJoz() throws Exception {
+        OsmDataSessionExporter.PROP_PBF.put(true);
+        try {
+            OsmDataLayer layer = createOsmLayer();
+            layer.data.addPrimitive(new Node(new LatLon(1, 2)));
+            Map<String, byte[]> bytes = testWrite(Collections.singletonList(layer), true);
+            String session = new String(bytes.get("session.jos"), StandardCharsets.UTF_8);
+            assertTrue(session.contains("version=\"" + OsmDataSessionImporter.PBF_VERSION + "\""), session);
+            DataSet ds = OsmPbfReader.parseDataSet(new ByteArrayInputStream(bytes.get("layers/01/data.osm.pbf")), null);
+            assertEquals(1, ds.getNodes().size());
+            assertTrue(ds.getNodes().iterator().next().isNew());
+        } finally {
+            OsmDataSessionExporter.PROP_PBF.remove();
+        }
+    }
+
     /**
      * Tests to write a .jos file containing GPX data.
      * @throws IOException if an I/O error occurs
@@ -3,6 +3,7 @@ package org.openstreetmap.josm.tools;
 
 import static java.util.Collections.singleton;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -43,6 +44,25 @@ class TerritoriesTest {
         check("Paris", new LatLon(48.8567, 2.3508), "EU", "FR", "FX");
     }
 
+    /**
+     * Test of {@link Territories#getIso3166Codes} method.
+     */
+    @Test
+    void testGetIso3166Codes() {
+        LatLon paris = new LatLon(48.8567, 2.3508);
+        LatLon atlantic = new LatLon(30, -40);
+        LatLon berlin = new LatLon(52.52, 13.405);
+        List<Set<String>> codes = Territories.getIso3166Codes(paris, atlantic, berlin);
+        assertEquals(3, codes.size());
+        assertTrue(codes.get(0).containsAll(Arrays.asList("EU", "FR", "FX")), codes.get(0)::toString);
+        assertTrue(codes.get(1).isEmpty(), codes.get(1)::toString);
+        assertTrue(codes.get(2).containsAll(Arrays.asList("EU", "DE")), codes.get(2)::toString);
+        assertFalse(codes.get(2).contains("FR"));
+        for (String code : codes.get(0)) {
+            assertTrue(Territories.isIso3166Code(code, paris), code);
+        }
+    }
+
     private static void check(String name, LatLon ll, String... expectedCodes) {
         for (String e : expectedCodes) {
             assertTrue(Territories.isIso3166Code(e, ll), name + " " + e);